@@ -68,6 +68,16 @@ public class ClientConfiguration {
 
     public static final SignVersion DEFAULT_SIGNATURE_VERSION = SignVersion.V1;
 
+    public static final int DEFAULT_MAX_CONCURRENT_TRANSFER_PARTS = 128;
+
+    public static final long DEFAULT_OBJECT_CACHE_DISK_BYTES = 1024L * 1024 * 1024;
+    public static final long DEFAULT_OBJECT_CACHE_MAX_OBJECT_SIZE = 1024 * 1024;
+
+    public static final long DEFAULT_OBJECT_METADATA_CACHE_TTL = 5 * 1000;
+    public static final long DEFAULT_OBJECT_METADATA_CACHE_NEGATIVE_TTL = 1000;
+
+    public static final int DEFAULT_COALESCING_MAX_REPLAY_BYTES = 1024 * 1024;
+
     protected String userAgent = DEFAULT_USER_AGENT;
     protected int maxErrorRetry = DEFAULT_MAX_RETRIES;
     protected int connectionRequestTimeout = DEFAULT_CONNECTION_REQUEST_TIMEOUT;
@@ -101,6 +111,32 @@ public class ClientConfiguration {
 
     protected boolean crcCheckEnabled = true;
 
+    protected boolean zeroCopyUploadEnabled = false;
+
+    protected boolean virtualThreadsEnabled = false;
+
+    protected int maxConcurrentTransferParts = DEFAULT_MAX_CONCURRENT_TRANSFER_PARTS;
+
+    protected long objectCacheMemoryBytes = 0;
+
+    protected String objectCacheDirectory;
+
+    protected long objectCacheDiskBytes = DEFAULT_OBJECT_CACHE_DISK_BYTES;
+
+    protected long objectCacheMaxObjectSize = DEFAULT_OBJECT_CACHE_MAX_OBJECT_SIZE;
+
+    protected long objectCacheTtl = 0;
+
+    protected int objectMetadataCacheMaxEntries = 0;
+
+    protected long objectMetadataCacheTtl = DEFAULT_OBJECT_METADATA_CACHE_TTL;
+
+    protected long objectMetadataCacheNegativeTtl = DEFAULT_OBJECT_METADATA_CACHE_NEGATIVE_TTL;
+
+    protected boolean requestCoalescingEnabled = false;
+
+    protected int coalescingMaxReplayBytes = DEFAULT_COALESCING_MAX_REPLAY_BYTES;
+
     protected List<RequestSigner> signerHandlers = new LinkedList<RequestSigner>();
 
     protected SignVersion signatureVersion = DEFAULT_SIGNATURE_VERSION;
@@ -651,6 +687,305 @@ public class ClientConfiguration {
         this.crcCheckEnabled = crcCheckEnabled;
     }
 
+    /**
+     * Gets the flag of sending local files straight from their file channel on
+     * upload. By default it's false.
+     *
+     * @return true enabled; false disabled.
+     */
+    public boolean isZeroCopyUploadEnabled() {
+        return zeroCopyUploadEnabled;
+    }
+
+    /**
+     * Sets the flag of sending local files straight from their file channel on
+     * upload. It applies to putObject with a file and uploadPart/uploadFile.
+     * Over HTTP the file is sent with {@link java.nio.channels.FileChannel#transferTo},
+     * over HTTPS it is read through a direct buffer. The file content does not
+     * go through the java streams, so it only takes effect when the CRC check
+     * is disabled and no progress listener is set on the request.
+     *
+     * @param zeroCopyUploadEnabled
+     *            True to enable it; False to disable it.
+     */
+    public void setZeroCopyUploadEnabled(boolean zeroCopyUploadEnabled) {
+        this.zeroCopyUploadEnabled = zeroCopyUploadEnabled;
+    }
+
+    /**
+     * Gets the flag of running transfer tasks and timed requests on virtual
+     * threads. By default it's false.
+     *
+     * @return true enabled; false disabled.
+     */
+    public boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
+    /**
+     * Sets the flag of running transfer tasks and timed requests on virtual
+     * threads. It requires JDK 21 or later and is ignored on older JDKs. When
+     * enabled, uploadFile/downloadFile start one virtual thread per part and
+     * limit the running parts to taskNum with a semaphore, and the request
+     * timeout executor starts one virtual thread per request.
+     *
+     * @param virtualThreadsEnabled
+     *            True to enable it; False to disable it.
+     */
+    public void setVirtualThreadsEnabled(boolean virtualThreadsEnabled) {
+        this.virtualThreadsEnabled = virtualThreadsEnabled;
+    }
+
+    /**
+     * Gets the max number of parts that uploadFile/downloadFile calls of the
+     * client run at the same time. By default it's 128.
+     *
+     * @return The max number of concurrent parts.
+     */
+    public int getMaxConcurrentTransferParts() {
+        return maxConcurrentTransferParts;
+    }
+
+    /**
+     * Sets the max number of parts that uploadFile/downloadFile calls of the
+     * client run at the same time. All the calls share one executor of this
+     * size, and each call still runs at most its taskNum parts at a time. A
+     * value of 0 or less gives every call a thread pool of its own instead.
+     *
+     * @param maxConcurrentTransferParts
+     *            The max number of concurrent parts.
+     */
+    public void setMaxConcurrentTransferParts(int maxConcurrentTransferParts) {
+        this.maxConcurrentTransferParts = maxConcurrentTransferParts;
+    }
+
+    /**
+     * Gets the max bytes of object content that getObject keeps in memory. By
+     * default it's 0, which disables the object cache.
+     *
+     * @return The max bytes of the in-memory object cache.
+     */
+    public long getObjectCacheMemoryBytes() {
+        return objectCacheMemoryBytes;
+    }
+
+    /**
+     * Sets the max bytes of object content that getObject keeps in memory. A
+     * value greater than 0 enables the object cache, which serves repeated
+     * getObject calls of an object, a version or a range from a segmented LRU
+     * cache, and revalidates them with If-None-Match once they are older than
+     * the object cache TTL. Requests with a signed URL, a process, response
+     * header overrides or conditions of their own are never cached.
+     *
+     * @param objectCacheMemoryBytes
+     *            The max bytes of the in-memory object cache.
+     */
+    public void setObjectCacheMemoryBytes(long objectCacheMemoryBytes) {
+        this.objectCacheMemoryBytes = objectCacheMemoryBytes;
+    }
+
+    /**
+     * Gets the directory of the on-disk object cache, or null if there is no
+     * disk tier. By default it's null.
+     *
+     * @return The directory of the on-disk object cache.
+     */
+    public String getObjectCacheDirectory() {
+        return objectCacheDirectory;
+    }
+
+    /**
+     * Sets the directory of the on-disk object cache. Every object cached in
+     * memory is also written there, and an object evicted from memory is read
+     * back from there. The directory may be shared by the clients of several
+     * processes.
+     *
+     * @param objectCacheDirectory
+     *            The directory of the on-disk object cache, or null to keep the
+     *            cache in memory only.
+     */
+    public void setObjectCacheDirectory(String objectCacheDirectory) {
+        this.objectCacheDirectory = objectCacheDirectory;
+    }
+
+    /**
+     * Gets the max bytes of the on-disk object cache. By default it's 1GB.
+     *
+     * @return The max bytes of the on-disk object cache.
+     */
+    public long getObjectCacheDiskBytes() {
+        return objectCacheDiskBytes;
+    }
+
+    /**
+     * Sets the max bytes of the on-disk object cache. The least recently used
+     * files are deleted beyond it.
+     *
+     * @param objectCacheDiskBytes
+     *            The max bytes of the on-disk object cache.
+     */
+    public void setObjectCacheDiskBytes(long objectCacheDiskBytes) {
+        this.objectCacheDiskBytes = objectCacheDiskBytes;
+    }
+
+    /**
+     * Gets the max size of an object, or a range, that the object cache keeps.
+     * By default it's 1MB.
+     *
+     * @return The max size of a cached object.
+     */
+    public long getObjectCacheMaxObjectSize() {
+        return objectCacheMaxObjectSize;
+    }
+
+    /**
+     * Sets the max size of an object, or a range, that the object cache keeps.
+     * Bigger ones are streamed as if there were no cache.
+     *
+     * @param objectCacheMaxObjectSize
+     *            The max size of a cached object.
+     */
+    public void setObjectCacheMaxObjectSize(long objectCacheMaxObjectSize) {
+        this.objectCacheMaxObjectSize = objectCacheMaxObjectSize;
+    }
+
+    /**
+     * Gets the time in milliseconds a cached object is served without
+     * revalidation. By default it's 0.
+     *
+     * @return The TTL of cached objects in milliseconds.
+     */
+    public long getObjectCacheTtl() {
+        return objectCacheTtl;
+    }
+
+    /**
+     * Sets the time in milliseconds a cached object is served without
+     * revalidation. An older one is revalidated by a GetObject with
+     * If-None-Match, and a 304 Not Modified response serves it again without
+     * transferring the body. With 0, every getObject is revalidated.
+     *
+     * @param objectCacheTtl
+     *            The TTL of cached objects in milliseconds.
+     */
+    public void setObjectCacheTtl(long objectCacheTtl) {
+        this.objectCacheTtl = objectCacheTtl;
+    }
+
+    /**
+     * Gets the max number of objects whose metadata is cached. By default it's
+     * 0, which disables the metadata cache.
+     *
+     * @return The max number of objects in the metadata cache.
+     */
+    public int getObjectMetadataCacheMaxEntries() {
+        return objectMetadataCacheMaxEntries;
+    }
+
+    /**
+     * Sets the max number of objects whose metadata is cached. A value
+     * greater than 0 enables the metadata cache, which serves repeated
+     * headObject, getObjectMetadata, getSimplifiedObjectMeta and
+     * doesObjectExist calls without a request. The put, copy, delete and
+     * complete calls of the client drop the cached metadata of the object, but
+     * the writes of other clients are only seen once the TTL runs out.
+     *
+     * @param objectMetadataCacheMaxEntries
+     *            The max number of objects in the metadata cache.
+     */
+    public void setObjectMetadataCacheMaxEntries(int objectMetadataCacheMaxEntries) {
+        this.objectMetadataCacheMaxEntries = objectMetadataCacheMaxEntries;
+    }
+
+    /**
+     * Gets the time in milliseconds the metadata of an object is cached. By
+     * default it's 5 seconds.
+     *
+     * @return The TTL of cached metadata in milliseconds.
+     */
+    public long getObjectMetadataCacheTtl() {
+        return objectMetadataCacheTtl;
+    }
+
+    /**
+     * Sets the time in milliseconds the metadata of an object is cached.
+     *
+     * @param objectMetadataCacheTtl
+     *            The TTL of cached metadata in milliseconds.
+     */
+    public void setObjectMetadataCacheTtl(long objectMetadataCacheTtl) {
+        this.objectMetadataCacheTtl = objectMetadataCacheTtl;
+    }
+
+    /**
+     * Gets the time in milliseconds a NoSuchKey or NoSuchBucket error is
+     * cached. By default it's 1 second.
+     *
+     * @return The TTL of cached not found errors in milliseconds.
+     */
+    public long getObjectMetadataCacheNegativeTtl() {
+        return objectMetadataCacheNegativeTtl;
+    }
+
+    /**
+     * Sets the time in milliseconds a NoSuchKey or NoSuchBucket error is
+     * cached. During it, the metadata calls of the object throw the error, and
+     * doesObjectExist returns false, without a request. 0 disables the caching
+     * of errors.
+     *
+     * @param objectMetadataCacheNegativeTtl
+     *            The TTL of cached not found errors in milliseconds.
+     */
+    public void setObjectMetadataCacheNegativeTtl(long objectMetadataCacheNegativeTtl) {
+        this.objectMetadataCacheNegativeTtl = objectMetadataCacheNegativeTtl;
+    }
+
+    /**
+     * Gets the flag of coalescing concurrent identical reads. By default it's
+     * false.
+     *
+     * @return True if concurrent identical getObject and headObject calls
+     *         share one request.
+     */
+    public boolean isRequestCoalescingEnabled() {
+        return requestCoalescingEnabled;
+    }
+
+    /**
+     * Sets the flag of coalescing concurrent identical reads. When it's set,
+     * a getObject or headObject call that finds an identical call in flight
+     * waits for it and shares its result instead of sending a request of its
+     * own.
+     *
+     * @param requestCoalescingEnabled
+     *            True to coalesce concurrent identical reads.
+     */
+    public void setRequestCoalescingEnabled(boolean requestCoalescingEnabled) {
+        this.requestCoalescingEnabled = requestCoalescingEnabled;
+    }
+
+    /**
+     * Gets the max size of an object body shared by coalesced getObject calls.
+     * By default it's 1MB.
+     *
+     * @return The max size of a shared body in bytes.
+     */
+    public int getCoalescingMaxReplayBytes() {
+        return coalescingMaxReplayBytes;
+    }
+
+    /**
+     * Sets the max size of an object body shared by coalesced getObject calls.
+     * A body up to this size is buffered once and replayed to every caller; the
+     * waiting callers of a bigger body send requests of their own.
+     *
+     * @param coalescingMaxReplayBytes
+     *            The max size of a shared body in bytes.
+     */
+    public void setCoalescingMaxReplayBytes(int coalescingMaxReplayBytes) {
+        this.coalescingMaxReplayBytes = coalescingMaxReplayBytes;
+    }
+
     /**
      * Gets signer handlers
      *
@@ -21,6 +21,7 @@ package com.aliyun.oss;
 
 import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.Date;
 import java.util.List;
@@ -1187,6 +1188,34 @@ public interface OSS {
      */
     public OSSObject selectObject(SelectObjectRequest selectObjectRequest) throws OSSException, ClientException;
 
+    /**
+     * Selects an object by concurrent select requests, each of which selects
+     * a range of the splits of the object.
+     *
+     * The number of splits is taken from
+     * {@link ParallelSelectObjectRequest#getSplits()}, or from the select
+     * metadata of the object, which is created if it does not exist. The
+     * results of the ranges are merged in the order of the splits, or in the
+     * order they are selected when the request is unordered. The select
+     * progress listener receives the scanned bytes of all the ranges, and the
+     * first range that fails fails the returned stream.
+     *
+     * @param parallelSelectObjectRequest
+     *            A {@link ParallelSelectObjectRequest} instance that specifies
+     *            the bucket name, object key, filter expression, input and
+     *            output serialization, thread count and the max number of
+     *            ranges buffered ahead.
+     * @return A {@link OSSObject} instance whose content is the merged result.
+     *         The caller is responsible to close the content after usage.
+     * @throws OSSException
+     *             If any errors are encountered in the server side.
+     * @throws ClientException
+     *             If any errors are encountered in the client while making the
+     *             request or handling the response.
+     */
+    public OSSObject selectObjectParallel(ParallelSelectObjectRequest parallelSelectObjectRequest)
+            throws OSSException, ClientException;
+
     /**
      * Gets the {@link OSSObject} from the signed Url.
      * 
@@ -1433,6 +1462,223 @@ public interface OSS {
      */
     public DeleteVersionsResult deleteVersions(DeleteVersionsRequest deleteVersionsRequest)
             throws OSSException, ClientException;
+
+    /**
+     * Deletes a stream of keys, or of object versions, such as the keys of a
+     * listing, in concurrent batches of up to 1000 keys.
+     *
+     * Failed batches are retried on timeouts and server busy errors, and the
+     * keys that could not be deleted are reported in the result rather than
+     * thrown.
+     *
+     * @param bulkDeleteRequest
+     *            A {@link BulkDeleteRequest} instance that specifies the
+     *            bucket, the keys or versions, the concurrency and the rate
+     *            limit.
+     * @return A {@link BulkDeleteResult} instance with the deleted count, the
+     *         throughput and the failed keys.
+     * @throws OSSException
+     *             If any errors are encountered in the server side.
+     * @throws ClientException
+     *             If any errors are encountered in the client while making the
+     *             request or handling the response.
+     */
+    public BulkDeleteResult bulkDelete(BulkDeleteRequest bulkDeleteRequest) throws OSSException, ClientException;
+
+    /**
+     * Copies, or moves, many objects by server-side copies: a stream of
+     * (source, destination) pairs, or every object under a prefix to another
+     * prefix.
+     *
+     * Objects below the multipart threshold are copied by CopyObject, larger
+     * ones by concurrent UploadPartCopy requests. Moves within a bucket with
+     * hierarchical namespace use RenameObject; other moves delete the source
+     * only once the copy matches it. Objects that fail are reported in the
+     * result rather than thrown, and with a checkpoint file a rerun skips the
+     * completed copies.
+     *
+     * @param bulkCopyRequest
+     *            A {@link BulkCopyRequest} instance that specifies the objects,
+     *            the concurrency, the rate limit and the checkpoint file.
+     * @return A {@link BulkCopyResult} instance with the copied count and
+     *         bytes, the throughput and the failed objects.
+     * @throws OSSException
+     *             If any errors are encountered in the server side.
+     * @throws ClientException
+     *             If any errors are encountered in the client while making the
+     *             request or handling the response.
+     */
+    public BulkCopyResult bulkCopy(BulkCopyRequest bulkCopyRequest) throws OSSException, ClientException;
+
+    /**
+     * Copies an object of any size, up to the 48.8TB limit of multipart
+     * objects, by concurrent UploadPartCopy requests.
+     *
+     * The metadata and the tags of the source are kept unless the request
+     * gives new metadata. With the checkpoint enabled, a failed copy can be
+     * resumed by calling the method again with the same request; the parts
+     * already copied are not copied again, as long as the source has not
+     * changed.
+     *
+     * @param copyLargeObjectRequest
+     *            A {@link CopyLargeObjectRequest} instance that specifies the
+     *            source, the destination, the part size, the concurrency and
+     *            the checkpoint file.
+     * @return A {@link CopyLargeObjectResult} instance with the result of the
+     *         multipart upload and the number of parts copied.
+     * @throws OSSException
+     *             If any errors are encountered in the server side.
+     * @throws ClientException
+     *             If any errors are encountered in the client while making the
+     *             request or handling the response.
+     */
+    public CopyLargeObjectResult copyLargeObject(CopyLargeObjectRequest copyLargeObjectRequest)
+            throws OSSException, ClientException;
+
+    /**
+     * Initiates a multipart upload whose parts are uploaded by the workers of
+     * several processes or nodes.
+     *
+     * The returned handle is serializable and is passed to the workers, which
+     * lease ranges of part numbers from a shared
+     * {@link UploadCoordinationStore}, upload the parts of their ranges with
+     * {@link #uploadPart(UploadPartRequest)} and complete their leases. The
+     * upload is then completed by
+     * {@link #completeDistributedUpload(CompleteDistributedUploadRequest)}.
+     *
+     * @param initiateMultipartUploadRequest
+     *            A {@link InitiateMultipartUploadRequest} instance that
+     *            specifies the bucket name, the key and the metadata.
+     * @return A {@link DistributedUpload} handle of the upload.
+     * @throws OSSException
+     *             If any errors are encountered in the server side.
+     * @throws ClientException
+     *             If any errors are encountered in the client while making the
+     *             request or handling the response.
+     */
+    public DistributedUpload initiateDistributedUpload(InitiateMultipartUploadRequest initiateMultipartUploadRequest)
+            throws OSSException, ClientException;
+
+    /**
+     * Completes a distributed upload once all the leases of the coordination
+     * store are completed. A {@link PresignedMultipartUpload} is completed
+     * without a store, once all the parts of the object are uploaded. The parts are listed from the server, so they do
+     * not need to be collected from the workers; only the parts in the ranges
+     * of the leases are completed. The leases of the upload are then removed
+     * from the store.
+     *
+     * @param completeDistributedUploadRequest
+     *            A {@link CompleteDistributedUploadRequest} instance that
+     *            specifies the upload and the coordination store.
+     * @return A {@link CompleteMultipartUploadResult} instance.
+     * @throws OSSException
+     *             If any errors are encountered in the server side.
+     * @throws ClientException
+     *             If a lease is not completed, or any errors are encountered
+     *             in the client while making the request or handling the
+     *             response.
+     */
+    public CompleteMultipartUploadResult completeDistributedUpload(
+            CompleteDistributedUploadRequest completeDistributedUploadRequest) throws OSSException, ClientException;
+
+    /**
+     * Initiates a multipart upload of an object of the given size, and
+     * presigns the URLs that upload its parts, so that a client without
+     * credentials uploads the object directly, e.g. with
+     * {@link #uploadPresignedParts(UploadPresignedPartsRequest)}. The upload
+     * is then completed on the server side by
+     * {@link #completeDistributedUpload(CompleteDistributedUploadRequest)}.
+     *
+     * All the URLs expire at the time of the request. With the upload id of
+     * the request, the URLs of more parts of that upload are presigned
+     * instead, e.g. for a range of parts or to replace expired URLs.
+     *
+     * @param presignMultipartUploadRequest
+     *            A {@link PresignMultipartUploadRequest} instance that
+     *            specifies the object, its size, the part size, the range of
+     *            parts and the expiration.
+     * @return A {@link PresignedMultipartUpload} instance with the presigned
+     *         parts.
+     * @throws OSSException
+     *             If any errors are encountered in the server side.
+     * @throws ClientException
+     *             If any errors are encountered in the client while making the
+     *             request or handling the response.
+     */
+    public PresignedMultipartUpload presignMultipartUpload(PresignMultipartUploadRequest presignMultipartUploadRequest)
+            throws OSSException, ClientException;
+
+    /**
+     * Uploads the presigned parts of a multipart upload from a local file by
+     * concurrent PUT requests to their URLs. The client needs no credentials.
+     *
+     * @param uploadPresignedPartsRequest
+     *            A {@link UploadPresignedPartsRequest} instance that specifies
+     *            the presigned upload, the file and the concurrency.
+     * @return The {@link PartETag} of the uploaded parts, in the order of the
+     *         part numbers.
+     * @throws OSSException
+     *             If any errors are encountered in the server side.
+     * @throws ClientException
+     *             If any errors are encountered in the client while making the
+     *             request or handling the response.
+     */
+    public List<PartETag> uploadPresignedParts(UploadPresignedPartsRequest uploadPresignedPartsRequest)
+            throws OSSException, ClientException;
+
+    /**
+     * Uploads the files of a local directory to the objects under a prefix,
+     * skipping the files that are the same as their objects.
+     *
+     * The directory is walked in the order of the object listing and merged
+     * with it. A file of the size of its object is skipped when the manifest
+     * records it unchanged since its last transfer, or when its CRC64 matches
+     * the x-oss-hash-crc64ecma of the object, or its MD5 a plain ETag. Files
+     * below the multipart threshold are uploaded by PutObject, larger ones by
+     * concurrent parts; all the requests share the concurrency and the
+     * bandwidth of the request. Files that fail are reported in the result
+     * rather than thrown, and with a manifest file a rerun skips the files
+     * already uploaded.
+     *
+     * @param directoryTransferRequest
+     *            A {@link DirectoryTransferRequest} instance that specifies the
+     *            bucket, the prefix, the directory, the concurrency, the
+     *            bandwidth and the manifest file.
+     * @return A {@link DirectoryTransferResult} instance with the uploaded and
+     *         skipped counts and the failed files.
+     * @throws OSSException
+     *             If the objects cannot be listed.
+     * @throws ClientException
+     *             If any errors are encountered in the client while listing
+     *             the objects or reading the manifest.
+     */
+    public DirectoryTransferResult uploadDirectory(DirectoryTransferRequest directoryTransferRequest)
+            throws OSSException, ClientException;
+
+    /**
+     * Downloads the objects under a prefix to the files of a local directory,
+     * skipping the objects that are the same as their files.
+     *
+     * An object is skipped when its file has its size and its modification
+     * time, which the download sets, or else a matching CRC64 or MD5, as for
+     * {@link #uploadDirectory(DirectoryTransferRequest)}. Large objects are
+     * downloaded by concurrent ranged requests, and each file is renamed in
+     * place only once complete and checked.
+     *
+     * @param directoryTransferRequest
+     *            A {@link DirectoryTransferRequest} instance that specifies the
+     *            bucket, the prefix, the directory, the concurrency, the
+     *            bandwidth and the manifest file.
+     * @return A {@link DirectoryTransferResult} instance with the downloaded
+     *         and skipped counts and the failed files.
+     * @throws OSSException
+     *             If the objects cannot be listed.
+     * @throws ClientException
+     *             If any errors are encountered in the client while listing
+     *             the objects or reading the manifest.
+     */
+    public DirectoryTransferResult downloadDirectory(DirectoryTransferRequest directoryTransferRequest)
+            throws OSSException, ClientException;
     
     /**
      * Checks if a specific {@link OSSObject} exists under the specific
@@ -1753,6 +1999,26 @@ public interface OSS {
      */
     public URL generatePresignedUrl(GeneratePresignedUrlRequest request) throws ClientException;
 
+    /**
+     * Creates a presigner of the URLs of many objects of a bucket, with the
+     * bucket, method, headers, parameters and expiration of the template.
+     *
+     * The parts of the signature that do not depend on the key are computed
+     * once, and again only when the credentials change, so the URLs are
+     * presigned at a much higher rate than by
+     * {@link #generatePresignedUrl(GeneratePresignedUrlRequest)}. Large
+     * batches are presigned by concurrent tasks, and the still valid URLs may
+     * be cached.
+     *
+     * @param urlPresignerRequest
+     *            A {@link UrlPresignerRequest} instance with the template, the
+     *            validity, the cache size and the concurrency.
+     * @return A {@link UrlPresigner} instance.
+     * @throws ClientException
+     *             If the request is invalid.
+     */
+    public UrlPresigner createUrlPresigner(UrlPresignerRequest urlPresignerRequest) throws ClientException;
+
     /**
      * Sets image processing attributes on the specific {@link Bucket}
      * 
@@ -2984,6 +3250,27 @@ public interface OSS {
      */
     public UploadFileResult uploadFile(UploadFileRequest uploadFileRequest) throws Throwable;
 
+    /**
+     * Opens a stream that uploads what is written to an object, when the size
+     * of the object is not known ahead.
+     *
+     * The data is buffered in parts of the part size, and every full part is
+     * uploaded in the background by a multipart upload while the caller keeps
+     * writing. The writes block when maxBufferedParts parts are waiting for
+     * upload. A stream closed before one part is filled is uploaded by a single
+     * PutObject. Closing the stream completes the upload and creates the
+     * object, and {@link OSSOutputStream#abort()} discards it.
+     *
+     * @param uploadStreamRequest
+     *            A {@link UploadStreamRequest} instance that specifies the
+     *            bucket name, object key, part size, thread count and the
+     *            object metadata.
+     * @return A {@link OSSOutputStream} instance to write the object to.
+     * @throws ClientException
+     *             If the request is invalid.
+     */
+    public OSSOutputStream openOutputStream(UploadStreamRequest uploadStreamRequest) throws ClientException;
+
     /**
      * File download
      * 
@@ -3007,6 +3294,76 @@ public interface OSS {
      */
     public DownloadFileResult downloadFile(DownloadFileRequest downloadFileRequest) throws Throwable;
 
+    /**
+     * Gets an object as a stream that is fetched by concurrent ranged GETs
+     * ahead of the reader, so that one stream is not limited to the throughput
+     * of one connection.
+     *
+     * The parts are returned in order. At most maxBufferedParts parts are
+     * fetched or held in memory at a time. Every GET must match the ETag of the
+     * object when the stream was opened. When CRC check is enabled, the CRC64
+     * of the content is verified at the end of the stream. The returned
+     * {@link OSSObject} must be closed, which cancels the GETs still running.
+     *
+     * @param parallelGetObjectRequest
+     *            A {@link ParallelGetObjectRequest} instance that specifies the
+     *            bucket name, object key, part size, thread count and the max
+     *            number of parts buffered ahead.
+     * @return A {@link OSSObject} instance with the object metadata and the
+     *         content stream.
+     * @throws OSSException
+     *             If any errors are encountered in the server side.
+     * @throws ClientException
+     *             If any errors are encountered in the client while making the
+     *             request or handling the response.
+     */
+    public OSSObject getObjectParallel(ParallelGetObjectRequest parallelGetObjectRequest)
+            throws OSSException, ClientException;
+
+    /**
+     * Gets an object by concurrent ranged GETs, and writes it in order to the
+     * given {@link OutputStream}. The output stream is not closed.
+     *
+     * @param parallelGetObjectRequest
+     *            A {@link ParallelGetObjectRequest} instance that specifies the
+     *            bucket name, object key, part size, thread count and the max
+     *            number of parts buffered ahead.
+     * @param output
+     *            The {@link OutputStream} to write the object content to.
+     * @return The {@link ObjectMetadata} instance of the object.
+     * @throws OSSException
+     *             If any errors are encountered in the server side.
+     * @throws ClientException
+     *             If any errors are encountered in the client while making the
+     *             request or handling the response.
+     */
+    public ObjectMetadata getObjectParallel(ParallelGetObjectRequest parallelGetObjectRequest, OutputStream output)
+            throws OSSException, ClientException;
+
+    /**
+     * Opens a channel for random reads of an object, such as the footer and
+     * column chunk reads of columnar files.
+     *
+     * The object is read by ranged GETs in blocks of the block size, which
+     * are kept in an LRU cache. Nearby reads are served by one GET, and
+     * sequential reads fetch blocks ahead. Every GET must match the ETag of the
+     * object when the channel was opened, so a concurrent overwrite fails the
+     * reads instead of mixing two versions.
+     *
+     * @param objectChannelRequest
+     *            A {@link ObjectChannelRequest} instance that specifies the
+     *            bucket name, object key, block size and cache size.
+     * @return A {@link OSSObjectChannel} instance, which must be closed to
+     *         release the cached blocks.
+     * @throws OSSException
+     *             If any errors are encountered in the server side.
+     * @throws ClientException
+     *             If any errors are encountered in the client while making the
+     *             request or handling the response.
+     */
+    public OSSObjectChannel openObjectChannel(ObjectChannelRequest objectChannelRequest)
+            throws OSSException, ClientException;
+
     /**
      * Creates a live streaming channel. OSS could manage the RTMP inbound
      * stream by the "Live Channel". To store the RTMP stream into OSS, this
@@ -32,12 +32,14 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.InetAddress;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -59,6 +61,8 @@ import com.aliyun.oss.model.InventoryConfiguration;
  */
 public class OSSClient implements OSS {
 
+    private static final String SAVE_AS_PREFIX = "sys/saveas,";
+
     /* The default credentials provider */
     private CredentialsProvider credsProvider;
 
@@ -75,6 +79,13 @@ public class OSSClient implements OSS {
     private CORSOperation corsOperation;
     private OSSUploadOperation uploadOperation;
     private OSSDownloadOperation downloadOperation;
+    private OSSBulkOperation bulkOperation;
+    private OSSDistributedUploadOperation distributedUploadOperation;
+    private OSSDirectoryTransferOperation directoryTransferOperation;
+    private SharedTransferExecutor transferExecutor;
+    private ObjectContentCache objectCache;
+    private ObjectMetadataCache metadataCache;
+    private RequestCoalescer requestCoalescer;
     private LiveChannelOperation liveChannelOperation;
 
     /**Gets the inner multipartOperation, used for subclass to do implement opreation.*/
@@ -90,11 +101,13 @@ public class OSSClient implements OSS {
     /**Sets the inner downloadOperation.*/
     public void setDownloadOperation(OSSDownloadOperation downloadOperation) {
         this.downloadOperation = downloadOperation;
+        this.downloadOperation.setTransferExecutor(transferExecutor);
     }
 
     /**Sets the inner uploadOperation.*/
     public void setUploadOperation(OSSUploadOperation uploadOperation) {
         this.uploadOperation = uploadOperation;
+        this.uploadOperation.setTransferExecutor(transferExecutor);
     }
 
     /**
@@ -293,8 +306,32 @@ public class OSSClient implements OSS {
         this.objectOperation = new OSSObjectOperation(this.serviceClient, this.credsProvider);
         this.multipartOperation = new OSSMultipartOperation(this.serviceClient, this.credsProvider);
         this.corsOperation = new CORSOperation(this.serviceClient, this.credsProvider);
-        this.uploadOperation = new OSSUploadOperation(this.multipartOperation);
+        ClientConfiguration config = this.serviceClient.getClientConfiguration();
+        if (config.getMaxConcurrentTransferParts() > 0) {
+            this.transferExecutor = new SharedTransferExecutor(config.getMaxConcurrentTransferParts(),
+                    config.isVirtualThreadsEnabled());
+        }
+        this.uploadOperation = new OSSUploadOperation(this.multipartOperation, this.objectOperation);
+        this.uploadOperation.setTransferExecutor(this.transferExecutor);
         this.downloadOperation = new OSSDownloadOperation(objectOperation);
+        this.downloadOperation.setTransferExecutor(this.transferExecutor);
+        this.bulkOperation = new OSSBulkOperation(this, config);
+        this.bulkOperation.setTransferExecutor(this.transferExecutor);
+        this.distributedUploadOperation = new OSSDistributedUploadOperation(this, config);
+        this.distributedUploadOperation.setTransferExecutor(this.transferExecutor);
+        this.directoryTransferOperation = new OSSDirectoryTransferOperation(this, config);
+        this.directoryTransferOperation.setTransferExecutor(this.transferExecutor);
+        if (config.isRequestCoalescingEnabled()) {
+            this.requestCoalescer = new RequestCoalescer(this.objectOperation, config);
+        }
+        if (config.getObjectCacheMemoryBytes() > 0) {
+            this.objectCache = new ObjectContentCache(this.objectOperation, config);
+            this.objectCache.setRequestCoalescer(this.requestCoalescer);
+        }
+        if (config.getObjectMetadataCacheMaxEntries() > 0) {
+            this.metadataCache = new ObjectMetadataCache(this.objectOperation, config);
+            this.metadataCache.setRequestCoalescer(this.requestCoalescer);
+        }
         this.liveChannelOperation = new LiveChannelOperation(this.serviceClient, this.credsProvider);
     }
 
@@ -524,7 +561,9 @@ public class OSSClient implements OSS {
 
     @Override
     public PutObjectResult putObject(PutObjectRequest putObjectRequest) throws OSSException, ClientException {
-        return objectOperation.putObject(putObjectRequest);
+        PutObjectResult result = objectOperation.putObject(putObjectRequest);
+        invalidateObject(putObjectRequest.getBucketName(), putObjectRequest.getKey());
+        return result;
     }
 
     @Override
@@ -579,7 +618,9 @@ public class OSSClient implements OSS {
 
     @Override
     public CopyObjectResult copyObject(CopyObjectRequest copyObjectRequest) throws OSSException, ClientException {
-        return objectOperation.copyObject(copyObjectRequest);
+        CopyObjectResult result = objectOperation.copyObject(copyObjectRequest);
+        invalidateObject(copyObjectRequest.getDestinationBucketName(), copyObjectRequest.getDestinationKey());
+        return result;
     }
 
     @Override
@@ -594,6 +635,12 @@ public class OSSClient implements OSS {
 
     @Override
     public OSSObject getObject(GetObjectRequest getObjectRequest) throws OSSException, ClientException {
+        if (objectCache != null && getObjectRequest != null && ObjectContentCache.isCacheable(getObjectRequest)) {
+            return objectCache.getObject(getObjectRequest);
+        }
+        if (requestCoalescer != null && getObjectRequest != null && RequestCoalescer.isCoalescable(getObjectRequest)) {
+            return requestCoalescer.getObject(getObjectRequest);
+        }
         return objectOperation.getObject(getObjectRequest);
     }
 
@@ -608,6 +655,12 @@ public class OSSClient implements OSS {
         return objectOperation.selectObject(selectObjectRequest);
     }
 
+    @Override
+    public OSSObject selectObjectParallel(ParallelSelectObjectRequest parallelSelectObjectRequest)
+            throws OSSException, ClientException {
+        return downloadOperation.selectObjectParallel(parallelSelectObjectRequest);
+    }
+
     @Override
     public SimplifiedObjectMeta getSimplifiedObjectMeta(String bucketName, String key)
             throws OSSException, ClientException {
@@ -617,6 +670,9 @@ public class OSSClient implements OSS {
     @Override
     public SimplifiedObjectMeta getSimplifiedObjectMeta(GenericRequest genericRequest)
             throws OSSException, ClientException {
+        if (metadataCache != null && genericRequest != null) {
+            return metadataCache.getSimplifiedObjectMeta(genericRequest);
+        }
         return this.objectOperation.getSimplifiedObjectMeta(genericRequest);
     }
 
@@ -632,6 +688,9 @@ public class OSSClient implements OSS {
     
     @Override
     public ObjectMetadata getObjectMetadata(GenericRequest genericRequest) throws OSSException, ClientException {
+        if (metadataCache != null && genericRequest != null) {
+            return metadataCache.getObjectMetadata(genericRequest);
+        }
         return objectOperation.getObjectMetadata(genericRequest);
     }
 
@@ -642,13 +701,22 @@ public class OSSClient implements OSS {
 
     @Override
     public ObjectMetadata headObject(HeadObjectRequest headObjectRequest) throws OSSException, ClientException {
+        if (metadataCache != null && headObjectRequest != null) {
+            return metadataCache.headObject(headObjectRequest);
+        }
+        if (requestCoalescer != null && headObjectRequest != null
+                && RequestCoalescer.isCoalescable(headObjectRequest)) {
+            return requestCoalescer.headObject(headObjectRequest);
+        }
         return objectOperation.headObject(headObjectRequest);
     }
 
     @Override
     public AppendObjectResult appendObject(AppendObjectRequest appendObjectRequest)
             throws OSSException, ClientException {
-        return objectOperation.appendObject(appendObjectRequest);
+        AppendObjectResult result = objectOperation.appendObject(appendObjectRequest);
+        invalidateObject(appendObjectRequest.getBucketName(), appendObjectRequest.getKey());
+        return result;
     }
 
     @Override
@@ -658,7 +726,9 @@ public class OSSClient implements OSS {
 
     @Override
     public VoidResult deleteObject(GenericRequest genericRequest) throws OSSException, ClientException {
-        return objectOperation.deleteObject(genericRequest);
+        VoidResult result = objectOperation.deleteObject(genericRequest);
+        invalidateObject(genericRequest.getBucketName(), genericRequest.getKey());
+        return result;
     }
     
     @Override
@@ -668,19 +738,81 @@ public class OSSClient implements OSS {
 
     @Override
     public VoidResult deleteVersion(DeleteVersionRequest deleteVersionRequest) throws OSSException, ClientException {
-        return objectOperation.deleteVersion(deleteVersionRequest);
+        VoidResult result = objectOperation.deleteVersion(deleteVersionRequest);
+        invalidateObject(deleteVersionRequest.getBucketName(), deleteVersionRequest.getKey());
+        return result;
     }
 
     @Override
     public DeleteObjectsResult deleteObjects(DeleteObjectsRequest deleteObjectsRequest)
             throws OSSException, ClientException {
-        return objectOperation.deleteObjects(deleteObjectsRequest);
+        DeleteObjectsResult result = objectOperation.deleteObjects(deleteObjectsRequest);
+        for (String key : deleteObjectsRequest.getKeys()) {
+            invalidateObject(deleteObjectsRequest.getBucketName(), key);
+        }
+        return result;
     }
     
     @Override
     public DeleteVersionsResult deleteVersions(DeleteVersionsRequest deleteVersionsRequest)
         throws OSSException, ClientException {
-        return objectOperation.deleteVersions(deleteVersionsRequest);
+        DeleteVersionsResult result = objectOperation.deleteVersions(deleteVersionsRequest);
+        for (DeleteVersionsRequest.KeyVersion keyVersion : deleteVersionsRequest.getKeys()) {
+            invalidateObject(deleteVersionsRequest.getBucketName(), keyVersion.getKey());
+        }
+        return result;
+    }
+
+    @Override
+    public BulkDeleteResult bulkDelete(BulkDeleteRequest bulkDeleteRequest) throws OSSException, ClientException {
+        return bulkOperation.bulkDelete(bulkDeleteRequest);
+    }
+
+    @Override
+    public BulkCopyResult bulkCopy(BulkCopyRequest bulkCopyRequest) throws OSSException, ClientException {
+        return bulkOperation.bulkCopy(bulkCopyRequest);
+    }
+
+    @Override
+    public CopyLargeObjectResult copyLargeObject(CopyLargeObjectRequest copyLargeObjectRequest)
+            throws OSSException, ClientException {
+        return bulkOperation.copyLargeObject(copyLargeObjectRequest);
+    }
+
+    @Override
+    public DistributedUpload initiateDistributedUpload(InitiateMultipartUploadRequest initiateMultipartUploadRequest)
+            throws OSSException, ClientException {
+        return distributedUploadOperation.initiateDistributedUpload(initiateMultipartUploadRequest);
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeDistributedUpload(
+            CompleteDistributedUploadRequest completeDistributedUploadRequest) throws OSSException, ClientException {
+        return distributedUploadOperation.completeDistributedUpload(completeDistributedUploadRequest);
+    }
+
+    @Override
+    public PresignedMultipartUpload presignMultipartUpload(PresignMultipartUploadRequest presignMultipartUploadRequest)
+            throws OSSException, ClientException {
+        return distributedUploadOperation.presignMultipartUpload(presignMultipartUploadRequest);
+    }
+
+    @Override
+    public List<PartETag> uploadPresignedParts(UploadPresignedPartsRequest uploadPresignedPartsRequest)
+            throws OSSException, ClientException {
+        return distributedUploadOperation.uploadPresignedParts(uploadPresignedPartsRequest);
+    }
+
+    @Override
+    public DirectoryTransferResult uploadDirectory(DirectoryTransferRequest directoryTransferRequest)
+            throws OSSException, ClientException {
+        return directoryTransferOperation.uploadDirectory(directoryTransferRequest);
+    }
+
+    @Override
+    public DirectoryTransferResult downloadDirectory(DirectoryTransferRequest directoryTransferRequest)
+            throws OSSException, ClientException {
+        return directoryTransferOperation.downloadDirectory(directoryTransferRequest);
     }
 
     @Override
@@ -705,13 +837,16 @@ public class OSSClient implements OSS {
 
     @Override
     public boolean doesObjectExist(GenericRequest genericRequest) throws OSSException, ClientException {
+        if (metadataCache != null && genericRequest != null) {
+            return metadataCache.doesObjectExist(genericRequest);
+        }
         return objectOperation.doesObjectExist(genericRequest);
     }
 
     @Override
     public boolean doesObjectExist(GenericRequest genericRequest, boolean isOnlyInOSS) throws OSSException, ClientException {
     	if (isOnlyInOSS) {
-    	    return objectOperation.doesObjectExist(genericRequest);	
+    	    return doesObjectExist(genericRequest);
     	} else {
     	    return objectOperation.doesObjectExistWithRedirect(genericRequest);
     	}
@@ -725,7 +860,9 @@ public class OSSClient implements OSS {
 
     @Override
     public VoidResult setObjectAcl(SetObjectAclRequest setObjectAclRequest) throws OSSException, ClientException {
-        return objectOperation.setObjectAcl(setObjectAclRequest);
+        VoidResult result = objectOperation.setObjectAcl(setObjectAclRequest);
+        invalidateObject(setObjectAclRequest.getBucketName(), setObjectAclRequest.getKey());
+        return result;
     }
 
     @Override
@@ -745,7 +882,9 @@ public class OSSClient implements OSS {
 
     @Override
     public RestoreObjectResult restoreObject(GenericRequest genericRequest) throws OSSException, ClientException {
-        return objectOperation.restoreObject(genericRequest);
+        RestoreObjectResult result = objectOperation.restoreObject(genericRequest);
+        invalidateObject(genericRequest.getBucketName(), genericRequest.getKey());
+        return result;
     }
     
     @Override
@@ -757,7 +896,9 @@ public class OSSClient implements OSS {
     @Override
     public RestoreObjectResult restoreObject(RestoreObjectRequest restoreObjectRequest)
             throws OSSException, ClientException {
-        return objectOperation.restoreObject(restoreObjectRequest);
+        RestoreObjectResult result = objectOperation.restoreObject(restoreObjectRequest);
+        invalidateObject(restoreObjectRequest.getBucketName(), restoreObjectRequest.getKey());
+        return result;
     }
 
     @Override
@@ -773,7 +914,9 @@ public class OSSClient implements OSS {
 
     @Override
     public VoidResult setObjectTagging(SetObjectTaggingRequest setObjectTaggingRequest) throws OSSException, ClientException {
-        return objectOperation.setObjectTagging(setObjectTaggingRequest);
+        VoidResult result = objectOperation.setObjectTagging(setObjectTaggingRequest);
+        invalidateObject(setObjectTaggingRequest.getBucketName(), setObjectTaggingRequest.getKey());
+        return result;
     }
 
     @Override
@@ -793,7 +936,9 @@ public class OSSClient implements OSS {
 
     @Override
     public VoidResult deleteObjectTagging(GenericRequest genericRequest) throws OSSException, ClientException {
-        return objectOperation.deleteObjectTagging(genericRequest);
+        VoidResult result = objectOperation.deleteObjectTagging(genericRequest);
+        invalidateObject(genericRequest.getBucketName(), genericRequest.getKey());
+        return result;
     }
 
     @Override
@@ -839,6 +984,15 @@ public class OSSClient implements OSS {
         }
     }
 
+    @Override
+    public UrlPresigner createUrlPresigner(UrlPresignerRequest urlPresignerRequest) throws ClientException {
+        assertParameterNotNull(urlPresignerRequest, "urlPresignerRequest");
+        BatchUrlPresigner presigner = new BatchUrlPresigner(urlPresignerRequest, credsProvider,
+                serviceClient.getClientConfiguration(), endpoint);
+        presigner.setTransferExecutor(transferExecutor);
+        return presigner;
+    }
+
     @Override
     public VoidResult abortMultipartUpload(AbortMultipartUploadRequest request) throws OSSException, ClientException {
         return multipartOperation.abortMultipartUpload(request);
@@ -847,7 +1001,9 @@ public class OSSClient implements OSS {
     @Override
     public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request)
             throws OSSException, ClientException {
-        return multipartOperation.completeMultipartUpload(request);
+        CompleteMultipartUploadResult result = multipartOperation.completeMultipartUpload(request);
+        invalidateObject(request.getBucketName(), request.getKey());
+        return result;
     }
 
     @Override
@@ -1325,7 +1481,16 @@ public class OSSClient implements OSS {
 
     @Override
     public UploadFileResult uploadFile(UploadFileRequest uploadFileRequest) throws Throwable {
-        return this.uploadOperation.uploadFile(uploadFileRequest);
+        UploadFileResult result = this.uploadOperation.uploadFile(uploadFileRequest);
+        invalidateObject(uploadFileRequest.getBucketName(), uploadFileRequest.getKey());
+        return result;
+    }
+
+    @Override
+    public OSSOutputStream openOutputStream(UploadStreamRequest uploadStreamRequest) throws ClientException {
+        OSSOutputStream stream = this.uploadOperation.openOutputStream(uploadStreamRequest);
+        return new InvalidatingOutputStream(stream, uploadStreamRequest.getBucketName(),
+                uploadStreamRequest.getKey());
     }
 
     @Override
@@ -1333,6 +1498,24 @@ public class OSSClient implements OSS {
         return downloadOperation.downloadFile(downloadFileRequest);
     }
 
+    @Override
+    public OSSObject getObjectParallel(ParallelGetObjectRequest parallelGetObjectRequest)
+            throws OSSException, ClientException {
+        return downloadOperation.getObjectParallel(parallelGetObjectRequest);
+    }
+
+    @Override
+    public ObjectMetadata getObjectParallel(ParallelGetObjectRequest parallelGetObjectRequest, OutputStream output)
+            throws OSSException, ClientException {
+        return downloadOperation.getObjectParallel(parallelGetObjectRequest, output);
+    }
+
+    @Override
+    public OSSObjectChannel openObjectChannel(ObjectChannelRequest objectChannelRequest)
+            throws OSSException, ClientException {
+        return downloadOperation.openObjectChannel(objectChannelRequest);
+    }
+
     @Override
     public CreateLiveChannelResult createLiveChannel(CreateLiveChannelRequest createLiveChannelRequest)
             throws OSSException, ClientException {
@@ -1453,7 +1636,9 @@ public class OSSClient implements OSS {
 
     @Override
     public VoidResult createSymlink(CreateSymlinkRequest createSymlinkRequest) throws OSSException, ClientException {
-        return objectOperation.createSymlink(createSymlinkRequest);
+        VoidResult result = objectOperation.createSymlink(createSymlinkRequest);
+        invalidateObject(createSymlinkRequest.getBucketName(), createSymlinkRequest.getSymlink());
+        return result;
     }
 
     @Override
@@ -1468,7 +1653,36 @@ public class OSSClient implements OSS {
 
     @Override
     public GenericResult processObject(ProcessObjectRequest processObjectRequest) throws OSSException, ClientException {
-        return this.objectOperation.processObject(processObjectRequest);
+        GenericResult result = this.objectOperation.processObject(processObjectRequest);
+        invalidateSaveAsTarget(processObjectRequest);
+        return result;
+    }
+
+    /**
+     * Invalidates the object a process saves its result to with sys/saveas:
+     * o_ and b_ are its key and bucket in URL-safe Base64, the bucket being
+     * the source one when left out.
+     */
+    private void invalidateSaveAsTarget(ProcessObjectRequest processObjectRequest) {
+        String process = processObjectRequest.getProcess();
+        int start = process != null ? process.indexOf(SAVE_AS_PREFIX) : -1;
+        if (start < 0) {
+            return;
+        }
+        String bucketName = processObjectRequest.getBucketName();
+        String key = null;
+        try {
+            for (String param : process.substring(start + SAVE_AS_PREFIX.length()).split(",")) {
+                if (param.startsWith("o_")) {
+                    key = new String(BinaryUtil.fromBase64String(param.substring(2)), DEFAULT_CHARSET_NAME);
+                } else if (param.startsWith("b_")) {
+                    bucketName = new String(BinaryUtil.fromBase64String(param.substring(2)), DEFAULT_CHARSET_NAME);
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            return;
+        }
+        invalidateObject(bucketName, key);
     }
 
     @Override
@@ -1718,7 +1932,10 @@ public class OSSClient implements OSS {
 	
 	@Override
     public VoidResult renameObject(RenameObjectRequest renameObjectRequest) throws OSSException, ClientException {
-        return this.objectOperation.renameObject(renameObjectRequest);
+        VoidResult result = this.objectOperation.renameObject(renameObjectRequest);
+        invalidateObject(renameObjectRequest.getBucketName(), renameObjectRequest.getSourceObjectName());
+        invalidateObject(renameObjectRequest.getBucketName(), renameObjectRequest.getDestinationObjectName());
+        return result;
     }
 
 	@Override
@@ -1824,6 +2041,9 @@ public class OSSClient implements OSS {
     @Override
     public void shutdown() {
         try {
+            if (transferExecutor != null) {
+                transferExecutor.shutdown();
+            }
             serviceClient.shutdown();
         } catch (Exception e) {
             logException("shutdown throw exception: ", e);
@@ -1838,4 +2058,126 @@ public class OSSClient implements OSS {
         }
         return "";
     }
+
+    /**
+     * Gets the executor that runs the parts of all uploadFile/downloadFile
+     * calls, with their queue depth and concurrency. It's null when
+     * {@link ClientConfiguration#getMaxConcurrentTransferParts()} is 0 or less.
+     */
+    public SharedTransferExecutor getTransferExecutor() {
+        return transferExecutor;
+    }
+
+    /**
+     * Gets the cache getObject reads through, with its hit and miss counts.
+     * It's null when {@link ClientConfiguration#getObjectCacheMemoryBytes()}
+     * is 0 or less.
+     */
+    public ObjectContentCache getObjectCache() {
+        return objectCache;
+    }
+
+    /**
+     * Gets the cache of object metadata, with its hit and miss counts. It's
+     * null when {@link ClientConfiguration#getObjectMetadataCacheMaxEntries()}
+     * is 0 or less.
+     */
+    public ObjectMetadataCache getObjectMetadataCache() {
+        return metadataCache;
+    }
+
+    /**
+     * Gets the coalescer of concurrent identical getObject and headObject
+     * calls, with its request counts. It's null unless
+     * {@link ClientConfiguration#isRequestCoalescingEnabled()}.
+     */
+    public RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * Drops what the caches of the client hold for an object the client has
+     * written or deleted, and the reads of it in flight.
+     */
+    private void invalidateObject(String bucketName, String key) {
+        if (bucketName == null || key == null) {
+            return;
+        }
+        // The reads in flight go first, so a cache miss after the
+        // invalidation cannot join one of them and cache its result.
+        if (requestCoalescer != null) {
+            requestCoalescer.invalidate(bucketName, key);
+        }
+        if (objectCache != null) {
+            objectCache.invalidate(bucketName, key);
+        }
+        if (metadataCache != null) {
+            metadataCache.invalidate(bucketName, key);
+        }
+    }
+
+    /**
+     * Invalidates the object once the stream is closed, which is when the
+     * object is written.
+     */
+    private class InvalidatingOutputStream extends OSSOutputStream {
+        private final OSSOutputStream stream;
+        private final String bucketName;
+        private final String key;
+
+        InvalidatingOutputStream(OSSOutputStream stream, String bucketName, String key) {
+            this.stream = stream;
+            this.bucketName = bucketName;
+            this.key = key;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            stream.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            stream.write(b, off, len);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return stream.write(src);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            stream.flush();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return stream.isOpen();
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return stream.getBytesWritten();
+        }
+
+        @Override
+        public CompleteMultipartUploadResult getResult() {
+            return stream.getResult();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                stream.close();
+            } finally {
+                invalidateObject(bucketName, key);
+            }
+        }
+
+        @Override
+        public void abort() {
+            stream.abort();
+        }
+    }
 }
@@ -21,6 +21,7 @@ package com.aliyun.oss;
 
 import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.Map;
 import com.aliyun.oss.common.auth.CredentialsProvider;
@@ -38,6 +39,7 @@ public class OSSEncryptionClient extends OSSClient {
     private final EncryptionMaterials encryptionMaterials;
     private final CryptoConfiguration cryptoConfig;
     private final OSSDirect ossDirect = new OSSDirectImpl();
+    private final CryptoModule cryptoModule;
 
     public OSSEncryptionClient(String endpoint, CredentialsProvider credsProvider, ClientConfiguration clientConfig,
             EncryptionMaterials encryptionMaterials, CryptoConfiguration cryptoConfig) {
@@ -49,12 +51,13 @@ public class OSSEncryptionClient extends OSSClient {
         }
         this.cryptoConfig = cryptoConfig == null ? CryptoConfiguration.DEFAULT : cryptoConfig;
         this.encryptionMaterials = encryptionMaterials;
+        this.cryptoModule = new CryptoModuleDispatcher(ossDirect, encryptionMaterials, this.cryptoConfig);
+        this.setDownloadOperation(new OSSDownloadOperationEncrypted(this));
     }
 
     @Override
     public PutObjectResult putObject(PutObjectRequest req) throws OSSException, ClientException {
-        CryptoModule crypto = new CryptoModuleDispatcher(ossDirect, encryptionMaterials, cryptoConfig);
-        return crypto.putObjectSecurely(req);
+        return cryptoModule.putObjectSecurely(req);
     }
 
     @Override
@@ -63,14 +66,12 @@ public class OSSEncryptionClient extends OSSClient {
             throw new ClientException("Encryption client error, get object with url opreation is disabled in encryption client." + 
                     "Please use normal oss client method {@OSSClient#getObject(GetObjectRequest req)}."); 
         }
-        CryptoModule crypto = new CryptoModuleDispatcher(ossDirect, encryptionMaterials, cryptoConfig);
-        return crypto.getObjectSecurely(req);
+        return cryptoModule.getObjectSecurely(req);
     }
 
     @Override
     public ObjectMetadata getObject(GetObjectRequest req, File file) throws OSSException, ClientException {
-        CryptoModule crypto = new CryptoModuleDispatcher(ossDirect, encryptionMaterials, cryptoConfig);
-        return crypto.getObjectSecurely(req, file);
+        return cryptoModule.getObjectSecurely(req, file);
     }
 
     @Override
@@ -101,17 +102,13 @@ public class OSSEncryptionClient extends OSSClient {
             downloadFileResult.setObjectMetadata(objectMetadata);
             return downloadFileResult;
         } else {
-            if (!hasEncryptionInfo(objectMetadata)) {
-                return super.downloadFile(downloadFileRequest);
-            } else {
+            if (hasEncryptionInfo(objectMetadata)) {
                 long partSize = downloadFileRequest.getPartSize();
                 if (0 != (partSize % CryptoScheme.BLOCK_SIZE) || partSize <= 0) {
                     throw new IllegalArgumentException("download file part size is not 16 bytes alignment.");
                 }
-                OSSDownloadOperationEncrypted ossDownloadOperationEncrypted = new OSSDownloadOperationEncrypted(this);
-                this.setDownloadOperation(ossDownloadOperationEncrypted);
-                return super.downloadFile(downloadFileRequest);
             }
+            return super.downloadFile(downloadFileRequest);
         }
     }
 
@@ -150,13 +147,11 @@ public class OSSEncryptionClient extends OSSClient {
     public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request,
                                                                  MultipartUploadCryptoContext context)
                                                                  throws OSSException, ClientException {
-        CryptoModule crypto = new CryptoModuleDispatcher(ossDirect, encryptionMaterials, cryptoConfig);
-        return crypto.initiateMultipartUploadSecurely(request, context);
+        return cryptoModule.initiateMultipartUploadSecurely(request, context);
     }
 
     public UploadPartResult uploadPart(UploadPartRequest request, MultipartUploadCryptoContext context) {
-        CryptoModule crypto = new CryptoModuleDispatcher(ossDirect, encryptionMaterials, cryptoConfig);
-        return crypto.uploadPartSecurely(request, context);
+        return cryptoModule.uploadPartSecurely(request, context);
     }
 
     public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request, 
@@ -221,6 +216,63 @@ public class OSSEncryptionClient extends OSSClient {
                 "Please use normal oss client method {@link OSSClient#uploadPartCopy(UploadPartCopyRequest request)}");
     }
     
+    /**
+     * Note: This method is disabled in encryption client.
+     *  
+     * @deprecated please use encryption client method
+     *     {@link OSSEncryptionClient#uploadFile(UploadFileRequest uploadFileRequest)}.
+     */
+    @Override
+    @Deprecated
+    public OSSOutputStream openOutputStream(UploadStreamRequest uploadStreamRequest) throws ClientException {
+        throw new ClientException("Encryption client error, this method is disabled in encryption client." + 
+                "Please use encryption client method {@link OSSEncryptionClient#uploadFile(UploadFileRequest uploadFileRequest)}");
+    }
+
+    /**
+     * Reads an object by concurrent ranged GETs, decrypting every part on its
+     * own thread. The part size must be a multiple of 16 bytes.
+     */
+    @Override
+    public OSSObject getObjectParallel(ParallelGetObjectRequest parallelGetObjectRequest)
+            throws OSSException, ClientException {
+        assertParameterNotNull(parallelGetObjectRequest, "parallelGetObjectRequest");
+        checkParallelPartSize(parallelGetObjectRequest.getPartSize());
+        return super.getObjectParallel(parallelGetObjectRequest);
+    }
+
+    /**
+     * Reads an object by concurrent ranged GETs into the output, decrypting
+     * every part on its own thread. The part size must be a multiple of 16
+     * bytes.
+     */
+    @Override
+    public ObjectMetadata getObjectParallel(ParallelGetObjectRequest parallelGetObjectRequest, OutputStream output)
+            throws OSSException, ClientException {
+        assertParameterNotNull(parallelGetObjectRequest, "parallelGetObjectRequest");
+        checkParallelPartSize(parallelGetObjectRequest.getPartSize());
+        return super.getObjectParallel(parallelGetObjectRequest, output);
+    }
+
+    private static void checkParallelPartSize(long partSize) {
+        if (0 != (partSize % CryptoScheme.BLOCK_SIZE)) {
+            throw new IllegalArgumentException("parallel get object part size is not 16 bytes alignment.");
+        }
+    }
+
+    /**
+     * Note: This method is disabled in encryption client.
+     *  
+     * @deprecated please use encryption client method
+     *     {@link OSSEncryptionClient#getObject(GetObjectRequest req)}.
+     */
+    @Override
+    @Deprecated
+    public OSSObjectChannel openObjectChannel(ObjectChannelRequest objectChannelRequest) throws ClientException {
+        throw new ClientException("Encryption client error, this method is disabled in encryption client." + 
+                "Please use encryption client method {@link OSSEncryptionClient#getObject(GetObjectRequest req)}");
+    }
+
     /**
      * Note: This method is disabled in encryption client.
      *  
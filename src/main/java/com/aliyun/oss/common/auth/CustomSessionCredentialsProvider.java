@@ -19,6 +19,9 @@
 
 package com.aliyun.oss.common.auth;
 
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 import com.aliyun.oss.common.auth.Credentials;
 import com.aliyun.oss.common.auth.CredentialsProvider;
 import com.aliyun.oss.common.utils.AuthUtils;
@@ -44,7 +47,8 @@ public class CustomSessionCredentialsProvider implements CredentialsProvider {
     @Override
     public Credentials getCredentials() {        
         if (credentials == null || credentials.willSoonExpire()) {
-            synchronized (this) {
+            refreshLock.lock();
+            try {
                 if (credentials == null || credentials.willSoonExpire()) {
                     try {
                         credentials = (BasicCredentials) fetcher.fetch(maxRetryTimes);
@@ -53,12 +57,15 @@ public class CustomSessionCredentialsProvider implements CredentialsProvider {
                         return null;
                     }
                 }
+            } finally {
+                refreshLock.unlock();
             }
         }
         return credentials;
     }
 
     private BasicCredentials credentials;
+    private final Lock refreshLock = new ReentrantLock();
     private CustomSessionCredentialsFetcher fetcher;
 
     private int maxRetryTimes = AuthUtils.MAX_ECS_METADATA_FETCH_RETRY_TIMES;
@@ -19,6 +19,9 @@
 
 package com.aliyun.oss.common.auth;
 
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 import com.aliyun.oss.common.utils.AuthUtils;
 import com.aliyun.oss.common.utils.LogUtils;
 import com.aliyuncs.exceptions.ClientException;
@@ -42,7 +45,8 @@ public class EcsRamRoleCredentialsProvider implements CredentialsProvider {
     @Override
     public Credentials getCredentials() {        
         if (credentials == null || credentials.willSoonExpire()) {
-            synchronized (this) {
+            refreshLock.lock();
+            try {
                 if (credentials == null || credentials.willSoonExpire()) {
                     try {
                         credentials = (BasicCredentials) fetcher.fetch(maxRetryTimes);
@@ -51,12 +55,15 @@ public class EcsRamRoleCredentialsProvider implements CredentialsProvider {
                         return null;
                     }
                 }
+            } finally {
+                refreshLock.unlock();
             }
         }
         return credentials;
     }
 
     private BasicCredentials credentials;
+    private final Lock refreshLock = new ReentrantLock();
     private EcsRamRoleCredentialsFetcher fetcher;
 
     private int maxRetryTimes = AuthUtils.MAX_ECS_METADATA_FETCH_RETRY_TIMES;
@@ -20,6 +20,8 @@
 package com.aliyun.oss.common.auth;
 
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.aliyun.oss.common.auth.Credentials;
 import com.aliyun.oss.common.auth.CredentialsProvider;
@@ -56,6 +58,11 @@ public class ProfileCredentialsProvider implements CredentialsProvider {
      */
     private volatile ProfileConfigFile profilesConfigFile;
 
+    /**
+     * Guards the lazy loading of the profiles file.
+     */
+    private final Lock loadLock = new ReentrantLock();
+
     /**
      * When the profiles file was last refreshed.
      */
@@ -151,11 +158,14 @@ public class ProfileCredentialsProvider implements CredentialsProvider {
     @Override
     public Credentials getCredentials() {
         if (profilesConfigFile == null) {
-            synchronized (this) {
+            loadLock.lock();
+            try {
                 if (profilesConfigFile == null) {
                     profilesConfigFile = new ProfileConfigFile(profileName);
                     lastRefreshed = System.nanoTime();
                 }
+            } finally {
+                loadLock.unlock();
             }
         }
 
@@ -19,6 +19,9 @@
 
 package com.aliyun.oss.common.auth;
 
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 import com.aliyun.oss.common.utils.AuthUtils;
 import com.aliyun.oss.common.utils.LogUtils;
 import com.aliyuncs.DefaultAcsClient;
@@ -82,10 +85,13 @@ public class STSAssumeRoleSessionCredentialsProvider implements CredentialsProvi
     @Override
     public Credentials getCredentials() {
         if (credentials == null || credentials.willSoonExpire()) {
-            synchronized (this) {
+            refreshLock.lock();
+            try {
                 if (credentials == null || credentials.willSoonExpire()) {
                     credentials = getNewSessionCredentials();
                 }
+            } finally {
+                refreshLock.unlock();
             }
         }
         return credentials;
@@ -114,6 +120,7 @@ public class STSAssumeRoleSessionCredentialsProvider implements CredentialsProvi
     private final String roleArn;
     private String roleSessionName;
     private volatile BasicCredentials credentials;
+    private final Lock refreshLock = new ReentrantLock();
 
     private long expiredDurationSeconds = AuthUtils.DEFAULT_EXPIRED_DURATION_SECONDS;
     private double expiredFactor = AuthUtils.DEFAULT_EXPIRED_FACTOR;
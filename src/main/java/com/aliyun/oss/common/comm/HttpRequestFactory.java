@@ -19,6 +19,7 @@
 
 package com.aliyun.oss.common.comm;
 
+import java.io.InputStream;
 import java.util.Map.Entry;
 
 import org.apache.http.HttpEntity;
@@ -33,6 +34,8 @@ import org.apache.http.client.methods.HttpRequestBase;
 import com.aliyun.oss.ClientException;
 import com.aliyun.oss.HttpMethod;
 import com.aliyun.oss.common.comm.io.ChunkedInputStreamEntity;
+import com.aliyun.oss.common.comm.io.FileRegionEntity;
+import com.aliyun.oss.common.comm.io.FileRegionSource;
 import com.aliyun.oss.common.utils.HttpHeaders;
 
 class HttpRequestFactory {
@@ -47,7 +50,7 @@ class HttpRequestFactory {
             HttpPost postMethod = new HttpPost(uri);
 
             if (request.getContent() != null) {
-                postMethod.setEntity(new RepeatableInputStreamEntity(request));
+                postMethod.setEntity(buildRepeatableEntity(request));
             }
 
             httpRequest = postMethod;
@@ -58,7 +61,7 @@ class HttpRequestFactory {
                 if (request.isUseChunkEncoding()) {
                     putMethod.setEntity(buildChunkedInputStreamEntity(request));
                 } else {
-                    putMethod.setEntity(new RepeatableInputStreamEntity(request));
+                    putMethod.setEntity(buildRepeatableEntity(request));
                 }
             }
 
@@ -90,6 +93,20 @@ class HttpRequestFactory {
         return new ChunkedInputStreamEntity(request);
     }
 
+    private HttpEntity buildRepeatableEntity(ServiceClient.Request request) {
+        InputStream content = request.getContent();
+        // Only a bare file stream can be sent from its channel, any wrapper
+        // (crc, progress) has to see the bytes going through it.
+        if (request.isUseFileRegion() && content instanceof FileRegionSource) {
+            boolean transferToEnabled = !request.getUri().startsWith("https");
+            FileRegionEntity entity = new FileRegionEntity(content, (FileRegionSource) content,
+                    request.getContentLength(), transferToEnabled);
+            entity.setContentType(request.getHeaders().get(HttpHeaders.CONTENT_TYPE));
+            return entity;
+        }
+        return new RepeatableInputStreamEntity(request);
+    }
+
     private void configureRequestHeaders(ServiceClient.Request request, ExecutionContext context,
             HttpRequestBase httpRequest) {
 
@@ -187,6 +187,7 @@ public abstract class ServiceClient {
         Request request = new Request();
         request.setMethod(requestMessage.getMethod());
         request.setUseChunkEncoding(requestMessage.isUseChunkEncoding());
+        request.setUseFileRegion(config.isZeroCopyUploadEnabled());
 
         if (requestMessage.isUseUrlSignature()) {
             request.setUrl(requestMessage.getAbsoluteUrl().toString());
@@ -333,6 +334,7 @@ public abstract class ServiceClient {
         private HttpMethod method;
         private boolean useUrlSignature = false;
         private boolean useChunkEncoding = false;
+        private boolean useFileRegion = false;
 
         public String getUri() {
             return this.uri;
@@ -365,5 +367,13 @@ public abstract class ServiceClient {
         public void setUseChunkEncoding(boolean useChunkEncoding) {
             this.useChunkEncoding = useChunkEncoding;
         }
+
+        public boolean isUseFileRegion() {
+            return useFileRegion;
+        }
+
+        public void setUseFileRegion(boolean useFileRegion) {
+            this.useFileRegion = useFileRegion;
+        }
     }
 }
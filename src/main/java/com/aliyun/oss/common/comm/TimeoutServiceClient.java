@@ -26,6 +26,7 @@ import java.io.IOException;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -41,12 +42,15 @@ import com.aliyun.oss.ClientException;
 import com.aliyun.oss.OSSErrorCode;
 import com.aliyun.oss.OSSException;
 import com.aliyun.oss.common.utils.ExceptionFactory;
+import com.aliyun.oss.common.utils.VirtualThreads;
 
 /**
  * Default implementation of {@link ServiceClient}.
  */
 public class TimeoutServiceClient extends DefaultServiceClient {
     protected ThreadPoolExecutor executor;
+    // Runs each timed request on its own virtual thread when enabled, instead of the bounded pool.
+    protected ExecutorService virtualExecutor;
 
     public TimeoutServiceClient(ClientConfiguration config) {
         super(config);
@@ -56,6 +60,10 @@ public class TimeoutServiceClient extends DefaultServiceClient {
                 new ArrayBlockingQueue<Runnable>(processors * 100), Executors.defaultThreadFactory(),
                 new ThreadPoolExecutor.CallerRunsPolicy());
         executor.allowCoreThreadTimeOut(true);
+
+        if (config.isVirtualThreadsEnabled()) {
+            virtualExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        }
     }
 
     @Override
@@ -66,7 +74,8 @@ public class TimeoutServiceClient extends DefaultServiceClient {
 
         CloseableHttpResponse httpResponse = null;
         HttpRequestTask httpRequestTask = new HttpRequestTask(httpRequest, httpContext);
-        Future<CloseableHttpResponse> future = executor.submit(httpRequestTask);
+        Future<CloseableHttpResponse> future = virtualExecutor != null ? virtualExecutor.submit(httpRequestTask)
+                : executor.submit(httpRequestTask);
 
         try {
             httpResponse = future.get(this.config.getRequestTimeout(), TimeUnit.MILLISECONDS);
@@ -99,6 +108,14 @@ public class TimeoutServiceClient extends DefaultServiceClient {
 
     @Override
     public void shutdown() {
+        shutdownExecutor(executor);
+        if (virtualExecutor != null) {
+            shutdownExecutor(virtualExecutor);
+        }
+        super.shutdown();
+    }
+
+    private static void shutdownExecutor(ExecutorService executor) {
         executor.shutdown();
         try {
             if (!executor.awaitTermination(ClientConfiguration.DEFAULT_THREAD_POOL_WAIT_TIME, TimeUnit.MILLISECONDS)) {
@@ -113,7 +130,6 @@ public class TimeoutServiceClient extends DefaultServiceClient {
             executor.shutdownNow();
             Thread.currentThread().interrupt();
         }
-        super.shutdown();
     }
 
     class HttpRequestTask implements Callable<CloseableHttpResponse> {
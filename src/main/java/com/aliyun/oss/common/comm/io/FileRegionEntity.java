@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import com.aliyun.oss.common.utils.BufferPool;
+
+/**
+ * A repeatable HTTP entity that sends a region of a local file directly from
+ * its {@link FileChannel}.
+ * <p>
+ * On plain HTTP the region is handed to {@link FileChannel#transferTo}. The
+ * target is the connection's output stream wrapped as a channel, so this is
+ * not sendfile: the JDK still copies the bytes in user space, it only saves the
+ * read loop of the stream entity. On HTTPS the bytes have to go through the
+ * TLS engine anyway, so the region is read with positional reads into a pooled
+ * direct buffer. In both modes the entity always restarts from the region
+ * position, so it is repeatable regardless of the state of the stream it was
+ * built from. If the file is shorter than the declared region, an
+ * {@link IOException} is thrown rather than sending a short body.
+ */
+public class FileRegionEntity extends AbstractHttpEntity {
+
+    private final static int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream content;
+    private final FileChannel channel;
+    private final long position;
+    private final long length;
+    private final boolean transferToEnabled;
+
+    public FileRegionEntity(InputStream content, FileRegionSource source, long length, boolean transferToEnabled) {
+        if (content == null || source == null) {
+            throw new IllegalArgumentException("Source file region may not be null");
+        }
+        this.content = content;
+        this.channel = source.getFileChannel();
+        this.position = source.getRegionPosition();
+        this.length = length;
+        this.transferToEnabled = transferToEnabled;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return this.length;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+        return this.content;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    public boolean isTransferToEnabled() {
+        return transferToEnabled;
+    }
+
+    @Override
+    public void writeTo(OutputStream output) throws IOException {
+        if (output == null) {
+            throw new IllegalArgumentException("Output stream may not be null");
+        }
+
+        long end = this.length < 0 ? channel.size() : position + this.length;
+        WritableByteChannel target = Channels.newChannel(output);
+        if (transferToEnabled) {
+            transferTo(target, end);
+        } else {
+            copyThroughDirectBuffer(target, position, end);
+        }
+        output.flush();
+    }
+
+    private void transferTo(WritableByteChannel target, long end) throws IOException {
+        long pos = position;
+        while (pos < end) {
+            long transferred = channel.transferTo(pos, end - pos, target);
+            if (transferred <= 0) {
+                if (pos >= channel.size()) {
+                    throw truncated(pos, end);
+                }
+                // Some target channels accept nothing from transferTo, the
+                // rest is copied through a buffer rather than retried forever.
+                copyThroughDirectBuffer(target, pos, end);
+                return;
+            }
+            pos += transferred;
+        }
+    }
+
+    private void copyThroughDirectBuffer(WritableByteChannel target, long start, long end) throws IOException {
+        ByteBuffer buffer = BufferPool.getDefault().acquireDirect(BUFFER_SIZE);
+        try {
+            long pos = start;
+            while (pos < end) {
+                buffer.clear();
+                if (end - pos < buffer.capacity()) {
+                    buffer.limit((int) (end - pos));
+                }
+                int read = channel.read(buffer, pos);
+                if (read < 0) {
+                    throw truncated(pos, end);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                pos += read;
+            }
+        } finally {
+            BufferPool.getDefault().releaseDirect(buffer);
+        }
+    }
+
+    private static IOException truncated(long pos, long end) {
+        return new IOException("Premature end of file at " + pos + ", the region ends at " + end
+                + ", the file may have been truncated.");
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm.io;
+
+import java.nio.channels.FileChannel;
+
+/**
+ * An input stream whose content is a region of a local file, which allows the
+ * HTTP layer to send the region straight from its {@link FileChannel} instead
+ * of copying it through the stream.
+ */
+public interface FileRegionSource {
+
+    /**
+     * Gets the channel of the backing file.
+     */
+    public FileChannel getFileChannel();
+
+    /**
+     * Gets the file position the region starts from, which is also the
+     * position the stream is reset to on retry.
+     */
+    public long getRegionPosition();
+
+}
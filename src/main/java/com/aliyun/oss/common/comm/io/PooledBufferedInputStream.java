@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.comm.io;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.aliyun.oss.common.utils.BufferPool;
+
+/**
+ * A {@link BufferedInputStream} whose buffer is borrowed from the
+ * {@link BufferPool} and given back on close.
+ */
+public class PooledBufferedInputStream extends BufferedInputStream {
+
+    private final BufferPool pool;
+    private byte[] pooled;
+
+    public PooledBufferedInputStream(InputStream in, int size) {
+        this(in, size, BufferPool.getDefault());
+    }
+
+    public PooledBufferedInputStream(InputStream in, int size, BufferPool pool) {
+        super(in, 1);
+        this.pool = pool;
+        this.pooled = pool.acquire(size);
+        this.buf = this.pooled;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            synchronized (this) {
+                // The stream may have replaced the buffer with a larger one
+                // to honor a mark limit, the pooled one is unused either way.
+                if (pooled != null) {
+                    pool.release(pooled);
+                    pooled = null;
+                }
+            }
+        }
+    }
+}
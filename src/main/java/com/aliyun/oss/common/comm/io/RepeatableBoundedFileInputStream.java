@@ -28,7 +28,7 @@ import java.nio.channels.FileChannel;
 
 import com.aliyun.oss.ClientException;
 
-public class RepeatableBoundedFileInputStream extends InputStream {
+public class RepeatableBoundedFileInputStream extends InputStream implements FileRegionSource {
 
     private BoundedInputStream bis = null;
     private FileChannel fileChannel = null;
@@ -85,4 +85,14 @@ public class RepeatableBoundedFileInputStream extends InputStream {
         return this.bis;
     }
 
+    @Override
+    public FileChannel getFileChannel() {
+        return this.fileChannel;
+    }
+
+    @Override
+    public long getRegionPosition() {
+        return this.markPos;
+    }
+
 }
@@ -29,7 +29,7 @@ import java.nio.channels.FileChannel;
 
 import com.aliyun.oss.ClientException;
 
-public class RepeatableFileInputStream extends InputStream {
+public class RepeatableFileInputStream extends InputStream implements FileRegionSource {
 
     private File file = null;
     private FileInputStream fis = null;
@@ -97,4 +97,14 @@ public class RepeatableFileInputStream extends InputStream {
     public File getFile() {
         return this.file;
     }
+
+    @Override
+    public FileChannel getFileChannel() {
+        return this.fileChannel;
+    }
+
+    @Override
+    public long getRegionPosition() {
+        return this.markPos;
+    }
 }
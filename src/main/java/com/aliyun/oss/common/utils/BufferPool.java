@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.utils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-classed pool of heap and direct I/O buffers shared by the transfer
+ * paths.
+ * <p>
+ * Buffer sizes are rounded up to a power of two between
+ * {@link #MIN_BUFFER_SIZE} and {@link #MAX_BUFFER_SIZE}. Every thread keeps a
+ * small cache per size class, and buffers that do not fit in it overflow into
+ * a bounded shared cache. Requests bigger than the largest class are served
+ * with plain allocations and dropped on release.
+ * <p>
+ * A released buffer must not be used by the caller any more. The pool counts
+ * the buffers handed out and not yet released, which tests use to detect
+ * leaks. A release while no buffer of its kind is out cannot be one of ours,
+ * so it is dropped and the counts never go below zero.
+ */
+public class BufferPool {
+
+    public static final int MIN_BUFFER_SIZE = 4 * 1024;
+    public static final int MAX_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    /* The bytes each thread may keep cached per size class. */
+    private static final int DEFAULT_THREAD_CACHE_BYTES = 256 * 1024;
+
+    /* The bytes the shared cache may keep per size class. */
+    private static final int DEFAULT_SHARED_CACHE_BYTES = 16 * 1024 * 1024;
+
+    private static final BufferPool defaultPool = new BufferPool(DEFAULT_THREAD_CACHE_BYTES,
+            DEFAULT_SHARED_CACHE_BYTES);
+
+    private final int classCount;
+    private final int threadCacheBytes;
+    private final List<SizeClass<byte[]>> heapClasses;
+    private final List<SizeClass<ByteBuffer>> directClasses;
+    private final ThreadLocal<ThreadCache> threadCache = new ThreadLocal<ThreadCache>() {
+        @Override
+        protected ThreadCache initialValue() {
+            return new ThreadCache(classCount);
+        }
+    };
+
+    private final AtomicLong outstandingHeap = new AtomicLong();
+    private final AtomicLong outstandingDirect = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    /**
+     * Gets the pool shared by the whole SDK.
+     */
+    public static BufferPool getDefault() {
+        return defaultPool;
+    }
+
+    public BufferPool(int threadCacheBytes, int sharedCacheBytes) {
+        this.classCount = indexOf(MAX_BUFFER_SIZE) + 1;
+        this.threadCacheBytes = threadCacheBytes;
+        this.heapClasses = new ArrayList<SizeClass<byte[]>>(classCount);
+        this.directClasses = new ArrayList<SizeClass<ByteBuffer>>(classCount);
+        for (int i = 0; i < classCount; i++) {
+            int size = MIN_BUFFER_SIZE << i;
+            heapClasses.add(new SizeClass<byte[]>(size, Math.max(2, sharedCacheBytes / size)));
+            directClasses.add(new SizeClass<ByteBuffer>(size, Math.max(2, sharedCacheBytes / size)));
+        }
+    }
+
+    /**
+     * Acquires a heap buffer with at least the given size. The returned array
+     * may be larger than requested.
+     */
+    public byte[] acquire(int minSize) {
+        int index = classIndex(minSize);
+        if (index < 0) {
+            allocatedBytes.addAndGet(minSize);
+            return new byte[minSize];
+        }
+
+        outstandingHeap.incrementAndGet();
+        byte[] buffer = threadCache.get().heap.get(index).pollFirst();
+        if (buffer == null) {
+            buffer = heapClasses.get(index).poll();
+        }
+        if (buffer == null) {
+            buffer = new byte[heapClasses.get(index).size];
+            allocatedBytes.addAndGet(buffer.length);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a heap buffer acquired from this pool.
+     */
+    public void release(byte[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+        int index = exactClassIndex(buffer.length);
+        if (index < 0 || !decrementIfPositive(outstandingHeap)) {
+            return;
+        }
+
+        ArrayDeque<byte[]> local = threadCache.get().heap.get(index);
+        if ((long) (local.size() + 1) * buffer.length <= threadCacheBytes) {
+            local.addFirst(buffer);
+        } else {
+            heapClasses.get(index).offer(buffer);
+        }
+    }
+
+    /**
+     * Acquires a cleared direct buffer with at least the given capacity. The
+     * limit is set to the capacity, which may be larger than requested.
+     */
+    public ByteBuffer acquireDirect(int minSize) {
+        int index = classIndex(minSize);
+        if (index < 0) {
+            allocatedBytes.addAndGet(minSize);
+            return ByteBuffer.allocateDirect(minSize);
+        }
+
+        outstandingDirect.incrementAndGet();
+        ByteBuffer buffer = threadCache.get().direct.get(index).pollFirst();
+        if (buffer == null) {
+            buffer = directClasses.get(index).poll();
+        }
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(directClasses.get(index).size);
+            allocatedBytes.addAndGet(buffer.capacity());
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Returns a direct buffer acquired from this pool.
+     */
+    public void releaseDirect(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) {
+            return;
+        }
+        int index = exactClassIndex(buffer.capacity());
+        if (index < 0 || !decrementIfPositive(outstandingDirect)) {
+            return;
+        }
+
+        ArrayDeque<ByteBuffer> local = threadCache.get().direct.get(index);
+        if ((long) (local.size() + 1) * buffer.capacity() <= threadCacheBytes) {
+            local.addFirst(buffer);
+        } else {
+            directClasses.get(index).offer(buffer);
+        }
+    }
+
+    /**
+     * Gets the number of pooled heap buffers handed out and not released yet.
+     */
+    public long getOutstandingHeapBuffers() {
+        return outstandingHeap.get();
+    }
+
+    /**
+     * Gets the number of pooled direct buffers handed out and not released yet.
+     */
+    public long getOutstandingDirectBuffers() {
+        return outstandingDirect.get();
+    }
+
+    /**
+     * Gets the total bytes this pool had to allocate, including the requests
+     * too large to be pooled.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    private static boolean decrementIfPositive(AtomicLong counter) {
+        while (true) {
+            long current = counter.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    private int classIndex(int minSize) {
+        if (minSize > MAX_BUFFER_SIZE) {
+            return -1;
+        }
+        return minSize <= MIN_BUFFER_SIZE ? 0 : indexOf(minSize);
+    }
+
+    private int exactClassIndex(int size) {
+        if (size < MIN_BUFFER_SIZE || size > MAX_BUFFER_SIZE || Integer.bitCount(size) != 1) {
+            return -1;
+        }
+        return indexOf(size);
+    }
+
+    private static int indexOf(int size) {
+        int rounded = Integer.highestOneBit(size - 1) << 1;
+        return Integer.numberOfTrailingZeros(rounded) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    }
+
+    private static class SizeClass<T> {
+        private final int size;
+        private final int capacity;
+        private final ConcurrentLinkedQueue<T> buffers = new ConcurrentLinkedQueue<T>();
+        private final AtomicInteger count = new AtomicInteger();
+
+        SizeClass(int size, int capacity) {
+            this.size = size;
+            this.capacity = capacity;
+        }
+
+        T poll() {
+            T buffer = buffers.poll();
+            if (buffer != null) {
+                count.decrementAndGet();
+            }
+            return buffer;
+        }
+
+        void offer(T buffer) {
+            if (count.incrementAndGet() <= capacity) {
+                buffers.offer(buffer);
+            } else {
+                count.decrementAndGet();
+            }
+        }
+    }
+
+    private static class ThreadCache {
+        private final List<ArrayDeque<byte[]>> heap;
+        private final List<ArrayDeque<ByteBuffer>> direct;
+
+        ThreadCache(int classCount) {
+            heap = new ArrayList<ArrayDeque<byte[]>>(classCount);
+            direct = new ArrayList<ArrayDeque<ByteBuffer>>(classCount);
+            for (int i = 0; i < classCount; i++) {
+                heap.add(new ArrayDeque<byte[]>());
+                direct.add(new ArrayDeque<ByteBuffer>());
+            }
+        }
+    }
+}
@@ -19,7 +19,6 @@
 
 package com.aliyun.oss.common.utils;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -34,6 +33,7 @@ import java.io.Writer;
 import java.util.zip.CheckedInputStream;
 
 import com.aliyun.oss.common.comm.io.BoundedInputStream;
+import com.aliyun.oss.common.comm.io.PooledBufferedInputStream;
 import com.aliyun.oss.common.comm.io.RepeatableBoundedFileInputStream;
 import com.aliyun.oss.common.comm.io.RepeatableFileInputStream;
 import com.aliyun.oss.internal.OSSConstants;
@@ -79,10 +79,14 @@ public class IOUtils {
         }
 
         ByteArrayOutputStream output = new ByteArrayOutputStream();
-        byte[] buffer = new byte[1024];
-        int len = -1;
-        while ((len = in.read(buffer)) != -1) {
-            output.write(buffer, 0, len);
+        byte[] buffer = BufferPool.getDefault().acquire(OSSConstants.DEFAULT_BUFFER_SIZE);
+        try {
+            int len = -1;
+            while ((len = in.read(buffer)) != -1) {
+                output.write(buffer, 0, len);
+            }
+        } finally {
+            BufferPool.getDefault().release(buffer);
         }
         output.flush();
         return output.toByteArray();
@@ -132,7 +136,7 @@ public class IOUtils {
             if (original instanceof FileInputStream) {
                 repeatable = new RepeatableFileInputStream((FileInputStream) original);
             } else {
-                repeatable = new BufferedInputStream(original, OSSConstants.DEFAULT_STREAM_BUFFER_SIZE);
+                repeatable = new PooledBufferedInputStream(original, OSSConstants.DEFAULT_STREAM_BUFFER_SIZE);
             }
         } else {
             repeatable = original;
@@ -146,7 +150,7 @@ public class IOUtils {
             if (original.getWrappedInputStream() instanceof FileInputStream) {
                 repeatable = new RepeatableBoundedFileInputStream(original);
             } else {
-                repeatable = new BufferedInputStream(original, OSSConstants.DEFAULT_STREAM_BUFFER_SIZE);
+                repeatable = new PooledBufferedInputStream(original, OSSConstants.DEFAULT_STREAM_BUFFER_SIZE);
             }
         } else {
             repeatable = original;
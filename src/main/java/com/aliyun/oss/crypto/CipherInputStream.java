@@ -24,7 +24,14 @@ import java.io.InputStream;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
 
+/**
+ * Encrypts or decrypts the stream it wraps chunk by chunk. The chunks are
+ * processed into a buffer allocated once per stream, or straight into the
+ * buffer of the caller when it has room for a whole chunk, so no garbage is
+ * made per chunk.
+ */
 public class CipherInputStream extends SdkFilterInputStream {
     private static final int MAX_RETRY = 1000;
     private static final int DEFAULT_IN_BUFFER_SIZE = 512;
@@ -34,6 +41,7 @@ public class CipherInputStream extends SdkFilterInputStream {
     private byte[] bufout;
     private int curr_pos;
     private int max_pos;
+    private int max_chunk_out;
 
     public CipherInputStream(InputStream is, CryptoCipher cryptoCipher) {
         this(is, cryptoCipher, DEFAULT_IN_BUFFER_SIZE);
@@ -47,6 +55,8 @@ public class CipherInputStream extends SdkFilterInputStream {
                     "buffsize (" + buffsize + ") must be a positive multiple of " + DEFAULT_IN_BUFFER_SIZE);
         }
         this.bufin = new byte[buffsize];
+        this.max_chunk_out = c.getOutputSize(buffsize);
+        this.bufout = new byte[max_chunk_out];
     }
 
     @Override
@@ -79,17 +89,21 @@ public class CipherInputStream extends SdkFilterInputStream {
         if (curr_pos >= max_pos) {
             if (eof)
                 return -1;
+            boolean direct = target_len >= max_chunk_out;
             int count = 0;
             int len;
             do {
                 if (count > MAX_RETRY)
                     throw new IOException("exceeded maximum number of attempts to read next chunk of data");
-                len = nextChunk();
+                len = direct ? nextChunk(buf, off) : nextChunk();
                 count++;
             } while (len == 0);
 
             if (len == -1)
                 return -1;
+            if (curr_pos >= max_pos)
+                // The chunk was processed into the buffer of the caller.
+                return len;
         }
         if (target_len <= 0)
             return 0;
@@ -169,32 +183,58 @@ public class CipherInputStream extends SdkFilterInputStream {
      *             if there is authentication failure
      */
     private int nextChunk() throws IOException {
+        curr_pos = max_pos = 0;
+        int len = nextChunk(bufout, 0);
+        if (len > 0) {
+            max_pos = len;
+        }
+        return len;
+    }
+
+    /**
+     * Reads and process the next chunk of data into the given buffer, which
+     * has room for {@link #max_chunk_out} bytes. The last bytes at the end of
+     * stream always go to the internal buffer.
+     * 
+     * @return the length of the data chunk processed into the buffer, or -1 if
+     *         end of stream.
+     */
+    private int nextChunk(byte[] out, int off) throws IOException {
         abortIfNeeded();
         if (eof)
             return -1;
-        bufout = null;
         int len = in.read(bufin);
-        if (len == -1) {
-            eof = true;
-            try {
-                bufout = cryptoCipher.doFinal();
-                if (bufout == null) {
-                    return -1;
+        try {
+            if (len == -1) {
+                eof = true;
+                curr_pos = max_pos = 0;
+                try {
+                    int finalLen = cryptoCipher.getOutputSize(0);
+                    if (bufout.length < finalLen) {
+                        bufout = new byte[finalLen];
+                    }
+                    int outLen = cryptoCipher.doFinal(bufout, 0);
+                    if (outLen <= 0) {
+                        return -1;
+                    }
+                    return max_pos = outLen;
+                } catch (IllegalBlockSizeException e) {
+                } catch (BadPaddingException e) {
+                    throw new SecurityException(e);
                 }
-                curr_pos = 0;
-                return max_pos = bufout.length;
-            } catch (IllegalBlockSizeException e) {
-            } catch (BadPaddingException e) {
-                throw new SecurityException(e);
+                return -1;
             }
-            return -1;
+            return cryptoCipher.update(bufin, 0, len, out, off);
+        } catch (ShortBufferException e) {
+            throw new IOException("The cipher output buffer is too small. " + e.getMessage(), e);
         }
-        bufout = cryptoCipher.update(bufin, 0, len);
-        curr_pos = 0;
-        return max_pos = (bufout == null ? 0 : bufout.length);
     }
 
     void renewCryptoCipher() {
         cryptoCipher = cryptoCipher.recreate();
+        max_chunk_out = cryptoCipher.getOutputSize(bufin.length);
+        if (bufout.length < max_chunk_out) {
+            bufout = new byte[max_chunk_out];
+        }
     }
 }
@@ -24,6 +24,7 @@ import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NullCipher;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 
 import com.aliyun.oss.crypto.CryptoScheme;
 
@@ -99,4 +100,49 @@ public class CryptoCipher {
     byte[] update(byte[] input, int inputOffset, int inputLen) {
         return cipher.update(input, inputOffset, inputLen);
     }
+
+    /**
+     * Continues a multiple-part encryption or decryption operation, processing
+     * another data part into the given output buffer rather than a new one.
+     *
+     * @param input
+     *            the input buffer
+     * @param inputOffset
+     *            the offset in <code>input</code> where the input starts
+     * @param inputLen
+     *            the input length
+     * @param output
+     *            the buffer for the result
+     * @param outputOffset
+     *            the offset in <code>output</code> where the result is stored
+     *
+     * @return the number of bytes stored in <code>output</code>
+     *
+     * @exception ShortBufferException
+     *                if the output buffer is too small to hold the result, see
+     *                {@link #getOutputSize(int)}.
+     */
+    int update(byte[] input, int inputOffset, int inputLen, byte[] output, int outputOffset)
+            throws ShortBufferException {
+        return cipher.update(input, inputOffset, inputLen, output, outputOffset);
+    }
+
+    /**
+     * Finishes the operation, storing the last bytes in the given output
+     * buffer.
+     *
+     * @return the number of bytes stored in <code>output</code>
+     */
+    int doFinal(byte[] output, int outputOffset)
+            throws IllegalBlockSizeException, ShortBufferException, BadPaddingException {
+        return cipher.doFinal(output, outputOffset);
+    }
+
+    /**
+     * Returns the size of the output buffer needed to hold the result of the
+     * next update or doFinal with the given input length.
+     */
+    int getOutputSize(int inputLen) {
+        return cipher.getOutputSize(inputLen);
+    }
 }
@@ -37,6 +37,13 @@ public class CryptoConfiguration implements Cloneable, Serializable {
     private CryptoStorageMethod storageMethod;
     private Provider contentCryptoProvider;
     private SecureRandom secureRandom;
+    private int cipherBufferSize = DEFAULT_CIPHER_BUFFER_SIZE;
+
+    /**
+     * The default size of the chunks the content is encrypted and decrypted
+     * by.
+     */
+    public static final int DEFAULT_CIPHER_BUFFER_SIZE = 32 * 1024;
 
     /**
      * Default crypto configuration.
@@ -165,6 +172,45 @@ public class CryptoConfiguration implements Cloneable, Serializable {
         return this.contentCryptoProvider;
     }
 
+    /**
+     * Sets the size of the chunks the content is encrypted and decrypted by.
+     * Larger chunks make fewer calls into the cipher, at the cost of two
+     * buffers of this size per stream.
+     * 
+     * @param cipherBufferSize
+     *            The chunk size, a positive multiple of 512 bytes.
+     */
+    public void setCipherBufferSize(int cipherBufferSize) {
+        if (cipherBufferSize <= 0 || cipherBufferSize % 512 != 0) {
+            throw new IllegalArgumentException(
+                    "cipherBufferSize (" + cipherBufferSize + ") must be a positive multiple of 512");
+        }
+        this.cipherBufferSize = cipherBufferSize;
+    }
+
+    /**
+     * Sets the size of the chunks the content is encrypted and decrypted by,
+     * and returns the updated CryptoConfiguration object.
+     * 
+     * @param cipherBufferSize
+     *            The chunk size, a positive multiple of 512 bytes.
+     * @return The updated CryptoConfiguration object.
+     */
+    public CryptoConfiguration withCipherBufferSize(int cipherBufferSize) {
+        setCipherBufferSize(cipherBufferSize);
+        return this;
+    }
+
+    /**
+     * Gets the size of the chunks the content is encrypted and decrypted by.
+     * 
+     * @return the chunk size in bytes.
+     */
+    public int getCipherBufferSize() {
+        // Zero when read from the serialized form of an older version.
+        return cipherBufferSize > 0 ? cipherBufferSize : DEFAULT_CIPHER_BUFFER_SIZE;
+    }
+
     @Override
     public CryptoConfiguration clone() {
         CryptoConfiguration config = new CryptoConfiguration();
@@ -172,6 +218,7 @@ public class CryptoConfiguration implements Cloneable, Serializable {
         config.setSecureRandom(secureRandom);
         config.setStorageMethod(storageMethod);
         config.setContentCryptoProvider(contentCryptoProvider);
+        config.setCipherBufferSize(cipherBufferSize);
         return config;
     }
 }
@@ -30,7 +30,10 @@ import java.io.OutputStream;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.zip.CheckedInputStream;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
@@ -43,6 +46,7 @@ import org.codehaus.jettison.json.JSONObject;
 import com.aliyun.oss.ClientException;
 import com.aliyun.oss.OSSEncryptionClient;
 import com.aliyun.oss.common.utils.BinaryUtil;
+import com.aliyun.oss.common.utils.BufferPool;
 import com.aliyun.oss.common.utils.IOUtils;
 import com.aliyun.oss.internal.Mimetypes;
 import com.aliyun.oss.internal.OSSHeaders;
@@ -60,6 +64,24 @@ public abstract class CryptoModuleBase implements CryptoModule {
     protected final OSSDirect ossDirect;
     protected final String encryptionClientUserAgent;
 
+    // The parts of an object read in parallel share the key, which is
+    // unwrapped by the encryption materials once.
+    private static final int RESOLVED_MATERIALS_SIZE = 16;
+    private static final long RESOLVED_MATERIALS_TTL = 60 * 1000L;
+    private final LinkedHashMap<String, ResolvedMaterial> resolvedMaterials =
+            new LinkedHashMap<String, ResolvedMaterial>(16, 0.75f, true);
+    private final Lock resolvedMaterialsLock = new ReentrantLock();
+
+    private static final class ResolvedMaterial {
+        private final ContentCryptoMaterial material;
+        private final long expiresAt;
+
+        ResolvedMaterial(ContentCryptoMaterial material, long expiresAt) {
+            this.material = material;
+            this.expiresAt = expiresAt;
+        }
+    }
+
     protected CryptoModuleBase(OSSDirect ossDirect,
                                  EncryptionMaterials encryptionMaterials,
                                  CryptoConfiguration cryptoConfig) {
@@ -231,7 +253,7 @@ public abstract class CryptoModuleBase implements CryptoModule {
             long[] cryptoRange, OSSObject retrieved) {
 
         // Create ContentCryptoMaterial by parse metadata.
-        ContentCryptoMaterial cekMaterial = createContentMaterialFromMetadata(retrieved.getObjectMetadata());
+        ContentCryptoMaterial cekMaterial = resolveContentMaterialFromMetadata(retrieved.getObjectMetadata());
 
         // Create crypto cipher by contentCryptoMaterial
         CryptoCipher cryptoCipher = createCryptoCipherFromContentMaterial(cekMaterial, Cipher.DECRYPT_MODE, cryptoRange,
@@ -242,7 +264,7 @@ public abstract class CryptoModuleBase implements CryptoModule {
         retrieved.setObjectContent(
                 new CipherInputStream(objectContent,
                     cryptoCipher,
-                    DEFAULT_BUFFER_SIZE));
+                    cryptoConfig.getCipherBufferSize()));
 
         // Adjust the output to the desired range of bytes.
         OSSObject adjusted = adjustToDesiredRange(retrieved, desiredRange);
@@ -297,9 +319,10 @@ public abstract class CryptoModuleBase implements CryptoModule {
         assertParameterNotNull(file, "file");
         OSSObject ossObject = getObjectSecurely(getObjectRequest);
         OutputStream outputStream = null;
+        byte[] buffer = null;
         try {
             outputStream = new BufferedOutputStream(new FileOutputStream(file));
-            byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+            buffer = BufferPool.getDefault().acquire(cryptoConfig.getCipherBufferSize());
             int bytesRead;
             while ((bytesRead = IOUtils.readNBytes(ossObject.getObjectContent(), buffer, 0, buffer.length)) > 0) {
                 outputStream.write(buffer, 0, bytesRead);
@@ -324,6 +347,7 @@ public abstract class CryptoModuleBase implements CryptoModule {
             logException("Cannot read object content stream: ", ex);
             throw new ClientException(OSS_RESOURCE_MANAGER.getString("CannotReadContentStream"), ex);
         } finally {
+            BufferPool.getDefault().release(buffer);
             safeClose(outputStream);
             safeClose(ossObject.getObjectContent());
         }
@@ -392,7 +416,7 @@ public abstract class CryptoModuleBase implements CryptoModule {
         final InputStream isOrig = req.getInputStream();
         CipherInputStream isCurr = null;
         try {
-            isCurr = new RenewableCipherInputStream(isOrig, cryptoCipher, DEFAULT_BUFFER_SIZE);
+            isCurr = new RenewableCipherInputStream(isOrig, cryptoCipher, cryptoConfig.getCipherBufferSize());
             req.setInputStream(isCurr);
             result = ossDirect.uploadPart(req);
         } finally {
@@ -413,7 +437,7 @@ public abstract class CryptoModuleBase implements CryptoModule {
             if (fileOrig != null) {
                 isCurr = new FileInputStream(fileOrig);
             }
-            return new RenewableCipherInputStream(isCurr, cryptoCipher, DEFAULT_BUFFER_SIZE);
+            return new RenewableCipherInputStream(isCurr, cryptoCipher, cryptoConfig.getCipherBufferSize());
         } catch (Exception e) {
             safeCloseSource(isCurr);
             req.setFile(fileOrig);
@@ -530,6 +554,41 @@ public abstract class CryptoModuleBase implements CryptoModule {
         return metadata;
     }
 
+    /**
+     * Gets the content crypto material for decrypting the object achieved, the
+     * one built recently for the same encrypted key if there is one.
+     */
+    protected ContentCryptoMaterial resolveContentMaterialFromMetadata(ObjectMetadata meta) {
+        Map<String, String> userMeta = meta.getUserMetadata();
+        String cacheKey = userMeta.get(CryptoHeaders.CRYPTO_KEY) + "\n" + userMeta.get(CryptoHeaders.CRYPTO_IV) + "\n"
+                + userMeta.get(CryptoHeaders.CRYPTO_WRAP_ALG) + "\n" + userMeta.get(CryptoHeaders.CRYPTO_CEK_ALG) + "\n"
+                + userMeta.get(CryptoHeaders.CRYPTO_MATDESC);
+        long now = System.currentTimeMillis();
+        resolvedMaterialsLock.lock();
+        try {
+            ResolvedMaterial resolved = resolvedMaterials.get(cacheKey);
+            if (resolved != null && resolved.expiresAt > now) {
+                return resolved.material;
+            }
+        } finally {
+            resolvedMaterialsLock.unlock();
+        }
+
+        ContentCryptoMaterial material = createContentMaterialFromMetadata(meta);
+        resolvedMaterialsLock.lock();
+        try {
+            resolvedMaterials.put(cacheKey, new ResolvedMaterial(material, now + RESOLVED_MATERIALS_TTL));
+            Iterator<ResolvedMaterial> it = resolvedMaterials.values().iterator();
+            while (resolvedMaterials.size() > RESOLVED_MATERIALS_SIZE && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        } finally {
+            resolvedMaterialsLock.unlock();
+        }
+        return material;
+    }
+
     /**
      * Builds a new content crypto material for decrypting the object achieved.
      */
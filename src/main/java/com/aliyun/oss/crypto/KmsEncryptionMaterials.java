@@ -20,10 +20,15 @@
 package com.aliyun.oss.crypto;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import com.aliyun.oss.ClientException;
@@ -43,9 +48,19 @@ import com.aliyuncs.profile.IClientProfile;
 
 /**
  * This provide a kms encryption materials for client-side encryption.
+ * <p>
+ * One kms client is kept per region and credentials. The keys decrypted by
+ * kms are cached by their encrypted blob, so reading an object again, or a
+ * range of it, does not call kms. A data key can be reused for several
+ * objects, with a new iv each, by {@link #setDataKeyReuse(int, long)}; reuse
+ * is off by default.
  */
 public class KmsEncryptionMaterials implements EncryptionMaterials {
     private static final String KEY_WRAP_ALGORITHM = "KMS/ALICLOUD";
+
+    public static final int DEFAULT_DECRYPTED_KEY_CACHE_SIZE = 1024;
+    public static final long DEFAULT_DECRYPTED_KEY_CACHE_TTL = 5 * 60 * 1000L;
+
     private String region;
     private String cmk;
     CredentialsProvider credentialsProvider;
@@ -53,6 +68,20 @@ public class KmsEncryptionMaterials implements EncryptionMaterials {
     private final Map<String, String> desc;
     private final LinkedHashMap<KmsClientSuite, Map<String, String>> kmsDescMaterials = 
                                     new LinkedHashMap<KmsClientSuite, Map<String, String>>();
+
+    private final List<KmsClientHolder> kmsClients = new ArrayList<KmsClientHolder>();
+    private final Lock kmsClientsLock = new ReentrantLock();
+
+    private final LinkedHashMap<String, CachedKey> decryptedKeys = new LinkedHashMap<String, CachedKey>(16, 0.75f,
+            true);
+    private final Lock decryptedKeysLock = new ReentrantLock();
+    private volatile int decryptedKeyCacheSize = DEFAULT_DECRYPTED_KEY_CACHE_SIZE;
+    private volatile long decryptedKeyCacheTTL = DEFAULT_DECRYPTED_KEY_CACHE_TTL;
+
+    private DataKey dataKey;
+    private final Lock dataKeyLock = new ReentrantLock();
+    private volatile int dataKeyMaxUses = 1;
+    private volatile long dataKeyMaxAge = 0;
     
     public KmsEncryptionMaterials(String region, String cmk) {
         assertParameterNotNull(region, "kms region");
@@ -70,7 +99,7 @@ public class KmsEncryptionMaterials implements EncryptionMaterials {
         this.desc = (desc == null) ? new HashMap<String, String>() : new HashMap<String, String>(desc);
     }
     
-    private final class KmsClientSuite {
+    final class KmsClientSuite {
         private String region;
         private CredentialsProvider credentialsProvider;
         KmsClientSuite(String region, CredentialsProvider credentialsProvider) {
@@ -79,6 +108,130 @@ public class KmsEncryptionMaterials implements EncryptionMaterials {
         }
     }
 
+    /**
+     * A kms client, with the credentials it was built with.
+     */
+    private static final class KmsClientHolder {
+        private final String region;
+        private final CredentialsProvider credentialsProvider;
+        private final Credentials credentials;
+        private final DefaultAcsClient client;
+
+        KmsClientHolder(String region, CredentialsProvider credentialsProvider, Credentials credentials,
+                DefaultAcsClient client) {
+            this.region = region;
+            this.credentialsProvider = credentialsProvider;
+            this.credentials = credentials;
+            this.client = client;
+        }
+    }
+
+    /**
+     * A plain text key decrypted by kms.
+     */
+    private static final class CachedKey {
+        private final byte[] plainText;
+        private final long expiresAt;
+
+        CachedKey(byte[] plainText, long expiresAt) {
+            this.plainText = plainText;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A content encryption key reused for several objects.
+     */
+    private static final class DataKey {
+        private final SecretKey cek;
+        private final byte[] encryptedCEK;
+        private final long createdAt;
+        private int uses;
+
+        DataKey(SecretKey cek, byte[] encryptedCEK, long createdAt) {
+            this.cek = cek;
+            this.encryptedCEK = encryptedCEK;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * Sets how many objects may be encrypted with one data key, and for how
+     * long, before a new one is encrypted by kms. Every object still gets its
+     * own iv. The default is one object, so every object has its own key.
+     * 
+     * @param maxUses
+     *            The number of objects a data key may encrypt, one or more.
+     * @param maxAgeMillis
+     *            The age in milliseconds after which a data key is no longer
+     *            used, zero for no limit.
+     */
+    public void setDataKeyReuse(int maxUses, long maxAgeMillis) {
+        if (maxUses < 1 || maxAgeMillis < 0) {
+            throw new IllegalArgumentException("The data key reuse limits are out of range.");
+        }
+        dataKeyLock.lock();
+        try {
+            this.dataKeyMaxUses = maxUses;
+            this.dataKeyMaxAge = maxAgeMillis;
+            this.dataKey = null;
+        } finally {
+            dataKeyLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of objects a data key may encrypt.
+     */
+    public int getDataKeyMaxUses() {
+        return dataKeyMaxUses;
+    }
+
+    /**
+     * Gets the age in milliseconds after which a data key is no longer used.
+     */
+    public long getDataKeyMaxAge() {
+        return dataKeyMaxAge;
+    }
+
+    /**
+     * Sets the number of the keys decrypted by kms that are kept, and for how
+     * long. A size of zero turns the cache off.
+     * 
+     * @param maxEntries
+     *            The number of decrypted keys kept, the least recently used
+     *            are dropped first.
+     * @param ttlMillis
+     *            The time in milliseconds a decrypted key is kept.
+     */
+    public void setDecryptedKeyCache(int maxEntries, long ttlMillis) {
+        if (maxEntries < 0 || ttlMillis < 0) {
+            throw new IllegalArgumentException("The decrypted key cache limits are out of range.");
+        }
+        decryptedKeysLock.lock();
+        try {
+            this.decryptedKeyCacheSize = maxEntries;
+            this.decryptedKeyCacheTTL = ttlMillis;
+            decryptedKeys.clear();
+        } finally {
+            decryptedKeysLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of the keys decrypted by kms that are kept.
+     */
+    public int getDecryptedKeyCacheSize() {
+        return decryptedKeyCacheSize;
+    }
+
+    /**
+     * Gets the time in milliseconds a decrypted key is kept.
+     */
+    public long getDecryptedKeyCacheTTL() {
+        return decryptedKeyCacheTTL;
+    }
+
     /**
      * Sets the credentials provider.
      */
@@ -90,18 +243,55 @@ public class KmsEncryptionMaterials implements EncryptionMaterials {
     /**
      * Create a new kms client.
      */
-    private DefaultAcsClient createKmsClient(String region, CredentialsProvider credentialsPorvider) {
-        Credentials credentials = credentialsPorvider.getCredentials();
+    private DefaultAcsClient createKmsClient(String region, Credentials credentials) {
         IClientProfile profile = DefaultProfile.getProfile(region, credentials.getAccessKeyId(), 
                 credentials.getSecretAccessKey(), credentials.getSecurityToken());
         return new DefaultAcsClient(profile);
     }
 
+    /**
+     * Gets the kms client of the region and credentials provider, a new one
+     * when the provider gives other credentials than the client was built
+     * with.
+     */
+    private DefaultAcsClient getKmsClient(String region, CredentialsProvider credentialsProvider) {
+        Credentials credentials = credentialsProvider.getCredentials();
+        kmsClientsLock.lock();
+        try {
+            for (Iterator<KmsClientHolder> it = kmsClients.iterator(); it.hasNext();) {
+                KmsClientHolder holder = it.next();
+                if (holder.region.equals(region) && holder.credentialsProvider == credentialsProvider) {
+                    if (sameCredentials(holder.credentials, credentials)) {
+                        return holder.client;
+                    }
+                    it.remove();
+                    holder.client.shutdown();
+                    break;
+                }
+            }
+            DefaultAcsClient client = createKmsClient(region, credentials);
+            kmsClients.add(new KmsClientHolder(region, credentialsProvider, credentials, client));
+            return client;
+        } finally {
+            kmsClientsLock.unlock();
+        }
+    }
+
+    private static boolean sameCredentials(Credentials a, Credentials b) {
+        return a == b || (equal(a.getAccessKeyId(), b.getAccessKeyId())
+                && equal(a.getSecretAccessKey(), b.getSecretAccessKey())
+                && equal(a.getSecurityToken(), b.getSecurityToken()));
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
     /**
      * Encrypt the plain text to cipherBlob.
      */
     private EncryptResponse encryptPlainText(String keyId, String plainText) throws ClientException {
-        DefaultAcsClient kmsClient = createKmsClient(region, credentialsProvider);
+        DefaultAcsClient kmsClient = getKmsClient(region, credentialsProvider);
         final EncryptRequest encReq = new EncryptRequest();
         encReq.setSysProtocol(ProtocolType.HTTPS);
         encReq.setAcceptFormat(FormatType.JSON);
@@ -123,7 +313,7 @@ public class KmsEncryptionMaterials implements EncryptionMaterials {
      */
     private DecryptResponse decryptCipherBlob(KmsClientSuite kmsClientSuite, String cipherBlob) 
             throws ClientException {
-        final DefaultAcsClient kmsClient = createKmsClient(kmsClientSuite.region, kmsClientSuite.credentialsProvider);
+        final DefaultAcsClient kmsClient = getKmsClient(kmsClientSuite.region, kmsClientSuite.credentialsProvider);
         final DecryptRequest decReq = new DecryptRequest();
         decReq.setSysProtocol(ProtocolType.HTTPS);
         decReq.setAcceptFormat(FormatType.JSON);
@@ -139,6 +329,83 @@ public class KmsEncryptionMaterials implements EncryptionMaterials {
         return decResponse;
     }
 
+    /**
+     * Encrypts the key, or the iv, by kms and returns the encrypted blob.
+     */
+    byte[] encryptKey(byte[] key) {
+        EncryptResponse response = encryptPlainText(cmk, BinaryUtil.toBase64String(key));
+        return BinaryUtil.fromBase64String(response.getCiphertextBlob());
+    }
+
+    /**
+     * Decrypts the blob by kms and returns the key, or the iv.
+     */
+    byte[] decryptKey(KmsClientSuite kmsClientSuite, byte[] encryptedKey) {
+        DecryptResponse response = decryptCipherBlob(kmsClientSuite, BinaryUtil.toBase64String(encryptedKey));
+        return BinaryUtil.fromBase64String(response.getPlaintext());
+    }
+
+    /**
+     * Decrypts the blob, or gets the key from the cache of the decrypted keys.
+     */
+    private byte[] decryptKeyCached(KmsClientSuite kmsClientSuite, byte[] encryptedKey) {
+        if (decryptedKeyCacheSize == 0) {
+            return decryptKey(kmsClientSuite, encryptedKey);
+        }
+        String cacheKey = BinaryUtil.toBase64String(encryptedKey);
+        long now = System.currentTimeMillis();
+        decryptedKeysLock.lock();
+        try {
+            CachedKey cached = decryptedKeys.get(cacheKey);
+            if (cached != null) {
+                if (cached.expiresAt > now) {
+                    return cached.plainText.clone();
+                }
+                decryptedKeys.remove(cacheKey);
+            }
+        } finally {
+            decryptedKeysLock.unlock();
+        }
+
+        byte[] key = decryptKey(kmsClientSuite, encryptedKey);
+        decryptedKeysLock.lock();
+        try {
+            if (decryptedKeyCacheSize > 0) {
+                decryptedKeys.put(cacheKey, new CachedKey(key.clone(), now + decryptedKeyCacheTTL));
+                Iterator<CachedKey> it = decryptedKeys.values().iterator();
+                while (decryptedKeys.size() > decryptedKeyCacheSize && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            }
+        } finally {
+            decryptedKeysLock.unlock();
+        }
+        return key;
+    }
+
+    /**
+     * Gets the data key to encrypt an object with, the one given when data
+     * keys are not reused or the current one is used up.
+     */
+    private DataKey acquireDataKey(SecretKey cek) {
+        if (dataKeyMaxUses == 1) {
+            return new DataKey(cek, encryptKey(cek.getEncoded()), System.currentTimeMillis());
+        }
+        dataKeyLock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            if (dataKey == null || dataKey.uses >= dataKeyMaxUses
+                    || (dataKeyMaxAge > 0 && now - dataKey.createdAt >= dataKeyMaxAge)) {
+                dataKey = new DataKey(cek, encryptKey(cek.getEncoded()), now);
+            }
+            dataKey.uses++;
+            return dataKey;
+        } finally {
+            dataKeyLock.unlock();
+        }
+    }
+
     /**
      * Add other kms region and descrption materials used for decryption.
      * 
@@ -219,14 +486,12 @@ public class KmsEncryptionMaterials implements EncryptionMaterials {
             assertParameterNotNull(contentMaterialRW.getCEK(), "contentMaterialRW#getCEK");
 
             byte[] iv = contentMaterialRW.getIV();
-            EncryptResponse encryptresponse = encryptPlainText(cmk, BinaryUtil.toBase64String(iv));
-            byte[] encryptedIV = BinaryUtil.fromBase64String(encryptresponse.getCiphertextBlob());
+            byte[] encryptedIV = encryptKey(iv);
 
-            SecretKey cek = contentMaterialRW.getCEK();
-            encryptresponse = encryptPlainText(cmk, BinaryUtil.toBase64String(cek.getEncoded()));
-            byte[] encryptedCEK = BinaryUtil.fromBase64String(encryptresponse.getCiphertextBlob());
+            DataKey key = acquireDataKey(contentMaterialRW.getCEK());
 
-            contentMaterialRW.setEncryptedCEK(encryptedCEK);
+            contentMaterialRW.setCEK(key.cek);
+            contentMaterialRW.setEncryptedCEK(key.encryptedCEK);
             contentMaterialRW.setEncryptedIV(encryptedIV);
             contentMaterialRW.setKeyWrapAlgorithm(KEY_WRAP_ALGORITHM);
             contentMaterialRW.setMaterialsDescription(desc);
@@ -265,13 +530,8 @@ public class KmsEncryptionMaterials implements EncryptionMaterials {
                 kmsClientSuite = entry.getKey();
             }
 
-            DecryptResponse decryptIvResp = decryptCipherBlob(kmsClientSuite,
-                    BinaryUtil.toBase64String(contentMaterialRW.getEncryptedIV()));
-            byte[] iv = BinaryUtil.fromBase64String(decryptIvResp.getPlaintext());
-
-            DecryptResponse decryptCEKResp = decryptCipherBlob(kmsClientSuite,
-                    BinaryUtil.toBase64String(contentMaterialRW.getEncryptedCEK()));
-            byte[] cekBytes = BinaryUtil.fromBase64String(decryptCEKResp.getPlaintext());
+            byte[] iv = decryptKeyCached(kmsClientSuite, contentMaterialRW.getEncryptedIV());
+            byte[] cekBytes = decryptKeyCached(kmsClientSuite, contentMaterialRW.getEncryptedCEK());
             SecretKey cek = new SecretKeySpec(cekBytes, "");
 
             contentMaterialRW.setCEK(cek);
@@ -0,0 +1,469 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static com.aliyun.oss.internal.OSSConstants.DEFAULT_CHARSET_NAME;
+
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.common.auth.Credentials;
+import com.aliyun.oss.common.auth.CredentialsProvider;
+import com.aliyun.oss.common.comm.RequestMessage;
+import com.aliyun.oss.common.comm.SignVersion;
+import com.aliyun.oss.common.utils.BinaryUtil;
+import com.aliyun.oss.common.utils.HttpHeaders;
+import com.aliyun.oss.common.utils.HttpUtil;
+import com.aliyun.oss.model.GeneratePresignedUrlRequest;
+import com.aliyun.oss.model.UrlPresigner;
+import com.aliyun.oss.model.UrlPresignerRequest;
+
+/**
+ * A {@link UrlPresigner} that builds the URLs of the V1 signature like
+ * {@link SignUtils#buildSignedURL}, from a signing context computed once for
+ * the template and the credentials: the canonical string and the query
+ * string around the key, and the endpoint. Each thread keeps a Mac
+ * initialized with the secret of the context. The context is computed again
+ * when the credentials change. With the V2 signature the URLs are built one
+ * at a time.
+ */
+public class BatchUrlPresigner extends UrlPresigner {
+
+    /** Batches smaller than this are presigned by the calling thread. */
+    static final int MIN_KEYS_PER_TASK = 256;
+
+    private static final String ALGORITHM = "HmacSHA1";
+
+    /** Stands for the expires in the canonical string of the context. */
+    private static final String EXPIRES_PLACEHOLDER = "\uFFFF";
+
+    private final GeneratePresignedUrlRequest template;
+    private final CredentialsProvider credsProvider;
+    private final ClientConfiguration config;
+    private final URI endpoint;
+    private final long fixedExpiration;
+    private final long validityMillis;
+    private final long windowMillis;
+    private final int taskNum;
+    private SharedTransferExecutor transferExecutor;
+
+    private volatile SigningContext context;
+
+    private final Lock v2Lock = new ReentrantLock();
+    private final Lock cacheLock = new ReentrantLock();
+    private final Map<String, CachedUrl> cache;
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    /**
+     * The parts of the URLs and of the canonical strings that do not depend
+     * on the key or the expiration.
+     */
+    static class SigningContext {
+        final Credentials credentials;
+        final SecretKeySpec secret;
+        final String canonicalHead;
+        final String canonicalHeaders;
+        final String canonicalResourceHead;
+        final String canonicalParameters;
+        final String urlHead;
+        final String accessKeyIdParameter;
+        final String queryTail;
+        final ThreadLocal<Mac> macs = new ThreadLocal<Mac>();
+
+        SigningContext(Credentials credentials, String canonicalHead, String canonicalHeaders,
+                String canonicalResourceHead, String canonicalParameters, String urlHead, String queryTail) {
+            this.credentials = credentials;
+            try {
+                this.secret = new SecretKeySpec(credentials.getSecretAccessKey().getBytes(DEFAULT_CHARSET_NAME),
+                        ALGORITHM);
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+            this.canonicalHead = canonicalHead;
+            this.canonicalHeaders = canonicalHeaders;
+            this.canonicalResourceHead = canonicalResourceHead;
+            this.canonicalParameters = canonicalParameters;
+            this.urlHead = urlHead;
+            this.accessKeyIdParameter = "&" + RequestParameters.OSS_ACCESS_KEY_ID + "="
+                    + HttpUtil.urlEncode(credentials.getAccessKeyId(), DEFAULT_CHARSET_NAME) + "&"
+                    + RequestParameters.SIGNATURE + "=";
+            this.queryTail = queryTail;
+        }
+
+        boolean isFor(Credentials current) {
+            return current == credentials
+                    || (equal(current.getAccessKeyId(), credentials.getAccessKeyId())
+                            && equal(current.getSecretAccessKey(), credentials.getSecretAccessKey())
+                            && equal(current.getSecurityToken(), credentials.getSecurityToken()));
+        }
+
+        Mac mac() {
+            Mac mac = macs.get();
+            if (mac == null) {
+                try {
+                    mac = Mac.getInstance(ALGORITHM);
+                    mac.init(secret);
+                } catch (GeneralSecurityException e) {
+                    throw new ClientException("Failed to initialize the " + ALGORITHM + " signature.", e);
+                }
+                macs.set(mac);
+            }
+            return mac;
+        }
+    }
+
+    static class CachedUrl {
+        final SigningContext context;
+        final long expires;
+        final URL url;
+
+        CachedUrl(SigningContext context, long expires, URL url) {
+            this.context = context;
+            this.expires = expires;
+            this.url = url;
+        }
+    }
+
+    public BatchUrlPresigner(UrlPresignerRequest request, CredentialsProvider credsProvider,
+            ClientConfiguration config, URI endpoint) {
+        GeneratePresignedUrlRequest source = request.getTemplate();
+        if (source == null || source.getBucketName() == null) {
+            throw new IllegalArgumentException("The template should have the bucket name.");
+        }
+        OSSUtils.ensureBucketNameValid(source.getBucketName());
+        if (request.getValidityMillis() == 0 && source.getExpiration() == null) {
+            throw new IllegalArgumentException("The template should have the expiration, or the request a validity.");
+        }
+        this.template = copyOf(source);
+        this.credsProvider = credsProvider;
+        this.config = config;
+        this.endpoint = endpoint;
+        this.fixedExpiration = source.getExpiration() != null ? source.getExpiration().getTime() : 0;
+        this.validityMillis = request.getValidityMillis();
+        this.windowMillis = request.getExpirationWindowMillis();
+        this.taskNum = request.getTaskNum();
+
+        final int cacheSize = request.getCacheSize();
+        if (cacheSize > 0) {
+            this.cache = new LinkedHashMap<String, CachedUrl>(16, 0.75f, true) {
+                private static final long serialVersionUID = 4862937504018239173L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedUrl> eldest) {
+                    return size() > cacheSize;
+                }
+            };
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * Presigns the batches on the shared executor of the client, when there
+     * is one.
+     */
+    public void setTransferExecutor(SharedTransferExecutor transferExecutor) {
+        this.transferExecutor = transferExecutor;
+    }
+
+    TransferTaskExecutor newTransferTaskExecutor(int taskNum) {
+        if (transferExecutor != null) {
+            return new TransferTaskExecutor(transferExecutor, taskNum);
+        }
+        return new TransferTaskExecutor(config, taskNum);
+    }
+
+    @Override
+    public Date getExpiration() {
+        return new Date(expirationMillis(System.currentTimeMillis()));
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    long expirationMillis(long now) {
+        if (validityMillis == 0) {
+            return fixedExpiration;
+        }
+        long expiration = now + validityMillis;
+        return (expiration + windowMillis - 1) / windowMillis * windowMillis;
+    }
+
+    @Override
+    public URL presign(String key) {
+        long expires = expirationMillis(System.currentTimeMillis()) / 1000L;
+        return presign(key, expires, currentContext());
+    }
+
+    @Override
+    public List<URL> presign(final List<String> keys) {
+        final long expires = expirationMillis(System.currentTimeMillis()) / 1000L;
+        final SigningContext context = currentContext();
+        final URL[] urls = new URL[keys.size()];
+        int tasks = Math.min(taskNum, keys.size() / MIN_KEYS_PER_TASK);
+        if (tasks <= 1) {
+            presign(keys, 0, keys.size(), expires, context, urls);
+            return Arrays.asList(urls);
+        }
+
+        TransferTaskExecutor service = newTransferTaskExecutor(tasks);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks);
+        try {
+            int chunk = (keys.size() + tasks - 1) / tasks;
+            for (int start = 0; start < keys.size(); start += chunk) {
+                final int from = start;
+                final int to = Math.min(start + chunk, keys.size());
+                futures.add(service.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        presign(keys, from, to, expires, context, urls);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new ClientException(cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ClientException("Interrupted while presigning the URLs.", e);
+                }
+            }
+        } finally {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            service.shutdown();
+        }
+        return Arrays.asList(urls);
+    }
+
+    private void presign(List<String> keys, int from, int to, long expires, SigningContext context, URL[] urls) {
+        for (int i = from; i < to; i++) {
+            urls[i] = presign(keys.get(i), expires, context);
+        }
+    }
+
+    private URL presign(String key, long expires, SigningContext context) {
+        if (key == null) {
+            throw new IllegalArgumentException("The key should not be null.");
+        }
+        if (cache == null) {
+            return sign(key, expires, context);
+        }
+        cacheLock.lock();
+        try {
+            CachedUrl cached = cache.get(key);
+            // A URL signed with an older context may be put after the cache
+            // was cleared for new credentials, so the context is compared too.
+            if (cached != null && cached.context == context && cached.expires == expires) {
+                cacheHits.incrementAndGet();
+                return cached.url;
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+        URL url = sign(key, expires, context);
+        cacheLock.lock();
+        try {
+            cache.put(key, new CachedUrl(context, expires, url));
+        } finally {
+            cacheLock.unlock();
+        }
+        return url;
+    }
+
+    private URL sign(String key, long expires, SigningContext context) {
+        String url;
+        if (context == null) {
+            url = signV2(key, expires);
+        } else {
+            String expiresString = String.valueOf(expires);
+            StringBuilder canonical = new StringBuilder(context.canonicalHead.length()
+                    + context.canonicalHeaders.length() + context.canonicalResourceHead.length() + key.length()
+                    + context.canonicalParameters.length() + 16);
+            canonical.append(context.canonicalHead).append(expiresString).append(context.canonicalHeaders)
+                    .append(context.canonicalResourceHead).append(key).append(context.canonicalParameters);
+            String signature;
+            try {
+                signature = BinaryUtil.toBase64String(context.mac().doFinal(
+                        canonical.toString().getBytes(DEFAULT_CHARSET_NAME)));
+            } catch (UnsupportedEncodingException e) {
+                throw new IllegalStateException(e);
+            }
+
+            String resourcePath = OSSUtils.determineResourcePath(template.getBucketName(), key,
+                    config.isSLDEnabled());
+            StringBuilder builder = new StringBuilder(context.urlHead.length() + resourcePath.length()
+                    + context.accessKeyIdParameter.length() + context.queryTail.length() + 48);
+            builder.append(context.urlHead).append(resourcePath).append('?').append(HttpHeaders.EXPIRES)
+                    .append('=').append(expiresString).append(context.accessKeyIdParameter)
+                    .append(encodeBase64Url(signature)).append(context.queryTail);
+            url = builder.toString();
+        }
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new ClientException(e);
+        }
+    }
+
+    private String signV2(String key, long expires) {
+        Credentials credentials = credsProvider.getCredentials();
+        // The template is changed for each URL.
+        v2Lock.lock();
+        try {
+            template.setKey(key);
+            template.setExpiration(new Date(expires * 1000L));
+            return SignV2Utils.buildSignedURL(template, credentials, config, endpoint);
+        } finally {
+            v2Lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the context of the current credentials, or null for the V2
+     * signature.
+     */
+    SigningContext currentContext() {
+        if (config.getSignatureVersion() == SignVersion.V2) {
+            return null;
+        }
+        Credentials credentials = credsProvider.getCredentials();
+        SigningContext current = context;
+        if (current != null && current.isFor(credentials)) {
+            return current;
+        }
+        current = newContext(credentials);
+        context = current;
+        if (cache != null) {
+            // URLs of other credentials are not served anymore.
+            cacheLock.lock();
+            try {
+                cache.clear();
+            } finally {
+                cacheLock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private SigningContext newContext(Credentials credentials) {
+        GeneratePresignedUrlRequest request = copyOf(template);
+        request.setKey(null);
+        RequestMessage message = SignUtils.buildPresignedRequestMessage(request, credentials, config, endpoint,
+                EXPIRES_PLACEHOLDER);
+        HttpMethod method = template.getMethod() != null ? template.getMethod() : HttpMethod.GET;
+
+        String canonical = SignUtils.buildCanonicalString(method.toString(), "/", message, EXPIRES_PLACEHOLDER);
+        String resource = SignUtils.buildCanonicalizedResource("/", message.getParameters());
+        int expiresAt = canonical.indexOf(EXPIRES_PLACEHOLDER);
+        String canonicalHead = canonical.substring(0, expiresAt);
+        String canonicalHeaders = canonical.substring(expiresAt + EXPIRES_PLACEHOLDER.length(),
+                canonical.length() - resource.length());
+        String canonicalResourceHead = "/" + template.getBucketName() + "/";
+        String canonicalParameters = resource.substring(1);
+
+        String urlHead = message.getEndpoint().toString();
+        if (!urlHead.endsWith("/")) {
+            urlHead += "/";
+        }
+        String queryTail = "";
+        if (!message.getParameters().isEmpty()) {
+            queryTail = "&" + HttpUtil.paramToQueryString(message.getParameters(), DEFAULT_CHARSET_NAME);
+        }
+        return new SigningContext(credentials, canonicalHead, canonicalHeaders, canonicalResourceHead,
+                canonicalParameters, urlHead, queryTail);
+    }
+
+    private static GeneratePresignedUrlRequest copyOf(GeneratePresignedUrlRequest source) {
+        GeneratePresignedUrlRequest copy = new GeneratePresignedUrlRequest(source.getBucketName(), source.getKey(),
+                source.getMethod());
+        copy.setExpiration(source.getExpiration());
+        copy.setContentType(source.getContentType());
+        copy.setContentMD5(source.getContentMD5());
+        copy.setResponseHeaders(source.getResponseHeaders());
+        copy.setUserMetadata(new HashMap<String, String>(source.getUserMetadata()));
+        copy.setQueryParameter(new LinkedHashMap<String, String>(source.getQueryParameter()));
+        copy.setProcess(source.getProcess());
+        copy.setHeaders(new HashMap<String, String>(source.getHeaders()));
+        if (source.getAdditionalHeaderNames() != null) {
+            copy.setAdditionalHeaderNames(new HashSet<String>(source.getAdditionalHeaderNames()));
+        }
+        copy.setTrafficLimit(source.getTrafficLimit());
+        return copy;
+    }
+
+    /**
+     * URL encodes a base64 string, where only '+', '/' and '=' are escaped,
+     * without the charset lookups of the URLEncoder.
+     */
+    static String encodeBase64Url(String base64) {
+        StringBuilder encoded = new StringBuilder(base64.length() + 8);
+        for (int i = 0; i < base64.length(); i++) {
+            char c = base64.charAt(i);
+            if (c == '+') {
+                encoded.append("%2B");
+            } else if (c == '/') {
+                encoded.append("%2F");
+            } else if (c == '=') {
+                encoded.append("%3D");
+            } else {
+                encoded.append(c);
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.common.utils.BufferPool;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObjectChannel;
+import com.aliyun.oss.model.ObjectChannelRequest;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.Payer;
+
+/**
+ * Reads an object at any position through an LRU cache of fixed-size blocks.
+ * <p>
+ * A read served from cached blocks sends no request. Otherwise one ranged GET
+ * fetches from the first missing block to the last missing block of the read,
+ * cached blocks in between included, so nearby small reads cost one round
+ * trip. When a read starts where the previous one ended, the GET also fetches
+ * blocks ahead, one at first and twice as many with every sequential fetch up
+ * to maxReadAheadBlocks. A GET never covers more than half of the cache, so it
+ * does not evict the blocks it fetched. Every GET is pinned to the ETag of the
+ * object when the channel was opened.
+ */
+public class CachingObjectChannel extends OSSObjectChannel {
+
+    private final OSSDownloadOperation operation;
+    private final ObjectChannelRequest request;
+    private final ObjectMetadata metadata;
+    private final long size;
+    private final int blockSize;
+    private final int maxCachedBlocks;
+    private final int maxFetchBlocks;
+    private final Map<Long, byte[]> blocks;
+    private final Lock lock = new ReentrantLock();
+
+    private long position;
+    private long lastReadEnd = -1;
+    private int readAhead;
+    private boolean closed;
+    private long requestCount;
+    private long cacheHitCount;
+    private long cacheMissCount;
+
+    public CachingObjectChannel(OSSDownloadOperation operation, ObjectChannelRequest request,
+            ObjectMetadata metadata) {
+        this.operation = operation;
+        this.request = request;
+        this.metadata = metadata;
+        this.size = metadata.getContentLength();
+        this.blockSize = request.getBlockSize();
+        this.maxCachedBlocks = request.getMaxCachedBlocks();
+        this.maxFetchBlocks = Math.max(maxCachedBlocks / 2, 1);
+        this.blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                if (size() > maxCachedBlocks) {
+                    BufferPool.getDefault().release(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private int blockLength(long index) {
+        return (int) Math.min(blockSize, size - index * blockSize);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        lock.lock();
+        try {
+            int n = read(dst, position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative position: " + position);
+        }
+        lock.lock();
+        try {
+            ensureOpen();
+            if (position >= size) {
+                return -1;
+            }
+            int length = (int) Math.min(dst.remaining(), size - position);
+            if (length == 0) {
+                return 0;
+            }
+
+            long end = position + length;
+            long lastIndex = (end - 1) / blockSize;
+            for (long index = position / blockSize; index <= lastIndex; index++) {
+                if (blocks.containsKey(index)) {
+                    cacheHitCount++;
+                } else {
+                    cacheMissCount++;
+                }
+            }
+
+            boolean sequential = position == lastReadEnd;
+            long pos = position;
+            while (pos < end) {
+                long index = pos / blockSize;
+                byte[] block = blocks.get(index);
+                if (block == null) {
+                    fetch(index, lastIndex, sequential);
+                    block = blocks.get(index);
+                }
+                int offset = (int) (pos - index * blockSize);
+                int n = (int) Math.min(end - pos, blockLength(index) - offset);
+                dst.put(block, offset, n);
+                pos += n;
+            }
+            lastReadEnd = end;
+            return length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fetches the given block and the following ones the read needs or reads
+     * ahead, in one ranged GET.
+     */
+    private void fetch(long index, long lastNeeded, boolean sequential) throws IOException {
+        long limit = Math.min(index + maxFetchBlocks - 1, (size - 1) / blockSize);
+        long last = index;
+        for (long i = index + 1; i <= Math.min(lastNeeded, limit); i++) {
+            if (!blocks.containsKey(i)) {
+                last = i;
+            }
+        }
+        if (sequential && request.getMaxReadAheadBlocks() > 0) {
+            readAhead = readAhead == 0 ? 1 : Math.min(readAhead * 2, request.getMaxReadAheadBlocks());
+            long ahead = Math.min(last + readAhead, limit);
+            while (last < ahead && !blocks.containsKey(last + 1)) {
+                last++;
+            }
+        } else if (!sequential) {
+            readAhead = 0;
+        }
+
+        long start = index * blockSize;
+        long stop = Math.min((last + 1) * blockSize, size) - 1;
+        GetObjectRequest getObjectRequest = new GetObjectRequest(request.getBucketName(), request.getKey());
+        getObjectRequest.setRange(start, stop);
+        getObjectRequest.setMatchingETagConstraints(Collections.singletonList(metadata.getETag()));
+        if (request.getVersionId() != null) {
+            getObjectRequest.setVersionId(request.getVersionId());
+        }
+        Payer payer = request.getRequestPayer();
+        if (payer != null) {
+            getObjectRequest.setRequestPayer(payer);
+        }
+
+        requestCount++;
+        InputStream content = operation.getObjectWrap(getObjectRequest).getObjectContent();
+        try {
+            for (long i = index; i <= last; i++) {
+                int length = blockLength(i);
+                byte[] block = BufferPool.getDefault().acquire(blockSize);
+                if (IOUtils.readNBytes(content, block, 0, length) != length) {
+                    BufferPool.getDefault().release(block);
+                    throw new IOException("The range [" + start + ", " + stop + "] of " + request.getKey()
+                            + " ended before the block " + i + ".");
+                }
+                byte[] old = blocks.put(i, block);
+                if (old != null) {
+                    BufferPool.getDefault().release(old);
+                }
+            }
+        } finally {
+            content.close();
+        }
+    }
+
+    @Override
+    public long position() throws IOException {
+        lock.lock();
+        try {
+            ensureOpen();
+            return position;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public OSSObjectChannel position(long newPosition) throws IOException {
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position: " + newPosition);
+        }
+        lock.lock();
+        try {
+            ensureOpen();
+            position = newPosition;
+            return this;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public long getRequestCount() {
+        lock.lock();
+        try {
+            return requestCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        lock.lock();
+        try {
+            return cacheHitCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long getCacheMissCount() {
+        lock.lock();
+        try {
+            return cacheMissCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        lock.lock();
+        try {
+            return !closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases the cached blocks.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (byte[] block : blocks.values()) {
+                BufferPool.getDefault().release(block);
+            }
+            blocks.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
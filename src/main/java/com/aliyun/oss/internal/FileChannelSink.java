@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.aliyun.oss.common.utils.BufferPool;
+import com.aliyun.oss.common.utils.IOUtils;
+
+/**
+ * The file that the parts of a download are written to.
+ * <p>
+ * The file is opened once for the whole download and sized up front. Each part
+ * writes at its own position through the shared {@link FileChannel}, in
+ * chunks of {@link #WRITE_CHUNK_SIZE} collected in a pooled direct buffer, so
+ * a part costs no open, seek or close and few write calls. With memory mapping
+ * enabled, each part is copied into a mapped region of the file instead and
+ * needs no write calls at all.
+ */
+public class FileChannelSink implements Closeable {
+
+    public static final int WRITE_CHUNK_SIZE = 256 * 1024;
+
+    private static final int READ_SIZE = 8 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final boolean mmapEnabled;
+
+    /**
+     * Opens the file and sets its size, unless the size is negative.
+     */
+    public FileChannelSink(String filePath, long size, boolean mmapEnabled) throws IOException {
+        this.file = new RandomAccessFile(filePath, "rw");
+        this.channel = file.getChannel();
+        this.mmapEnabled = mmapEnabled;
+        try {
+            // Sizes the file once, so that the parts never extend it while they
+            // are written. A negative size means it is not known.
+            if (size >= 0 && channel.size() != size) {
+                file.setLength(size);
+            }
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public boolean isMmapEnabled() {
+        return mmapEnabled;
+    }
+
+    /**
+     * Writes the whole stream to the file, starting at the given position.
+     *
+     * @return The number of bytes written.
+     */
+    public long write(InputStream input, long position, long length) throws IOException {
+        if (mmapEnabled && length > 0 && length <= Integer.MAX_VALUE) {
+            return writeMapped(input, position, length);
+        }
+
+        byte[] buffer = BufferPool.getDefault().acquire(READ_SIZE);
+        ByteBuffer chunk = BufferPool.getDefault().acquireDirect(WRITE_CHUNK_SIZE);
+        long written = 0;
+        try {
+            int bytesRead;
+            while ((bytesRead = IOUtils.readNBytes(input, buffer, 0, Math.min(buffer.length, chunk.remaining()))) > 0) {
+                chunk.put(buffer, 0, bytesRead);
+                if (!chunk.hasRemaining()) {
+                    written += flush(chunk, position + written);
+                }
+            }
+            written += flush(chunk, position + written);
+        } finally {
+            BufferPool.getDefault().releaseDirect(chunk);
+            BufferPool.getDefault().release(buffer);
+        }
+        return written;
+    }
+
+    private long flush(ByteBuffer chunk, long position) throws IOException {
+        chunk.flip();
+        long written = 0;
+        while (chunk.hasRemaining()) {
+            written += channel.write(chunk, position + written);
+        }
+        chunk.clear();
+        return written;
+    }
+
+    private long writeMapped(InputStream input, long position, long length) throws IOException {
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+        byte[] buffer = BufferPool.getDefault().acquire(READ_SIZE);
+        try {
+            int bytesRead;
+            while (region.hasRemaining()
+                    && (bytesRead = IOUtils.readNBytes(input, buffer, 0, Math.min(buffer.length, region.remaining()))) > 0) {
+                region.put(buffer, 0, bytesRead);
+            }
+            // Drains the stream, so that its CRC covers all the content.
+            long extra = 0;
+            while ((bytesRead = input.read(buffer)) > 0) {
+                extra += bytesRead;
+            }
+            if (extra > 0) {
+                throw new IOException("The part has " + extra + " bytes more than the expected " + length + " bytes.");
+            }
+            return region.position();
+        } finally {
+            BufferPool.getDefault().release(buffer);
+            unmap(region);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Moves the downloaded file to its final path. The temp file sits in the
+     * same directory as the target, so this is a rename on the same file
+     * system and never a copy.
+     */
+    public static void moveTo(File srcFile, File destFile) throws IOException {
+        if (!srcFile.exists()) {
+            throw new FileNotFoundException("Source '" + srcFile + "' does not exist");
+        }
+        if (srcFile.isDirectory()) {
+            throw new IOException("Source '" + srcFile + "' is a directory");
+        }
+        if (destFile.isDirectory()) {
+            throw new IOException("Destination '" + destFile + "' is a directory");
+        }
+
+        if (srcFile.renameTo(destFile)) {
+            return;
+        }
+        // Renaming over an existing file fails on some platforms.
+        if (destFile.exists() && destFile.delete() && srcFile.renameTo(destFile)) {
+            return;
+        }
+        throw new IOException("Failed to rename '" + srcFile + "' to '" + destFile + "'");
+    }
+
+    /**
+     * Releases a mapped region now rather than when it is garbage collected,
+     * otherwise the file can not be renamed on Windows.
+     */
+    static void unmap(MappedByteBuffer buffer) {
+        try {
+            // JDK 9 and later.
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch (Exception e) {
+            // Falls back to the cleaner of JDK 8 and earlier.
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception e) {
+            getLog().debug("Unable to unmap the download file region: " + e.getMessage());
+        }
+    }
+}
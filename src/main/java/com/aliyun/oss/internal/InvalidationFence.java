@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tells a cache if an object was invalidated while its result was fetched, so
+ * a response that started before a write is not cached after it.
+ * <p>
+ * A fetch takes the generation before its request, and its result is current
+ * when the object was not invalidated since. The generations of the most
+ * recently invalidated objects are kept; beyond that, a fetch older than the
+ * forgotten invalidations is treated as stale.
+ */
+class InvalidationFence {
+
+    private static final int MAX_OBJECTS = 4096;
+
+    private final Lock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Long> invalidated = new LinkedHashMap<String, Long>();
+    private long generation;
+    private long forgottenGeneration;
+
+    /**
+     * Gets the generation to take before fetching a result.
+     */
+    long generation() {
+        lock.lock();
+        try {
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void invalidate(String objectKey) {
+        lock.lock();
+        try {
+            generation++;
+            // Kept in the order of the generations, the oldest first.
+            invalidated.remove(objectKey);
+            invalidated.put(objectKey, generation);
+            Iterator<Map.Entry<String, Long>> it = invalidated.entrySet().iterator();
+            while (invalidated.size() > MAX_OBJECTS && it.hasNext()) {
+                forgottenGeneration = it.next().getValue();
+                it.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Checks if the object was not invalidated since the given generation.
+     */
+    boolean isCurrent(String objectKey, long fetchGeneration) {
+        lock.lock();
+        try {
+            if (forgottenGeneration > fetchGeneration) {
+                return false;
+            }
+            Long invalidatedAt = invalidated.get(objectKey);
+            return invalidatedAt == null || invalidatedAt.longValue() <= fetchGeneration;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
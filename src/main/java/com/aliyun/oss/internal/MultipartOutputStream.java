@@ -0,0 +1,479 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static com.aliyun.oss.common.utils.LogUtils.logException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.InconsistentException;
+import com.aliyun.oss.common.utils.BufferPool;
+import com.aliyun.oss.common.utils.CRC64;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CannedAccessControlList;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadResult;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.OSSOutputStream;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.Payer;
+import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.UploadPartRequest;
+import com.aliyun.oss.model.UploadPartResult;
+import com.aliyun.oss.model.UploadStreamRequest;
+
+/**
+ * Uploads what is written as the parts of a multipart upload.
+ * <p>
+ * The writer fills a pooled part buffer, and every full buffer is uploaded in
+ * the background while the writer moves on to the next one. Once
+ * maxBufferedParts buffers are filled or uploading, the writer blocks until a
+ * part upload finishes. The multipart upload is initiated with the first full
+ * part, so a stream closed before that is uploaded by one PutObject. Closing
+ * the stream completes the upload, and a failed part or complete aborts it.
+ * Once the stream has failed, every write and close throws the first failure,
+ * so a truncated object is never created.
+ */
+public class MultipartOutputStream extends OSSOutputStream {
+
+    static final int MAX_PART_NUMBER = 10000;
+
+    private final OSSUploadOperation operation;
+    private final UploadStreamRequest request;
+    private final boolean crcCheckEnabled;
+    private final int partSize;
+    private final Semaphore buffers;
+    private final List<Future<UploadPartResult>> futures = new ArrayList<Future<UploadPartResult>>();
+    private final List<PartTask> tasks = new ArrayList<PartTask>();
+
+    private TransferTaskExecutor executor;
+    private String uploadId;
+    private byte[] buffer;
+    private int count;
+    private int partNumber;
+    private long bytesWritten;
+    private volatile Exception failure;
+    private boolean closed;
+    private CompleteMultipartUploadResult result;
+
+    public MultipartOutputStream(OSSUploadOperation operation, UploadStreamRequest request,
+            boolean crcCheckEnabled) {
+        this.operation = operation;
+        this.request = request;
+        this.crcCheckEnabled = crcCheckEnabled;
+        this.partSize = (int) request.getPartSize();
+        this.buffers = new Semaphore(request.getMaxBufferedParts());
+    }
+
+    class PartTask implements Callable<UploadPartResult> {
+        private static final int PENDING = 0;
+        private static final int RUNNING = 1;
+        private static final int RELEASED = 2;
+
+        private final int number;
+        private final byte[] data;
+        private final int length;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        PartTask(int number, byte[] data, int length) {
+            this.number = number;
+            this.data = data;
+            this.length = length;
+        }
+
+        @Override
+        public UploadPartResult call() throws Exception {
+            if (!state.compareAndSet(PENDING, RUNNING)) {
+                throw new ClientException("The upload of part " + number + " was cancelled.");
+            }
+            try {
+                UploadPartRequest uploadPartRequest = new UploadPartRequest(request.getBucketName(),
+                        request.getKey(), uploadId, number, new ByteArrayInputStream(data, 0, length), length);
+                Payer payer = request.getRequestPayer();
+                if (payer != null) {
+                    uploadPartRequest.setRequestPayer(payer);
+                }
+                if (request.getTrafficLimit() > 0) {
+                    uploadPartRequest.setTrafficLimit(request.getTrafficLimit());
+                }
+
+                UploadPartResult uploadPartResult = operation.uploadPartWrap(null, uploadPartRequest);
+                if (crcCheckEnabled) {
+                    OSSUtils.checkChecksum(uploadPartResult.getClientCRC(), uploadPartResult.getServerCRC(),
+                            uploadPartResult.getRequestId());
+                }
+                return uploadPartResult;
+            } catch (Exception e) {
+                fail(e);
+                logException(String.format("Upload part %d of %s failed: ", number, request.getKey()), e);
+                throw e;
+            } finally {
+                state.set(RELEASED);
+                releaseBuffer();
+            }
+        }
+
+        /**
+         * Releases the buffer of a part that is cancelled before it starts.
+         */
+        void cancel() {
+            if (state.compareAndSet(PENDING, RELEASED)) {
+                releaseBuffer();
+            }
+        }
+
+        private void releaseBuffer() {
+            BufferPool.getDefault().release(data);
+            buffers.release();
+        }
+    }
+
+    private void fail(Exception e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+
+    private void ensureBuffer() throws IOException {
+        checkFailure();
+        if (closed) {
+            throw new IOException("The stream has been closed.");
+        }
+        if (buffer == null) {
+            try {
+                buffers.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a part buffer.");
+            }
+            // A part may have failed while the writer was waiting.
+            checkFailure();
+            buffer = BufferPool.getDefault().acquire(partSize);
+            count = 0;
+        }
+    }
+
+    private void checkFailure() {
+        Exception e = failure;
+        if (e != null) {
+            abort();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new ClientException(e);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureBuffer();
+        buffer[count++] = (byte) b;
+        bytesWritten++;
+        if (count == partSize) {
+            uploadPart();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            ensureBuffer();
+            int n = Math.min(len, partSize - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            bytesWritten += n;
+            off += n;
+            len -= n;
+            if (count == partSize) {
+                uploadPart();
+            }
+        }
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        int written = 0;
+        while (src.hasRemaining()) {
+            ensureBuffer();
+            int n = Math.min(src.remaining(), partSize - count);
+            src.get(buffer, count, n);
+            count += n;
+            bytesWritten += n;
+            written += n;
+            if (count == partSize) {
+                uploadPart();
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Hands the filled buffer over to a background part upload. If the upload
+     * cannot be initiated or the part cannot be added, the stream fails.
+     */
+    private void uploadPart() {
+        try {
+            submitPart();
+        } catch (RuntimeException e) {
+            fail(e);
+            abort();
+            throw e;
+        }
+    }
+
+    private void submitPart() {
+        if (uploadId == null) {
+            InitiateMultipartUploadRequest initiateRequest = new InitiateMultipartUploadRequest(
+                    request.getBucketName(), request.getKey(), newMetadata());
+            Payer payer = request.getRequestPayer();
+            if (payer != null) {
+                initiateRequest.setRequestPayer(payer);
+            }
+            uploadId = operation.initiateMultipartUploadWrap(null, initiateRequest).getUploadId();
+            executor = operation.newTransferTaskExecutor(request.getTaskNum());
+        }
+        if (partNumber >= MAX_PART_NUMBER) {
+            throw new ClientException("The stream of " + request.getKey() + " has more than " + MAX_PART_NUMBER
+                    + " parts of " + partSize + " bytes, please use a bigger part size.");
+        }
+
+        byte[] data = buffer;
+        int length = count;
+        buffer = null;
+        count = 0;
+        partNumber++;
+        PartTask task = new PartTask(partNumber, data, length);
+        tasks.add(task);
+        futures.add(executor.submit(task));
+    }
+
+    /**
+     * Does nothing, as a part can only be uploaded once it is full. The data is
+     * uploaded when the stream is closed.
+     */
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed;
+    }
+
+    /**
+     * Uploads the data left and creates the object. If it fails, the
+     * multipart upload is aborted and the exception is thrown, again by every
+     * later close.
+     */
+    @Override
+    public void close() throws IOException {
+        checkFailure();
+        if (closed) {
+            return;
+        }
+        boolean succeeded = false;
+        try {
+            if (uploadId == null) {
+                result = putObject();
+            } else {
+                if (count > 0) {
+                    uploadPart();
+                }
+                result = complete();
+            }
+            succeeded = true;
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        } catch (RuntimeException e) {
+            fail(e);
+            throw e;
+        } finally {
+            if (succeeded) {
+                release();
+            } else {
+                abort();
+            }
+        }
+    }
+
+    private CompleteMultipartUploadResult putObject() {
+        ObjectMetadata metadata = newMetadata();
+        metadata.setContentLength(count);
+        byte[] data = buffer != null ? buffer : new byte[0];
+        PutObjectRequest putObjectRequest = new PutObjectRequest(request.getBucketName(), request.getKey(),
+                new ByteArrayInputStream(data, 0, count), metadata);
+        Payer payer = request.getRequestPayer();
+        if (payer != null) {
+            putObjectRequest.setRequestPayer(payer);
+        }
+        if (request.getTrafficLimit() > 0) {
+            putObjectRequest.setTrafficLimit(request.getTrafficLimit());
+        }
+
+        PutObjectResult putObjectResult = operation.putObjectWrap(putObjectRequest);
+        CompleteMultipartUploadResult completeResult = new CompleteMultipartUploadResult();
+        completeResult.setBucketName(request.getBucketName());
+        completeResult.setKey(request.getKey());
+        completeResult.setETag(putObjectResult.getETag());
+        completeResult.setVersionId(putObjectResult.getVersionId());
+        completeResult.setRequestId(putObjectResult.getRequestId());
+        completeResult.setClientCRC(putObjectResult.getClientCRC());
+        completeResult.setServerCRC(putObjectResult.getServerCRC());
+        completeResult.setResponse(putObjectResult.getResponse());
+        return completeResult;
+    }
+
+    private CompleteMultipartUploadResult complete() throws IOException {
+        List<PartETag> partETags = new ArrayList<PartETag>(futures.size());
+        Long clientCRC = 0L;
+        for (Future<UploadPartResult> future : futures) {
+            UploadPartResult uploadPartResult;
+            try {
+                uploadPartResult = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the parts.");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new ClientException(cause);
+            }
+            partETags.add(uploadPartResult.getPartETag());
+            if (clientCRC != null && uploadPartResult.getClientCRC() != null) {
+                clientCRC = CRC64.combine(clientCRC, uploadPartResult.getClientCRC(), uploadPartResult.getPartSize());
+            } else {
+                clientCRC = null;
+            }
+        }
+
+        CompleteMultipartUploadRequest completeRequest = new CompleteMultipartUploadRequest(request.getBucketName(),
+                request.getKey(), uploadId, partETags);
+        Payer payer = request.getRequestPayer();
+        if (payer != null) {
+            completeRequest.setRequestPayer(payer);
+        }
+        ObjectMetadata metadata = request.getObjectMetadata();
+        if (metadata != null) {
+            String acl = (String) metadata.getRawMetadata().get(OSSHeaders.OSS_OBJECT_ACL);
+            if (acl != null && !acl.equals("")) {
+                completeRequest.setObjectACL(CannedAccessControlList.parse(acl));
+            }
+        }
+
+        CompleteMultipartUploadResult completeResult = operation.completeMultipartUploadWrap(null, completeRequest);
+        if (crcCheckEnabled && clientCRC != null) {
+            completeResult.setClientCRC(clientCRC);
+            if (completeResult.getServerCRC() != null && !clientCRC.equals(completeResult.getServerCRC())) {
+                throw new InconsistentException(clientCRC, completeResult.getServerCRC(),
+                        completeResult.getRequestId());
+            }
+        }
+        return completeResult;
+    }
+
+    /**
+     * Copies the metadata of the request, so that the content length of a
+     * PutObject does not leak into it.
+     */
+    private ObjectMetadata newMetadata() {
+        ObjectMetadata metadata = new ObjectMetadata();
+        ObjectMetadata origin = request.getObjectMetadata();
+        if (origin != null) {
+            for (Map.Entry<String, Object> entry : origin.getRawMetadata().entrySet()) {
+                metadata.setHeader(entry.getKey(), entry.getValue());
+            }
+            metadata.setUserMetadata(origin.getUserMetadata());
+        }
+        if (metadata.getContentType() == null) {
+            metadata.setContentType(Mimetypes.getInstance().getMimetype(request.getKey()));
+        }
+        return metadata;
+    }
+
+    @Override
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        for (Future<UploadPartResult> future : futures) {
+            future.cancel(true);
+        }
+        for (PartTask task : tasks) {
+            task.cancel();
+        }
+        if (uploadId != null) {
+            try {
+                operation.abortMultipartUploadWrap(new AbortMultipartUploadRequest(request.getBucketName(),
+                        request.getKey(), uploadId));
+            } catch (Exception e) {
+                logException("Abort multipart upload " + uploadId + " failed: ", e);
+            }
+        }
+        release();
+    }
+
+    private void release() {
+        closed = true;
+        if (buffer != null) {
+            BufferPool.getDefault().release(buffer);
+            buffer = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    @Override
+    public CompleteMultipartUploadResult getResult() {
+        return result;
+    }
+
+    /**
+     * Gets the id of the multipart upload, or null if no part is uploaded yet.
+     */
+    public String getUploadId() {
+        return uploadId;
+    }
+}
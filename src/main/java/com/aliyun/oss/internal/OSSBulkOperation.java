@@ -0,0 +1,1385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static com.aliyun.oss.common.utils.CodingUtils.assertParameterNotNull;
+import static com.aliyun.oss.common.utils.IOUtils.safeClose;
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+import static com.aliyun.oss.common.utils.LogUtils.logException;
+import static com.aliyun.oss.internal.OSSConstants.DEFAULT_CHARSET_NAME;
+import static com.aliyun.oss.internal.OSSUtils.ensureBucketNameValid;
+import static com.aliyun.oss.internal.OSSUtils.ensureObjectKeyValid;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.InconsistentException;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.ServiceException;
+import com.aliyun.oss.common.utils.BinaryUtil;
+import com.aliyun.oss.common.utils.HttpHeaders;
+import com.aliyun.oss.common.utils.HttpUtil;
+import com.aliyun.oss.event.ProgressEventType;
+import com.aliyun.oss.event.ProgressListener;
+import com.aliyun.oss.event.ProgressPublisher;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.BucketInfo;
+import com.aliyun.oss.model.BulkCopyRequest;
+import com.aliyun.oss.model.BulkCopyRequest.CopyEntry;
+import com.aliyun.oss.model.BulkCopyResult;
+import com.aliyun.oss.model.BulkCopyResult.FailedEntry;
+import com.aliyun.oss.model.BulkDeleteRequest;
+import com.aliyun.oss.model.BulkDeleteResult;
+import com.aliyun.oss.model.BulkDeleteResult.FailedKey;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadResult;
+import com.aliyun.oss.model.CopyLargeObjectRequest;
+import com.aliyun.oss.model.CopyLargeObjectResult;
+import com.aliyun.oss.model.CopyObjectRequest;
+import com.aliyun.oss.model.CopyObjectResult;
+import com.aliyun.oss.model.DeleteObjectsRequest;
+import com.aliyun.oss.model.DeleteObjectsResult;
+import com.aliyun.oss.model.DeleteVersionsRequest;
+import com.aliyun.oss.model.DeleteVersionsRequest.KeyVersion;
+import com.aliyun.oss.model.DeleteVersionsResult;
+import com.aliyun.oss.model.DeleteVersionsResult.DeletedVersion;
+import com.aliyun.oss.model.GenericRequest;
+import com.aliyun.oss.model.HnsStatus;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.ListObjectsV2Request;
+import com.aliyun.oss.model.ListObjectsV2Result;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.Payer;
+import com.aliyun.oss.model.RenameObjectRequest;
+import com.aliyun.oss.model.TagSet;
+import com.aliyun.oss.model.UploadPartCopyRequest;
+import com.aliyun.oss.model.UploadPartCopyResult;
+
+/**
+ * Server-side operations over many objects, or over the parts of a large
+ * one: bulk delete, bulk copy and move, and the multipart copy of large
+ * objects. Requests are sent through the client, so its caches see the
+ * changes.
+ */
+public class OSSBulkOperation {
+
+    private static final int MAX_PART_NUMBER = 10000;
+
+    private final OSS client;
+    private final ClientConfiguration config;
+    private SharedTransferExecutor transferExecutor;
+
+    public OSSBulkOperation(OSS client, ClientConfiguration config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    /**
+     * Runs the batches on the shared executor of the client, when there is
+     * one.
+     */
+    public void setTransferExecutor(SharedTransferExecutor transferExecutor) {
+        this.transferExecutor = transferExecutor;
+    }
+
+    TransferTaskExecutor newTransferTaskExecutor(int taskNum) {
+        if (transferExecutor != null) {
+            return new TransferTaskExecutor(transferExecutor, taskNum);
+        }
+        return new TransferTaskExecutor(config, taskNum);
+    }
+
+    protected DeleteObjectsResult deleteObjectsWrap(DeleteObjectsRequest deleteObjectsRequest) {
+        return client.deleteObjects(deleteObjectsRequest);
+    }
+
+    protected DeleteVersionsResult deleteVersionsWrap(DeleteVersionsRequest deleteVersionsRequest) {
+        return client.deleteVersions(deleteVersionsRequest);
+    }
+
+    /**
+     * The counters and failures of one bulk delete, updated by its batches.
+     */
+    static class DeleteProgress {
+        private final Lock lock = new ReentrantLock();
+        private long deletedCount;
+        private long requestCount;
+        private long retryCount;
+        private final List<FailedKey> failedKeys = new ArrayList<FailedKey>();
+
+        void onRequest(boolean retry) {
+            lock.lock();
+            try {
+                requestCount++;
+                if (retry) {
+                    retryCount++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onDeleted(int count) {
+            lock.lock();
+            try {
+                deletedCount += count;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onFailed(List<KeyVersion> keys, String errorCode, String errorMessage) {
+            lock.lock();
+            try {
+                for (KeyVersion key : keys) {
+                    failedKeys.add(new FailedKey(key.getKey(), key.getVersion(), errorCode, errorMessage));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        BulkDeleteResult toResult(long elapsedMillis) {
+            lock.lock();
+            try {
+                BulkDeleteResult result = new BulkDeleteResult();
+                result.setDeletedCount(deletedCount);
+                result.setRequestCount(requestCount);
+                result.setRetryCount(retryCount);
+                result.setFailedKeys(failedKeys);
+                result.setElapsedMillis(elapsedMillis);
+                return result;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Deletes the keys, or the versions, of the request in batches of up to
+     * 1000 sent by taskNum concurrent tasks. The keys are read from their
+     * iterator as the batches are sent, and at most two batches per task wait
+     * for a task, so the memory does not grow with the number of keys.
+     * <p>
+     * A batch that fails with a timeout or server busy error is sent again,
+     * up to maxRetries times. With quiet mode off, the keys missing from the
+     * response are sent again as well. Keys that still fail are reported in
+     * the result rather than thrown, so one bad batch does not stop the
+     * others.
+     */
+    public BulkDeleteResult bulkDelete(BulkDeleteRequest bulkDeleteRequest) throws ClientException {
+        assertParameterNotNull(bulkDeleteRequest, "bulkDeleteRequest");
+        String bucketName = bulkDeleteRequest.getBucketName();
+        assertParameterNotNull(bucketName, "bucketName");
+        ensureBucketNameValid(bucketName);
+        final Iterator<String> keys = bulkDeleteRequest.getKeys();
+        final Iterator<KeyVersion> keyVersions = bulkDeleteRequest.getKeyVersions();
+        if ((keys == null) == (keyVersions == null)) {
+            throw new IllegalArgumentException("Either the keys or the key versions to delete must be specified.");
+        }
+
+        int taskNum = bulkDeleteRequest.getTaskNum();
+        int batchSize = bulkDeleteRequest.getBatchSize();
+        RequestRateLimiter limiter = bulkDeleteRequest.getMaxRequestsPerSecond() > 0
+                ? new RequestRateLimiter(bulkDeleteRequest.getMaxRequestsPerSecond()) : null;
+        DeleteProgress progress = new DeleteProgress();
+        Semaphore pendingBatches = new Semaphore(taskNum * 2);
+        TransferTaskExecutor service = newTransferTaskExecutor(taskNum);
+        long startMillis = System.currentTimeMillis();
+
+        boolean interrupted = false;
+        try {
+            while (keys != null ? keys.hasNext() : keyVersions.hasNext()) {
+                List<KeyVersion> batch = new ArrayList<KeyVersion>(batchSize);
+                while (batch.size() < batchSize && (keys != null ? keys.hasNext() : keyVersions.hasNext())) {
+                    batch.add(keys != null ? new KeyVersion(keys.next()) : keyVersions.next());
+                }
+                pendingBatches.acquire();
+                service.submit(new DeleteBatchTask(bulkDeleteRequest, keys == null, batch, limiter, progress,
+                        pendingBatches));
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            try {
+                service.shutdownAndAwait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new ClientException("Interrupted while deleting " + bucketName + ".");
+        }
+        return progress.toResult(System.currentTimeMillis() - startMillis);
+    }
+
+    class DeleteBatchTask implements Callable<Void> {
+        private final BulkDeleteRequest bulkDeleteRequest;
+        private final boolean versions;
+        private final RequestRateLimiter limiter;
+        private final DeleteProgress progress;
+        private final Semaphore pendingBatches;
+        private List<KeyVersion> batch;
+
+        DeleteBatchTask(BulkDeleteRequest bulkDeleteRequest, boolean versions, List<KeyVersion> batch,
+                RequestRateLimiter limiter, DeleteProgress progress, Semaphore pendingBatches) {
+            this.bulkDeleteRequest = bulkDeleteRequest;
+            this.versions = versions;
+            this.batch = batch;
+            this.limiter = limiter;
+            this.progress = progress;
+            this.pendingBatches = pendingBatches;
+        }
+
+        @Override
+        public Void call() {
+            try {
+                for (int attempt = 0;; attempt++) {
+                    try {
+                        if (limiter != null) {
+                            limiter.acquire();
+                        }
+                        progress.onRequest(attempt > 0);
+                        Set<String> deleted = deleteBatch();
+                        if (deleted == null) {
+                            progress.onDeleted(batch.size());
+                            return null;
+                        }
+                        List<KeyVersion> remaining = new ArrayList<KeyVersion>();
+                        for (KeyVersion key : batch) {
+                            if (!deleted.contains(key.getKey() + "\n" + key.getVersion())) {
+                                remaining.add(key);
+                            }
+                        }
+                        progress.onDeleted(batch.size() - remaining.size());
+                        if (remaining.isEmpty()) {
+                            return null;
+                        }
+                        if (attempt >= bulkDeleteRequest.getMaxRetries()) {
+                            progress.onFailed(remaining, null, "The key is missing from the response.");
+                            return null;
+                        }
+                        batch = remaining;
+                    } catch (Exception e) {
+                        if (!TransferAutoTuner.isCongestion(e) || attempt >= bulkDeleteRequest.getMaxRetries()) {
+                            getLog().warn("Failed to delete " + batch.size() + " keys: " + e.getMessage());
+                            progress.onFailed(batch, errorCode(e), e.getMessage());
+                            return null;
+                        }
+                    }
+                    TransferAutoTuner.pauseBeforeRetry(attempt + 1);
+                }
+            } catch (InterruptedException e) {
+                progress.onFailed(batch, null, "Interrupted before the keys were deleted.");
+                return null;
+            } finally {
+                pendingBatches.release();
+            }
+        }
+
+        /**
+         * Sends the batch, and returns the key and version of every deleted
+         * entry, or null in quiet mode.
+         */
+        private Set<String> deleteBatch() {
+            boolean quiet = bulkDeleteRequest.isQuiet();
+            if (!versions) {
+                List<String> keys = new ArrayList<String>(batch.size());
+                for (KeyVersion key : batch) {
+                    keys.add(key.getKey());
+                }
+                DeleteObjectsRequest request = new DeleteObjectsRequest(bulkDeleteRequest.getBucketName())
+                        .withKeys(keys).withQuiet(quiet);
+                request.setRequestPayer(bulkDeleteRequest.getRequestPayer());
+                DeleteObjectsResult result = deleteObjectsWrap(request);
+                if (quiet) {
+                    return null;
+                }
+                Set<String> deleted = new HashSet<String>();
+                for (String key : result.getDeletedObjects()) {
+                    deleted.add(key + "\n" + null);
+                }
+                return deleted;
+            }
+
+            DeleteVersionsRequest request = new DeleteVersionsRequest(bulkDeleteRequest.getBucketName())
+                    .withKeys(batch).withQuiet(quiet);
+            request.setRequestPayer(bulkDeleteRequest.getRequestPayer());
+            DeleteVersionsResult result = deleteVersionsWrap(request);
+            if (quiet) {
+                return null;
+            }
+            Set<String> deleted = new HashSet<String>();
+            for (DeletedVersion version : result.getDeletedVersions()) {
+                deleted.add(version.getKey() + "\n" + version.getVersionId());
+            }
+            return deleted;
+        }
+    }
+
+    protected ObjectMetadata getObjectMetadataWrap(GenericRequest genericRequest) {
+        return client.getObjectMetadata(genericRequest);
+    }
+
+    protected CopyObjectResult copyObjectWrap(CopyObjectRequest copyObjectRequest) {
+        return client.copyObject(copyObjectRequest);
+    }
+
+    protected InitiateMultipartUploadResult initiateMultipartUploadWrap(InitiateMultipartUploadRequest request) {
+        return client.initiateMultipartUpload(request);
+    }
+
+    protected UploadPartCopyResult uploadPartCopyWrap(UploadPartCopyRequest uploadPartCopyRequest) {
+        return client.uploadPartCopy(uploadPartCopyRequest);
+    }
+
+    protected CompleteMultipartUploadResult completeMultipartUploadWrap(CompleteMultipartUploadRequest request) {
+        return client.completeMultipartUpload(request);
+    }
+
+    protected void abortMultipartUploadWrap(AbortMultipartUploadRequest abortMultipartUploadRequest) {
+        client.abortMultipartUpload(abortMultipartUploadRequest);
+    }
+
+    protected void deleteObjectWrap(GenericRequest genericRequest) {
+        client.deleteObject(genericRequest);
+    }
+
+    protected void renameObjectWrap(RenameObjectRequest renameObjectRequest) {
+        client.renameObject(renameObjectRequest);
+    }
+
+    protected BucketInfo getBucketInfoWrap(String bucketName) {
+        return client.getBucketInfo(bucketName);
+    }
+
+    protected TagSet getObjectTaggingWrap(GenericRequest genericRequest) {
+        return client.getObjectTagging(genericRequest);
+    }
+
+    protected ListObjectsV2Result listObjectsV2Wrap(ListObjectsV2Request listObjectsV2Request) {
+        return client.listObjectsV2(listObjectsV2Request);
+    }
+
+    /**
+     * The state of one bulk copy, shared by its copies: the rate limit, the
+     * counters and failures, the checkpoint file, and which buckets have
+     * hierarchical namespace.
+     */
+    static class CopyContext {
+        final BulkCopyRequest request;
+        final RequestRateLimiter limiter;
+        final CopyJournal journal;
+        private final Lock lock = new ReentrantLock();
+        private final Map<String, Boolean> hnsBuckets = new HashMap<String, Boolean>();
+        private long copiedCount;
+        private long multipartCount;
+        private long renamedCount;
+        private long skippedCount;
+        private long copiedBytes;
+        private long requestCount;
+        private final List<FailedEntry> failedEntries = new ArrayList<FailedEntry>();
+
+        CopyContext(BulkCopyRequest request, CopyJournal journal) {
+            this.request = request;
+            this.limiter = request.getMaxRequestsPerSecond() > 0
+                    ? new RequestRateLimiter(request.getMaxRequestsPerSecond()) : null;
+            this.journal = journal;
+        }
+
+        /**
+         * Waits for the rate limit before a request.
+         */
+        void beforeRequest() throws InterruptedException {
+            if (limiter != null) {
+                limiter.acquire();
+            }
+            lock.lock();
+            try {
+                requestCount++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Boolean getHns(String bucketName) {
+            lock.lock();
+            try {
+                return hnsBuckets.get(bucketName);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void setHns(String bucketName, boolean hns) {
+            lock.lock();
+            try {
+                hnsBuckets.put(bucketName, hns);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onCopied(long bytes, boolean multipart, boolean renamed) {
+            lock.lock();
+            try {
+                copiedCount++;
+                copiedBytes += bytes;
+                if (multipart) {
+                    multipartCount++;
+                }
+                if (renamed) {
+                    renamedCount++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onSkipped() {
+            lock.lock();
+            try {
+                skippedCount++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onFailed(CopyEntry entry, String errorCode, String errorMessage) {
+            lock.lock();
+            try {
+                failedEntries.add(new FailedEntry(entry, errorCode, errorMessage));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        BulkCopyResult toResult(long elapsedMillis) {
+            lock.lock();
+            try {
+                BulkCopyResult result = new BulkCopyResult();
+                result.setCopiedCount(copiedCount);
+                result.setMultipartCount(multipartCount);
+                result.setRenamedCount(renamedCount);
+                result.setSkippedCount(skippedCount);
+                result.setCopiedBytes(copiedBytes);
+                result.setRequestCount(requestCount);
+                result.setFailedEntries(failedEntries);
+                result.setElapsedMillis(elapsedMillis);
+                return result;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The checkpoint file of a bulk copy: one line per completed copy,
+     * appended as the copies complete, so a crash loses nothing but the
+     * copies in flight.
+     */
+    static class CopyJournal {
+        private final String file;
+        private final Set<String> completed = new HashSet<String>();
+        private final Lock lock = new ReentrantLock();
+        private FileOutputStream out;
+        private Writer writer;
+
+        CopyJournal(String file) {
+            this.file = file;
+            FileInputStream in = null;
+            try {
+                if (new File(file).exists()) {
+                    in = new FileInputStream(file);
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(in, DEFAULT_CHARSET_NAME));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        completed.add(line);
+                    }
+                }
+                out = new FileOutputStream(file, true);
+                writer = new OutputStreamWriter(out, DEFAULT_CHARSET_NAME);
+            } catch (IOException e) {
+                throw new ClientException("Cannot open the checkpoint file " + file + ".", e);
+            } finally {
+                safeClose(in);
+            }
+        }
+
+        private static String line(CopyEntry entry) {
+            return HttpUtil.urlEncode(entry.getSourceBucketName(), DEFAULT_CHARSET_NAME) + " "
+                    + HttpUtil.urlEncode(entry.getSourceKey(), DEFAULT_CHARSET_NAME) + " "
+                    + HttpUtil.urlEncode(entry.getDestinationBucketName(), DEFAULT_CHARSET_NAME) + " "
+                    + HttpUtil.urlEncode(entry.getDestinationKey(), DEFAULT_CHARSET_NAME);
+        }
+
+        boolean isCompleted(CopyEntry entry) {
+            return completed.contains(line(entry));
+        }
+
+        void record(CopyEntry entry) {
+            lock.lock();
+            try {
+                writer.write(line(entry));
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                throw new ClientException("Cannot write the checkpoint file " + file + ".", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            safeClose(out);
+        }
+    }
+
+    /**
+     * Copies, or moves, the objects of the request with taskNum concurrent
+     * copies. Each object is copied by a single CopyObject below the multipart
+     * threshold, and by partTaskNum concurrent UploadPartCopy requests above
+     * it. Every copy is pinned to the ETag of the source when it was read, so
+     * an overwrite during the copy fails it rather than mixing versions.
+     * <p>
+     * A move is a RenameObject when both keys are in one bucket with
+     * hierarchical namespace. Otherwise the copy is compared to the source by
+     * size and CRC64, or ETag when there is no CRC64, and the source is
+     * deleted only when they match.
+     * <p>
+     * A plain copy onto the source itself, with the same prefix or key, is
+     * allowed when the request has new object metadata, to rewrite the
+     * metadata or storage class in place.
+     * <p>
+     * Objects that fail are reported in the result rather than thrown. With a
+     * checkpoint file, completed copies are recorded, and skipped when the
+     * request runs again.
+     */
+    public BulkCopyResult bulkCopy(BulkCopyRequest bulkCopyRequest) throws ClientException {
+        assertParameterNotNull(bulkCopyRequest, "bulkCopyRequest");
+        Iterator<CopyEntry> entries = bulkCopyRequest.getEntries();
+        if (entries == null) {
+            String sourceBucketName = bulkCopyRequest.getBucketName();
+            String destinationBucketName = bulkCopyRequest.getDestinationBucketName();
+            if (sourceBucketName == null || destinationBucketName == null) {
+                throw new IllegalArgumentException("Either the entries or the prefix mapping must be specified.");
+            }
+            ensureBucketNameValid(sourceBucketName);
+            ensureBucketNameValid(destinationBucketName);
+            String sourcePrefix = nullToEmpty(bulkCopyRequest.getSourcePrefix());
+            String destinationPrefix = nullToEmpty(bulkCopyRequest.getDestinationPrefix());
+            // Copies under the source prefix would be listed again, and a move
+            // onto the source prefix would delete what it copied.
+            if (sourceBucketName.equals(destinationBucketName) && destinationPrefix.startsWith(sourcePrefix)
+                    && !(destinationPrefix.equals(sourcePrefix) && isInPlaceRewrite(bulkCopyRequest))) {
+                throw new IllegalArgumentException(
+                        "The destination prefix must not be the source prefix or under it.");
+            }
+            entries = new PrefixEntryIterator(sourceBucketName, sourcePrefix, destinationBucketName,
+                    destinationPrefix);
+        } else if (bulkCopyRequest.getDestinationBucketName() != null) {
+            throw new IllegalArgumentException("Either the entries or the prefix mapping must be specified.");
+        }
+
+        CopyJournal journal = bulkCopyRequest.getCheckpointFile() != null
+                ? new CopyJournal(bulkCopyRequest.getCheckpointFile()) : null;
+        CopyContext context = new CopyContext(bulkCopyRequest, journal);
+        int taskNum = bulkCopyRequest.getTaskNum();
+        Semaphore pendingCopies = new Semaphore(taskNum * 2);
+        // The copies wait for their parts, which may run on the shared
+        // executor, so they get threads of their own.
+        TransferTaskExecutor service = new TransferTaskExecutor(config, taskNum);
+        long startMillis = System.currentTimeMillis();
+
+        boolean interrupted = false;
+        try {
+            while (entries.hasNext()) {
+                CopyEntry entry = entries.next();
+                if (journal != null && journal.isCompleted(entry)) {
+                    context.onSkipped();
+                    continue;
+                }
+                pendingCopies.acquire();
+                service.submit(new CopyTask(context, entry, pendingCopies));
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            try {
+                service.shutdownAndAwait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (journal != null) {
+                journal.close();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new ClientException("Interrupted while copying objects.");
+        }
+        return context.toResult(System.currentTimeMillis() - startMillis);
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    class CopyTask implements Callable<Void> {
+        private final CopyContext context;
+        private final CopyEntry entry;
+        private final Semaphore pendingCopies;
+
+        CopyTask(CopyContext context, CopyEntry entry, Semaphore pendingCopies) {
+            this.context = context;
+            this.entry = entry;
+            this.pendingCopies = pendingCopies;
+        }
+
+        @Override
+        public Void call() {
+            try {
+                copyEntry(context, entry);
+                if (context.journal != null) {
+                    context.journal.record(entry);
+                }
+            } catch (InterruptedException e) {
+                context.onFailed(entry, null, "Interrupted before the object was copied.");
+            } catch (Exception e) {
+                getLog().warn("Failed to copy " + entry + ": " + e.getMessage());
+                context.onFailed(entry, errorCode(e), e.getMessage());
+            } finally {
+                pendingCopies.release();
+            }
+            return null;
+        }
+    }
+
+    private void copyEntry(CopyContext context, CopyEntry entry) throws Exception {
+        BulkCopyRequest request = context.request;
+        String sourceBucketName = entry.getSourceBucketName();
+        // A copy onto itself would be deleted by a move.
+        if (sourceBucketName.equals(entry.getDestinationBucketName())
+                && entry.getSourceKey().equals(entry.getDestinationKey()) && !isInPlaceRewrite(request)) {
+            throw new IllegalArgumentException("The source and the destination are the same object.");
+        }
+        if (request.isMove() && sourceBucketName.equals(entry.getDestinationBucketName())
+                && isHnsEnabled(context, sourceBucketName)) {
+            context.beforeRequest();
+            renameObjectWrap(new RenameObjectRequest(sourceBucketName, entry.getSourceKey(),
+                    entry.getDestinationKey()));
+            context.onCopied(0, false, true);
+            return;
+        }
+
+        context.beforeRequest();
+        ObjectMetadata source = getObjectMetadataWrap(new GenericRequest(sourceBucketName, entry.getSourceKey()));
+        long size = source.getContentLength();
+        boolean multipart = size >= request.getMultipartThreshold();
+        if (multipart) {
+            ObjectMetadata metadata = request.getNewObjectMetadata() != null ? request.getNewObjectMetadata()
+                    : newMetadataOf(source);
+            copyMultipart(context, entry, source, metadata, request.getPartSize(), request.getPartTaskNum());
+        } else {
+            CopyObjectRequest copyObjectRequest = new CopyObjectRequest(sourceBucketName, entry.getSourceKey(),
+                    entry.getDestinationBucketName(), entry.getDestinationKey());
+            copyObjectRequest.setMatchingETagConstraints(Collections.singletonList(source.getETag()));
+            if (request.getNewObjectMetadata() != null) {
+                copyObjectRequest.setNewObjectMetadata(request.getNewObjectMetadata());
+            }
+            context.beforeRequest();
+            copyObjectWrap(copyObjectRequest);
+        }
+
+        if (request.isMove()) {
+            context.beforeRequest();
+            ObjectMetadata copy = getObjectMetadataWrap(
+                    new GenericRequest(entry.getDestinationBucketName(), entry.getDestinationKey()));
+            verifyCopy(entry, source, copy, multipart);
+            context.beforeRequest();
+            deleteObjectWrap(new GenericRequest(sourceBucketName, entry.getSourceKey()));
+        }
+        context.onCopied(size, multipart, false);
+    }
+
+    private static boolean isInPlaceRewrite(BulkCopyRequest request) {
+        return !request.isMove() && request.getNewObjectMetadata() != null;
+    }
+
+    private boolean isHnsEnabled(CopyContext context, String bucketName) throws InterruptedException {
+        Boolean hns = context.getHns(bucketName);
+        if (hns == null) {
+            try {
+                context.beforeRequest();
+                hns = HnsStatus.Enabled.toString().equals(getBucketInfoWrap(bucketName).getBucket().getHnsStatus());
+            } catch (ServiceException e) {
+                hns = false;
+            } catch (ClientException e) {
+                hns = false;
+            }
+            context.setHns(bucketName, hns);
+        }
+        return hns;
+    }
+
+    /**
+     * Checks that the copy has the content of the source, before the source
+     * of a move is deleted.
+     */
+    private static void verifyCopy(CopyEntry entry, ObjectMetadata source, ObjectMetadata copy, boolean multipart) {
+        boolean matched = source.getContentLength() == copy.getContentLength();
+        if (matched && source.getServerCRC() != null && copy.getServerCRC() != null) {
+            matched = source.getServerCRC().equals(copy.getServerCRC());
+        } else if (matched && !multipart) {
+            // A multipart copy has an ETag of its own.
+            matched = source.getETag() != null && source.getETag().equals(copy.getETag());
+        }
+        if (!matched) {
+            throw new ClientException("The copy of " + entry + " does not match its source, the source is kept.");
+        }
+    }
+
+    /**
+     * Gets the metadata a multipart copy is initiated with to keep the
+     * metadata of its source, without the headers the server sets.
+     */
+    static ObjectMetadata newMetadataOf(ObjectMetadata source) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        if (source.getContentType() != null) {
+            metadata.setContentType(source.getContentType());
+        }
+        if (source.getContentEncoding() != null) {
+            metadata.setContentEncoding(source.getContentEncoding());
+        }
+        if (source.getContentDisposition() != null) {
+            metadata.setContentDisposition(source.getContentDisposition());
+        }
+        if (source.getCacheControl() != null) {
+            metadata.setCacheControl(source.getCacheControl());
+        }
+        if (source.getRawExpiresValue() != null) {
+            metadata.setHeader(HttpHeaders.EXPIRES, source.getRawExpiresValue());
+        }
+        if (source.getRawMetadata().get(OSSHeaders.OSS_STORAGE_CLASS) != null) {
+            metadata.setHeader(OSSHeaders.OSS_STORAGE_CLASS, source.getRawMetadata().get(OSSHeaders.OSS_STORAGE_CLASS));
+        }
+        metadata.setUserMetadata(new HashMap<String, String>(source.getUserMetadata()));
+        return metadata;
+    }
+
+    /**
+     * Copies an object by concurrent UploadPartCopy requests. The upload is
+     * aborted when a part fails.
+     */
+    private void copyMultipart(CopyContext context, CopyEntry entry, ObjectMetadata source, ObjectMetadata metadata,
+            long partSize, int partTaskNum) throws Exception {
+        CopyCheckPoint copyCheckPoint = newCopyCheckPoint(entry.getSourceBucketName(), entry.getSourceKey(), null,
+                source, entry.getDestinationBucketName(), entry.getDestinationKey(), partSize);
+        beforeRequest(context);
+        copyCheckPoint.uploadID = initiateMultipartUploadWrap(new InitiateMultipartUploadRequest(
+                copyCheckPoint.bucketName, copyCheckPoint.key, metadata)).getUploadId();
+        boolean completed = false;
+        try {
+            copyParts(context, copyCheckPoint, null, partTaskNum, null);
+            completed = true;
+        } finally {
+            if (!completed) {
+                abortQuietly(copyCheckPoint);
+            }
+        }
+    }
+
+    private static void beforeRequest(CopyContext context) throws InterruptedException {
+        if (context != null) {
+            context.beforeRequest();
+        }
+    }
+
+    private void abortQuietly(CopyCheckPoint copyCheckPoint) {
+        try {
+            abortMultipartUploadWrap(new AbortMultipartUploadRequest(copyCheckPoint.bucketName, copyCheckPoint.key,
+                    copyCheckPoint.uploadID));
+        } catch (Exception e) {
+            logException("Failed to abort the multipart copy to " + copyCheckPoint.key + ": ", e);
+        }
+    }
+
+    static class CopyCheckPoint implements Serializable {
+
+        private static final long serialVersionUID = -3467592470181458224L;
+
+        private static final String COPY_MAGIC = "2E6A8B1C-37D4-4F0B-9C5E-81A4F6D2B7C3";
+
+        private final transient Lock lock = new ReentrantLock();
+
+        /**
+         * Gets the checkpoint data from the checkpoint file.
+         */
+        public void load(String cpFile) throws IOException, ClassNotFoundException {
+            lock.lock();
+            try {
+                FileInputStream fileIn = new FileInputStream(cpFile);
+                ObjectInputStream in = new ObjectInputStream(fileIn);
+                CopyCheckPoint ccp = (CopyCheckPoint) in.readObject();
+                assign(ccp);
+                in.close();
+                fileIn.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Writes the checkpoint data to the checkpoint file.
+         */
+        public void dump(String cpFile) throws IOException {
+            lock.lock();
+            try {
+                this.md5 = hashCode();
+                FileOutputStream fileOut = new FileOutputStream(cpFile);
+                ObjectOutputStream outStream = new ObjectOutputStream(fileOut);
+                outStream.writeObject(this);
+                outStream.close();
+                fileOut.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * The part copy completed, updates the status, and the checkpoint
+         * file when there is one.
+         */
+        public void update(int partIndex, PartETag partETag, String cpFile) throws IOException {
+            lock.lock();
+            try {
+                partETags.add(partETag);
+                copyParts.get(partIndex).isCompleted = true;
+                if (cpFile != null) {
+                    dump(cpFile);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Checks if the checkpoint is the one of the request, and the source
+         * has not changed since.
+         */
+        public boolean isValid(CopyLargeObjectRequest request, ObjectMetadata source) {
+            lock.lock();
+            try {
+                if (this.magic == null || !this.magic.equals(COPY_MAGIC) || this.md5 != hashCode()) {
+                    return false;
+                }
+                return equal(sourceBucketName, request.getSourceBucketName())
+                        && equal(sourceKey, request.getSourceKey())
+                        && equal(sourceVersionId, request.getSourceVersionId())
+                        && equal(bucketName, request.getBucketName()) && equal(key, request.getKey())
+                        && equal(sourceETag, source.getETag()) && sourceSize == source.getContentLength();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Checks if the checkpoint is a valid one of the same copy as the
+         * request, but of a source which has changed since.
+         */
+        public boolean isSourceChanged(CopyLargeObjectRequest request, ObjectMetadata source) {
+            lock.lock();
+            try {
+                if (this.magic == null || !this.magic.equals(COPY_MAGIC) || this.md5 != hashCode()) {
+                    return false;
+                }
+                return equal(sourceBucketName, request.getSourceBucketName())
+                        && equal(sourceKey, request.getSourceKey())
+                        && equal(sourceVersionId, request.getSourceVersionId())
+                        && equal(bucketName, request.getBucketName()) && equal(key, request.getKey())
+                        && (!equal(sourceETag, source.getETag()) || sourceSize != source.getContentLength());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + ((bucketName == null) ? 0 : bucketName.hashCode());
+            result = prime * result + ((key == null) ? 0 : key.hashCode());
+            result = prime * result + ((magic == null) ? 0 : magic.hashCode());
+            result = prime * result + ((partETags == null) ? 0 : partETags.hashCode());
+            result = prime * result + ((sourceBucketName == null) ? 0 : sourceBucketName.hashCode());
+            result = prime * result + ((sourceKey == null) ? 0 : sourceKey.hashCode());
+            result = prime * result + ((sourceVersionId == null) ? 0 : sourceVersionId.hashCode());
+            result = prime * result + ((sourceETag == null) ? 0 : sourceETag.hashCode());
+            result = prime * result + (int) (sourceSize ^ (sourceSize >>> 32));
+            result = prime * result + ((uploadID == null) ? 0 : uploadID.hashCode());
+            result = prime * result + ((copyParts == null) ? 0 : copyParts.hashCode());
+            return result;
+        }
+
+        public void assign(CopyCheckPoint ccp) {
+            this.magic = ccp.magic;
+            this.md5 = ccp.md5;
+            this.sourceBucketName = ccp.sourceBucketName;
+            this.sourceKey = ccp.sourceKey;
+            this.sourceVersionId = ccp.sourceVersionId;
+            this.sourceETag = ccp.sourceETag;
+            this.sourceSize = ccp.sourceSize;
+            this.sourceCRC = ccp.sourceCRC;
+            this.bucketName = ccp.bucketName;
+            this.key = ccp.key;
+            this.uploadID = ccp.uploadID;
+            this.copyParts = ccp.copyParts;
+            this.partETags = ccp.partETags;
+        }
+
+        public String magic;
+        public int md5;
+        public String sourceBucketName;
+        public String sourceKey;
+        public String sourceVersionId;
+        public String sourceETag;
+        public long sourceSize;
+        public Long sourceCRC;
+        public String bucketName;
+        public String key;
+        public String uploadID;
+        public ArrayList<CopyPart> copyParts;
+        public ArrayList<PartETag> partETags;
+    }
+
+    static class CopyPart implements Serializable {
+        private static final long serialVersionUID = 2873519245390166027L;
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + (isCompleted ? 1231 : 1237);
+            result = prime * result + number;
+            result = prime * result + (int) (offset ^ (offset >>> 32));
+            result = prime * result + (int) (size ^ (size >>> 32));
+            return result;
+        }
+
+        public int number; // part number
+        public long offset; // the offset in the source
+        public long size; // part size
+        public boolean isCompleted; // copy completeness flag.
+    }
+
+    /**
+     * Splits the source into parts of the part size, grown when the source
+     * would need more than 10,000 parts.
+     */
+    static CopyCheckPoint newCopyCheckPoint(String sourceBucketName, String sourceKey, String sourceVersionId,
+            ObjectMetadata source, String bucketName, String key, long partSize) {
+        long size = source.getContentLength();
+        partSize = Math.max(partSize, (size + MAX_PART_NUMBER - 1) / MAX_PART_NUMBER);
+        CopyCheckPoint copyCheckPoint = new CopyCheckPoint();
+        copyCheckPoint.magic = CopyCheckPoint.COPY_MAGIC;
+        copyCheckPoint.sourceBucketName = sourceBucketName;
+        copyCheckPoint.sourceKey = sourceKey;
+        copyCheckPoint.sourceVersionId = sourceVersionId;
+        copyCheckPoint.sourceETag = source.getETag();
+        copyCheckPoint.sourceSize = size;
+        copyCheckPoint.sourceCRC = source.getServerCRC();
+        copyCheckPoint.bucketName = bucketName;
+        copyCheckPoint.key = key;
+        copyCheckPoint.copyParts = new ArrayList<CopyPart>();
+        copyCheckPoint.partETags = new ArrayList<PartETag>();
+        int number = 1;
+        long offset = 0;
+        do {
+            CopyPart part = new CopyPart();
+            part.number = number++;
+            part.offset = offset;
+            part.size = Math.min(partSize, size - offset);
+            copyCheckPoint.copyParts.add(part);
+            offset += partSize;
+        } while (offset < size);
+        return copyCheckPoint;
+    }
+
+    /**
+     * Copies the parts of the checkpoint left to copy by concurrent
+     * UploadPartCopy requests, each pinned to the ETag of the source, and
+     * completes the upload. With a checkpoint file, the file is written after
+     * every part. The CRC64 of the copy is checked against the source, when
+     * both are known.
+     */
+    private CompleteMultipartUploadResult copyParts(final CopyContext context, final CopyCheckPoint copyCheckPoint,
+            final String checkpointFile, int taskNum, final Payer payer) throws Exception {
+        TransferTaskExecutor service = newTransferTaskExecutor(taskNum);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        boolean completed = false;
+        try {
+            for (int i = 0; i < copyCheckPoint.copyParts.size(); i++) {
+                final CopyPart part = copyCheckPoint.copyParts.get(i);
+                if (part.isCompleted) {
+                    continue;
+                }
+                final int partIndex = i;
+                final UploadPartCopyRequest request = new UploadPartCopyRequest(copyCheckPoint.sourceBucketName,
+                        copyCheckPoint.sourceKey, copyCheckPoint.bucketName, copyCheckPoint.key,
+                        copyCheckPoint.uploadID, part.number, part.offset, part.size);
+                request.setSourceVersionId(copyCheckPoint.sourceVersionId);
+                request.setMatchingETagConstraints(Collections.singletonList(copyCheckPoint.sourceETag));
+                if (payer != null) {
+                    request.setRequestPayer(payer);
+                }
+                futures.add(service.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        beforeRequest(context);
+                        PartETag partETag = uploadPartCopyWrap(request).getPartETag();
+                        copyCheckPoint.update(partIndex, partETag, checkpointFile);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+            }
+            completed = true;
+        } finally {
+            if (completed) {
+                service.shutdown();
+            } else {
+                for (Future<Void> future : futures) {
+                    future.cancel(true);
+                }
+                // A part still running would write the checkpoint after the
+                // failure is reported.
+                try {
+                    service.shutdownAndAwait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        List<PartETag> partETags = new ArrayList<PartETag>(copyCheckPoint.partETags);
+        Collections.sort(partETags, new Comparator<PartETag>() {
+            @Override
+            public int compare(PartETag p1, PartETag p2) {
+                return p1.getPartNumber() - p2.getPartNumber();
+            }
+        });
+        CompleteMultipartUploadRequest request = new CompleteMultipartUploadRequest(copyCheckPoint.bucketName,
+                copyCheckPoint.key, copyCheckPoint.uploadID, partETags);
+        if (payer != null) {
+            request.setRequestPayer(payer);
+        }
+        beforeRequest(context);
+        CompleteMultipartUploadResult result = completeMultipartUploadWrap(request);
+        Long serverCRC = result != null ? result.getServerCRC() : null;
+        if (copyCheckPoint.sourceCRC != null && serverCRC != null && !copyCheckPoint.sourceCRC.equals(serverCRC)) {
+            throw new InconsistentException(copyCheckPoint.sourceCRC, serverCRC, result.getRequestId());
+        }
+        return result;
+    }
+
+    /**
+     * Copies an object of any size by concurrent UploadPartCopy requests,
+     * keeping the metadata and the tags of the source unless the request says
+     * otherwise.
+     * <p>
+     * With the checkpoint enabled, the upload id and the completed parts are
+     * written to the checkpoint file after every part, and a failed copy is
+     * left in place to be resumed by the next call with the same request,
+     * unless the source has changed since. Without it, a failed copy is
+     * aborted.
+     */
+    public CopyLargeObjectResult copyLargeObject(CopyLargeObjectRequest copyLargeObjectRequest)
+            throws OSSException, ClientException {
+        assertParameterNotNull(copyLargeObjectRequest, "copyLargeObjectRequest");
+        String sourceBucketName = copyLargeObjectRequest.getSourceBucketName();
+        String sourceKey = copyLargeObjectRequest.getSourceKey();
+        String bucketName = copyLargeObjectRequest.getBucketName();
+        String key = copyLargeObjectRequest.getKey();
+        assertParameterNotNull(sourceBucketName, "sourceBucketName");
+        assertParameterNotNull(sourceKey, "sourceKey");
+        assertParameterNotNull(bucketName, "bucketName");
+        assertParameterNotNull(key, "key");
+        ensureBucketNameValid(sourceBucketName);
+        ensureObjectKeyValid(sourceKey);
+        ensureBucketNameValid(bucketName);
+        ensureObjectKeyValid(key);
+
+        String checkpointFile = null;
+        if (copyLargeObjectRequest.isEnableCheckpoint()) {
+            checkpointFile = copyLargeObjectRequest.getCheckpointFile();
+            if (checkpointFile == null || checkpointFile.isEmpty()) {
+                checkpointFile = defaultCheckpointFile(copyLargeObjectRequest);
+            }
+        }
+
+        GenericRequest sourceRequest = new GenericRequest(sourceBucketName, sourceKey,
+                copyLargeObjectRequest.getSourceVersionId());
+        sourceRequest.setRequestPayer(copyLargeObjectRequest.getRequestPayer());
+        ObjectMetadata source = getObjectMetadataWrap(sourceRequest);
+
+        CopyCheckPoint copyCheckPoint = null;
+        if (checkpointFile != null && new File(checkpointFile).exists()) {
+            CopyCheckPoint saved = new CopyCheckPoint();
+            try {
+                saved.load(checkpointFile);
+                if (saved.isValid(copyLargeObjectRequest, source)) {
+                    copyCheckPoint = saved;
+                } else if (saved.uploadID != null && saved.isSourceChanged(copyLargeObjectRequest, source)) {
+                    // The parts copied so far are stale. A checkpoint of
+                    // another copy is only replaced, its upload is not ours.
+                    abortQuietly(saved);
+                }
+            } catch (Exception e) {
+                logException("Cannot read the checkpoint file " + checkpointFile + ": ", e);
+            }
+            if (copyCheckPoint == null) {
+                new File(checkpointFile).delete();
+            }
+        }
+
+        if (source.getContentLength() == 0) {
+            return copyEmptyObject(copyLargeObjectRequest, source);
+        }
+
+        if (copyCheckPoint == null) {
+            ObjectMetadata metadata = copyLargeObjectRequest.getNewObjectMetadata() != null
+                    ? ObjectMetadataCache.copyOf(copyLargeObjectRequest.getNewObjectMetadata())
+                    : newMetadataOf(source);
+            if (copyLargeObjectRequest.isCopyTags()) {
+                Map<String, String> tags = getObjectTaggingWrap(sourceRequest).getAllTags();
+                if (tags != null && !tags.isEmpty()) {
+                    metadata.setObjectTagging(tags);
+                }
+            }
+            copyCheckPoint = newCopyCheckPoint(sourceBucketName, sourceKey,
+                    copyLargeObjectRequest.getSourceVersionId(), source, bucketName, key,
+                    copyLargeObjectRequest.getPartSize());
+            InitiateMultipartUploadRequest initiateRequest = new InitiateMultipartUploadRequest(bucketName, key,
+                    metadata);
+            initiateRequest.setRequestPayer(copyLargeObjectRequest.getRequestPayer());
+            copyCheckPoint.uploadID = initiateMultipartUploadWrap(initiateRequest).getUploadId();
+            if (checkpointFile != null) {
+                dumpCheckPoint(copyCheckPoint, checkpointFile);
+            }
+        }
+
+        ProgressListener listener = copyLargeObjectRequest.getProgressListener();
+        ProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+        int copiedParts = copyCheckPoint.copyParts.size() - copyCheckPoint.partETags.size();
+        CompleteMultipartUploadResult multipartUploadResult;
+        try {
+            multipartUploadResult = copyParts(null, copyCheckPoint, checkpointFile,
+                    copyLargeObjectRequest.getTaskNum(), copyLargeObjectRequest.getRequestPayer());
+        } catch (Exception e) {
+            ProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            if (checkpointFile == null) {
+                abortQuietly(copyCheckPoint);
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new ClientException(e.getMessage(), e);
+        }
+        ProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
+
+        if (checkpointFile != null) {
+            new File(checkpointFile).delete();
+        }
+        CopyLargeObjectResult result = new CopyLargeObjectResult();
+        result.setMultipartUploadResult(multipartUploadResult);
+        result.setPartCount(copyCheckPoint.copyParts.size());
+        result.setCopiedPartCount(copiedParts);
+        return result;
+    }
+
+    /**
+     * Names the default checkpoint file after a hash of the source and the
+     * destination, so that keys which only differ in '/' and '_' don't share
+     * one.
+     */
+    static String defaultCheckpointFile(CopyLargeObjectRequest request) {
+        String copy = request.getSourceBucketName() + "/" + request.getSourceKey() + "\n"
+                + request.getSourceVersionId() + "\n" + request.getBucketName() + "/" + request.getKey();
+        try {
+            return BinaryUtil.encodeMD5(copy.getBytes(DEFAULT_CHARSET_NAME)) + ".ccp";
+        } catch (UnsupportedEncodingException e) {
+            throw new ClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Copies an empty source by one CopyObject, since an UploadPartCopy
+     * cannot copy an empty range. The result has no parts.
+     */
+    private CopyLargeObjectResult copyEmptyObject(CopyLargeObjectRequest copyLargeObjectRequest,
+            ObjectMetadata source) {
+        CopyObjectRequest copyObjectRequest = new CopyObjectRequest(copyLargeObjectRequest.getSourceBucketName(),
+                copyLargeObjectRequest.getSourceKey(), copyLargeObjectRequest.getSourceVersionId(),
+                copyLargeObjectRequest.getBucketName(), copyLargeObjectRequest.getKey());
+        copyObjectRequest.setMatchingETagConstraints(Collections.singletonList(source.getETag()));
+        copyObjectRequest.setRequestPayer(copyLargeObjectRequest.getRequestPayer());
+        if (copyLargeObjectRequest.getNewObjectMetadata() != null) {
+            copyObjectRequest.setNewObjectMetadata(copyLargeObjectRequest.getNewObjectMetadata());
+        }
+        if (!copyLargeObjectRequest.isCopyTags()) {
+            copyObjectRequest.addHeader(OSSHeaders.COPY_OBJECT_TAGGING_DIRECTIVE, "REPLACE");
+        }
+
+        ProgressListener listener = copyLargeObjectRequest.getProgressListener();
+        ProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+        CopyObjectResult copyObjectResult;
+        try {
+            copyObjectResult = copyObjectWrap(copyObjectRequest);
+        } catch (RuntimeException e) {
+            ProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            throw e;
+        }
+        ProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
+
+        CompleteMultipartUploadResult multipartUploadResult = new CompleteMultipartUploadResult();
+        multipartUploadResult.setBucketName(copyLargeObjectRequest.getBucketName());
+        multipartUploadResult.setKey(copyLargeObjectRequest.getKey());
+        multipartUploadResult.setETag(copyObjectResult.getETag());
+        multipartUploadResult.setVersionId(copyObjectResult.getVersionId());
+        multipartUploadResult.setRequestId(copyObjectResult.getRequestId());
+        multipartUploadResult.setServerCRC(copyObjectResult.getServerCRC());
+        multipartUploadResult.setResponse(copyObjectResult.getResponse());
+        CopyLargeObjectResult result = new CopyLargeObjectResult();
+        result.setMultipartUploadResult(multipartUploadResult);
+        return result;
+    }
+
+    private static void dumpCheckPoint(CopyCheckPoint copyCheckPoint, String checkpointFile) {
+        try {
+            copyCheckPoint.dump(checkpointFile);
+        } catch (IOException e) {
+            throw new ClientException("Cannot write the checkpoint file " + checkpointFile + ".", e);
+        }
+    }
+
+    /**
+     * Maps the keys of a listing of the source prefix to the destination
+     * prefix, listing one page at a time as the entries are read.
+     */
+    class PrefixEntryIterator implements Iterator<CopyEntry> {
+        private final String sourceBucketName;
+        private final String sourcePrefix;
+        private final String destinationBucketName;
+        private final String destinationPrefix;
+        private Iterator<OSSObjectSummary> page;
+        private String continuationToken;
+        private boolean truncated = true;
+
+        PrefixEntryIterator(String sourceBucketName, String sourcePrefix, String destinationBucketName,
+                String destinationPrefix) {
+            this.sourceBucketName = sourceBucketName;
+            this.sourcePrefix = sourcePrefix;
+            this.destinationBucketName = destinationBucketName;
+            this.destinationPrefix = destinationPrefix;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ((page == null || !page.hasNext()) && truncated) {
+                ListObjectsV2Request request = new ListObjectsV2Request(sourceBucketName, sourcePrefix)
+                        .withMaxKeys(1000).withContinuationToken(continuationToken);
+                ListObjectsV2Result result = listObjectsV2Wrap(request);
+                page = result.getObjectSummaries().iterator();
+                continuationToken = result.getNextContinuationToken();
+                truncated = result.isTruncated();
+            }
+            return page != null && page.hasNext();
+        }
+
+        @Override
+        public CopyEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String key = page.next().getKey();
+            return new CopyEntry(sourceBucketName, key, destinationBucketName,
+                    destinationPrefix + key.substring(sourcePrefix.length()));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static String errorCode(Exception e) {
+        if (e instanceof ServiceException) {
+            return ((ServiceException) e).getErrorCode();
+        }
+        if (e instanceof ClientException) {
+            return ((ClientException) e).getErrorCode();
+        }
+        return null;
+    }
+}
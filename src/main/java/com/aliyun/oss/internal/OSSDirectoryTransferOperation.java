@@ -0,0 +1,1145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static com.aliyun.oss.common.utils.CodingUtils.assertParameterNotNull;
+import static com.aliyun.oss.common.utils.IOUtils.safeClose;
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+import static com.aliyun.oss.common.utils.LogUtils.logException;
+import static com.aliyun.oss.internal.OSSConstants.DEFAULT_CHARSET_NAME;
+import static com.aliyun.oss.internal.OSSUtils.ensureBucketNameValid;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.InconsistentException;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.ServiceException;
+import com.aliyun.oss.common.utils.BufferPool;
+import com.aliyun.oss.common.utils.CRC64;
+import com.aliyun.oss.common.utils.HttpUtil;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadResult;
+import com.aliyun.oss.model.DirectoryTransferRequest;
+import com.aliyun.oss.model.DirectoryTransferResult;
+import com.aliyun.oss.model.DirectoryTransferResult.FailedFile;
+import com.aliyun.oss.model.GenericRequest;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.ListObjectsV2Request;
+import com.aliyun.oss.model.ListObjectsV2Result;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.UploadPartRequest;
+import com.aliyun.oss.model.UploadPartResult;
+
+/**
+ * Syncs a local directory and the objects under a prefix. The local tree is
+ * walked in the order of the object listing, and merged with the listing as
+ * it goes, so the memory does not grow with the number of files; the next
+ * page of the listing is fetched while the current one is compared.
+ * <p>
+ * Small files are transferred by single requests, large ones in parts. All
+ * the requests that transfer data, the parts included, share one budget of
+ * concurrent requests and one bandwidth budget.
+ */
+public class OSSDirectoryTransferOperation {
+
+    private static final int MAX_PART_NUMBER = 10000;
+    private static final int LIST_PAGE_SIZE = 1000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OSS client;
+    private final ClientConfiguration config;
+    private SharedTransferExecutor transferExecutor;
+
+    public OSSDirectoryTransferOperation(OSS client, ClientConfiguration config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    /**
+     * Runs the parts of the large files on the shared executor of the client,
+     * when there is one.
+     */
+    public void setTransferExecutor(SharedTransferExecutor transferExecutor) {
+        this.transferExecutor = transferExecutor;
+    }
+
+    TransferTaskExecutor newTransferTaskExecutor(int taskNum) {
+        if (transferExecutor != null) {
+            return new TransferTaskExecutor(transferExecutor, taskNum);
+        }
+        return new TransferTaskExecutor(config, taskNum);
+    }
+
+    protected ListObjectsV2Result listObjectsV2Wrap(ListObjectsV2Request listObjectsV2Request) {
+        return client.listObjectsV2(listObjectsV2Request);
+    }
+
+    protected ObjectMetadata getObjectMetadataWrap(GenericRequest genericRequest) {
+        return client.getObjectMetadata(genericRequest);
+    }
+
+    protected PutObjectResult putObjectWrap(PutObjectRequest putObjectRequest) {
+        return client.putObject(putObjectRequest);
+    }
+
+    protected OSSObject getObjectWrap(GetObjectRequest getObjectRequest) {
+        return client.getObject(getObjectRequest);
+    }
+
+    protected InitiateMultipartUploadResult initiateMultipartUploadWrap(InitiateMultipartUploadRequest request) {
+        return client.initiateMultipartUpload(request);
+    }
+
+    protected UploadPartResult uploadPartWrap(UploadPartRequest uploadPartRequest) {
+        return client.uploadPart(uploadPartRequest);
+    }
+
+    protected CompleteMultipartUploadResult completeMultipartUploadWrap(CompleteMultipartUploadRequest request) {
+        return client.completeMultipartUpload(request);
+    }
+
+    protected void abortMultipartUploadWrap(AbortMultipartUploadRequest request) {
+        client.abortMultipartUpload(request);
+    }
+
+    /**
+     * A local file, with its path relative to the directory, with '/'
+     * separators.
+     */
+    static class LocalFile {
+        final String path;
+        final File file;
+
+        LocalFile(String path, File file) {
+            this.path = path;
+            this.file = file;
+        }
+    }
+
+    /**
+     * Compares keys in the order of the listing, that of their UTF-8 bytes,
+     * which is the order of their code points. String.compareTo compares
+     * UTF-16 units, and puts the characters above U+FFFF before U+E000 to
+     * U+FFFF.
+     */
+    static int compareKeys(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return ca < cb ? -1 : 1;
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return (a.length() - i) - (b.length() - j);
+    }
+
+    /**
+     * Walks the files of a directory in the order of the listing of their
+     * keys: the entries of a directory are sorted by name, a directory
+     * being named with a trailing '/'.
+     */
+    static class LocalFileIterator implements Iterator<LocalFile> {
+        private final LinkedList<Iterator<LocalFile>> stack = new LinkedList<Iterator<LocalFile>>();
+        private LocalFile next;
+
+        LocalFileIterator(File directory) {
+            if (directory.isDirectory()) {
+                stack.push(entries(directory, ""));
+            }
+        }
+
+        private static Iterator<LocalFile> entries(File directory, String path) {
+            File[] files = directory.listFiles();
+            if (files == null) {
+                return Collections.<LocalFile> emptyList().iterator();
+            }
+            List<LocalFile> entries = new ArrayList<LocalFile>(files.length);
+            for (File file : files) {
+                String name = path + file.getName() + (file.isDirectory() ? "/" : "");
+                entries.add(new LocalFile(name, file));
+            }
+            Collections.sort(entries, new Comparator<LocalFile>() {
+                @Override
+                public int compare(LocalFile a, LocalFile b) {
+                    return compareKeys(a.path, b.path);
+                }
+            });
+            return entries.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && !stack.isEmpty()) {
+                Iterator<LocalFile> entries = stack.peek();
+                if (!entries.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                LocalFile entry = entries.next();
+                if (entry.file.isDirectory()) {
+                    stack.push(entries(entry.file, entry.path));
+                } else if (entry.file.isFile()) {
+                    next = entry;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public LocalFile next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LocalFile file = next;
+            next = null;
+            return file;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Lists the objects under the prefix, fetching the next page while the
+     * current one is read. Directory markers are left out.
+     */
+    class ObjectLister implements Iterator<OSSObjectSummary> {
+        private final String bucketName;
+        private final String prefix;
+        private final TransferTaskExecutor service = new TransferTaskExecutor(config, 1);
+        private Future<ListObjectsV2Result> nextPage;
+        private Iterator<OSSObjectSummary> page;
+        private OSSObjectSummary next;
+
+        ObjectLister(String bucketName, String prefix) {
+            this.bucketName = bucketName;
+            this.prefix = prefix;
+            fetch(null);
+        }
+
+        private void fetch(String continuationToken) {
+            final ListObjectsV2Request request = new ListObjectsV2Request(bucketName, prefix);
+            request.setMaxKeys(LIST_PAGE_SIZE);
+            request.setContinuationToken(continuationToken);
+            nextPage = service.submit(new Callable<ListObjectsV2Result>() {
+                @Override
+                public ListObjectsV2Result call() {
+                    return listObjectsV2Wrap(request);
+                }
+            });
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (page != null && page.hasNext()) {
+                    OSSObjectSummary summary = page.next();
+                    if (!summary.getKey().endsWith("/")) {
+                        next = summary;
+                    }
+                    continue;
+                }
+                if (nextPage == null) {
+                    return false;
+                }
+                ListObjectsV2Result result;
+                try {
+                    result = nextPage.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof RuntimeException ? (RuntimeException) cause : new ClientException(cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ClientException("Interrupted while listing " + prefix, e);
+                }
+                nextPage = null;
+                if (result.isTruncated() && result.getNextContinuationToken() != null) {
+                    fetch(result.getNextContinuationToken());
+                }
+                page = result.getObjectSummaries().iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public OSSObjectSummary next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            OSSObjectSummary summary = next;
+            next = null;
+            return summary;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        void close() {
+            service.shutdown();
+        }
+    }
+
+    /**
+     * A file as it was when it was last transferred or found unchanged.
+     */
+    static class ManifestEntry {
+        final long size;
+        final long lastModified;
+        final Long crc;
+        final String eTag;
+
+        ManifestEntry(long size, long lastModified, Long crc, String eTag) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.crc = crc;
+            this.eTag = eTag;
+        }
+    }
+
+    /**
+     * The manifest of a directory transfer: one line per file transferred
+     * or found unchanged, appended as they complete, so a crash loses
+     * nothing but the files in flight. The last line of a path wins.
+     */
+    static class Manifest {
+        private final String file;
+        private final Map<String, ManifestEntry> entries = new HashMap<String, ManifestEntry>();
+        private final Lock lock = new ReentrantLock();
+        private FileOutputStream out;
+        private Writer writer;
+
+        Manifest(String file) {
+            this.file = file;
+            FileInputStream in = null;
+            try {
+                if (new File(file).exists()) {
+                    in = new FileInputStream(file);
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(in, DEFAULT_CHARSET_NAME));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        String[] fields = line.split(" ");
+                        // A line cut by a crash is ignored.
+                        if (fields.length != 5) {
+                            continue;
+                        }
+                        try {
+                            entries.put(HttpUtil.urlDecode(fields[0], DEFAULT_CHARSET_NAME), new ManifestEntry(
+                                    Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                                    "-".equals(fields[3]) ? null : Long.valueOf(fields[3]),
+                                    HttpUtil.urlDecode(fields[4], DEFAULT_CHARSET_NAME)));
+                        } catch (NumberFormatException e) {
+                            continue;
+                        }
+                    }
+                }
+                out = new FileOutputStream(file, true);
+                writer = new OutputStreamWriter(out, DEFAULT_CHARSET_NAME);
+            } catch (IOException e) {
+                throw new ClientException("Cannot open the manifest file " + file + ".", e);
+            } finally {
+                safeClose(in);
+            }
+        }
+
+        ManifestEntry get(String path) {
+            lock.lock();
+            try {
+                return entries.get(path);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void record(String path, ManifestEntry entry) {
+            lock.lock();
+            try {
+                entries.put(path, entry);
+                writer.write(HttpUtil.urlEncode(path, DEFAULT_CHARSET_NAME) + " " + entry.size + " "
+                        + entry.lastModified + " " + (entry.crc == null ? "-" : entry.crc.toString()) + " "
+                        + HttpUtil.urlEncode(entry.eTag, DEFAULT_CHARSET_NAME) + "\n");
+                writer.flush();
+            } catch (IOException e) {
+                throw new ClientException("Cannot write the manifest file " + file + ".", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            safeClose(out);
+        }
+    }
+
+    /**
+     * The budgets, the manifest and the counters of one directory transfer,
+     * shared by its tasks.
+     */
+    static class TransferContext {
+        final DirectoryTransferRequest request;
+        final File directory;
+        final String prefix;
+        final Manifest manifest;
+        final Semaphore requestPermits;
+        final RequestRateLimiter bandwidth;
+        private final Lock lock = new ReentrantLock();
+        private long transferredCount;
+        private long multipartCount;
+        private long skippedCount;
+        private long transferredBytes;
+        private final List<FailedFile> failedFiles = new ArrayList<FailedFile>();
+
+        TransferContext(DirectoryTransferRequest request, Manifest manifest) {
+            this.request = request;
+            this.directory = new File(request.getDirectory());
+            this.prefix = request.getPrefix() != null ? request.getPrefix() : "";
+            this.manifest = manifest;
+            this.requestPermits = new Semaphore(request.getTaskNum(), true);
+            this.bandwidth = request.getMaxBytesPerSecond() > 0
+                    ? new RequestRateLimiter(request.getMaxBytesPerSecond()) : null;
+        }
+
+        String keyOf(String path) {
+            return prefix + path;
+        }
+
+        File fileOf(String path) {
+            return new File(directory, path.replace('/', File.separatorChar));
+        }
+
+        void onTransferred(long bytes, boolean multipart) {
+            lock.lock();
+            try {
+                transferredCount++;
+                transferredBytes += bytes;
+                if (multipart) {
+                    multipartCount++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onSkipped() {
+            lock.lock();
+            try {
+                skippedCount++;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onFailed(String path, String errorCode, String errorMessage) {
+            lock.lock();
+            try {
+                failedFiles.add(new FailedFile(path, keyOf(path), errorCode, errorMessage));
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        DirectoryTransferResult toResult(long elapsedMillis) {
+            lock.lock();
+            try {
+                DirectoryTransferResult result = new DirectoryTransferResult();
+                result.setTransferredCount(transferredCount);
+                result.setMultipartCount(multipartCount);
+                result.setSkippedCount(skippedCount);
+                result.setTransferredBytes(transferredBytes);
+                result.setElapsedMillis(elapsedMillis);
+                for (FailedFile failedFile : failedFiles) {
+                    result.addFailedFile(failedFile);
+                }
+                return result;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Takes the bytes read from the bandwidth budget.
+     */
+    static class ThrottledInputStream extends FilterInputStream {
+        private final RequestRateLimiter bandwidth;
+
+        ThrottledInputStream(InputStream in, RequestRateLimiter bandwidth) {
+            super(in);
+            this.bandwidth = bandwidth;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                throttle(bandwidth, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                throttle(bandwidth, n);
+            }
+            return n;
+        }
+    }
+
+    private static void throttle(RequestRateLimiter bandwidth, long bytes) throws IOException {
+        if (bandwidth == null) {
+            return;
+        }
+        try {
+            bandwidth.acquire(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the bandwidth budget.");
+        }
+    }
+
+    /**
+     * Uploads the files of the directory that are not the same as their
+     * objects, with taskNum concurrent requests.
+     */
+    public DirectoryTransferResult uploadDirectory(DirectoryTransferRequest request) throws ClientException {
+        return transfer(request, true);
+    }
+
+    /**
+     * Downloads the objects under the prefix that are not the same as their
+     * files, with taskNum concurrent requests. The downloaded files get the
+     * modification time of their objects.
+     */
+    public DirectoryTransferResult downloadDirectory(DirectoryTransferRequest request) throws ClientException {
+        return transfer(request, false);
+    }
+
+    private DirectoryTransferResult transfer(DirectoryTransferRequest request, boolean upload) {
+        assertParameterNotNull(request, "directoryTransferRequest");
+        assertParameterNotNull(request.getDirectory(), "directory");
+        ensureBucketNameValid(request.getBucketName());
+        if (upload && !new File(request.getDirectory()).isDirectory()) {
+            throw new IllegalArgumentException("The directory " + request.getDirectory() + " does not exist.");
+        }
+
+        Manifest manifest = request.getManifestFile() != null ? new Manifest(request.getManifestFile()) : null;
+        TransferContext context = new TransferContext(request, manifest);
+        int taskNum = request.getTaskNum();
+        Semaphore pendingFiles = new Semaphore(taskNum * 2);
+        // The large files wait for their parts, which may run on the shared
+        // executor, so the files get threads of their own.
+        TransferTaskExecutor service = new TransferTaskExecutor(config, taskNum);
+        LocalFileIterator files = new LocalFileIterator(context.directory);
+        ObjectLister objects = new ObjectLister(request.getBucketName(), context.prefix);
+        long startMillis = System.currentTimeMillis();
+
+        boolean interrupted = false;
+        try {
+            LocalFile file = files.hasNext() ? files.next() : null;
+            OSSObjectSummary object = objects.hasNext() ? objects.next() : null;
+            while (file != null || object != null) {
+                int order;
+                if (file == null) {
+                    order = 1;
+                } else if (object == null) {
+                    order = -1;
+                } else {
+                    order = compareKeys(file.path, object.getKey().substring(context.prefix.length()));
+                }
+                LocalFile pairedFile = order <= 0 ? file : null;
+                OSSObjectSummary pairedObject = order >= 0 ? object : null;
+                if (order <= 0) {
+                    file = files.hasNext() ? files.next() : null;
+                }
+                if (order >= 0) {
+                    object = objects.hasNext() ? objects.next() : null;
+                }
+                if (upload ? pairedFile == null : pairedObject == null) {
+                    continue;
+                }
+                pendingFiles.acquire();
+                service.submit(new FileTask(context, upload, pairedFile, pairedObject, pendingFiles));
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+        } finally {
+            objects.close();
+            try {
+                service.shutdownAndAwait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (manifest != null) {
+                manifest.close();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new ClientException("Interrupted while transferring " + request.getDirectory() + ".");
+        }
+        return context.toResult(System.currentTimeMillis() - startMillis);
+    }
+
+    class FileTask implements Callable<Void> {
+        private final TransferContext context;
+        private final boolean upload;
+        private final LocalFile file;
+        private final OSSObjectSummary object;
+        private final Semaphore pendingFiles;
+
+        FileTask(TransferContext context, boolean upload, LocalFile file, OSSObjectSummary object,
+                Semaphore pendingFiles) {
+            this.context = context;
+            this.upload = upload;
+            this.file = file;
+            this.object = object;
+            this.pendingFiles = pendingFiles;
+        }
+
+        @Override
+        public Void call() {
+            String path = file != null ? file.path : object.getKey().substring(context.prefix.length());
+            try {
+                if (upload) {
+                    uploadFile(context, file, object);
+                } else {
+                    downloadFile(context, path, object);
+                }
+            } catch (InterruptedException e) {
+                context.onFailed(path, null, "Interrupted before the file was transferred.");
+            } catch (Exception e) {
+                getLog().warn("Failed to transfer " + path + ": " + e.getMessage());
+                context.onFailed(path, errorCode(e), e.getMessage());
+            } finally {
+                pendingFiles.release();
+            }
+            return null;
+        }
+    }
+
+    private void uploadFile(TransferContext context, LocalFile localFile, OSSObjectSummary object)
+            throws Exception {
+        File file = localFile.file;
+        long size = file.length();
+        long lastModified = file.lastModified();
+        String key = context.keyOf(localFile.path);
+
+        if (object != null && object.getSize() == size) {
+            ManifestEntry entry = context.manifest != null ? context.manifest.get(localFile.path) : null;
+            if (entry != null && entry.size == size && entry.lastModified == lastModified
+                    && entry.eTag.equals(object.getETag())) {
+                context.onSkipped();
+                return;
+            }
+            Long crc = context.request.isChecksumEnabled() ? matchObject(context, file, key) : null;
+            if (crc != null) {
+                record(context, localFile.path, size, lastModified, crc, object.getETag());
+                context.onSkipped();
+                return;
+            }
+        }
+
+        boolean multipart = size >= context.request.getMultipartThreshold();
+        String[] eTagAndCRC = multipart ? uploadParts(context, file, key, size)
+                : putFile(context, file, key, size);
+        record(context, localFile.path, size, lastModified,
+                eTagAndCRC[1] != null ? Long.valueOf(eTagAndCRC[1]) : null, eTagAndCRC[0]);
+        context.onTransferred(size, multipart);
+    }
+
+    /**
+     * Gets the file of a key, and fails when the key does not name a file
+     * under the directory: an empty path, a '\', which is a separator on
+     * Windows, or an empty, '.' or '..' segment.
+     */
+    private static File checkedFileOf(TransferContext context, String path, String key) throws IOException {
+        boolean valid = path.length() > 0 && path.indexOf('\\') < 0;
+        for (String segment : path.split("/", -1)) {
+            if (segment.length() == 0 || segment.equals(".") || segment.equals("..")) {
+                valid = false;
+            }
+        }
+        File file = context.fileOf(path);
+        if (valid) {
+            String directory = context.directory.getCanonicalPath();
+            if (!directory.endsWith(File.separator)) {
+                directory += File.separator;
+            }
+            valid = file.getCanonicalPath().startsWith(directory);
+        }
+        if (!valid) {
+            throw new ClientException("The key " + key + " is not a path under the directory.");
+        }
+        return file;
+    }
+
+    private void downloadFile(TransferContext context, String path, OSSObjectSummary object) throws Exception {
+        File file = checkedFileOf(context, path, object.getKey());
+        long size = object.getSize();
+        long objectModified = object.getLastModified() != null ? object.getLastModified().getTime() : 0;
+
+        if (file.isFile() && file.length() == size) {
+            long lastModified = file.lastModified();
+            ManifestEntry entry = context.manifest != null ? context.manifest.get(path) : null;
+            if ((entry != null && entry.size == size && entry.lastModified == lastModified
+                    && entry.eTag.equals(object.getETag()))
+                    || lastModified / 1000 == objectModified / 1000) {
+                context.onSkipped();
+                return;
+            }
+            Long crc = context.request.isChecksumEnabled() ? matchObject(context, file, object.getKey()) : null;
+            if (crc != null) {
+                file.setLastModified(objectModified);
+                record(context, path, size, file.lastModified(), crc, object.getETag());
+                context.onSkipped();
+                return;
+            }
+        }
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new ClientException("Cannot create the directory " + parent + ".");
+        }
+        // A name of its own, so it cannot be the file of another key.
+        File tempFile = File.createTempFile("." + file.getName() + ".", ".tmp", parent);
+        boolean multipart = size >= context.request.getMultipartThreshold();
+        Long crc;
+        boolean renamed = false;
+        try {
+            crc = multipart ? getParts(context, object, tempFile) : getFile(context, object, tempFile);
+            if (!tempFile.renameTo(file)) {
+                // Windows does not rename over an existing file.
+                file.delete();
+                if (!tempFile.renameTo(file)) {
+                    throw new ClientException("Cannot rename " + tempFile + " to " + file + ".");
+                }
+            }
+            renamed = true;
+        } finally {
+            if (!renamed) {
+                tempFile.delete();
+            }
+        }
+        if (objectModified > 0) {
+            file.setLastModified(objectModified);
+        }
+        record(context, path, size, file.lastModified(), crc, object.getETag());
+        context.onTransferred(size, multipart);
+    }
+
+    private static void record(TransferContext context, String path, long size, long lastModified, Long crc,
+            String eTag) {
+        if (context.manifest != null && eTag != null) {
+            context.manifest.record(path, new ManifestEntry(size, lastModified, crc, OSSUtils.trimQuotes(eTag)));
+        }
+    }
+
+    /**
+     * Compares the file to the object of the same size, by CRC64, or by MD5
+     * when the object has no CRC64 and its ETag is the MD5 of its content.
+     * Returns the CRC64 of the file when they match, and null otherwise.
+     */
+    private Long matchObject(TransferContext context, File file, String key) throws IOException {
+        ObjectMetadata metadata = getObjectMetadataWrap(new GenericRequest(context.request.getBucketName(), key));
+        String eTag = metadata.getETag();
+        boolean plainETag = eTag != null && eTag.length() == 32 && eTag.indexOf('-') < 0;
+        if (metadata.getServerCRC() == null && !plainETag) {
+            return null;
+        }
+
+        MessageDigest md5 = null;
+        if (metadata.getServerCRC() == null) {
+            try {
+                md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new ClientException(e);
+            }
+        }
+        CRC64 crc = new CRC64();
+        byte[] buffer = BufferPool.getDefault().acquire(BUFFER_SIZE);
+        InputStream in = new FileInputStream(file);
+        try {
+            int n;
+            while ((n = in.read(buffer, 0, BUFFER_SIZE)) > 0) {
+                crc.update(buffer, n);
+                if (md5 != null) {
+                    md5.update(buffer, 0, n);
+                }
+            }
+        } finally {
+            safeClose(in);
+            BufferPool.getDefault().release(buffer);
+        }
+        if (md5 == null) {
+            return metadata.getServerCRC().longValue() == crc.getValue() ? crc.getValue() : null;
+        }
+        String md5ETag = new BigInteger(1, md5.digest()).toString(16);
+        while (md5ETag.length() < 32) {
+            md5ETag = "0" + md5ETag;
+        }
+        return md5ETag.equalsIgnoreCase(eTag) ? crc.getValue() : null;
+    }
+
+    private InputStream openFile(TransferContext context, File file, long offset) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        long skipped = 0;
+        while (skipped < offset) {
+            long n = in.skip(offset - skipped);
+            if (n <= 0) {
+                safeClose(in);
+                throw new IOException("Cannot skip to " + offset + " in " + file);
+            }
+            skipped += n;
+        }
+        return context.bandwidth != null ? new ThrottledInputStream(in, context.bandwidth) : in;
+    }
+
+    /**
+     * Uploads a small file by a single PutObject, and returns its ETag and
+     * CRC64.
+     */
+    private String[] putFile(TransferContext context, File file, String key, long size) throws Exception {
+        PutObjectRequest putObjectRequest;
+        InputStream in = null;
+        if (context.bandwidth == null) {
+            putObjectRequest = new PutObjectRequest(context.request.getBucketName(), key, file);
+        } else {
+            in = openFile(context, file, 0);
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(size);
+            putObjectRequest = new PutObjectRequest(context.request.getBucketName(), key, in, metadata);
+        }
+        context.requestPermits.acquire();
+        try {
+            PutObjectResult result = putObjectWrap(putObjectRequest);
+            Long crc = result.getClientCRC() != null ? result.getClientCRC() : result.getServerCRC();
+            return new String[] { result.getETag(), crc != null ? crc.toString() : null };
+        } finally {
+            context.requestPermits.release();
+            safeClose(in);
+        }
+    }
+
+    private static long partSizeOf(TransferContext context, long size) {
+        return Math.max(context.request.getPartSize(), (size + MAX_PART_NUMBER - 1) / MAX_PART_NUMBER);
+    }
+
+    /**
+     * Runs the part tasks with partTaskNum concurrent parts, and returns
+     * their results in order. The tasks left are cancelled when a part
+     * fails.
+     */
+    private <T> List<T> runParts(List<Callable<T>> tasks, int partTaskNum) throws Exception {
+        TransferTaskExecutor service = newTransferTaskExecutor(partTaskNum);
+        List<Future<T>> futures = new ArrayList<Future<T>>(tasks.size());
+        boolean completed = false;
+        try {
+            for (Callable<T> task : tasks) {
+                futures.add(service.submit(task));
+            }
+            List<T> results = new ArrayList<T>(tasks.size());
+            for (Future<T> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+            }
+            completed = true;
+            return results;
+        } finally {
+            if (completed) {
+                service.shutdown();
+            } else {
+                for (Future<T> future : futures) {
+                    future.cancel(true);
+                }
+                try {
+                    service.shutdownAndAwait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * Uploads a large file by a multipart upload, and returns its ETag and
+     * CRC64. The upload is aborted when a part fails.
+     */
+    private String[] uploadParts(final TransferContext context, final File file, final String key, long size)
+            throws Exception {
+        final String bucketName = context.request.getBucketName();
+        final String uploadId = initiateMultipartUploadWrap(new InitiateMultipartUploadRequest(bucketName, key))
+                .getUploadId();
+        boolean completed = false;
+        try {
+            long partSize = partSizeOf(context, size);
+            List<Callable<PartETag>> tasks = new ArrayList<Callable<PartETag>>();
+            for (long offset = 0; offset < size; offset += partSize) {
+                final int partNumber = (int) (offset / partSize) + 1;
+                final long partOffset = offset;
+                final long partLength = Math.min(partSize, size - offset);
+                tasks.add(new Callable<PartETag>() {
+                    @Override
+                    public PartETag call() throws Exception {
+                        InputStream in = openFile(context, file, partOffset);
+                        context.requestPermits.acquire();
+                        try {
+                            UploadPartResult result = uploadPartWrap(new UploadPartRequest(bucketName, key,
+                                    uploadId, partNumber, in, partLength));
+                            return new PartETag(partNumber, result.getETag(), partLength, result.getClientCRC());
+                        } finally {
+                            context.requestPermits.release();
+                            safeClose(in);
+                        }
+                    }
+                });
+            }
+            List<PartETag> partETags = runParts(tasks, context.request.getPartTaskNum());
+
+            CompleteMultipartUploadResult result = completeMultipartUploadWrap(new CompleteMultipartUploadRequest(
+                    bucketName, key, uploadId, partETags));
+            completed = true;
+            Long crc = combineCRC(partETags);
+            if (config.isCrcCheckEnabled()) {
+                OSSUtils.checkChecksum(crc, result.getServerCRC(), result.getRequestId());
+            }
+            return new String[] { result.getETag(), crc != null ? crc.toString() : null };
+        } finally {
+            if (!completed) {
+                try {
+                    abortMultipartUploadWrap(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+                } catch (Exception e) {
+                    logException("Failed to abort the multipart upload of " + key + ": ", e);
+                }
+            }
+        }
+    }
+
+    private static Long combineCRC(List<PartETag> partETags) {
+        long crc = 0;
+        for (PartETag partETag : partETags) {
+            if (partETag.getPartCRC() == null) {
+                return null;
+            }
+            crc = CRC64.combine(crc, partETag.getPartCRC(), partETag.getPartSize());
+        }
+        return crc;
+    }
+
+    /**
+     * Reads the content into the output from the given position, through the
+     * bandwidth budget, updates the CRC64 with it and returns its length.
+     */
+    private static long copy(TransferContext context, InputStream in, FileChannel channel, long position,
+            CRC64 crc) throws IOException {
+        long length = 0;
+        byte[] buffer = BufferPool.getDefault().acquire(BUFFER_SIZE);
+        try {
+            int n;
+            while ((n = in.read(buffer, 0, BUFFER_SIZE)) > 0) {
+                throttle(context.bandwidth, n);
+                crc.update(buffer, n);
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, n);
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+                length += n;
+            }
+        } finally {
+            BufferPool.getDefault().release(buffer);
+        }
+        return length;
+    }
+
+    private static void checkLength(String key, long length, long expected) throws IOException {
+        // A body cut short would leave a hole of zeros in the file.
+        if (length != expected) {
+            throw new IOException("The content of " + key + " has " + length + " bytes instead of the expected "
+                    + expected + " bytes.");
+        }
+    }
+
+    private GetObjectRequest newGetObjectRequest(TransferContext context, OSSObjectSummary object) {
+        GetObjectRequest getObjectRequest = new GetObjectRequest(context.request.getBucketName(), object.getKey());
+        // An overwrite during the download fails it rather than mixing
+        // versions.
+        getObjectRequest.setMatchingETagConstraints(Collections.singletonList(object.getETag()));
+        return getObjectRequest;
+    }
+
+    private static void checkCRC(long crc, ObjectMetadata metadata, boolean crcCheckEnabled) {
+        Long serverCRC = metadata.getServerCRC();
+        if (crcCheckEnabled && serverCRC != null && serverCRC.longValue() != crc) {
+            throw new InconsistentException(crc, serverCRC, metadata.getRequestId());
+        }
+    }
+
+    /**
+     * Downloads a small object by a single GetObject, and returns its CRC64.
+     */
+    private Long getFile(TransferContext context, OSSObjectSummary object, File tempFile) throws Exception {
+        RandomAccessFile out = new RandomAccessFile(tempFile, "rw");
+        try {
+            out.setLength(0);
+            context.requestPermits.acquire();
+            try {
+                OSSObject ossObject = getObjectWrap(newGetObjectRequest(context, object));
+                InputStream in = ossObject.getObjectContent();
+                try {
+                    CRC64 crc = new CRC64();
+                    long length = copy(context, in, out.getChannel(), 0, crc);
+                    checkLength(object.getKey(), length, object.getSize());
+                    checkCRC(crc.getValue(), ossObject.getObjectMetadata(), config.isCrcCheckEnabled());
+                    return crc.getValue();
+                } finally {
+                    safeClose(in);
+                }
+            } finally {
+                context.requestPermits.release();
+            }
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * Downloads a large object by concurrent ranged GetObject requests into
+     * one file channel, and returns its CRC64.
+     */
+    private Long getParts(final TransferContext context, final OSSObjectSummary object, File tempFile)
+            throws Exception {
+        final RandomAccessFile out = new RandomAccessFile(tempFile, "rw");
+        try {
+            final long size = object.getSize();
+            out.setLength(size);
+            final ObjectMetadata[] metadata = new ObjectMetadata[1];
+            long partSize = partSizeOf(context, size);
+            List<Callable<long[]>> tasks = new ArrayList<Callable<long[]>>();
+            for (long offset = 0; offset < size; offset += partSize) {
+                final long start = offset;
+                final long end = Math.min(offset + partSize, size) - 1;
+                tasks.add(new Callable<long[]>() {
+                    @Override
+                    public long[] call() throws Exception {
+                        GetObjectRequest getObjectRequest = newGetObjectRequest(context, object);
+                        getObjectRequest.setRange(start, end);
+                        context.requestPermits.acquire();
+                        try {
+                            OSSObject ossObject = getObjectWrap(getObjectRequest);
+                            if (start == 0) {
+                                metadata[0] = ossObject.getObjectMetadata();
+                            }
+                            InputStream in = ossObject.getObjectContent();
+                            try {
+                                CRC64 crc = new CRC64();
+                                long length = copy(context, in, out.getChannel(), start, crc);
+                                checkLength(object.getKey() + " from " + start, length, end - start + 1);
+                                return new long[] { crc.getValue(), length };
+                            } finally {
+                                safeClose(in);
+                            }
+                        } finally {
+                            context.requestPermits.release();
+                        }
+                    }
+                });
+            }
+            List<long[]> parts = runParts(tasks, context.request.getPartTaskNum());
+            long crc = 0;
+            for (long[] part : parts) {
+                crc = CRC64.combine(crc, part[0], part[1]);
+            }
+            checkCRC(crc, metadata[0], config.isCrcCheckEnabled());
+            return crc;
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            // Nothing to do
+        }
+    }
+
+    private static String errorCode(Exception e) {
+        if (e instanceof ServiceException) {
+            return ((ServiceException) e).getErrorCode();
+        }
+        if (e instanceof ClientException) {
+            return ((ClientException) e).getErrorCode();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,386 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static com.aliyun.oss.common.utils.CodingUtils.assertParameterNotNull;
+import static com.aliyun.oss.internal.OSSUtils.ensureBucketNameValid;
+import static com.aliyun.oss.internal.OSSUtils.ensureObjectKeyValid;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.common.utils.CRC64;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.CompleteDistributedUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadResult;
+import com.aliyun.oss.model.DistributedUpload;
+import com.aliyun.oss.model.GeneratePresignedUrlRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.ListPartsRequest;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.PartListing;
+import com.aliyun.oss.model.PartRangeLease;
+import com.aliyun.oss.model.PartSummary;
+import com.aliyun.oss.model.Payer;
+import com.aliyun.oss.model.PresignMultipartUploadRequest;
+import com.aliyun.oss.model.PresignedMultipartUpload;
+import com.aliyun.oss.model.PresignedPart;
+import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.UploadCoordinationStore;
+import com.aliyun.oss.model.UploadPresignedPartsRequest;
+
+/**
+ * Multipart uploads whose parts are uploaded by the workers of several
+ * processes or nodes. The workers lease ranges of part numbers from an
+ * {@link UploadCoordinationStore} and upload the parts with the client, so
+ * the parts are only known to the server; the completion lists them back and
+ * keeps the ones of the completed leases. The parts of a presigned upload are
+ * uploaded by clients without credentials, through presigned URLs.
+ */
+public class OSSDistributedUploadOperation {
+
+    private static final int MAX_PART_NUMBER = 10000;
+
+    private final OSS client;
+    private final ClientConfiguration config;
+    private SharedTransferExecutor transferExecutor;
+
+    public OSSDistributedUploadOperation(OSS client, ClientConfiguration config) {
+        this.client = client;
+        this.config = config;
+    }
+
+    /**
+     * Uploads the presigned parts on the shared executor of the client, when
+     * there is one.
+     */
+    public void setTransferExecutor(SharedTransferExecutor transferExecutor) {
+        this.transferExecutor = transferExecutor;
+    }
+
+    TransferTaskExecutor newTransferTaskExecutor(int taskNum) {
+        if (transferExecutor != null) {
+            return new TransferTaskExecutor(transferExecutor, taskNum);
+        }
+        return new TransferTaskExecutor(config, taskNum);
+    }
+
+    protected InitiateMultipartUploadResult initiateMultipartUploadWrap(InitiateMultipartUploadRequest request)
+            throws OSSException, ClientException {
+        return client.initiateMultipartUpload(request);
+    }
+
+    protected PartListing listPartsWrap(ListPartsRequest request) throws OSSException, ClientException {
+        return client.listParts(request);
+    }
+
+    protected URL generatePresignedUrlWrap(GeneratePresignedUrlRequest request) throws ClientException {
+        return client.generatePresignedUrl(request);
+    }
+
+    protected PutObjectResult putObjectWrap(URL signedUrl, InputStream requestContent, long contentLength,
+            Map<String, String> requestHeaders) throws OSSException, ClientException {
+        return client.putObject(signedUrl, requestContent, contentLength, requestHeaders);
+    }
+
+    protected CompleteMultipartUploadResult completeMultipartUploadWrap(CompleteMultipartUploadRequest request)
+            throws OSSException, ClientException {
+        return client.completeMultipartUpload(request);
+    }
+
+    public DistributedUpload initiateDistributedUpload(InitiateMultipartUploadRequest request)
+            throws OSSException, ClientException {
+        assertParameterNotNull(request, "initiateMultipartUploadRequest");
+        ensureBucketNameValid(request.getBucketName());
+        ensureObjectKeyValid(request.getKey());
+
+        InitiateMultipartUploadResult result = initiateMultipartUploadWrap(request);
+        return new DistributedUpload(request.getBucketName(), request.getKey(), result.getUploadId(),
+                request.getRequestPayer());
+    }
+
+    public CompleteMultipartUploadResult completeDistributedUpload(CompleteDistributedUploadRequest request)
+            throws OSSException, ClientException {
+        assertParameterNotNull(request, "completeDistributedUploadRequest");
+        DistributedUpload upload = request.getUpload();
+
+        UploadCoordinationStore store = request.getStore();
+        List<PartRangeLease> leases = store != null ? store.getLeases(upload) : new ArrayList<PartRangeLease>();
+        for (PartRangeLease lease : leases) {
+            if (!lease.isCompleted()) {
+                throw new ClientException("The lease " + lease + " is not completed.");
+            }
+        }
+
+        List<PartSummary> parts = new ArrayList<PartSummary>();
+        for (PartSummary part : listParts(upload)) {
+            if (leases.isEmpty() || isLeased(leases, part.getPartNumber())) {
+                parts.add(part);
+            }
+        }
+        if (parts.isEmpty()) {
+            throw new ClientException("The upload " + upload.getUploadId() + " has no uploaded parts.");
+        }
+        if (upload instanceof PresignedMultipartUpload) {
+            checkPresignedParts((PresignedMultipartUpload) upload, parts);
+        }
+        Collections.sort(parts, new Comparator<PartSummary>() {
+            @Override
+            public int compare(PartSummary a, PartSummary b) {
+                return a.getPartNumber() < b.getPartNumber() ? -1 : (a.getPartNumber() == b.getPartNumber() ? 0 : 1);
+            }
+        });
+
+        List<PartETag> partETags = new ArrayList<PartETag>(parts.size());
+        for (PartSummary part : parts) {
+            partETags.add(new PartETag(part.getPartNumber(), part.getETag(), part.getSize(), part.getServerCRC()));
+        }
+        CompleteMultipartUploadRequest completeRequest = new CompleteMultipartUploadRequest(upload.getBucketName(),
+                upload.getKey(), upload.getUploadId(), partETags);
+        completeRequest.setCallback(request.getCallback());
+        completeRequest.setObjectACL(request.getObjectACL());
+        if (request.getRequestPayer() != null) {
+            completeRequest.setRequestPayer(request.getRequestPayer());
+        }
+        CompleteMultipartUploadResult result = completeMultipartUploadWrap(completeRequest);
+
+        if (config.isCrcCheckEnabled()) {
+            Long clientCRC = combineCRC(parts);
+            result.setClientCRC(clientCRC);
+            OSSUtils.checkChecksum(clientCRC, result.getServerCRC(), result.getRequestId());
+        }
+
+        if (store != null) {
+            store.removeUpload(upload);
+        }
+        return result;
+    }
+
+    /**
+     * Checks that the parts of the whole object are uploaded, with their
+     * sizes, before an upload from a client is completed.
+     */
+    private static void checkPresignedParts(PresignedMultipartUpload upload, List<PartSummary> parts) {
+        long size = 0;
+        for (PartSummary part : parts) {
+            if (part.getPartNumber() > upload.getPartCount()) {
+                throw new ClientException("The part " + part.getPartNumber() + " is not one of the "
+                        + upload.getPartCount() + " parts of the upload " + upload.getUploadId() + ".");
+            }
+            size += part.getSize();
+        }
+        if (parts.size() != upload.getPartCount() || size != upload.getContentLength()) {
+            throw new ClientException("The upload " + upload.getUploadId() + " has " + parts.size() + " parts of "
+                    + size + " bytes, while the object has " + upload.getPartCount() + " parts of "
+                    + upload.getContentLength() + " bytes.");
+        }
+    }
+
+    /**
+     * Initiates the upload when the request has no upload id, and presigns
+     * the URLs of the parts of the request, all expiring at the same time.
+     */
+    public PresignedMultipartUpload presignMultipartUpload(PresignMultipartUploadRequest request)
+            throws OSSException, ClientException {
+        assertParameterNotNull(request, "presignMultipartUploadRequest");
+        assertParameterNotNull(request.getExpiration(), "expiration");
+        ensureBucketNameValid(request.getBucketName());
+        ensureObjectKeyValid(request.getKey());
+
+        long contentLength = request.getContentLength();
+        long partSize = Math.max(request.getPartSize(), (contentLength + MAX_PART_NUMBER - 1) / MAX_PART_NUMBER);
+
+        String uploadId = request.getUploadId();
+        if (uploadId == null) {
+            InitiateMultipartUploadRequest initiateRequest = new InitiateMultipartUploadRequest(
+                    request.getBucketName(), request.getKey(), request.getObjectMetadata());
+            if (request.getRequestPayer() != null) {
+                initiateRequest.setRequestPayer(request.getRequestPayer());
+            }
+            uploadId = initiateMultipartUploadWrap(initiateRequest).getUploadId();
+        }
+        PresignedMultipartUpload upload = new PresignedMultipartUpload(request.getBucketName(), request.getKey(),
+                uploadId, request.getRequestPayer(), contentLength, partSize, request.getExpiration());
+
+        int lastPartNumber = upload.getPartCount();
+        if (request.getPartCount() > 0) {
+            lastPartNumber = Math.min(lastPartNumber, request.getFirstPartNumber() + request.getPartCount() - 1);
+        }
+        for (int partNumber = request.getFirstPartNumber(); partNumber <= lastPartNumber; partNumber++) {
+            GeneratePresignedUrlRequest urlRequest = new GeneratePresignedUrlRequest(request.getBucketName(),
+                    request.getKey(), HttpMethod.PUT);
+            urlRequest.setExpiration(request.getExpiration());
+            urlRequest.addQueryParameter(RequestParameters.UPLOAD_ID, uploadId);
+            urlRequest.addQueryParameter(RequestParameters.PART_NUMBER, String.valueOf(partNumber));
+            // The payer is in the URL, so the client sends no header.
+            if (request.getRequestPayer() == Payer.Requester) {
+                urlRequest.addQueryParameter(RequestParameters.OSS_REQUEST_PAYER,
+                        Payer.Requester.toString().toLowerCase());
+            }
+            long offset = (partNumber - 1) * partSize;
+            long size = Math.min(partSize, contentLength - offset);
+            upload.addPart(new PresignedPart(partNumber, offset, size, generatePresignedUrlWrap(urlRequest)));
+        }
+        return upload;
+    }
+
+    /**
+     * Uploads the presigned parts from the file by concurrent PUT requests to
+     * their URLs, and returns their ETags in the order of the part numbers.
+     */
+    public List<PartETag> uploadPresignedParts(UploadPresignedPartsRequest request)
+            throws OSSException, ClientException {
+        assertParameterNotNull(request, "uploadPresignedPartsRequest");
+        assertParameterNotNull(request.getUpload(), "upload");
+        final String uploadFile = request.getUploadFile();
+        assertParameterNotNull(uploadFile, "uploadFile");
+        final PresignedMultipartUpload upload = request.getUpload();
+        if (new File(uploadFile).length() != upload.getContentLength()) {
+            throw new IllegalArgumentException("The size of " + uploadFile + " is not the one of the upload, "
+                    + upload.getContentLength() + " bytes.");
+        }
+
+        TransferTaskExecutor service = newTransferTaskExecutor(request.getTaskNum());
+        List<Future<PartETag>> futures = new ArrayList<Future<PartETag>>();
+        boolean completed = false;
+        try {
+            for (final PresignedPart part : upload.getParts()) {
+                futures.add(service.submit(new Callable<PartETag>() {
+                    @Override
+                    public PartETag call() throws Exception {
+                        return uploadPresignedPart(uploadFile, part);
+                    }
+                }));
+            }
+            List<PartETag> partETags = new ArrayList<PartETag>(futures.size());
+            for (Future<PartETag> future : futures) {
+                try {
+                    partETags.add(future.get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new ClientException("Failed to upload a part of " + uploadFile + ": "
+                            + cause.getMessage(), cause);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ClientException("Interrupted while uploading the parts of " + uploadFile, e);
+                }
+            }
+            completed = true;
+            return partETags;
+        } finally {
+            if (completed) {
+                service.shutdown();
+            } else {
+                for (Future<PartETag> future : futures) {
+                    future.cancel(true);
+                }
+                service.shutdown();
+            }
+        }
+    }
+
+    private PartETag uploadPresignedPart(String uploadFile, PresignedPart part) throws IOException {
+        InputStream instream = new FileInputStream(uploadFile);
+        try {
+            long skipped = 0;
+            while (skipped < part.getOffset()) {
+                long n = instream.skip(part.getOffset() - skipped);
+                if (n <= 0) {
+                    throw new IOException("Could not skip to the part " + part.getPartNumber() + " of " + uploadFile);
+                }
+                skipped += n;
+            }
+            PutObjectResult result = putObjectWrap(part.getUrl(), instream, part.getSize(),
+                    new HashMap<String, String>());
+            return new PartETag(part.getPartNumber(), result.getETag(), part.getSize(), result.getClientCRC());
+        } finally {
+            IOUtils.safeClose(instream);
+        }
+    }
+
+    private List<PartSummary> listParts(DistributedUpload upload) {
+        ListPartsRequest listRequest = new ListPartsRequest(upload.getBucketName(), upload.getKey(),
+                upload.getUploadId());
+        listRequest.setMaxParts(1000);
+        if (upload.getRequestPayer() != null) {
+            listRequest.setRequestPayer(upload.getRequestPayer());
+        }
+        List<PartSummary> parts = new ArrayList<PartSummary>();
+        while (true) {
+            PartListing listing = listPartsWrap(listRequest);
+            parts.addAll(listing.getParts());
+            if (!listing.isTruncated() || listing.getNextPartNumberMarker() == null) {
+                return parts;
+            }
+            listRequest.setPartNumberMarker(listing.getNextPartNumberMarker());
+        }
+    }
+
+    /**
+     * Checks that the part is one the holder of its completed lease uploaded:
+     * a part after the last one it recorded was left by an earlier holder of
+     * the range.
+     */
+    private static boolean isLeased(List<PartRangeLease> leases, int partNumber) {
+        for (PartRangeLease lease : leases) {
+            if (lease.contains(partNumber)) {
+                return partNumber <= lease.getLastUploadedPartNumber();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Combines the listed CRC64 of the parts, or returns null when one of
+     * them is not listed.
+     */
+    private static Long combineCRC(List<PartSummary> parts) {
+        long crc = 0;
+        for (PartSummary part : parts) {
+            if (part.getServerCRC() == null) {
+                return null;
+            }
+            crc = CRC64.combine(crc, part.getServerCRC(), part.getSize());
+        }
+        return crc;
+    }
+}
@@ -20,22 +20,21 @@
 package com.aliyun.oss.internal;
 
 import static com.aliyun.oss.common.utils.CodingUtils.assertParameterNotNull;
+import static com.aliyun.oss.common.utils.IOUtils.safeClose;
 import static com.aliyun.oss.common.utils.LogUtils.logException;
-import static com.aliyun.oss.internal.OSSConstants.DEFAULT_BUFFER_SIZE;
 import static com.aliyun.oss.internal.OSSConstants.KB;
+import static com.aliyun.oss.internal.OSSUtils.OSS_RESOURCE_MANAGER;
 import static com.aliyun.oss.internal.OSSUtils.ensureBucketNameValid;
 import static com.aliyun.oss.internal.OSSUtils.ensureObjectKeyValid;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.io.RandomAccessFile;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -44,26 +43,35 @@ import java.util.Date;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+import com.aliyun.oss.ClientException;
 import com.aliyun.oss.InconsistentException;
+import com.aliyun.oss.OSSException;
 import com.aliyun.oss.common.utils.BinaryUtil;
 import com.aliyun.oss.common.utils.CRC64;
 import com.aliyun.oss.common.utils.IOUtils;
 import com.aliyun.oss.event.ProgressEventType;
 import com.aliyun.oss.event.ProgressListener;
 import com.aliyun.oss.event.ProgressPublisher;
+import com.aliyun.oss.model.CreateSelectObjectMetadataRequest;
 import com.aliyun.oss.model.DownloadFileRequest;
 import com.aliyun.oss.model.DownloadFileResult;
 import com.aliyun.oss.model.GenericRequest;
 import com.aliyun.oss.model.GetObjectRequest;
 import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.OSSObjectChannel;
+import com.aliyun.oss.model.ObjectChannelRequest;
 import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.ParallelGetObjectRequest;
+import com.aliyun.oss.model.ParallelSelectObjectRequest;
 import com.aliyun.oss.model.Payer;
+import com.aliyun.oss.model.SelectObjectMetadata;
+import com.aliyun.oss.model.SelectObjectRequest;
 import com.aliyun.oss.model.SimplifiedObjectMeta;
+import com.aliyun.oss.model.TransferTuning;
 
 /**
  * OSSDownloadOperation
@@ -79,33 +87,60 @@ public class OSSDownloadOperation {
         return IOUtils.getCRCValue(inputStream);
     }
 
+    protected ObjectMetadata getObjectMetadataWrap(GenericRequest genericRequest) {
+        return objectOperation.getObjectMetadata(genericRequest);
+    }
+
+    protected OSSObject selectObjectWrap(SelectObjectRequest selectObjectRequest) {
+        return objectOperation.selectObject(selectObjectRequest);
+    }
+
+    protected SelectObjectMetadata createSelectObjectMetadataWrap(
+            CreateSelectObjectMetadataRequest createSelectObjectMetadataRequest) {
+        return objectOperation.createSelectObjectMetadata(createSelectObjectMetadataRequest);
+    }
+
     static class DownloadCheckPoint implements Serializable {
 
         private static final long serialVersionUID = 4682293344365787077L;
         private static final String DOWNLOAD_MAGIC = "92611BED-89E2-46B6-89E5-72F273D4B0A3";
 
+        // Not serialized, load copies a deserialized checkpoint into this one
+        // rather than using it.
+        private final transient Lock lock = new ReentrantLock();
+
         /**
          * Loads the checkpoint data from the checkpoint file.
          */
-        public synchronized void load(String cpFile) throws IOException, ClassNotFoundException {
-            FileInputStream fileIn = new FileInputStream(cpFile);
-            ObjectInputStream in = new ObjectInputStream(fileIn);
-            DownloadCheckPoint dcp = (DownloadCheckPoint) in.readObject();
-            assign(dcp);
-            in.close();
-            fileIn.close();
+        public void load(String cpFile) throws IOException, ClassNotFoundException {
+            lock.lock();
+            try {
+                FileInputStream fileIn = new FileInputStream(cpFile);
+                ObjectInputStream in = new ObjectInputStream(fileIn);
+                DownloadCheckPoint dcp = (DownloadCheckPoint) in.readObject();
+                assign(dcp);
+                in.close();
+                fileIn.close();
+            } finally {
+                lock.unlock();
+            }
         }
 
         /**
          * Writes the checkpoint data to the checkpoint file.
          */
-        public synchronized void dump(String cpFile) throws IOException {
-            this.md5 = hashCode();
-            FileOutputStream fileOut = new FileOutputStream(cpFile);
-            ObjectOutputStream outStream = new ObjectOutputStream(fileOut);
-            outStream.writeObject(this);
-            outStream.close();
-            fileOut.close();
+        public void dump(String cpFile) throws IOException {
+            lock.lock();
+            try {
+                this.md5 = hashCode();
+                FileOutputStream fileOut = new FileOutputStream(cpFile);
+                ObjectOutputStream outStream = new ObjectOutputStream(fileOut);
+                outStream.writeObject(this);
+                outStream.close();
+                fileOut.close();
+            } finally {
+                lock.unlock();
+            }
         }
 
         /**
@@ -113,41 +148,51 @@ public class OSSDownloadOperation {
          * 
          * @throws IOException
          */
-        public synchronized void update(int index, boolean completed) throws IOException {
-            downloadParts.get(index).isCompleted = completed;
+        public void update(int index, boolean completed) throws IOException {
+            lock.lock();
+            try {
+                downloadParts.get(index).isCompleted = completed;
+            } finally {
+                lock.unlock();
+            }
         }
 
         /**
          * Check if the object matches the checkpoint information.
          */
-        public synchronized boolean isValid(OSSObjectOperation objectOperation, DownloadFileRequest downloadFileRequest) {
-            // 比较checkpoint的magic和md5
-            if (this.magic == null || !this.magic.equals(DOWNLOAD_MAGIC) || this.md5 != hashCode()) {
-                return false;
-            }
+        public boolean isValid(OSSObjectOperation objectOperation, DownloadFileRequest downloadFileRequest) {
+            lock.lock();
+            try {
+                // 比较checkpoint的magic和md5
+                if (this.magic == null || !this.magic.equals(DOWNLOAD_MAGIC) || this.md5 != hashCode()) {
+                    return false;
+                }
 
-            GenericRequest genericRequest = new GenericRequest(bucketName, objectKey);
+                GenericRequest genericRequest = new GenericRequest(bucketName, objectKey);
 
-            Payer payer = downloadFileRequest.getRequestPayer();
-            if (payer != null) {
-                genericRequest.setRequestPayer(payer);
-            }
+                Payer payer = downloadFileRequest.getRequestPayer();
+                if (payer != null) {
+                    genericRequest.setRequestPayer(payer);
+                }
 
-            String versionId = downloadFileRequest.getVersionId();
-            if (versionId != null) {
-                genericRequest.setVersionId(versionId);
-            }
+                String versionId = downloadFileRequest.getVersionId();
+                if (versionId != null) {
+                    genericRequest.setVersionId(versionId);
+                }
 
-            SimplifiedObjectMeta meta = objectOperation.getSimplifiedObjectMeta(genericRequest);
+                SimplifiedObjectMeta meta = objectOperation.getSimplifiedObjectMeta(genericRequest);
 
-            // Object's size, last modified time or ETAG are not same as the one
-            // in the checkpoint.
-            if (this.objectStat.size != meta.getSize() || !this.objectStat.lastModified.equals(meta.getLastModified())
-                    || !this.objectStat.digest.equals(meta.getETag())) {
-                return false;
-            }
+                // Object's size, last modified time or ETAG are not same as the one
+                // in the checkpoint.
+                if (this.objectStat.size != meta.getSize() || !this.objectStat.lastModified.equals(meta.getLastModified())
+                        || !this.objectStat.digest.equals(meta.getETag())) {
+                    return false;
+                }
 
-            return true;
+                return true;
+            } finally {
+                lock.unlock();
+            }
         }
 
         @Override
@@ -362,6 +407,163 @@ public class OSSDownloadOperation {
         this.objectOperation = objectOperation;
     }
 
+    /**
+     * Sets the executor shared by the transfers of the client, or null to use
+     * a pool per transfer.
+     */
+    public void setTransferExecutor(SharedTransferExecutor transferExecutor) {
+        this.transferExecutor = transferExecutor;
+    }
+
+    private TransferTaskExecutor newTransferTaskExecutor(int taskNum) {
+        if (transferExecutor != null) {
+            return new TransferTaskExecutor(transferExecutor, taskNum);
+        }
+        return new TransferTaskExecutor(objectOperation.getInnerClient().getClientConfiguration(), taskNum);
+    }
+
+    public OSSObject getObjectParallel(ParallelGetObjectRequest parallelGetObjectRequest)
+            throws OSSException, ClientException {
+        assertParameterNotNull(parallelGetObjectRequest, "parallelGetObjectRequest");
+
+        String bucketName = parallelGetObjectRequest.getBucketName();
+        String key = parallelGetObjectRequest.getKey();
+
+        assertParameterNotNull(bucketName, "bucketName");
+        assertParameterNotNull(key, "key");
+        ensureBucketNameValid(bucketName);
+        ensureObjectKeyValid(key);
+
+        GenericRequest genericRequest = new GenericRequest(bucketName, key, parallelGetObjectRequest.getVersionId());
+        Payer payer = parallelGetObjectRequest.getRequestPayer();
+        if (payer != null) {
+            genericRequest.setRequestPayer(payer);
+        }
+        ObjectMetadata metadata = getObjectMetadataWrap(genericRequest);
+
+        ParallelObjectInputStream content = new ParallelObjectInputStream(this, parallelGetObjectRequest, metadata,
+                newTransferTaskExecutor(parallelGetObjectRequest.getTaskNum()),
+                objectOperation.getInnerClient().getClientConfiguration().isCrcCheckEnabled());
+
+        OSSObject ossObject = new OSSObject();
+        ossObject.setBucketName(bucketName);
+        ossObject.setKey(key);
+        ossObject.setObjectMetadata(metadata);
+        ossObject.setObjectContent(content);
+        return ossObject;
+    }
+
+    public ObjectMetadata getObjectParallel(ParallelGetObjectRequest parallelGetObjectRequest, OutputStream output)
+            throws OSSException, ClientException {
+        assertParameterNotNull(output, "output");
+
+        OSSObject ossObject = getObjectParallel(parallelGetObjectRequest);
+        ParallelObjectInputStream content = (ParallelObjectInputStream) ossObject.getObjectContent();
+        try {
+            content.writeTo(output);
+            return ossObject.getObjectMetadata();
+        } catch (IOException ex) {
+            logException("Cannot read object content stream: ", ex);
+            throw new ClientException(OSS_RESOURCE_MANAGER.getString("CannotReadContentStream"), ex);
+        } finally {
+            safeClose(content);
+        }
+    }
+
+    public OSSObject selectObjectParallel(ParallelSelectObjectRequest parallelSelectObjectRequest)
+            throws OSSException, ClientException {
+        assertParameterNotNull(parallelSelectObjectRequest, "parallelSelectObjectRequest");
+
+        String bucketName = parallelSelectObjectRequest.getBucketName();
+        String key = parallelSelectObjectRequest.getKey();
+
+        assertParameterNotNull(bucketName, "bucketName");
+        assertParameterNotNull(key, "key");
+        ensureBucketNameValid(bucketName);
+        ensureObjectKeyValid(key);
+        if (parallelSelectObjectRequest.getExpression() == null) {
+            throw new IllegalArgumentException("Select expression is null");
+        }
+        if (parallelSelectObjectRequest.getLineRange() != null) {
+            throw new IllegalArgumentException("Line range of parallel select request should not be set");
+        }
+        if (!parallelSelectObjectRequest.isOrdered()
+                && parallelSelectObjectRequest.getOutputSerialization().isOutputHeader()) {
+            throw new IllegalArgumentException("Output header of unordered parallel select request should not be set");
+        }
+
+        ObjectMetadata metadata;
+        String eTag = null;
+        long splits = parallelSelectObjectRequest.getSplits();
+        if (splits > 0) {
+            metadata = new ObjectMetadata();
+        } else {
+            CreateSelectObjectMetadataRequest createSelectObjectMetadataRequest =
+                    new CreateSelectObjectMetadataRequest(bucketName, key)
+                            .withInputSerialization(parallelSelectObjectRequest.getInputSerialization());
+            Payer payer = parallelSelectObjectRequest.getRequestPayer();
+            if (payer != null) {
+                createSelectObjectMetadataRequest.setRequestPayer(payer);
+            }
+            SelectObjectMetadata selectObjectMetadata = createSelectObjectMetadataWrap(createSelectObjectMetadataRequest);
+            if (selectObjectMetadata.getCsvObjectMetadata() != null) {
+                splits = selectObjectMetadata.getCsvObjectMetadata().getSplits();
+            } else {
+                splits = selectObjectMetadata.getJsonObjectMetadata().getSplits();
+            }
+            metadata = selectObjectMetadata;
+            eTag = selectObjectMetadata.getETag();
+        }
+
+        long startSplit = 0;
+        long endSplit = splits - 1;
+        long[] splitRange = parallelSelectObjectRequest.getSplitRange();
+        if (splitRange != null) {
+            if (splitRange[0] < 0 || splitRange[1] < splitRange[0]) {
+                throw new IllegalArgumentException("Split range of parallel select request should be [start, end]");
+            }
+            startSplit = splitRange[0];
+            endSplit = Math.min(splitRange[1], endSplit);
+        }
+
+        long splitsPerRange = parallelSelectObjectRequest.getSplitsPerRange();
+        if (splitsPerRange == 0) {
+            long rangeNum = parallelSelectObjectRequest.getTaskNum() * 4L;
+            splitsPerRange = Math.max((endSplit - startSplit + rangeNum) / rangeNum, 1);
+        }
+
+        ParallelSelectInputStream content = new ParallelSelectInputStream(this, parallelSelectObjectRequest, eTag,
+                startSplit, endSplit, splitsPerRange,
+                newTransferTaskExecutor(parallelSelectObjectRequest.getTaskNum()));
+
+        OSSObject ossObject = new OSSObject();
+        ossObject.setBucketName(bucketName);
+        ossObject.setKey(key);
+        ossObject.setObjectMetadata(metadata);
+        ossObject.setObjectContent(content);
+        return ossObject;
+    }
+
+    public OSSObjectChannel openObjectChannel(ObjectChannelRequest objectChannelRequest)
+            throws OSSException, ClientException {
+        assertParameterNotNull(objectChannelRequest, "objectChannelRequest");
+
+        String bucketName = objectChannelRequest.getBucketName();
+        String key = objectChannelRequest.getKey();
+
+        assertParameterNotNull(bucketName, "bucketName");
+        assertParameterNotNull(key, "key");
+        ensureBucketNameValid(bucketName);
+        ensureObjectKeyValid(key);
+
+        GenericRequest genericRequest = new GenericRequest(bucketName, key, objectChannelRequest.getVersionId());
+        Payer payer = objectChannelRequest.getRequestPayer();
+        if (payer != null) {
+            genericRequest.setRequestPayer(payer);
+        }
+        return new CachingObjectChannel(this, objectChannelRequest, getObjectMetadataWrap(genericRequest));
+    }
+
     public DownloadFileResult downloadFile(DownloadFileRequest downloadFileRequest) throws Throwable {
         assertParameterNotNull(downloadFileRequest, "downloadFileRequest");
 
@@ -427,7 +629,9 @@ public class OSSDownloadOperation {
         ProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
 
         // Concurrently download parts.
-        DownloadResult downloadResult = download(downloadCheckPoint, downloadFileRequest);
+        TransferTuning tuning = downloadFileRequest.isAutoTuneEnabled() ? new TransferTuning() : null;
+        DownloadResult downloadResult = download(downloadCheckPoint, downloadFileRequest, tuning);
+        downloadFileResult.setTransferTuning(tuning);
         Long serverCRC = null;
         for (PartResult partResult : downloadResult.getPartResults()) {
             if (partResult.getServerCRC() != null) {
@@ -475,31 +679,19 @@ public class OSSDownloadOperation {
         downloadCheckPoint.bucketName = downloadFileRequest.getBucketName();
         downloadCheckPoint.objectKey = downloadFileRequest.getKey();
         downloadCheckPoint.objectStat = ObjectStat.getFileStat(objectOperation, downloadFileRequest);
-        long downloadSize;
         if (downloadCheckPoint.objectStat.size > 0) {
             long[] slice = getSlice(downloadFileRequest.getRange(), downloadCheckPoint.objectStat.size);
-            downloadCheckPoint.downloadParts = splitFile(slice[0], slice[1], downloadFileRequest.getPartSize());
-            downloadSize = slice[1];
+            long partSize = downloadFileRequest.getPartSize();
+            if (downloadFileRequest.isAutoTuneEnabled()) {
+                partSize = TransferAutoTuner.choosePartSize(slice[1],
+                        TransferAutoTuner.getMaxTaskNum(downloadFileRequest.getTaskNum()));
+            }
+            downloadCheckPoint.downloadParts = splitFile(slice[0], slice[1], partSize);
         } else {
             //download whole file
-            downloadSize = 0;
             downloadCheckPoint.downloadParts = splitOneFile();
         }
-        createFixedFile(downloadFileRequest.getTempDownloadFile(), downloadSize);
-    }
-
-    public static void createFixedFile(String filePath, long length) throws IOException {
-        File file = new File(filePath);
-        RandomAccessFile rf = null;
-
-        try {
-            rf = new RandomAccessFile(file, "rw");
-            rf.setLength(length);
-        } finally {
-            if (rf != null) {
-                rf.close();
-            }
-        }
+        // The temp file is created and sized by the FileChannelSink of the download.
     }
 
     private static Long calcObjectCRCFromParts(List<PartResult> partResults) {
@@ -514,11 +706,20 @@ public class OSSDownloadOperation {
         return new Long(crc);
     }
 
-    private DownloadResult download(DownloadCheckPoint downloadCheckPoint, DownloadFileRequest downloadFileRequest)
-            throws Throwable {
+    private DownloadResult download(DownloadCheckPoint downloadCheckPoint, DownloadFileRequest downloadFileRequest,
+            TransferTuning tuning) throws Throwable {
         DownloadResult downloadResult = new DownloadResult();
         ArrayList<PartResult> taskResults = new ArrayList<PartResult>();
-        ExecutorService service = Executors.newFixedThreadPool(downloadFileRequest.getTaskNum());
+        TransferTaskExecutor service;
+        TransferAutoTuner autoTuner = null;
+        if (tuning != null) {
+            int maxTaskNum = TransferAutoTuner.getMaxTaskNum(downloadFileRequest.getTaskNum());
+            DownloadPart firstPart = downloadCheckPoint.downloadParts.get(0);
+            service = newTransferTaskExecutor(TransferAutoTuner.getInitialTaskNum(maxTaskNum));
+            autoTuner = new TransferAutoTuner(service, tuning, maxTaskNum, firstPart.end - firstPart.start + 1);
+        } else {
+            service = newTransferTaskExecutor(downloadFileRequest.getTaskNum());
+        }
         ArrayList<Future<PartResult>> futures = new ArrayList<Future<PartResult>>();
         List<Task> tasks = new ArrayList<Task>();
         ProgressListener listener = downloadFileRequest.getProgressListener();
@@ -539,23 +740,29 @@ public class OSSDownloadOperation {
         ProgressPublisher.publishResponseBytesTransferred(listener, completedLength);
         downloadFileRequest.setProgressListener(null);
 
-        // Concurrently download parts.
-        for (int i = 0; i < downloadCheckPoint.downloadParts.size(); i++) {
-            if (!downloadCheckPoint.downloadParts.get(i).isCompleted) {
-                Task task = new Task(i, "download-" + i, downloadCheckPoint, i, downloadFileRequest, objectOperation,
-                        listener);
-                futures.add(service.submit(task));
-                tasks.add(task);
-            } else {
-                taskResults.add(new PartResult(i + 1, downloadCheckPoint.downloadParts.get(i).start,
-                        downloadCheckPoint.downloadParts.get(i).end, downloadCheckPoint.downloadParts.get(i).length,
-                        downloadCheckPoint.downloadParts.get(i).crc));
+        // All the parts write to one channel of the temp file.
+        FileChannelSink sink = new FileChannelSink(downloadFileRequest.getTempDownloadFile(),
+                getDownloadSize(downloadCheckPoint), downloadFileRequest.isMmapEnabled());
+        try {
+            // Concurrently download parts.
+            for (int i = 0; i < downloadCheckPoint.downloadParts.size(); i++) {
+                if (!downloadCheckPoint.downloadParts.get(i).isCompleted) {
+                    Task task = new Task(i, "download-" + i, downloadCheckPoint, i, downloadFileRequest,
+                            objectOperation, listener, autoTuner, sink);
+                    futures.add(service.submit(task));
+                    tasks.add(task);
+                } else {
+                    taskResults.add(new PartResult(i + 1, downloadCheckPoint.downloadParts.get(i).start,
+                            downloadCheckPoint.downloadParts.get(i).end, downloadCheckPoint.downloadParts.get(i).length,
+                            downloadCheckPoint.downloadParts.get(i).crc));
+                }
             }
-        }
-        service.shutdown();
 
-        // Waiting for all parts download,
-        service.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+            // Waiting for all parts download,
+            service.shutdownAndAwait();
+        } finally {
+            sink.close();
+        }
         for (Future<PartResult> future : futures) {
             try {
                 PartResult tr = future.get();
@@ -584,6 +791,20 @@ public class OSSDownloadOperation {
         return downloadResult;
     }
 
+    private static long getDownloadSize(DownloadCheckPoint downloadCheckPoint) {
+        long size = 0;
+        for (DownloadPart part : downloadCheckPoint.downloadParts) {
+            if (part.end < part.start) {
+                // The single part of an object that was empty when it was
+                // stat'ed, so a stale temp file is truncated. The size is only
+                // unknown when the stat had none.
+                return downloadCheckPoint.objectStat.size >= 0 ? downloadCheckPoint.objectStat.size : -1;
+            }
+            size = Math.max(size, part.fileStart + part.end - part.start + 1);
+        }
+        return size;
+    }
+
     private boolean hasRangeInRequest(DownloadFileRequest downloadFileRequest) {
         return downloadFileRequest.getRange() != null;
     }
@@ -592,7 +813,7 @@ public class OSSDownloadOperation {
 
         public Task(int id, String name, DownloadCheckPoint downloadCheckPoint, int partIndex,
                 DownloadFileRequest downloadFileRequest, OSSObjectOperation objectOperation,
-                ProgressListener progressListener) {
+                ProgressListener progressListener, TransferAutoTuner autoTuner, FileChannelSink sink) {
             this.id = id;
             this.name = name;
             this.downloadCheckPoint = downloadCheckPoint;
@@ -600,21 +821,43 @@ public class OSSDownloadOperation {
             this.downloadFileRequest = downloadFileRequest;
             this.objectOperation = objectOperation;
             this.progressListener = progressListener;
+            this.autoTuner = autoTuner;
+            this.sink = sink;
         }
 
         @Override
         public PartResult call() throws Exception {
+            if (autoTuner == null) {
+                return downloadPart();
+            }
+
+            // Reports every attempt to the tuner, and runs the part again if it
+            // failed because of congestion.
+            for (int attempt = 1;; attempt++) {
+                long startNanos = System.nanoTime();
+                PartResult tr = downloadPart();
+                boolean congested = tr.isFailed() && TransferAutoTuner.isCongestion(tr.getException());
+                if (tr.isFailed() && !congested) {
+                    return tr;
+                }
+                DownloadPart downloadPart = downloadCheckPoint.downloadParts.get(partIndex);
+                autoTuner.onPartCompleted(tr.isFailed() ? 0 : downloadPart.end - downloadPart.start + 1, startNanos,
+                        congested);
+                if (!congested || attempt >= TransferAutoTuner.MAX_PART_ATTEMPTS) {
+                    return tr;
+                }
+                TransferAutoTuner.pauseBeforeRetry(attempt);
+            }
+        }
+
+        private PartResult downloadPart() throws Exception {
             PartResult tr = null;
-            RandomAccessFile output = null;
             InputStream content = null;
 
             try {
                 DownloadPart downloadPart = downloadCheckPoint.downloadParts.get(partIndex);
                 tr = new PartResult(partIndex + 1, downloadPart.start, downloadPart.end);
 
-                output = new RandomAccessFile(downloadFileRequest.getTempDownloadFile(), "rw");
-                output.seek(downloadPart.fileStart);
-
                 GetObjectRequest getObjectRequest = new GetObjectRequest(downloadFileRequest.getBucketName(),
                         downloadFileRequest.getKey());
                 getObjectRequest.setMatchingETagConstraints(downloadFileRequest.getMatchingETagConstraints());
@@ -643,10 +886,12 @@ public class OSSDownloadOperation {
                 objectMetadata = ossObj.getObjectMetadata();
                 content = ossObj.getObjectContent();
 
-                byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-                int bytesRead = 0;
-                while ((bytesRead = IOUtils.readNBytes(content, buffer, 0, buffer.length)) > 0) {
-                    output.write(buffer, 0, bytesRead);
+                long length = downloadPart.end >= downloadPart.start ? downloadPart.end - downloadPart.start + 1 : 0;
+                long written = sink.write(content, downloadPart.fileStart, length);
+                // A part cut short would leave a hole of zeros in the file.
+                if (length > 0 && written != length) {
+                    throw new IOException("Part " + partIndex + " has " + written + " bytes instead of the expected "
+                            + length + " bytes.");
                 }
 
                 if (objectOperation.getInnerClient().getClientConfiguration().isCrcCheckEnabled()) {
@@ -668,10 +913,6 @@ public class OSSDownloadOperation {
                 tr.setException(e);
                 logException(String.format("Task %d:%s upload part %d failed: ", id, name, partIndex), e);
             } finally {
-                if (output != null) {
-                    output.close();
-                }
-
                 if (content != null) {
                     content.close();
                 }
@@ -692,6 +933,8 @@ public class OSSDownloadOperation {
         private OSSObjectOperation objectOperation;
         private ObjectMetadata objectMetadata;
         private ProgressListener progressListener;
+        private TransferAutoTuner autoTuner;
+        private FileChannelSink sink;
     }
 
     private ArrayList<DownloadPart> splitFile(long start, long objectSize, long partSize) {
@@ -777,57 +1020,9 @@ public class OSSDownloadOperation {
     private static void renameTo(String srcFilePath, String destFilePath) throws IOException {
         File srcfile = new File(srcFilePath);
         File destfile = new File(destFilePath);
-        moveFile(srcfile, destfile);
-    }
-
-    private static void moveFile(final File srcFile, final File destFile) throws IOException {
-        if (srcFile == null) {
-            throw new NullPointerException("Source must not be null");
-        }
-        if (destFile == null) {
-            throw new NullPointerException("Destination must not be null");
-        }
-        if (!srcFile.exists()) {
-            throw new FileNotFoundException("Source '" + srcFile + "' does not exist");
-        }
-        if (srcFile.isDirectory()) {
-            throw new IOException("Source '" + srcFile + "' is a directory");
-        }
-        if (destFile.isDirectory()) {
-            throw new IOException("Destination '" + destFile + "' is a directory");
-        }
-        if (destFile.exists()) {
-            if (!destFile.delete()) {
-                throw new IOException("Failed to delete original file '" + srcFile + "'");
-            }
-        }
-
-        final boolean rename = srcFile.renameTo(destFile);
-        if (!rename) {
-            copyFile(srcFile, destFile);
-            if (!srcFile.delete()) {
-                throw new IOException(
-                        "Failed to delete original file '" + srcFile + "' after copy to '" + destFile + "'");
-            }
-        }
-    }
-
-    private static void copyFile(File source, File dest) throws IOException {
-        InputStream is = null;
-        OutputStream os = null;
-        try {
-            is = new FileInputStream(source);
-            os = new FileOutputStream(dest);
-            byte[] buffer = new byte[4096];
-            int length;
-            while ((length = is.read(buffer)) > 0) {
-                os.write(buffer, 0, length);
-            }
-        } finally {
-            is.close();
-            os.close();
-        }
+        FileChannelSink.moveTo(srcfile, destfile);
     }
 
     private OSSObjectOperation objectOperation;
+    private SharedTransferExecutor transferExecutor;
 }
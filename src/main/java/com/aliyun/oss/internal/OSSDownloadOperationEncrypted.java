@@ -28,6 +28,12 @@ import com.aliyun.oss.model.OSSObject;
 
 import java.io.InputStream;
 
+/**
+ * Downloads client-side encrypted objects by concurrent ranged GETs. Each part
+ * is decrypted on its own thread, by a cipher whose counter starts at the
+ * offset of the part, so the parts need 16-byte aligned sizes. The CRC64 of a
+ * part is the one of its encrypted bytes, as stored in OSS.
+ */
 public class OSSDownloadOperationEncrypted extends OSSDownloadOperation {
     private OSSEncryptionClient ossEncryptionClient;
 
@@ -44,12 +50,11 @@ public class OSSDownloadOperationEncrypted extends OSSDownloadOperation {
     @Override
     protected Long getInputStreamCRCWrap(InputStream inputStream) {
         if (inputStream instanceof AdjustedRangeInputStream) {
-            InputStream subInputStream = ((AdjustedRangeInputStream) inputStream).getWrappedInputStream();
-            if (subInputStream instanceof CipherInputStream) {
-                InputStream checkedInputStream = ((CipherInputStream) subInputStream).getDelegateStream();
-                return IOUtils.getCRCValue(checkedInputStream);
-            }
+            inputStream = ((AdjustedRangeInputStream) inputStream).getWrappedInputStream();
+        }
+        if (inputStream instanceof CipherInputStream) {
+            inputStream = ((CipherInputStream) inputStream).getDelegateStream();
         }
-        return null;
+        return IOUtils.getCRCValue(inputStream);
     }
 }
@@ -97,6 +97,7 @@ import com.aliyun.oss.common.comm.ServiceClient;
 import com.aliyun.oss.common.comm.io.RepeatableFileInputStream;
 import com.aliyun.oss.common.parser.ResponseParser;
 import com.aliyun.oss.common.utils.BinaryUtil;
+import com.aliyun.oss.common.utils.BufferPool;
 import com.aliyun.oss.common.utils.CRC64;
 import com.aliyun.oss.common.utils.DateUtil;
 import com.aliyun.oss.common.utils.HttpHeaders;
@@ -395,9 +396,10 @@ public class OSSObjectOperation extends OSSOperation {
         OSSObject ossObject = getObject(getObjectRequest);
 
         OutputStream outputStream = null;
+        byte[] buffer = null;
         try {
             outputStream = new BufferedOutputStream(new FileOutputStream(file));
-            byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+            buffer = BufferPool.getDefault().acquire(DEFAULT_BUFFER_SIZE);
             int bytesRead;
             while ((bytesRead = IOUtils.readNBytes(ossObject.getObjectContent(), buffer, 0, buffer.length)) > 0) {
                 outputStream.write(buffer, 0, bytesRead);
@@ -413,6 +415,7 @@ public class OSSObjectOperation extends OSSOperation {
             logException("Cannot read object content stream: ", ex);
             throw new ClientException(OSS_RESOURCE_MANAGER.getString("CannotReadContentStream"), ex);
         } finally {
+            BufferPool.getDefault().release(buffer);
             safeClose(outputStream);
             safeClose(ossObject.getObjectContent());
         }
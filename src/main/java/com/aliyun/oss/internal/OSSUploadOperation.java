@@ -32,36 +32,55 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.aliyun.oss.ClientException;
 import com.aliyun.oss.InconsistentException;
 import com.aliyun.oss.OSSException;
+import com.aliyun.oss.common.utils.BufferPool;
 import com.aliyun.oss.common.utils.CRC64;
 import com.aliyun.oss.event.ProgressEventType;
 import com.aliyun.oss.event.ProgressListener;
 import com.aliyun.oss.event.ProgressPublisher;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
 import com.aliyun.oss.model.CannedAccessControlList;
 import com.aliyun.oss.model.CompleteMultipartUploadRequest;
 import com.aliyun.oss.model.CompleteMultipartUploadResult;
 import com.aliyun.oss.model.InitiateMultipartUploadRequest;
 import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.ListMultipartUploadsRequest;
+import com.aliyun.oss.model.ListPartsRequest;
+import com.aliyun.oss.model.MultipartUpload;
+import com.aliyun.oss.model.MultipartUploadListing;
+import com.aliyun.oss.model.OSSOutputStream;
 import com.aliyun.oss.model.ObjectMetadata;
 import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.PartListing;
+import com.aliyun.oss.model.PartSummary;
 import com.aliyun.oss.model.Payer;
+import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.TransferTuning;
 import com.aliyun.oss.model.UploadFileRequest;
 import com.aliyun.oss.model.UploadFileResult;
 import com.aliyun.oss.model.UploadPartRequest;
 import com.aliyun.oss.model.UploadPartResult;
+import com.aliyun.oss.model.UploadStreamRequest;
 
 /**
  * OSSUploadOperation
@@ -91,34 +110,65 @@ public class OSSUploadOperation {
         return multipartOperation.completeMultipartUpload(request);
     }
 
+    protected void abortMultipartUploadWrap(AbortMultipartUploadRequest request) throws OSSException, ClientException {
+        multipartOperation.abortMultipartUpload(request);
+    }
+
+    protected PutObjectResult putObjectWrap(PutObjectRequest request) throws OSSException, ClientException {
+        return objectOperation.putObject(request);
+    }
+
+    protected MultipartUploadListing listMultipartUploadsWrap(ListMultipartUploadsRequest request)
+            throws OSSException, ClientException {
+        return multipartOperation.listMultipartUploads(request);
+    }
+
+    protected PartListing listPartsWrap(ListPartsRequest request) throws OSSException, ClientException {
+        return multipartOperation.listParts(request);
+    }
+
     static class UploadCheckPoint implements Serializable {
 
         private static final long serialVersionUID = 5424904565837227164L;
 
         private static final String UPLOAD_MAGIC = "FE8BB4EA-B593-4FAC-AD7A-2459A36E2E62";
 
+        // A lock instead of synchronized methods, so that part tasks running on
+        // virtual threads do not pin their carrier while writing the file.
+        private final transient Lock lock = new ReentrantLock();
+
         /**
          * Gets the checkpoint data from the checkpoint file.
          */
-        public synchronized void load(String cpFile) throws IOException, ClassNotFoundException {
-            FileInputStream fileIn = new FileInputStream(cpFile);
-            ObjectInputStream in = new ObjectInputStream(fileIn);
-            UploadCheckPoint ucp = (UploadCheckPoint) in.readObject();
-            assign(ucp);
-            in.close();
-            fileIn.close();
+        public void load(String cpFile) throws IOException, ClassNotFoundException {
+            lock.lock();
+            try {
+                FileInputStream fileIn = new FileInputStream(cpFile);
+                ObjectInputStream in = new ObjectInputStream(fileIn);
+                UploadCheckPoint ucp = (UploadCheckPoint) in.readObject();
+                assign(ucp);
+                in.close();
+                fileIn.close();
+            } finally {
+                lock.unlock();
+            }
         }
 
         /**
          * Writes the checkpoint data to the checkpoint file.
          */
-        public synchronized void dump(String cpFile) throws IOException {
-            this.md5 = hashCode();
-            FileOutputStream fileOut = new FileOutputStream(cpFile);
-            ObjectOutputStream outStream = new ObjectOutputStream(fileOut);
-            outStream.writeObject(this);
-            outStream.close();
-            fileOut.close();
+        public void dump(String cpFile) throws IOException {
+            lock.lock();
+            try {
+                this.md5 = hashCode();
+                FileOutputStream fileOut = new FileOutputStream(cpFile);
+                ObjectOutputStream outStream = new ObjectOutputStream(fileOut);
+                outStream.writeObject(this);
+                outStream.close();
+                fileOut.close();
+            } finally {
+                lock.unlock();
+            }
         }
 
         /**
@@ -126,36 +176,46 @@ public class OSSUploadOperation {
          * 
          * @throws IOException
          */
-        public synchronized void update(int partIndex, PartETag partETag, boolean completed) throws IOException {
-            partETags.add(partETag);
-            uploadParts.get(partIndex).isCompleted = completed;
+        public void update(int partIndex, PartETag partETag, boolean completed) throws IOException {
+            lock.lock();
+            try {
+                partETags.add(partETag);
+                uploadParts.get(partIndex).isCompleted = completed;
+            } finally {
+                lock.unlock();
+            }
         }
 
         /**
          * Check if the local file matches the checkpoint.
          */
-        public synchronized boolean isValid(String uploadFile) {
-            // 比较checkpoint的magic和md5
-            // Compares the magic field in checkpoint and the file's md5.
-            if (this.magic == null || !this.magic.equals(UPLOAD_MAGIC) || this.md5 != hashCode()) {
-                return false;
-            }
+        public boolean isValid(String uploadFile) {
+            lock.lock();
+            try {
+                // 比较checkpoint的magic和md5
+                // Compares the magic field in checkpoint and the file's md5.
+                if (this.magic == null || !this.magic.equals(UPLOAD_MAGIC) || this.md5 != hashCode()) {
+                    return false;
+                }
 
-            // Checks if the file exists.
-            File upload = new File(uploadFile);
-            if (!upload.exists()) {
-                return false;
-            }
+                // Checks if the file exists.
+                File upload = new File(uploadFile);
+                if (!upload.exists()) {
+                    return false;
+                }
 
-            // The file name, size and last modified time must be same as the
-            // checkpoint.
-            // If any item is changed, return false (re-upload the file).
-            if (!this.uploadFile.equals(uploadFile) || this.uploadFileStat.size != upload.length()
-                    || this.uploadFileStat.lastModified != upload.lastModified()) {
-                return false;
-            }
+                // The file name, size and last modified time must be same as the
+                // checkpoint.
+                // If any item is changed, return false (re-upload the file).
+                if (!this.uploadFile.equals(uploadFile) || this.uploadFileStat.size != upload.length()
+                        || this.uploadFileStat.lastModified != upload.lastModified()) {
+                    return false;
+                }
 
-            return true;
+                return true;
+            } finally {
+                lock.unlock();
+            }
         }
 
         @Override
@@ -194,6 +254,8 @@ public class OSSUploadOperation {
         public ArrayList<UploadPart> uploadParts;
         public ArrayList<PartETag> partETags;
         public long originPartSize;
+        // The parts of the upload resumed from the server, by part number.
+        public transient Map<Integer, PartSummary> serverParts;
     }
 
     static class FileStat implements Serializable {
@@ -319,6 +381,45 @@ public class OSSUploadOperation {
         this.multipartOperation = multipartOperation;
     }
 
+    public OSSUploadOperation(OSSMultipartOperation multipartOperation, OSSObjectOperation objectOperation) {
+        this.multipartOperation = multipartOperation;
+        this.objectOperation = objectOperation;
+    }
+
+    /**
+     * Sets the executor shared by the transfers of the client, or null to use
+     * a pool per transfer.
+     */
+    public void setTransferExecutor(SharedTransferExecutor transferExecutor) {
+        this.transferExecutor = transferExecutor;
+    }
+
+    TransferTaskExecutor newTransferTaskExecutor(int taskNum) {
+        if (transferExecutor != null) {
+            return new TransferTaskExecutor(transferExecutor, taskNum);
+        }
+        return new TransferTaskExecutor(multipartOperation.getInnerClient().getClientConfiguration(), taskNum);
+    }
+
+    /**
+     * Opens a stream that uploads what is written to the object, in parts
+     * uploaded in the background.
+     */
+    public OSSOutputStream openOutputStream(UploadStreamRequest uploadStreamRequest) throws ClientException {
+        assertParameterNotNull(uploadStreamRequest, "uploadStreamRequest");
+
+        String bucketName = uploadStreamRequest.getBucketName();
+        String key = uploadStreamRequest.getKey();
+
+        assertParameterNotNull(bucketName, "bucketName");
+        assertParameterNotNull(key, "key");
+        ensureBucketNameValid(bucketName);
+        ensureObjectKeyValid(key);
+
+        boolean crcCheckEnabled = multipartOperation.getInnerClient().getClientConfiguration().isCrcCheckEnabled();
+        return new MultipartOutputStream(this, uploadStreamRequest, crcCheckEnabled);
+    }
+
     public UploadFileResult uploadFile(UploadFileRequest uploadFileRequest) throws Throwable {
         assertParameterNotNull(uploadFileRequest, "uploadFileRequest");
 
@@ -373,7 +474,9 @@ public class OSSUploadOperation {
         ProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
 
         // Concurrently upload parts.
-        List<PartResult> partResults = upload(uploadCheckPoint, uploadFileRequest);
+        TransferTuning tuning = uploadFileRequest.isAutoTuneEnabled() ? new TransferTuning() : null;
+        List<PartResult> partResults = upload(uploadCheckPoint, uploadFileRequest, tuning);
+        uploadFileResult.setTransferTuning(tuning);
         for (PartResult partResult : partResults) {
             if (partResult.isFailed()) {
                 ProgressPublisher.publishProgress(listener, ProgressEventType.TRANSFER_PART_FAILED_EVENT);
@@ -425,9 +528,18 @@ public class OSSUploadOperation {
         uploadCheckPoint.uploadFile = uploadFileRequest.getUploadFile();
         uploadCheckPoint.key = uploadFileRequest.getKey();
         uploadCheckPoint.uploadFileStat = FileStat.getFileStat(uploadCheckPoint.uploadFile);
-        uploadCheckPoint.uploadParts = splitFile(uploadCheckPoint.uploadFileStat.size, uploadFileRequest.getPartSize());
         uploadCheckPoint.partETags = new ArrayList<PartETag>();
-        uploadCheckPoint.originPartSize = uploadFileRequest.getPartSize();
+        if (uploadFileRequest.isResumeFromServer() && resumeFromServer(uploadCheckPoint, uploadFileRequest)) {
+            return;
+        }
+
+        long partSize = uploadFileRequest.getPartSize();
+        if (uploadFileRequest.isAutoTuneEnabled()) {
+            partSize = TransferAutoTuner.choosePartSize(uploadCheckPoint.uploadFileStat.size,
+                    TransferAutoTuner.getMaxTaskNum(uploadFileRequest.getTaskNum()));
+        }
+        uploadCheckPoint.uploadParts = splitFile(uploadCheckPoint.uploadFileStat.size, partSize);
+        uploadCheckPoint.originPartSize = partSize;
 
         ObjectMetadata metadata = uploadFileRequest.getObjectMetadata();
         if (metadata == null) {
@@ -453,10 +565,183 @@ public class OSSUploadOperation {
         uploadCheckPoint.uploadID = initiateUploadResult.getUploadId();
     }
 
-    private ArrayList<PartResult> upload(UploadCheckPoint uploadCheckPoint, UploadFileRequest uploadFileRequest)
-            throws Throwable {
+    /**
+     * Takes the latest upload of the key in progress on the server, with its
+     * listed parts as the candidates to skip. The file is split by the size
+     * most of the parts have, so that they line up with the parts of the file.
+     * Returns false if there is no upload of the key.
+     */
+    private boolean resumeFromServer(UploadCheckPoint uploadCheckPoint, UploadFileRequest uploadFileRequest) {
+        MultipartUpload upload = findLatestUpload(uploadFileRequest);
+        if (upload == null) {
+            return false;
+        }
+
+        Map<Integer, PartSummary> serverParts = new HashMap<Integer, PartSummary>();
+        Map<Long, Integer> sizeCounts = new HashMap<Long, Integer>();
+        long partSize = uploadFileRequest.getPartSize();
+        int maxCount = 0;
+        PartIterator parts = new PartIterator(uploadFileRequest, upload.getUploadId());
+        while (parts.hasNext()) {
+            PartSummary part = parts.next();
+            serverParts.put(part.getPartNumber(), part);
+            Integer count = sizeCounts.get(part.getSize());
+            count = count == null ? 1 : count + 1;
+            sizeCounts.put(part.getSize(), count);
+            if (count > maxCount || (count == maxCount && part.getSize() > partSize)) {
+                maxCount = count;
+                partSize = part.getSize();
+            }
+        }
+
+        uploadCheckPoint.uploadID = upload.getUploadId();
+        uploadCheckPoint.uploadParts = splitFile(uploadCheckPoint.uploadFileStat.size, partSize);
+        uploadCheckPoint.originPartSize = partSize;
+        uploadCheckPoint.serverParts = serverParts;
+        return true;
+    }
+
+    /**
+     * Finds the upload of the key that was initiated last. The uploads of the
+     * key come first in the listing by the key as prefix, so the listing stops
+     * at the first other key.
+     */
+    private MultipartUpload findLatestUpload(UploadFileRequest uploadFileRequest) {
+        String key = uploadFileRequest.getKey();
+        ListMultipartUploadsRequest listRequest = new ListMultipartUploadsRequest(uploadFileRequest.getBucketName());
+        listRequest.setPrefix(key);
+        listRequest.setMaxUploads(1000);
+        Payer payer = uploadFileRequest.getRequestPayer();
+        if (payer != null) {
+            listRequest.setRequestPayer(payer);
+        }
+
+        MultipartUpload latest = null;
+        while (true) {
+            MultipartUploadListing listing = listMultipartUploadsWrap(listRequest);
+            for (MultipartUpload upload : listing.getMultipartUploads()) {
+                if (!key.equals(upload.getKey())) {
+                    return latest;
+                }
+                if (latest == null || (upload.getInitiated() != null && latest.getInitiated() != null
+                        && upload.getInitiated().after(latest.getInitiated()))) {
+                    latest = upload;
+                }
+            }
+            if (!listing.isTruncated()) {
+                return latest;
+            }
+            listRequest.setKeyMarker(listing.getNextKeyMarker());
+            listRequest.setUploadIdMarker(listing.getNextUploadIdMarker());
+        }
+    }
+
+    /**
+     * Iterates over the parts of an upload, listing them a page at a time.
+     */
+    class PartIterator implements Iterator<PartSummary> {
+        private final ListPartsRequest listRequest;
+        private Iterator<PartSummary> page;
+        private boolean truncated = true;
+
+        PartIterator(UploadFileRequest uploadFileRequest, String uploadId) {
+            listRequest = new ListPartsRequest(uploadFileRequest.getBucketName(), uploadFileRequest.getKey(),
+                    uploadId);
+            listRequest.setMaxParts(1000);
+            Payer payer = uploadFileRequest.getRequestPayer();
+            if (payer != null) {
+                listRequest.setRequestPayer(payer);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ((page == null || !page.hasNext()) && truncated) {
+                PartListing listing = listPartsWrap(listRequest);
+                page = listing.getParts().iterator();
+                truncated = listing.isTruncated() && listing.getNextPartNumberMarker() != null;
+                if (truncated) {
+                    listRequest.setPartNumberMarker(listing.getNextPartNumberMarker());
+                }
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public PartSummary next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Reads the part from the file, and returns its CRC64 if it has the
+     * content of the uploaded part, compared by the CRC64 of the uploaded
+     * part, or by its ETag when the CRC64 is not listed. Returns null
+     * otherwise.
+     */
+    private static Long matchServerPart(String uploadFile, UploadPart uploadPart, PartSummary serverPart)
+            throws IOException {
+        MessageDigest md5 = null;
+        if (serverPart.getServerCRC() == null) {
+            try {
+                md5 = MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new ClientException(e);
+            }
+        }
+
+        CRC64 crc = new CRC64();
+        byte[] buffer = BufferPool.getDefault().acquire(64 * 1024);
+        FileInputStream in = new FileInputStream(uploadFile);
+        try {
+            in.getChannel().position(uploadPart.offset);
+            long remaining = uploadPart.size;
+            while (remaining > 0) {
+                int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    return null;
+                }
+                crc.update(buffer, n);
+                if (md5 != null) {
+                    md5.update(buffer, 0, n);
+                }
+                remaining -= n;
+            }
+        } finally {
+            BufferPool.getDefault().release(buffer);
+            in.close();
+        }
+
+        if (md5 == null) {
+            return serverPart.getServerCRC() == crc.getValue() ? crc.getValue() : null;
+        }
+        String eTag = new BigInteger(1, md5.digest()).toString(16);
+        while (eTag.length() < 32) {
+            eTag = "0" + eTag;
+        }
+        return eTag.equalsIgnoreCase(serverPart.getETag()) ? crc.getValue() : null;
+    }
+
+    private ArrayList<PartResult> upload(UploadCheckPoint uploadCheckPoint, UploadFileRequest uploadFileRequest,
+            TransferTuning tuning) throws Throwable {
         ArrayList<PartResult> taskResults = new ArrayList<PartResult>();
-        ExecutorService service = Executors.newFixedThreadPool(uploadFileRequest.getTaskNum());
+        TransferTaskExecutor service;
+        TransferAutoTuner autoTuner = null;
+        if (tuning != null) {
+            int maxTaskNum = TransferAutoTuner.getMaxTaskNum(uploadFileRequest.getTaskNum());
+            service = newTransferTaskExecutor(TransferAutoTuner.getInitialTaskNum(maxTaskNum));
+            autoTuner = new TransferAutoTuner(service, tuning, maxTaskNum, uploadCheckPoint.originPartSize);
+        } else {
+            service = newTransferTaskExecutor(uploadFileRequest.getTaskNum());
+        }
         ArrayList<Future<PartResult>> futures = new ArrayList<Future<PartResult>>();
         ProgressListener listener = uploadFileRequest.getProgressListener();
 
@@ -479,16 +764,15 @@ public class OSSUploadOperation {
         for (int i = 0; i < uploadCheckPoint.uploadParts.size(); i++) {
             if (!uploadCheckPoint.uploadParts.get(i).isCompleted) {
                 futures.add(service.submit(new Task(i, "upload-" + i, uploadCheckPoint, i, uploadFileRequest,
-                        multipartOperation, listener)));
+                        multipartOperation, listener, autoTuner)));
             } else {
                 taskResults.add(new PartResult(i + 1, uploadCheckPoint.uploadParts.get(i).offset,
                         uploadCheckPoint.uploadParts.get(i).size, uploadCheckPoint.uploadParts.get(i).crc));
             }
         }
-        service.shutdown();
 
         // Waiting for parts upload complete.
-        service.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+        service.shutdownAndAwait();
         for (Future<PartResult> future : futures) {
             try {
                 PartResult tr = future.get();
@@ -515,7 +799,7 @@ public class OSSUploadOperation {
 
         public Task(int id, String name, UploadCheckPoint uploadCheckPoint, int partIndex,
                 UploadFileRequest uploadFileRequest, OSSMultipartOperation multipartOperation,
-                ProgressListener progressListener) {
+                ProgressListener progressListener, TransferAutoTuner autoTuner) {
             this.id = id;
             this.name = name;
             this.uploadCheckPoint = uploadCheckPoint;
@@ -523,10 +807,34 @@ public class OSSUploadOperation {
             this.uploadFileRequest = uploadFileRequest;
             this.multipartOperation = multipartOperation;
             this.progressListener = progressListener;
+            this.autoTuner = autoTuner;
         }
 
         @Override
         public PartResult call() throws Exception {
+            if (autoTuner == null) {
+                return uploadPart();
+            }
+
+            // Reports every attempt to the tuner, and runs the part again if it
+            // failed because of congestion.
+            for (int attempt = 1;; attempt++) {
+                long startNanos = System.nanoTime();
+                PartResult tr = uploadPart();
+                boolean congested = tr.isFailed() && TransferAutoTuner.isCongestion(tr.getException());
+                if (tr.isFailed() && !congested) {
+                    return tr;
+                }
+                autoTuner.onPartCompleted(tr.isFailed() ? 0 : uploadCheckPoint.uploadParts.get(partIndex).size,
+                        startNanos, congested);
+                if (!congested || attempt >= TransferAutoTuner.MAX_PART_ATTEMPTS) {
+                    return tr;
+                }
+                TransferAutoTuner.pauseBeforeRetry(attempt);
+            }
+        }
+
+        private PartResult uploadPart() throws Exception {
             PartResult tr = null;
             InputStream instream = null;
 
@@ -534,6 +842,23 @@ public class OSSUploadOperation {
                 UploadPart uploadPart = uploadCheckPoint.uploadParts.get(partIndex);
                 tr = new PartResult(partIndex + 1, uploadPart.offset, uploadPart.size);
 
+                // Skips the part already uploaded with the same content.
+                PartSummary serverPart = uploadCheckPoint.serverParts != null
+                        ? uploadCheckPoint.serverParts.get(uploadPart.number) : null;
+                if (serverPart != null && serverPart.getSize() == uploadPart.size) {
+                    Long partCRC = matchServerPart(uploadCheckPoint.uploadFile, uploadPart, serverPart);
+                    if (partCRC != null) {
+                        tr.setPartCRC(partCRC);
+                        uploadPart.crc = partCRC;
+                        uploadCheckPoint.update(partIndex, new PartETag(uploadPart.number, serverPart.getETag()), true);
+                        if (uploadFileRequest.isEnableCheckpoint()) {
+                            uploadCheckPoint.dump(uploadFileRequest.getCheckpointFile());
+                        }
+                        ProgressPublisher.publishRequestBytesTransferred(progressListener, uploadPart.size);
+                        return tr;
+                    }
+                }
+
                 instream = new FileInputStream(uploadCheckPoint.uploadFile);
                 instream.skip(uploadPart.offset);
 
@@ -589,6 +914,7 @@ public class OSSUploadOperation {
         private UploadFileRequest uploadFileRequest;
         private OSSMultipartOperation multipartOperation;
         private ProgressListener progressListener;
+        private TransferAutoTuner autoTuner;
     }
 
     private CompleteMultipartUploadResult complete(UploadCheckPoint uploadCheckPoint,
@@ -664,4 +990,6 @@ public class OSSUploadOperation {
     }
 
     protected OSSMultipartOperation multipartOperation;
+    protected OSSObjectOperation objectOperation;
+    private SharedTransferExecutor transferExecutor;
 }
@@ -70,6 +70,20 @@ public class OSSUploadOperationEncrypted extends OSSUploadOperation {
         }
     }
 
+    /**
+     * Rejects resuming from the server: the crypto context of an upload is
+     * only known to the checkpoint that initiated it, and the parts on the
+     * server are ciphertext that can not be matched with the file.
+     */
+    @Override
+    public UploadFileResult uploadFile(UploadFileRequest uploadFileRequest) throws Throwable {
+        if (uploadFileRequest != null && uploadFileRequest.isResumeFromServer()) {
+            throw new ClientException("Encryption client error, resumeFromServer is not supported by the "
+                    + "encryption client. Please use a checkpoint file to resume the upload.");
+        }
+        return super.uploadFile(uploadFileRequest);
+    }
+
     @Override
     public UploadCheckPoint createUploadCheckPointWrap() {
         return new UploadCheckPointEncryption();
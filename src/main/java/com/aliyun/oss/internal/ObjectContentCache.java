@@ -0,0 +1,758 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static com.aliyun.oss.common.utils.IOUtils.safeClose;
+import static com.aliyun.oss.common.utils.LogUtils.getLog;
+import static com.aliyun.oss.common.utils.LogUtils.logException;
+import static com.aliyun.oss.internal.OSSUtils.OSS_RESOURCE_MANAGER;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.common.utils.BinaryUtil;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.Payer;
+
+/**
+ * A two-tier cache of object content in front of getObject.
+ * <p>
+ * The memory tier is a segmented LRU bounded by bytes: a new entry enters the
+ * probation segment, and moves to the protected segment on its second hit, so
+ * one scan of cold objects does not flush the hot ones. The optional disk tier
+ * keeps every entry written to memory in a file of its own, and deletes the
+ * least recently used files beyond its size. Entries are keyed by object,
+ * version and range.
+ * <p>
+ * An entry older than the TTL is revalidated by a GetObject with
+ * If-None-Match, so an unchanged object costs a 304 without a body. Content
+ * fetched while its object is invalidated is returned but not cached.
+ */
+public class ObjectContentCache {
+
+    private static final int DISK_MAGIC = 0x4F434331;
+
+    static class Entry {
+        final String cacheKey;
+        final Map<String, Object> rawMetadata;
+        final Map<String, String> userMetadata;
+        final byte[] content;
+        volatile long validatedAt;
+
+        Entry(String cacheKey, Map<String, Object> rawMetadata, Map<String, String> userMetadata, byte[] content,
+                long validatedAt) {
+            this.cacheKey = cacheKey;
+            this.rawMetadata = rawMetadata;
+            this.userMetadata = userMetadata;
+            this.content = content;
+            this.validatedAt = validatedAt;
+        }
+
+        String getETag() {
+            return (String) rawMetadata.get(OSSHeaders.ETAG);
+        }
+    }
+
+    private final OSSObjectOperation objectOperation;
+    private final long memoryBytes;
+    private final long maxObjectSize;
+    private final long ttl;
+    private final boolean crcCheckEnabled;
+    private final MemoryTier memory;
+    private final DiskTier disk;
+    private volatile RequestCoalescer coalescer;
+    private final InvalidationFence fence = new InvalidationFence();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong diskHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong revalidationCount = new AtomicLong();
+    private final AtomicLong notModifiedCount = new AtomicLong();
+    private final AtomicLong uncachedCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public ObjectContentCache(OSSObjectOperation objectOperation, ClientConfiguration config) {
+        this.objectOperation = objectOperation;
+        this.memoryBytes = config.getObjectCacheMemoryBytes();
+        this.maxObjectSize = Math.min(config.getObjectCacheMaxObjectSize(), Integer.MAX_VALUE);
+        this.ttl = config.getObjectCacheTtl();
+        this.crcCheckEnabled = config.isCrcCheckEnabled();
+        this.memory = new MemoryTier(memoryBytes);
+        this.disk = config.getObjectCacheDirectory() != null
+                ? new DiskTier(new File(config.getObjectCacheDirectory()), config.getObjectCacheDiskBytes()) : null;
+    }
+
+    /**
+     * Sends the requests of cache misses and revalidations through the
+     * coalescer, so concurrent misses of one object share a request.
+     */
+    public void setRequestCoalescer(RequestCoalescer coalescer) {
+        this.coalescer = coalescer;
+    }
+
+    protected OSSObject getObjectWrap(GetObjectRequest getObjectRequest) {
+        if (coalescer != null) {
+            return coalescer.getObject(getObjectRequest);
+        }
+        return objectOperation.getObject(getObjectRequest);
+    }
+
+    /**
+     * Checks if the response of the request depends on nothing but the
+     * object, the version and the range.
+     */
+    public static boolean isCacheable(GetObjectRequest request) {
+        return request.getAbsoluteUri() == null && request.getProcess() == null
+                && request.getResponseHeaders() == null && isEmpty(request.getMatchingETagConstraints())
+                && isEmpty(request.getNonmatchingETagConstraints()) && request.getModifiedSinceConstraint() == null
+                && request.getUnmodifiedSinceConstraint() == null && isEmpty(request.getHeaders())
+                && isEmpty(request.getParameters());
+    }
+
+    private static boolean isEmpty(List<String> list) {
+        return list == null || list.isEmpty();
+    }
+
+    private static boolean isEmpty(Map<String, String> map) {
+        return map == null || map.isEmpty();
+    }
+
+    private static String objectKey(String bucketName, String key) {
+        return bucketName + "/" + key;
+    }
+
+    private static String variant(GetObjectRequest request) {
+        long[] range = request.getRange();
+        return "versionId=" + request.getVersionId() + "&range="
+                + (range != null ? range[0] + "-" + range[1] : "");
+    }
+
+    public OSSObject getObject(GetObjectRequest request) throws OSSException, ClientException {
+        String objectKey = objectKey(request.getBucketName(), request.getKey());
+        String variant = variant(request);
+        String cacheKey = objectKey + "\n" + variant;
+        long generation = fence.generation();
+
+        Entry entry = memory.get(cacheKey);
+        boolean fromDisk = false;
+        if (entry == null && disk != null) {
+            entry = disk.read(objectKey, variant, cacheKey);
+            if (entry != null) {
+                fromDisk = true;
+                store(objectKey, variant, entry, generation, false);
+            }
+        }
+
+        if (entry != null) {
+            long now = System.currentTimeMillis();
+            if (now - entry.validatedAt < ttl) {
+                hitCount.incrementAndGet();
+                if (fromDisk) {
+                    diskHitCount.incrementAndGet();
+                }
+                return toOSSObject(request, entry);
+            }
+
+            revalidationCount.incrementAndGet();
+            OSSObject ossObject;
+            try {
+                ossObject = getObjectWrap(newRevalidationRequest(request, entry.getETag()));
+            } catch (OSSException e) {
+                if (!OSSErrorCode.NOT_MODIFIED.equals(e.getErrorCode())) {
+                    throw e;
+                }
+                entry.validatedAt = now;
+                notModifiedCount.incrementAndGet();
+                hitCount.incrementAndGet();
+                if (fromDisk) {
+                    diskHitCount.incrementAndGet();
+                }
+                return toOSSObject(request, entry);
+            }
+            missCount.incrementAndGet();
+            return fill(request, objectKey, variant, cacheKey, ossObject, generation);
+        }
+
+        missCount.incrementAndGet();
+        return fill(request, objectKey, variant, cacheKey, getObjectWrap(request), generation);
+    }
+
+    private static GetObjectRequest newRevalidationRequest(GetObjectRequest request, String eTag) {
+        GetObjectRequest revalidationRequest = new GetObjectRequest(request.getBucketName(), request.getKey(),
+                request.getVersionId());
+        long[] range = request.getRange();
+        if (range != null) {
+            revalidationRequest.setRange(range[0], range[1]);
+        }
+        revalidationRequest.setNonmatchingETagConstraints(Collections.singletonList(eTag));
+        Payer payer = request.getRequestPayer();
+        if (payer != null) {
+            revalidationRequest.setRequestPayer(payer);
+        }
+        if (request.getTrafficLimit() > 0) {
+            revalidationRequest.setTrafficLimit(request.getTrafficLimit());
+        }
+        return revalidationRequest;
+    }
+
+    /**
+     * Reads the content of a response into a new entry, unless it is too big
+     * to be cached.
+     */
+    private OSSObject fill(GetObjectRequest request, String objectKey, String variant, String cacheKey,
+            OSSObject ossObject, long generation) {
+        ObjectMetadata metadata = ossObject.getObjectMetadata();
+        long length = metadata.getContentLength();
+        if (length < 0 || length > maxObjectSize || length > memoryBytes) {
+            uncachedCount.incrementAndGet();
+            return ossObject;
+        }
+
+        InputStream content = ossObject.getObjectContent();
+        byte[] data = new byte[(int) length];
+        try {
+            if (IOUtils.readNBytes(content, data, 0, data.length) != data.length) {
+                throw new IOException("The content of " + request.getKey() + " is shorter than " + length + ".");
+            }
+        } catch (IOException e) {
+            logException("Cannot read object content stream: ", e);
+            throw new ClientException(OSS_RESOURCE_MANAGER.getString("CannotReadContentStream"), e);
+        } finally {
+            safeClose(content);
+        }
+        if (crcCheckEnabled && request.getRange() == null) {
+            OSSUtils.checkChecksum(IOUtils.getCRCValue(content), metadata.getServerCRC(), metadata.getRequestId());
+        }
+
+        Entry entry = new Entry(cacheKey, new HashMap<String, Object>(metadata.getRawMetadata()),
+                new HashMap<String, String>(metadata.getUserMetadata()), data, System.currentTimeMillis());
+        store(objectKey, variant, entry, generation, true);
+        return toOSSObject(request, entry);
+    }
+
+    /**
+     * Caches the entry unless its object was invalidated since the given
+     * generation. An invalidation that races with the store either is seen by
+     * the check after it, or drops the entry itself.
+     */
+    private void store(String objectKey, String variant, Entry entry, long generation, boolean toDisk) {
+        if (!fence.isCurrent(objectKey, generation)) {
+            return;
+        }
+        memory.put(entry);
+        if (toDisk && disk != null) {
+            disk.write(objectKey, variant, entry);
+        }
+        if (!fence.isCurrent(objectKey, generation)) {
+            removeAll(objectKey);
+        }
+    }
+
+    private static OSSObject toOSSObject(GetObjectRequest request, Entry entry) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        for (Map.Entry<String, Object> header : entry.rawMetadata.entrySet()) {
+            metadata.setHeader(header.getKey(), header.getValue());
+        }
+        metadata.setUserMetadata(new HashMap<String, String>(entry.userMetadata));
+
+        OSSObject ossObject = new OSSObject();
+        ossObject.setBucketName(request.getBucketName());
+        ossObject.setKey(request.getKey());
+        ossObject.setObjectMetadata(metadata);
+        ossObject.setObjectContent(new ByteArrayInputStream(entry.content));
+        ossObject.setRequestId(metadata.getRequestId());
+        return ossObject;
+    }
+
+    /**
+     * Drops the cached content of all the versions and ranges of an object.
+     */
+    public void invalidate(String bucketName, String key) {
+        String objectKey = objectKey(bucketName, key);
+        fence.invalidate(objectKey);
+        removeAll(objectKey);
+    }
+
+    private void removeAll(String objectKey) {
+        memory.removeAll(objectKey + "\n");
+        if (disk != null) {
+            disk.removeAll(objectKey);
+        }
+    }
+
+    /**
+     * Drops all the cached content of the memory tier.
+     */
+    public void clear() {
+        memory.removeAll("");
+    }
+
+    /**
+     * Gets the number of getObject calls served from the cache, the ones
+     * revalidated by a 304 included.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of hits read back from the disk tier.
+     */
+    public long getDiskHitCount() {
+        return diskHitCount.get();
+    }
+
+    /**
+     * Gets the number of getObject calls that transferred the content.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of If-None-Match revalidations.
+     */
+    public long getRevalidationCount() {
+        return revalidationCount.get();
+    }
+
+    /**
+     * Gets the number of revalidations answered by 304 Not Modified.
+     */
+    public long getNotModifiedCount() {
+        return notModifiedCount.get();
+    }
+
+    /**
+     * Gets the number of responses too big to be cached.
+     */
+    public long getUncachedCount() {
+        return uncachedCount.get();
+    }
+
+    /**
+     * Gets the number of entries evicted from the memory tier.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Gets the bytes of content held by the memory tier.
+     */
+    public long getMemoryBytes() {
+        return memory.getBytes();
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectContentCache [hits=" + getHitCount() + ", diskHits=" + getDiskHitCount() + ", misses="
+                + getMissCount() + ", revalidations=" + getRevalidationCount() + ", notModified="
+                + getNotModifiedCount() + ", uncached=" + getUncachedCount() + ", evictions=" + getEvictionCount()
+                + ", memoryBytes=" + getMemoryBytes() + "]";
+    }
+
+    /**
+     * A segmented LRU bounded by the bytes of content. The protected segment
+     * takes up to 80% of it.
+     */
+    class MemoryTier {
+        private final long maxBytes;
+        private final long maxProtectedBytes;
+        private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<String, Entry>();
+        private final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<String, Entry>();
+        private final Lock lock = new ReentrantLock();
+        private long probationBytes;
+        private long protectedBytes;
+
+        MemoryTier(long maxBytes) {
+            this.maxBytes = maxBytes;
+            this.maxProtectedBytes = maxBytes / 5 * 4;
+        }
+
+        Entry get(String cacheKey) {
+            lock.lock();
+            try {
+                Entry entry = protectedSegment.remove(cacheKey);
+                if (entry != null) {
+                    protectedSegment.put(cacheKey, entry);
+                    return entry;
+                }
+                entry = probation.remove(cacheKey);
+                if (entry == null) {
+                    return null;
+                }
+                probationBytes -= entry.content.length;
+                protectedSegment.put(cacheKey, entry);
+                protectedBytes += entry.content.length;
+                // Overflow of the protected segment goes back to probation.
+                while (protectedBytes > maxProtectedBytes) {
+                    Entry demoted = removeEldest(protectedSegment);
+                    protectedBytes -= demoted.content.length;
+                    probation.put(demoted.cacheKey, demoted);
+                    probationBytes += demoted.content.length;
+                }
+                evict();
+                return entry;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void put(Entry entry) {
+            lock.lock();
+            try {
+                remove(entry.cacheKey);
+                if (entry.content.length > maxBytes) {
+                    return;
+                }
+                probation.put(entry.cacheKey, entry);
+                probationBytes += entry.content.length;
+                evict();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void evict() {
+            while (probationBytes + protectedBytes > maxBytes) {
+                if (!probation.isEmpty()) {
+                    probationBytes -= removeEldest(probation).content.length;
+                } else {
+                    protectedBytes -= removeEldest(protectedSegment).content.length;
+                }
+                evictionCount.incrementAndGet();
+            }
+        }
+
+        private Entry removeEldest(LinkedHashMap<String, Entry> segment) {
+            Iterator<Entry> it = segment.values().iterator();
+            Entry eldest = it.next();
+            it.remove();
+            return eldest;
+        }
+
+        private void remove(String cacheKey) {
+            Entry entry = probation.remove(cacheKey);
+            if (entry != null) {
+                probationBytes -= entry.content.length;
+            }
+            entry = protectedSegment.remove(cacheKey);
+            if (entry != null) {
+                protectedBytes -= entry.content.length;
+            }
+        }
+
+        void removeAll(String prefix) {
+            lock.lock();
+            try {
+                for (Iterator<Entry> it = probation.values().iterator(); it.hasNext();) {
+                    Entry entry = it.next();
+                    if (entry.cacheKey.startsWith(prefix)) {
+                        probationBytes -= entry.content.length;
+                        it.remove();
+                    }
+                }
+                for (Iterator<Entry> it = protectedSegment.values().iterator(); it.hasNext();) {
+                    Entry entry = it.next();
+                    if (entry.cacheKey.startsWith(prefix)) {
+                        protectedBytes -= entry.content.length;
+                        it.remove();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long getBytes() {
+            lock.lock();
+            try {
+                return probationBytes + protectedBytes;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * One file per entry, named by the MD5 of the object and of the variant so
+     * that the files of an object can be found by prefix. Files are written to
+     * a temporary file and renamed, so that the processes sharing the
+     * directory never read a partial one. A file that cannot be read is
+     * deleted and counts as a miss.
+     */
+    static class DiskTier {
+        private final File directory;
+        private final long maxBytes;
+        private final LinkedHashMap<String, Long> files = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        private final Lock lock = new ReentrantLock();
+        private long bytes;
+
+        DiskTier(File directory, long maxBytes) {
+            this.directory = directory;
+            this.maxBytes = maxBytes;
+            directory.mkdirs();
+
+            // Rebuilds the LRU order from the files left by earlier clients.
+            File[] existing = directory.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.endsWith(".entry");
+                }
+            });
+            if (existing != null) {
+                Arrays.sort(existing, new Comparator<File>() {
+                    @Override
+                    public int compare(File f1, File f2) {
+                        long d = f1.lastModified() - f2.lastModified();
+                        return d < 0 ? -1 : (d > 0 ? 1 : 0);
+                    }
+                });
+                for (File file : existing) {
+                    files.put(file.getName(), file.length());
+                    bytes += file.length();
+                }
+            }
+        }
+
+        private static String md5(String value) {
+            try {
+                return BinaryUtil.encodeMD5(value.getBytes(OSSConstants.DEFAULT_CHARSET_NAME));
+            } catch (UnsupportedEncodingException e) {
+                throw new ClientException(e);
+            }
+        }
+
+        private static String prefix(String objectKey) {
+            return md5(objectKey) + "-";
+        }
+
+        private static String fileName(String objectKey, String variant) {
+            return prefix(objectKey) + md5(variant) + ".entry";
+        }
+
+        Entry read(String objectKey, String variant, String cacheKey) {
+            String name = fileName(objectKey, variant);
+            File file = new File(directory, name);
+            if (!file.isFile()) {
+                forget(name);
+                return null;
+            }
+
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                Entry entry = readEntry(in, maxBytes);
+                if (!cacheKey.equals(entry.cacheKey)) {
+                    return null;
+                }
+                file.setLastModified(System.currentTimeMillis());
+                touch(name, file.length());
+                return entry;
+            } catch (IOException e) {
+                getLog().warn("Cannot read cache file " + file + ": " + e.getMessage());
+                safeClose(in);
+                in = null;
+                file.delete();
+                forget(name);
+                return null;
+            } finally {
+                safeClose(in);
+            }
+        }
+
+        void write(String objectKey, String variant, Entry entry) {
+            String name = fileName(objectKey, variant);
+            File tmp = null;
+            DataOutputStream out = null;
+            try {
+                tmp = File.createTempFile(name, ".tmp", directory);
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+                writeEntry(out, entry);
+                out.close();
+                out = null;
+
+                File file = new File(directory, name);
+                if (!tmp.renameTo(file)) {
+                    file.delete();
+                    if (!tmp.renameTo(file)) {
+                        throw new IOException("Cannot rename " + tmp + " to " + file);
+                    }
+                }
+                touch(name, file.length());
+            } catch (IOException e) {
+                getLog().warn("Cannot write cache file " + name + ": " + e.getMessage());
+                if (out != null) {
+                    try {
+                        out.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+                if (tmp != null) {
+                    tmp.delete();
+                }
+            }
+        }
+
+        private void touch(String name, long length) {
+            lock.lock();
+            try {
+                Long old = files.put(name, length);
+                bytes += length - (old != null ? old : 0);
+                Iterator<Map.Entry<String, Long>> it = files.entrySet().iterator();
+                while (bytes > maxBytes && it.hasNext()) {
+                    Map.Entry<String, Long> eldest = it.next();
+                    if (eldest.getKey().equals(name)) {
+                        continue;
+                    }
+                    new File(directory, eldest.getKey()).delete();
+                    bytes -= eldest.getValue();
+                    it.remove();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void forget(String name) {
+            lock.lock();
+            try {
+                Long old = files.remove(name);
+                if (old != null) {
+                    bytes -= old;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void removeAll(String objectKey) {
+            final String prefix = prefix(objectKey);
+            File[] matched = directory.listFiles(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.startsWith(prefix) && name.endsWith(".entry");
+                }
+            });
+            if (matched == null) {
+                return;
+            }
+            for (File file : matched) {
+                file.delete();
+                forget(file.getName());
+            }
+        }
+
+        static void writeEntry(DataOutputStream out, Entry entry) throws IOException {
+            out.writeInt(DISK_MAGIC);
+            out.writeUTF(entry.cacheKey);
+            out.writeLong(entry.validatedAt);
+            out.writeInt(entry.rawMetadata.size());
+            for (Map.Entry<String, Object> header : entry.rawMetadata.entrySet()) {
+                out.writeUTF(header.getKey());
+                Object value = header.getValue();
+                if (value instanceof Date) {
+                    out.writeByte('D');
+                    out.writeLong(((Date) value).getTime());
+                } else if (value instanceof Long) {
+                    out.writeByte('L');
+                    out.writeLong((Long) value);
+                } else {
+                    out.writeByte('S');
+                    out.writeUTF(String.valueOf(value));
+                }
+            }
+            out.writeInt(entry.userMetadata.size());
+            for (Map.Entry<String, String> meta : entry.userMetadata.entrySet()) {
+                out.writeUTF(meta.getKey());
+                out.writeUTF(meta.getValue());
+            }
+            out.writeInt(entry.content.length);
+            out.write(entry.content);
+        }
+
+        static Entry readEntry(DataInputStream in, long maxLength) throws IOException {
+            if (in.readInt() != DISK_MAGIC) {
+                throw new IOException("Not a cache file.");
+            }
+            String cacheKey = in.readUTF();
+            long validatedAt = in.readLong();
+            int count = in.readInt();
+            Map<String, Object> rawMetadata = new HashMap<String, Object>();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                byte type = in.readByte();
+                if (type == 'D') {
+                    rawMetadata.put(key, new Date(in.readLong()));
+                } else if (type == 'L') {
+                    rawMetadata.put(key, in.readLong());
+                } else {
+                    rawMetadata.put(key, in.readUTF());
+                }
+            }
+            count = in.readInt();
+            Map<String, String> userMetadata = new HashMap<String, String>();
+            for (int i = 0; i < count; i++) {
+                userMetadata.put(in.readUTF(), in.readUTF());
+            }
+            // The length is checked before it's allocated, a damaged file must
+            // not make the read run out of memory.
+            int length = in.readInt();
+            Object recorded = rawMetadata.get(OSSHeaders.CONTENT_LENGTH);
+            if (length < 0 || length > maxLength
+                    || (recorded instanceof Long && ((Long) recorded).longValue() != length)) {
+                throw new IOException("Invalid content length " + length + ".");
+            }
+            byte[] content = new byte[length];
+            in.readFully(content);
+            return new Entry(cacheKey, rawMetadata, userMetadata, content, validatedAt);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.model.GenericRequest;
+import com.aliyun.oss.model.HeadObjectRequest;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.SimplifiedObjectMeta;
+
+/**
+ * A cache of the results of headObject, getObjectMetadata,
+ * getSimplifiedObjectMeta and doesObjectExist.
+ * <p>
+ * Results are kept for the TTL, and a NoSuchKey or NoSuchBucket error for the
+ * shorter negative TTL, during which the calls throw a copy of the error, or
+ * return false for doesObjectExist, without a request. The cache holds up to
+ * maxEntries objects, each with the results of its versions, and drops the
+ * least recently used object beyond that. Callers get copies, so changing a
+ * returned result does not change the cache. A result fetched while its object
+ * is invalidated is returned but not cached.
+ */
+public class ObjectMetadataCache {
+
+    private static final String HEAD = "head";
+    private static final String META = "meta";
+    private static final String SIMPLIFIED = "simplified";
+    private static final String NOT_FOUND = "notFound";
+
+    static class Entry {
+        final Object value;
+        final long expiresAt;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final OSSObjectOperation objectOperation;
+    private final int maxEntries;
+    private final long ttl;
+    private final long negativeTtl;
+    private volatile RequestCoalescer coalescer;
+    private final Lock lock = new ReentrantLock();
+    private final InvalidationFence fence = new InvalidationFence();
+    private final LinkedHashMap<String, Map<String, Entry>> objects = new LinkedHashMap<String, Map<String, Entry>>(
+            16, 0.75f, true);
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong negativeHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public ObjectMetadataCache(OSSObjectOperation objectOperation, ClientConfiguration config) {
+        this.objectOperation = objectOperation;
+        this.maxEntries = config.getObjectMetadataCacheMaxEntries();
+        this.ttl = config.getObjectMetadataCacheTtl();
+        this.negativeTtl = config.getObjectMetadataCacheNegativeTtl();
+    }
+
+    /**
+     * Sends the headObject requests of cache misses through the coalescer, so
+     * concurrent misses of one object share a request.
+     */
+    public void setRequestCoalescer(RequestCoalescer coalescer) {
+        this.coalescer = coalescer;
+    }
+
+    protected ObjectMetadata headObjectWrap(HeadObjectRequest headObjectRequest) {
+        if (coalescer != null && RequestCoalescer.isCoalescable(headObjectRequest)) {
+            return coalescer.headObject(headObjectRequest);
+        }
+        return objectOperation.headObject(headObjectRequest);
+    }
+
+    protected ObjectMetadata getObjectMetadataWrap(GenericRequest genericRequest) {
+        return objectOperation.getObjectMetadata(genericRequest);
+    }
+
+    protected SimplifiedObjectMeta getSimplifiedObjectMetaWrap(GenericRequest genericRequest) {
+        return objectOperation.getSimplifiedObjectMeta(genericRequest);
+    }
+
+    private static String objectKey(String bucketName, String key) {
+        return bucketName + "/" + key;
+    }
+
+    private static String variant(String kind, String versionId) {
+        return kind + "?versionId=" + versionId;
+    }
+
+    private static boolean isNotFound(OSSException e) {
+        return OSSErrorCode.NO_SUCH_KEY.equals(e.getErrorCode()) || OSSErrorCode.NO_SUCH_BUCKET.equals(e.getErrorCode());
+    }
+
+    public ObjectMetadata headObject(HeadObjectRequest request) throws OSSException, ClientException {
+        if (!request.getMatchingETagConstraints().isEmpty() || !request.getNonmatchingETagConstraints().isEmpty()
+                || request.getModifiedSinceConstraint() != null || request.getUnmodifiedSinceConstraint() != null) {
+            return headObjectWrap(request);
+        }
+        String objectKey = objectKey(request.getBucketName(), request.getKey());
+        String versionId = request.getVersionId();
+
+        Object cached = lookup(objectKey, HEAD, versionId);
+        if (cached != null) {
+            return copyOf((ObjectMetadata) cached);
+        }
+        long generation = fence.generation();
+        try {
+            ObjectMetadata metadata = headObjectWrap(request);
+            store(objectKey, variant(HEAD, versionId), copyOf(metadata), ttl, generation);
+            return metadata;
+        } catch (OSSException e) {
+            storeNotFound(objectKey, versionId, e, generation);
+            throw e;
+        }
+    }
+
+    public ObjectMetadata getObjectMetadata(GenericRequest request) throws OSSException, ClientException {
+        String objectKey = objectKey(request.getBucketName(), request.getKey());
+        String versionId = request.getVersionId();
+
+        Object cached = lookup(objectKey, META, versionId);
+        if (cached != null) {
+            return copyOf((ObjectMetadata) cached);
+        }
+        long generation = fence.generation();
+        try {
+            ObjectMetadata metadata = getObjectMetadataWrap(request);
+            store(objectKey, variant(META, versionId), copyOf(metadata), ttl, generation);
+            return metadata;
+        } catch (OSSException e) {
+            storeNotFound(objectKey, versionId, e, generation);
+            throw e;
+        }
+    }
+
+    public SimplifiedObjectMeta getSimplifiedObjectMeta(GenericRequest request) throws OSSException, ClientException {
+        String objectKey = objectKey(request.getBucketName(), request.getKey());
+        String versionId = request.getVersionId();
+
+        Object cached = lookup(objectKey, SIMPLIFIED, versionId);
+        if (cached != null) {
+            return copyOf((SimplifiedObjectMeta) cached);
+        }
+        long generation = fence.generation();
+        try {
+            SimplifiedObjectMeta meta = getSimplifiedObjectMetaWrap(request);
+            store(objectKey, variant(SIMPLIFIED, versionId), copyOf(meta), ttl, generation);
+            return meta;
+        } catch (OSSException e) {
+            storeNotFound(objectKey, versionId, e, generation);
+            throw e;
+        }
+    }
+
+    /**
+     * Answers from any result cached for the object version, and sends a
+     * GetObjectMeta otherwise.
+     */
+    public boolean doesObjectExist(GenericRequest request) throws OSSException, ClientException {
+        String objectKey = objectKey(request.getBucketName(), request.getKey());
+        String versionId = request.getVersionId();
+
+        lock.lock();
+        try {
+            Map<String, Entry> entries = objects.get(objectKey);
+            if (entries != null) {
+                long now = System.currentTimeMillis();
+                if (isFresh(entries.get(variant(NOT_FOUND, versionId)), now)) {
+                    negativeHitCount.incrementAndGet();
+                    return false;
+                }
+                for (String kind : new String[] { SIMPLIFIED, META, HEAD }) {
+                    if (isFresh(entries.get(variant(kind, versionId)), now)) {
+                        hitCount.incrementAndGet();
+                        return true;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            getSimplifiedObjectMeta(request);
+            return true;
+        } catch (OSSException e) {
+            if (isNotFound(e)) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isFresh(Entry entry, long now) {
+        return entry != null && entry.expiresAt > now;
+    }
+
+    /**
+     * Gets the cached result of the given kind, or throws the cached not found
+     * error, or returns null on a miss.
+     */
+    private Object lookup(String objectKey, String kind, String versionId) {
+        OSSException notFound = null;
+        lock.lock();
+        try {
+            Map<String, Entry> entries = objects.get(objectKey);
+            if (entries != null) {
+                long now = System.currentTimeMillis();
+                Entry entry = entries.get(variant(NOT_FOUND, versionId));
+                if (isFresh(entry, now)) {
+                    notFound = (OSSException) entry.value;
+                } else {
+                    entry = entries.get(variant(kind, versionId));
+                    if (isFresh(entry, now)) {
+                        hitCount.incrementAndGet();
+                        return entry.value;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (notFound != null) {
+            negativeHitCount.incrementAndGet();
+            // A new exception for every caller, with the stack of this call.
+            throw new OSSException(notFound.getErrorMessage(), notFound.getErrorCode(), notFound.getRequestId(),
+                    notFound.getHostId(), notFound.getHeader(), notFound.getResourceType(), notFound.getMethod(),
+                    notFound.getRawResponseError());
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    private void storeNotFound(String objectKey, String versionId, OSSException e, long generation) {
+        if (isNotFound(e) && negativeTtl > 0 && fence.isCurrent(objectKey, generation)) {
+            lock.lock();
+            try {
+                // A result of another kind would say the object exists.
+                Map<String, Entry> entries = objects.get(objectKey);
+                if (entries != null) {
+                    entries.remove(variant(HEAD, versionId));
+                    entries.remove(variant(META, versionId));
+                    entries.remove(variant(SIMPLIFIED, versionId));
+                }
+            } finally {
+                lock.unlock();
+            }
+            store(objectKey, variant(NOT_FOUND, versionId), e, negativeTtl, generation);
+        }
+    }
+
+    private void store(String objectKey, String variant, Object value, long entryTtl, long generation) {
+        if (entryTtl <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            // Checked under the lock, so an invalidation is either seen here or
+            // drops the entry after it is stored.
+            if (!fence.isCurrent(objectKey, generation)) {
+                return;
+            }
+            Map<String, Entry> entries = objects.get(objectKey);
+            if (entries == null) {
+                entries = new HashMap<String, Entry>();
+                objects.put(objectKey, entries);
+            }
+            if (!variant.startsWith(NOT_FOUND)) {
+                entries.remove(NOT_FOUND + variant.substring(variant.indexOf('?')));
+            }
+            entries.put(variant, new Entry(value, System.currentTimeMillis() + entryTtl));
+
+            Iterator<Map<String, Entry>> it = objects.values().iterator();
+            while (objects.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
+                evictionCount.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the cached results of all the versions of an object.
+     */
+    public void invalidate(String bucketName, String key) {
+        lock.lock();
+        try {
+            fence.invalidate(objectKey(bucketName, key));
+            if (objects.remove(objectKey(bucketName, key)) != null) {
+                invalidationCount.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all the cached results.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            objects.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static ObjectMetadata copyOf(ObjectMetadata metadata) {
+        ObjectMetadata copy = new ObjectMetadata();
+        for (Map.Entry<String, Object> header : metadata.getRawMetadata().entrySet()) {
+            copy.setHeader(header.getKey(), header.getValue());
+        }
+        copy.setUserMetadata(new HashMap<String, String>(metadata.getUserMetadata()));
+        return copy;
+    }
+
+    static SimplifiedObjectMeta copyOf(SimplifiedObjectMeta meta) {
+        SimplifiedObjectMeta copy = new SimplifiedObjectMeta();
+        copy.setETag(meta.getETag());
+        copy.setSize(meta.getSize());
+        copy.setLastModified(meta.getLastModified());
+        copy.setVersionId(meta.getVersionId());
+        copy.setRequestId(meta.getRequestId());
+        return copy;
+    }
+
+    /**
+     * Gets the number of calls answered by a cached result.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of calls answered by a cached not found error.
+     */
+    public long getNegativeHitCount() {
+        return negativeHitCount.get();
+    }
+
+    /**
+     * Gets the number of calls that sent a request.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the number of objects dropped by the writes of the client.
+     */
+    public long getInvalidationCount() {
+        return invalidationCount.get();
+    }
+
+    /**
+     * Gets the number of objects dropped beyond the max entries.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Gets the number of objects with cached results.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return objects.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectMetadataCache [hits=" + getHitCount() + ", negativeHits=" + getNegativeHitCount() + ", misses="
+                + getMissCount() + ", invalidations=" + getInvalidationCount() + ", evictions=" + getEvictionCount()
+                + ", size=" + size() + "]";
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.InconsistentException;
+import com.aliyun.oss.common.utils.BufferPool;
+import com.aliyun.oss.common.utils.CRC64;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.ParallelGetObjectRequest;
+import com.aliyun.oss.model.Payer;
+
+/**
+ * Reads an object in order while the following parts are fetched by
+ * concurrent ranged GETs.
+ * <p>
+ * At most maxBufferedParts parts are fetched or held at a time, the part being
+ * read included, and a new GET starts whenever the reader moves on to the next
+ * part. Every GET is pinned to the ETag of the object, so a concurrent
+ * overwrite fails the read instead of mixing two versions. When CRC check is
+ * enabled, the CRC64 of the parts are combined in order and compared with the
+ * CRC64 of the object at the end of the stream.
+ */
+public class ParallelObjectInputStream extends InputStream {
+
+    private final OSSDownloadOperation operation;
+    private final ParallelGetObjectRequest request;
+    private final ObjectMetadata metadata;
+    private final TransferTaskExecutor executor;
+    private final boolean crcCheckEnabled;
+    private final long size;
+    private final long partSize;
+    private final int partCount;
+
+    private final LinkedList<Future<Part>> pending = new LinkedList<Future<Part>>();
+    private int nextPart;
+    private Part current;
+    private int position;
+    private Long crc = 0L;
+    private boolean eof;
+    private boolean closed;
+
+    static class Part {
+        byte[] data;
+        int length;
+        Long crc;
+    }
+
+    public ParallelObjectInputStream(OSSDownloadOperation operation, ParallelGetObjectRequest request,
+            ObjectMetadata metadata, TransferTaskExecutor executor, boolean crcCheckEnabled) {
+        this.operation = operation;
+        this.request = request;
+        this.metadata = metadata;
+        this.executor = executor;
+        this.crcCheckEnabled = crcCheckEnabled;
+        this.size = metadata.getContentLength();
+        this.partSize = request.getPartSize();
+        this.partCount = (int) ((size + partSize - 1) / partSize);
+        fetchAhead();
+    }
+
+    private void fetchAhead() {
+        int buffered = pending.size() + (current != null ? 1 : 0);
+        while (buffered < request.getMaxBufferedParts() && nextPart < partCount) {
+            pending.add(executor.submit(new FetchTask(nextPart)));
+            nextPart++;
+            buffered++;
+        }
+    }
+
+    class FetchTask implements Callable<Part> {
+        private final int index;
+
+        FetchTask(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public Part call() throws Exception {
+            long start = index * partSize;
+            int length = (int) Math.min(partSize, size - start);
+
+            GetObjectRequest getObjectRequest = new GetObjectRequest(request.getBucketName(), request.getKey());
+            getObjectRequest.setRange(start, start + length - 1);
+            getObjectRequest.setMatchingETagConstraints(Collections.singletonList(metadata.getETag()));
+            if (request.getVersionId() != null) {
+                getObjectRequest.setVersionId(request.getVersionId());
+            }
+            Payer payer = request.getRequestPayer();
+            if (payer != null) {
+                getObjectRequest.setRequestPayer(payer);
+            }
+            if (request.getTrafficLimit() > 0) {
+                getObjectRequest.setTrafficLimit(request.getTrafficLimit());
+            }
+
+            OSSObject ossObject = operation.getObjectWrap(getObjectRequest);
+            InputStream content = ossObject.getObjectContent();
+            Part part = new Part();
+            try {
+                part.data = length <= BufferPool.MAX_BUFFER_SIZE ? BufferPool.getDefault().acquire(length)
+                        : new byte[length];
+                part.length = IOUtils.readNBytes(content, part.data, 0, length);
+                if (part.length != length || content.read() != -1) {
+                    throw new IOException("The range [" + start + ", " + (start + length - 1) + "] of "
+                            + request.getKey() + " has not the expected " + length + " bytes.");
+                }
+                if (crcCheckEnabled) {
+                    part.crc = operation.getInputStreamCRCWrap(content);
+                }
+                return part;
+            } catch (IOException e) {
+                BufferPool.getDefault().release(part.data);
+                throw e;
+            } finally {
+                content.close();
+            }
+        }
+    }
+
+    /**
+     * Moves to the next part when the current one is read up, and returns
+     * false at the end of the object.
+     */
+    private boolean nextPart() throws IOException {
+        if (closed) {
+            throw new IOException("The stream has been closed.");
+        }
+        if (current != null && position < current.length) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+
+        if (current != null) {
+            BufferPool.getDefault().release(current.data);
+            current = null;
+        }
+        Future<Part> future = pending.poll();
+        if (future == null) {
+            eof = true;
+            checkCRC();
+            return false;
+        }
+
+        try {
+            current = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the part.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new ClientException(cause);
+        }
+        position = 0;
+
+        if (crc != null && current.crc != null) {
+            crc = CRC64.combine(crc, current.crc, current.length);
+        } else {
+            crc = null;
+        }
+        fetchAhead();
+        return true;
+    }
+
+    private void checkCRC() {
+        if (!crcCheckEnabled || crc == null || metadata.getServerCRC() == null) {
+            return;
+        }
+        if (!crc.equals(metadata.getServerCRC())) {
+            throw new InconsistentException(crc, metadata.getServerCRC(), metadata.getRequestId());
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextPart()) {
+            return -1;
+        }
+        return current.data[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextPart()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current != null ? current.length - position : 0;
+    }
+
+    /**
+     * Writes the rest of the object to the output, straight from the part
+     * buffers.
+     *
+     * @return The number of bytes written.
+     */
+    public long writeTo(OutputStream output) throws IOException {
+        long written = 0;
+        while (nextPart()) {
+            int n = current.length - position;
+            output.write(current.data, position, n);
+            position += n;
+            written += n;
+        }
+        return written;
+    }
+
+    /**
+     * Gets the CRC64 of the parts read so far, or null if it is not known.
+     */
+    public Long getClientCRC() {
+        return crc;
+    }
+
+    /**
+     * Cancels the GETs that are still running and releases the part buffers.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (current != null) {
+            BufferPool.getDefault().release(current.data);
+            current = null;
+        }
+        for (Future<Part> future : pending) {
+            if (!future.cancel(true) && !future.isCancelled()) {
+                try {
+                    BufferPool.getDefault().release(future.get().data);
+                } catch (Exception e) {
+                    // The part failed, there is no buffer to release.
+                }
+            }
+        }
+        pending.clear();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,551 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static com.aliyun.oss.event.ProgressPublisher.publishProgress;
+import static com.aliyun.oss.event.ProgressPublisher.publishSelectProgress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.common.utils.BufferPool;
+import com.aliyun.oss.event.ProgressEvent;
+import com.aliyun.oss.event.ProgressEventType;
+import com.aliyun.oss.event.ProgressListener;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.OutputSerialization;
+import com.aliyun.oss.model.ParallelSelectObjectRequest;
+import com.aliyun.oss.model.Payer;
+import com.aliyun.oss.model.SelectObjectException;
+import com.aliyun.oss.model.SelectObjectRequest;
+
+/**
+ * Reads the result of a select while the ranges of splits are selected by
+ * concurrent select requests.
+ * <p>
+ * At most maxBufferedRanges ranges are selected at a time, the range being
+ * read included, and a new select starts whenever the reader moves on to the
+ * next range. A range streams its result through a few pooled chunks, and its
+ * select waits while they are all unread, so the memory does not depend on the
+ * size of the result. In ordered mode the ranges are read in the order of the
+ * splits, otherwise in the order they start to return data. The first range that
+ * fails, by a request error or by the error of its end frame, fails the
+ * stream and cancels the others. The scanned bytes of the ranges are summed
+ * and published to the select progress listener of the request.
+ */
+public class ParallelSelectInputStream extends InputStream {
+
+    static final int CHUNK_SIZE = 64 * 1024;
+    static final int MAX_CHUNKS_PER_RANGE = 16;
+
+    private final OSSDownloadOperation operation;
+    private final ParallelSelectObjectRequest request;
+    private final String eTag;
+    private final TransferTaskExecutor executor;
+    private final Range[] ranges;
+    private final Future<?>[] futures;
+    private final boolean[] arrived;
+    private final LinkedBlockingQueue<Range> selected = new LinkedBlockingQueue<Range>();
+
+    private final Lock lock = new ReentrantLock();
+    private final ProgressListener listener;
+    private long scannedBytes;
+    private int selectedRanges;
+    private boolean failed;
+
+    private int nextRange;
+    private int nextOrdered;
+    private int released;
+    private Range current;
+    private Chunk chunk;
+    private int position;
+    private Throwable failure;
+    private volatile Throwable rangeFailure;
+    private volatile boolean cancelled;
+    private boolean closed;
+
+    /**
+     * A pooled buffer holding part of the result of a range. A chunk with no
+     * data ends the range.
+     */
+    static class Chunk {
+        final byte[] data;
+        final int length;
+
+        Chunk(byte[] data, int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+
+    static class Range {
+        final int index;
+        final long startSplit;
+        final long endSplit;
+        final BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<Chunk>(MAX_CHUNKS_PER_RANGE);
+        long scannedBytes;
+        volatile Throwable error;
+
+        Range(int index, long startSplit, long endSplit) {
+            this.index = index;
+            this.startSplit = startSplit;
+            this.endSplit = endSplit;
+        }
+
+        void releaseChunks() {
+            Chunk chunk;
+            while ((chunk = chunks.poll()) != null) {
+                if (chunk.data != null) {
+                    BufferPool.getDefault().release(chunk.data);
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts to select the splits [startSplit, endSplit] of the object, in
+     * ranges of splitsPerRange splits.
+     *
+     * @param eTag
+     *            The ETag every select is pinned to, or null if it is not known.
+     */
+    public ParallelSelectInputStream(OSSDownloadOperation operation, ParallelSelectObjectRequest request,
+            String eTag, long startSplit, long endSplit, long splitsPerRange, TransferTaskExecutor executor) {
+        this.operation = operation;
+        this.request = request;
+        this.eTag = eTag;
+        this.executor = executor;
+        this.listener = request.getSelectProgressListener();
+
+        int count = endSplit < startSplit ? 0 : (int) ((endSplit - startSplit) / splitsPerRange + 1);
+        this.ranges = new Range[count];
+        for (int i = 0; i < count; i++) {
+            long start = startSplit + i * splitsPerRange;
+            ranges[i] = new Range(i, start, Math.min(start + splitsPerRange - 1, endSplit));
+        }
+        this.futures = new Future<?>[count];
+        this.arrived = new boolean[count];
+
+        publishProgress(listener, ProgressEventType.SELECT_STARTED_EVENT);
+        if (count == 0) {
+            publishSelectProgress(listener, ProgressEventType.SELECT_COMPLETED_EVENT, 0);
+        }
+        selectAhead();
+    }
+
+    private void selectAhead() {
+        while (nextRange - released < request.getMaxBufferedRanges() && nextRange < ranges.length) {
+            futures[nextRange] = executor.submit(new SelectTask(ranges[nextRange]));
+            nextRange++;
+        }
+    }
+
+    SelectObjectRequest newRangeRequest(Range range) {
+        SelectObjectRequest selectObjectRequest = new SelectObjectRequest(request.getBucketName(), request.getKey());
+        selectObjectRequest.setExpression(request.getExpression());
+        selectObjectRequest.setSkipPartialDataRecord(request.isSkipPartialDataRecord());
+        selectObjectRequest.setMaxSkippedRecordsAllowed(request.getMaxSkippedRecordsAllowed());
+        selectObjectRequest.setInputSerialization(request.getInputSerialization());
+        OutputSerialization output = request.getOutputSerialization();
+        if (range.index > 0 && output.isOutputHeader()) {
+            // Only the first range writes the header line.
+            output = new OutputSerialization()
+                    .withCsvOutputFormat(output.getCsvOutputFormat())
+                    .withJsonOutputFormat(output.getJsonOutputFormat())
+                    .withKeepAllColumns(output.isKeepAllColumns())
+                    .withCrcEnabled(output.isPayloadCrcEnabled())
+                    .withOutputRawData(output.isOutputRawData())
+                    .withOutputHeader(false);
+        }
+        selectObjectRequest.setOutputSerialization(output);
+        selectObjectRequest.setSplitRange(range.startSplit, range.endSplit);
+        if (eTag != null) {
+            selectObjectRequest.setMatchingETagConstraints(Collections.singletonList(eTag));
+        } else {
+            selectObjectRequest.setMatchingETagConstraints(request.getMatchingETagConstraints());
+        }
+        selectObjectRequest.setNonmatchingETagConstraints(request.getNonmatchingETagConstraints());
+        selectObjectRequest.setModifiedSinceConstraint(request.getModifiedSinceConstraint());
+        selectObjectRequest.setUnmodifiedSinceConstraint(request.getUnmodifiedSinceConstraint());
+        if (request.getVersionId() != null) {
+            selectObjectRequest.setVersionId(request.getVersionId());
+        }
+        Payer payer = request.getRequestPayer();
+        if (payer != null) {
+            selectObjectRequest.setRequestPayer(payer);
+        }
+        if (request.getTrafficLimit() > 0) {
+            selectObjectRequest.setTrafficLimit(request.getTrafficLimit());
+        }
+        selectObjectRequest.setSelectProgressListener(new RangeProgressListener(range));
+        return selectObjectRequest;
+    }
+
+    class SelectTask implements Callable<Range> {
+        private final Range range;
+
+        SelectTask(Range range) {
+            this.range = range;
+        }
+
+        private boolean announced;
+
+        @Override
+        public Range call() throws InterruptedException {
+            try {
+                OSSObject ossObject = operation.selectObjectWrap(newRangeRequest(range));
+                InputStream content = ossObject.getObjectContent();
+                try {
+                    stream(content);
+                } finally {
+                    content.close();
+                }
+                rangeSelected(range);
+            } catch (SelectObjectException e) {
+                rangeFailed(range, new SelectObjectException(e.getErrorCode(), "Select split range ["
+                        + range.startSplit + ", " + range.endSplit + "] failed: " + e.getMessage(),
+                        e.getRequestId()));
+            } catch (InterruptedException e) {
+                // Cancelled by the reader, which drops the chunks.
+                range.releaseChunks();
+                throw e;
+            } catch (Throwable e) {
+                rangeFailed(range, e);
+            }
+            put(new Chunk(null, 0));
+            return range;
+        }
+
+        /**
+         * Copies the result into chunks, waiting while the reader is behind.
+         */
+        private void stream(InputStream content) throws IOException, InterruptedException {
+            byte[] data = BufferPool.getDefault().acquire(CHUNK_SIZE);
+            int length = 0;
+            try {
+                int n;
+                while ((n = content.read(data, length, data.length - length)) != -1) {
+                    length += n;
+                    if (length == data.length) {
+                        byte[] full = data;
+                        data = null;
+                        put(new Chunk(full, length));
+                        data = BufferPool.getDefault().acquire(CHUNK_SIZE);
+                        length = 0;
+                    }
+                }
+                if (length > 0) {
+                    byte[] last = data;
+                    data = null;
+                    put(new Chunk(last, length));
+                }
+            } finally {
+                if (data != null) {
+                    BufferPool.getDefault().release(data);
+                }
+            }
+        }
+
+        private void put(Chunk chunk) throws InterruptedException {
+            if (cancelled) {
+                if (chunk.data != null) {
+                    BufferPool.getDefault().release(chunk.data);
+                }
+                throw new InterruptedException("The select has been cancelled.");
+            }
+            range.chunks.put(chunk);
+            if (!announced) {
+                announced = true;
+                selected.add(range);
+            }
+        }
+    }
+
+    /**
+     * Sums the scanned bytes of a range into the progress of the whole select.
+     * The events a range publishes when it starts, completes or fails are left
+     * to the stream, which publishes each of them once.
+     */
+    class RangeProgressListener implements ProgressListener {
+        private final Range range;
+
+        RangeProgressListener(Range range) {
+            this.range = range;
+        }
+
+        @Override
+        public void progressChanged(ProgressEvent progressEvent) {
+            ProgressEventType eventType = progressEvent.getEventType();
+            if (eventType == ProgressEventType.SELECT_SCAN_EVENT
+                    || eventType == ProgressEventType.SELECT_COMPLETED_EVENT) {
+                rangeScanned(range, progressEvent.getBytes());
+            }
+        }
+    }
+
+    private void rangeScanned(Range range, long bytes) {
+        lock.lock();
+        try {
+            scannedBytes += bytes - range.scannedBytes;
+            range.scannedBytes = bytes;
+            if (!failed) {
+                publishSelectProgress(listener, ProgressEventType.SELECT_SCAN_EVENT, scannedBytes);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rangeSelected(Range range) {
+        lock.lock();
+        try {
+            selectedRanges++;
+            if (!failed && selectedRanges == ranges.length) {
+                publishSelectProgress(listener, ProgressEventType.SELECT_COMPLETED_EVENT, scannedBytes);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rangeFailed(Range range, Throwable error) {
+        range.error = error;
+        if (rangeFailure == null) {
+            rangeFailure = error;
+        }
+        lock.lock();
+        try {
+            if (!failed && !closed) {
+                failed = true;
+                publishProgress(listener, ProgressEventType.SELECT_FAILED_EVENT);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves to the next chunk when the current one is read up, and returns
+     * false at the end of the result.
+     */
+    private boolean nextChunk() throws IOException {
+        if (closed) {
+            throw new IOException("The stream has been closed.");
+        }
+        if (failure != null) {
+            rethrow(failure);
+        }
+        while (true) {
+            if (chunk != null && position < chunk.length) {
+                return true;
+            }
+            if (chunk != null) {
+                BufferPool.getDefault().release(chunk.data);
+                chunk = null;
+            }
+            // Any failed range fails the stream, not only the current one.
+            Throwable error = rangeFailure;
+            if (error != null) {
+                fail(error);
+            }
+            if (current == null && !nextRange()) {
+                return false;
+            }
+            Chunk next;
+            try {
+                next = current.chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the select.");
+            }
+            if (next.data == null) {
+                checkError(current);
+                current = null;
+                released++;
+                selectAhead();
+            } else {
+                chunk = next;
+                position = 0;
+            }
+        }
+    }
+
+    /**
+     * Moves to the next range that returns data, and returns false at the end
+     * of the result.
+     */
+    private boolean nextRange() throws IOException {
+        if (released == ranges.length) {
+            return false;
+        }
+
+        Range range;
+        if (request.isOrdered()) {
+            while (!arrived[nextOrdered]) {
+                Range next = takeSelected();
+                checkError(next);
+                arrived[next.index] = true;
+            }
+            range = ranges[nextOrdered++];
+        } else {
+            range = takeSelected();
+            checkError(range);
+        }
+        current = range;
+        return true;
+    }
+
+    private Range takeSelected() throws IOException {
+        try {
+            return selected.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the select.");
+        }
+    }
+
+    private void checkError(Range range) throws IOException {
+        if (range.error != null) {
+            fail(range.error);
+        }
+    }
+
+    private void fail(Throwable error) throws IOException {
+        cancelAll();
+        failure = error;
+        rethrow(failure);
+    }
+
+    private static void rethrow(Throwable cause) throws IOException {
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof IOException) {
+            throw (IOException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        throw new ClientException(cause);
+    }
+
+    private void cancelAll() {
+        cancelled = true;
+        for (int i = 0; i < futures.length; i++) {
+            if (futures[i] != null) {
+                futures[i].cancel(true);
+                futures[i] = null;
+            }
+        }
+        if (chunk != null) {
+            BufferPool.getDefault().release(chunk.data);
+            chunk = null;
+        }
+        current = null;
+        for (Range range : ranges) {
+            range.releaseChunks();
+        }
+        executor.shutdown();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+        return chunk.data[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        int n = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk.data, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return chunk != null ? chunk.length - position : 0;
+    }
+
+    /**
+     * Writes the rest of the result to the output, straight from the range
+     * chunks.
+     *
+     * @return The number of bytes written.
+     */
+    public long writeTo(OutputStream output) throws IOException {
+        long written = 0;
+        while (nextChunk()) {
+            int n = chunk.length - position;
+            output.write(chunk.data, position, n);
+            position += n;
+            written += n;
+        }
+        return written;
+    }
+
+    /**
+     * Gets the bytes scanned so far by all the ranges.
+     */
+    public long getScannedBytes() {
+        lock.lock();
+        try {
+            return scannedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Cancels the selects that are still running and drops the buffered
+     * results.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        cancelAll();
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static com.aliyun.oss.common.utils.IOUtils.safeClose;
+import static com.aliyun.oss.common.utils.LogUtils.logException;
+import static com.aliyun.oss.internal.OSSUtils.OSS_RESOURCE_MANAGER;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.HeadObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+
+/**
+ * Coalesces concurrent identical getObject and headObject calls into one
+ * request.
+ * <p>
+ * Calls are identical when they have the same bucket, key, version, range,
+ * conditional headers, process and payer. The first call sends the request;
+ * the calls arriving while it is in flight wait for it and get a copy of its
+ * metadata, or of its error. The body of a getObject is read once into a
+ * buffer and replayed to every caller when its size is within
+ * maxReplayBytes; the waiting callers of a bigger body send requests of their
+ * own, since a stream can be read only once. Calls with a signed URL, custom
+ * headers or parameters, or response header overrides are never coalesced.
+ * Once an object is invalidated, new calls no longer join the calls started
+ * before, so a client reads its own writes.
+ */
+public class RequestCoalescer {
+
+    static class Call {
+        final String objectKey;
+        final CountDownLatch done = new CountDownLatch(1);
+        ObjectMetadata metadata;
+        byte[] content;
+        RuntimeException error;
+        boolean shared = true;
+
+        Call(String objectKey) {
+            this.objectKey = objectKey;
+        }
+    }
+
+    private final OSSObjectOperation objectOperation;
+    private final int maxReplayBytes;
+    private final boolean crcCheckEnabled;
+    private final Lock lock = new ReentrantLock();
+    private final Map<String, Call> calls = new HashMap<String, Call>();
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong unsharedCount = new AtomicLong();
+
+    public RequestCoalescer(OSSObjectOperation objectOperation, ClientConfiguration config) {
+        this.objectOperation = objectOperation;
+        this.maxReplayBytes = config.getCoalescingMaxReplayBytes();
+        this.crcCheckEnabled = config.isCrcCheckEnabled();
+    }
+
+    protected OSSObject getObjectWrap(GetObjectRequest getObjectRequest) {
+        return objectOperation.getObject(getObjectRequest);
+    }
+
+    protected ObjectMetadata headObjectWrap(HeadObjectRequest headObjectRequest) {
+        return objectOperation.headObject(headObjectRequest);
+    }
+
+    /**
+     * Checks if the response of the request depends on nothing but the fields
+     * of the coalescing key.
+     */
+    public static boolean isCoalescable(GetObjectRequest request) {
+        return request.getAbsoluteUri() == null && request.getResponseHeaders() == null
+                && isEmpty(request.getHeaders()) && isEmpty(request.getParameters());
+    }
+
+    /**
+     * Checks if the response of the request depends on nothing but the fields
+     * of the coalescing key.
+     */
+    public static boolean isCoalescable(HeadObjectRequest request) {
+        return isEmpty(request.getHeaders()) && isEmpty(request.getParameters());
+    }
+
+    private static boolean isEmpty(Map<String, String> map) {
+        return map == null || map.isEmpty();
+    }
+
+    private static String time(Date date) {
+        return date != null ? String.valueOf(date.getTime()) : "";
+    }
+
+    private static String key(GetObjectRequest request) {
+        long[] range = request.getRange();
+        return "get\n" + request.getBucketName() + "\n" + request.getKey() + "\n" + request.getVersionId() + "\n"
+                + (range != null ? range[0] + "-" + range[1] : "") + "\n" + request.getMatchingETagConstraints()
+                + "\n" + request.getNonmatchingETagConstraints() + "\n"
+                + time(request.getModifiedSinceConstraint()) + "\n" + time(request.getUnmodifiedSinceConstraint())
+                + "\n" + request.getProcess() + "\n" + request.getRequestPayer() + "\n" + request.getTrafficLimit();
+    }
+
+    private static String key(HeadObjectRequest request) {
+        return "head\n" + request.getBucketName() + "\n" + request.getKey() + "\n" + request.getVersionId() + "\n"
+                + request.getMatchingETagConstraints() + "\n" + request.getNonmatchingETagConstraints() + "\n"
+                + time(request.getModifiedSinceConstraint()) + "\n" + time(request.getUnmodifiedSinceConstraint())
+                + "\n" + request.getRequestPayer();
+    }
+
+    private static String objectKey(String bucketName, String key) {
+        return bucketName + "/" + key;
+    }
+
+    public OSSObject getObject(GetObjectRequest request) throws OSSException, ClientException {
+        String key = key(request);
+        Call call = new Call(objectKey(request.getBucketName(), request.getKey()));
+        Call inFlight = join(key, call);
+        if (inFlight != call) {
+            await(inFlight);
+            if (!inFlight.shared) {
+                unsharedCount.incrementAndGet();
+                requestCount.incrementAndGet();
+                return getObjectWrap(request);
+            }
+            coalescedCount.incrementAndGet();
+            return toOSSObject(request, inFlight);
+        }
+
+        try {
+            requestCount.incrementAndGet();
+            OSSObject ossObject = getObjectWrap(request);
+            ObjectMetadata metadata = ossObject.getObjectMetadata();
+            long length = metadata.getContentLength();
+            if (length < 0 || length > maxReplayBytes) {
+                call.shared = false;
+                return ossObject;
+            }
+            call.content = readContent(request, ossObject, (int) length);
+            call.metadata = metadata;
+            return toOSSObject(request, call);
+        } catch (RuntimeException e) {
+            call.error = e;
+            throw e;
+        } finally {
+            finish(key, call);
+        }
+    }
+
+    public ObjectMetadata headObject(HeadObjectRequest request) throws OSSException, ClientException {
+        String key = key(request);
+        Call call = new Call(objectKey(request.getBucketName(), request.getKey()));
+        Call inFlight = join(key, call);
+        if (inFlight != call) {
+            await(inFlight);
+            if (!inFlight.shared) {
+                unsharedCount.incrementAndGet();
+                requestCount.incrementAndGet();
+                return headObjectWrap(request);
+            }
+            coalescedCount.incrementAndGet();
+            return ObjectMetadataCache.copyOf(inFlight.metadata);
+        }
+
+        try {
+            requestCount.incrementAndGet();
+            ObjectMetadata metadata = headObjectWrap(request);
+            call.metadata = metadata;
+            return ObjectMetadataCache.copyOf(metadata);
+        } catch (RuntimeException e) {
+            call.error = e;
+            throw e;
+        } finally {
+            finish(key, call);
+        }
+    }
+
+    /**
+     * Registers the call with the key, unless an identical call is in flight,
+     * and returns the call in flight.
+     */
+    private Call join(String key, Call call) {
+        lock.lock();
+        try {
+            Call inFlight = calls.get(key);
+            if (inFlight != null) {
+                return inFlight;
+            }
+            calls.put(key, call);
+            return call;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finish(String key, Call call) {
+        lock.lock();
+        try {
+            // The call may have been dropped by an invalidation, and replaced.
+            if (calls.get(key) == call) {
+                calls.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (call.error == null && call.shared && call.metadata == null) {
+            // The leader failed with an Error, so the others try on their own.
+            call.shared = false;
+        }
+        call.done.countDown();
+    }
+
+    /**
+     * Drops the calls in flight for an object the client has written or
+     * deleted, so that the calls arriving after the write send requests of
+     * their own. The calls that have joined them already still share them.
+     */
+    public void invalidate(String bucketName, String key) {
+        String objectKey = objectKey(bucketName, key);
+        lock.lock();
+        try {
+            Iterator<Call> it = calls.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().objectKey.equals(objectKey)) {
+                    it.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void await(Call call) {
+        try {
+            call.done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClientException("Interrupted while waiting for a coalesced request.", e);
+        }
+        RuntimeException error = call.error;
+        if (error != null) {
+            coalescedCount.incrementAndGet();
+        }
+        if (error instanceof OSSException) {
+            OSSException e = (OSSException) error;
+            // A new exception for every caller, with the stack of this call.
+            throw new OSSException(e.getErrorMessage(), e.getErrorCode(), e.getRequestId(), e.getHostId(),
+                    e.getHeader(), e.getResourceType(), e.getMethod(), e.getRawResponseError());
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private byte[] readContent(GetObjectRequest request, OSSObject ossObject, int length) {
+        InputStream content = ossObject.getObjectContent();
+        byte[] data = new byte[length];
+        try {
+            if (IOUtils.readNBytes(content, data, 0, length) != length) {
+                throw new IOException("The content of " + request.getKey() + " is shorter than " + length + ".");
+            }
+        } catch (IOException e) {
+            logException("Cannot read object content stream: ", e);
+            throw new ClientException(OSS_RESOURCE_MANAGER.getString("CannotReadContentStream"), e);
+        } finally {
+            safeClose(content);
+        }
+        if (crcCheckEnabled && request.getRange() == null) {
+            ObjectMetadata metadata = ossObject.getObjectMetadata();
+            OSSUtils.checkChecksum(IOUtils.getCRCValue(content), metadata.getServerCRC(), metadata.getRequestId());
+        }
+        return data;
+    }
+
+    private static OSSObject toOSSObject(GetObjectRequest request, Call call) {
+        ObjectMetadata metadata = ObjectMetadataCache.copyOf(call.metadata);
+        OSSObject ossObject = new OSSObject();
+        ossObject.setBucketName(request.getBucketName());
+        ossObject.setKey(request.getKey());
+        ossObject.setObjectMetadata(metadata);
+        ossObject.setObjectContent(new ByteArrayInputStream(call.content));
+        ossObject.setRequestId(metadata.getRequestId());
+        return ossObject;
+    }
+
+    /**
+     * Gets the number of requests sent by the coalescer.
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * Gets the number of calls answered by the request of another call.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Gets the number of waiting calls that sent requests of their own, since
+     * the body was too big to be shared.
+     */
+    public long getUnsharedCount() {
+        return unsharedCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "RequestCoalescer [requests=" + getRequestCount() + ", coalesced=" + getCoalescedCount()
+                + ", unshared=" + getUnsharedCount() + "]";
+    }
+}
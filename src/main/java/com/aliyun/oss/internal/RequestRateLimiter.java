@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Spaces requests evenly at a max rate, shared by the threads of a bulk
+ * operation. A caller reserves the next free slot and sleeps until it comes,
+ * so the threads do not contend while they wait. A permit may also stand for
+ * a byte, to share a bandwidth budget.
+ */
+public class RequestRateLimiter {
+
+    private final double intervalNanos;
+    private final Lock lock = new ReentrantLock();
+    private long nextFreeNanos;
+
+    public RequestRateLimiter(double permitsPerSecond) {
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * Waits until the caller may send a request.
+     */
+    public void acquire() throws InterruptedException {
+        acquire(1);
+    }
+
+    /**
+     * Waits until the caller may use the given number of permits.
+     */
+    public void acquire(long permits) throws InterruptedException {
+        long waitNanos;
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            // An idle limiter does not save up a burst.
+            long slot = Math.max(nextFreeNanos, now);
+            nextFreeNanos = slot + (long) (permits * intervalNanos);
+            waitNanos = slot - now;
+        } finally {
+            lock.unlock();
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
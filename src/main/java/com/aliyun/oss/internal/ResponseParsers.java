@@ -2035,6 +2035,9 @@ public final class ResponseParsers {
                 ps.setLastModified(DateUtil.parseIso8601Date(elem.getChildText("LastModified")));
                 ps.setETag(trimQuotes(elem.getChildText("ETag")));
                 ps.setSize(Integer.valueOf(elem.getChildText("Size")));
+                if (!isNullOrEmpty(elem.getChildText("HashCrc64ecma"))) {
+                    ps.setServerCRC(new BigInteger(elem.getChildText("HashCrc64ecma")).longValue());
+                }
 
                 partListing.addPart(ps);
             }
@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.common.utils.VirtualThreads;
+
+/**
+ * One part executor shared by all uploadFile/downloadFile calls of a client.
+ * <p>
+ * Each transfer queues its parts separately. At most maxConcurrentParts
+ * workers run at a time, and they take the next part from the transfers in
+ * round-robin order, so a transfer with many parts can not starve the others.
+ * A transfer still never runs more than its own taskNum parts at a time.
+ * Workers are started on demand and stop when no part is queued, so an idle
+ * client holds no running workers.
+ */
+public class SharedTransferExecutor {
+
+    private static final AtomicInteger executorNumber = new AtomicInteger(1);
+
+    private final int maxConcurrentParts;
+    private final ExecutorService workers;
+    private final boolean virtual;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // Transfers that have queued parts and are below their taskNum.
+    private final LinkedList<Transfer> ready = new LinkedList<Transfer>();
+    private int workerCount;
+    private int activeParts;
+    private int queuedParts;
+    private int activeTransfers;
+    private long completedParts;
+    private boolean shutdown;
+
+    public SharedTransferExecutor(int maxConcurrentParts) {
+        this(maxConcurrentParts, false);
+    }
+
+    public SharedTransferExecutor(int maxConcurrentParts, boolean virtualThreadsEnabled) {
+        if (maxConcurrentParts <= 0) {
+            throw new IllegalArgumentException("maxConcurrentParts should be positive.");
+        }
+        this.maxConcurrentParts = maxConcurrentParts;
+
+        ExecutorService virtualWorkers = virtualThreadsEnabled ? VirtualThreads.newVirtualThreadPerTaskExecutor() : null;
+        if (virtualWorkers != null) {
+            this.workers = virtualWorkers;
+            this.virtual = true;
+        } else {
+            // The pool is unbounded here, the number of workers is bounded by workerCount.
+            this.workers = Executors.newCachedThreadPool(new WorkerThreadFactory());
+            this.virtual = false;
+        }
+    }
+
+    class Transfer {
+        int taskNum;
+        final LinkedList<Runnable> queue = new LinkedList<Runnable>();
+        final Condition done = lock.newCondition();
+        int running;
+        int pending;
+        boolean inReady;
+        boolean closed;
+
+        Transfer(int taskNum) {
+            this.taskNum = taskNum;
+        }
+
+        void execute(Runnable task) {
+            lock.lock();
+            try {
+                if (shutdown || closed) {
+                    throw new RejectedExecutionException("The transfer executor has been shut down.");
+                }
+                queue.add(task);
+                pending++;
+                queuedParts++;
+                makeReady(this);
+                try {
+                    startWorkers();
+                } catch (RejectedExecutionException e) {
+                    // No worker may ever take the task, so it is taken back,
+                    // or awaitAndClose would wait for it forever.
+                    queue.removeLast();
+                    pending--;
+                    queuedParts--;
+                    if (queue.isEmpty() && inReady) {
+                        inReady = false;
+                        ready.remove(this);
+                    }
+                    if (pending == 0) {
+                        done.signalAll();
+                    }
+                    throw e;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void setTaskNum(int taskNum) {
+            lock.lock();
+            try {
+                this.taskNum = Math.max(taskNum, 1);
+                makeReady(this);
+                startWorkers();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void awaitAndClose() throws InterruptedException {
+            lock.lock();
+            try {
+                while (pending > 0) {
+                    done.await();
+                }
+            } finally {
+                close();
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                if (!closed) {
+                    closed = true;
+                    activeTransfers--;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    Transfer newTransfer(int taskNum) {
+        lock.lock();
+        try {
+            activeTransfers++;
+            return new Transfer(Math.max(taskNum, 1));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void makeReady(Transfer transfer) {
+        if (!transfer.inReady && !transfer.queue.isEmpty() && transfer.running < transfer.taskNum) {
+            transfer.inReady = true;
+            ready.addLast(transfer);
+        }
+    }
+
+    private void startWorkers() {
+        // Workers not running a part will take a queued one, so only the parts
+        // beyond them need new workers.
+        while (workerCount < maxConcurrentParts && workerCount - activeParts < queuedParts && !ready.isEmpty()) {
+            workerCount++;
+            try {
+                workers.execute(new Worker());
+            } catch (RejectedExecutionException e) {
+                workerCount--;
+                throw e;
+            }
+        }
+    }
+
+    class Worker implements Runnable {
+        @Override
+        public void run() {
+            while (true) {
+                Transfer transfer;
+                Runnable task;
+                lock.lock();
+                try {
+                    transfer = ready.poll();
+                    if (transfer == null) {
+                        workerCount--;
+                        return;
+                    }
+                    transfer.inReady = false;
+                    task = transfer.queue.poll();
+                    queuedParts--;
+                    activeParts++;
+                    transfer.running++;
+                    // Back to the tail, so that the next worker serves another transfer first.
+                    makeReady(transfer);
+                } finally {
+                    lock.unlock();
+                }
+
+                // Tasks are FutureTasks, which keep their own exceptions, but
+                // any other task that throws must still give its part back.
+                boolean completed = false;
+                try {
+                    task.run();
+                    completed = true;
+                } finally {
+                    // Clears the interrupt of a cancelled task before the next one.
+                    Thread.interrupted();
+                    finish(transfer, completed);
+                }
+            }
+        }
+
+        private void finish(Transfer transfer, boolean completed) {
+            lock.lock();
+            try {
+                transfer.running--;
+                transfer.pending--;
+                activeParts--;
+                completedParts++;
+                if (transfer.pending == 0) {
+                    transfer.done.signalAll();
+                }
+                makeReady(transfer);
+                if (!completed) {
+                    // This worker ends with the exception of the task, another
+                    // one takes the queued parts.
+                    workerCount--;
+                    try {
+                        startWorkers();
+                    } catch (RejectedExecutionException e) {
+                        // Shut down, the queued parts are not run anyway.
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    static class WorkerThreadFactory implements ThreadFactory {
+        private final String namePrefix = "oss-transfer-" + executorNumber.getAndIncrement() + "-worker-";
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, namePrefix + threadNumber.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    /**
+     * Gets the max number of parts that run at the same time over all transfers.
+     */
+    public int getMaxConcurrentParts() {
+        return maxConcurrentParts;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Gets the number of parts that are running.
+     */
+    public int getActiveParts() {
+        lock.lock();
+        try {
+            return activeParts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of parts that are queued and wait for a worker, which is
+     * the queue depth of the executor.
+     */
+    public int getQueuedParts() {
+        lock.lock();
+        try {
+            return queuedParts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of uploadFile/downloadFile calls that use the executor.
+     */
+    public int getActiveTransfers() {
+        lock.lock();
+        try {
+            return activeTransfers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of parts that have finished since the executor was created.
+     */
+    public long getCompletedParts() {
+        lock.lock();
+        try {
+            return completedParts;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting parts. The queued and running parts still complete.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+        } finally {
+            lock.unlock();
+        }
+        workers.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return workers.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return "[transfers:" + activeTransfers + "; active parts:" + activeParts + "; queued parts:"
+                    + queuedParts + "; completed parts:" + completedParts + "; max concurrent parts:"
+                    + maxConcurrentParts + "]";
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -126,13 +126,49 @@ public class SignUtils {
         String bucketName = request.getBucketName();
         String accessId = currentCreds.getAccessKeyId();
         String accessKey = currentCreds.getSecretAccessKey();
-        boolean useSecurityToken = currentCreds.useSecurityToken();
         HttpMethod method = request.getMethod() != null ? request.getMethod() : HttpMethod.GET;
 
         String expires = String.valueOf(request.getExpiration().getTime() / 1000L);
         String key = request.getKey();
         String resourcePath = OSSUtils.determineResourcePath(bucketName, key, config.isSLDEnabled());
 
+        RequestMessage requestMessage = buildPresignedRequestMessage(request, currentCreds, config, endpoint,
+                expires);
+
+        String canonicalResource = "/" + ((bucketName != null) ? bucketName : "") + ((key != null ? "/" + key : ""));
+        String canonicalString = buildCanonicalString(method.toString(), canonicalResource, requestMessage,
+                expires);
+        String signature = ServiceSignature.create().computeSignature(accessKey, canonicalString);
+
+        Map<String, String> params = new LinkedHashMap<String, String>();
+        params.put(HttpHeaders.EXPIRES, expires);
+        params.put(OSS_ACCESS_KEY_ID, accessId);
+        params.put(SIGNATURE, signature);
+        params.putAll(requestMessage.getParameters());
+
+        String queryString = HttpUtil.paramToQueryString(params, DEFAULT_CHARSET_NAME);
+
+        /* Compse HTTP request uri. */
+        String url = requestMessage.getEndpoint().toString();
+        if (!url.endsWith("/")) {
+            url += "/";
+        }
+        url += resourcePath + "?" + queryString;
+        return url;
+    }
+
+    /**
+     * Builds the request message with the headers and the parameters of a
+     * presigned URL, which do not depend on the key.
+     */
+    static RequestMessage buildPresignedRequestMessage(GeneratePresignedUrlRequest request, Credentials currentCreds,
+            ClientConfiguration config, URI endpoint, String expires) {
+        String bucketName = request.getBucketName();
+        boolean useSecurityToken = currentCreds.useSecurityToken();
+        HttpMethod method = request.getMethod() != null ? request.getMethod() : HttpMethod.GET;
+        String key = request.getKey();
+        String resourcePath = OSSUtils.determineResourcePath(bucketName, key, config.isSLDEnabled());
+
         RequestMessage requestMessage = new RequestMessage(bucketName, key);
         requestMessage.setEndpoint(OSSUtils.determineFinalEndpoint(endpoint, bucketName, config));
         requestMessage.setMethod(method);
@@ -170,27 +206,7 @@ public class SignUtils {
         if (useSecurityToken) {
             requestMessage.addParameter(SECURITY_TOKEN, currentCreds.getSecurityToken());
         }
-
-        String canonicalResource = "/" + ((bucketName != null) ? bucketName : "") + ((key != null ? "/" + key : ""));
-        String canonicalString = buildCanonicalString(method.toString(), canonicalResource, requestMessage,
-                expires);
-        String signature = ServiceSignature.create().computeSignature(accessKey, canonicalString);
-
-        Map<String, String> params = new LinkedHashMap<String, String>();
-        params.put(HttpHeaders.EXPIRES, expires);
-        params.put(OSS_ACCESS_KEY_ID, accessId);
-        params.put(SIGNATURE, signature);
-        params.putAll(requestMessage.getParameters());
-
-        String queryString = HttpUtil.paramToQueryString(params, DEFAULT_CHARSET_NAME);
-
-        /* Compse HTTP request uri. */
-        String url = requestMessage.getEndpoint().toString();
-        if (!url.endsWith("/")) {
-            url += "/";
-        }
-        url += resourcePath + "?" + queryString;
-        return url;
+        return requestMessage;
     }
 
     public static String buildCanonicalizedResource(String resourcePath, Map<String, String> parameters) {
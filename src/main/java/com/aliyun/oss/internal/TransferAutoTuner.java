@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.ClientErrorCode;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.model.TransferTuning;
+import com.aliyun.oss.model.TransferTuning.Decision;
+import com.aliyun.oss.model.TransferTuning.Reason;
+
+/**
+ * Auto tuning of uploadFile/downloadFile.
+ * <p>
+ * The part size is picked from the object size: enough parts to keep the max
+ * concurrency busy, within the 10,000 parts limit. The concurrency follows
+ * AIMD: it starts low and grows by one part each window while the throughput
+ * of the window grows by at least 10%, is kept when it stops growing (the link
+ * is saturated), and is halved when a part fails with a timeout or server busy
+ * error. A window is as many completed parts as the current concurrency.
+ */
+public class TransferAutoTuner {
+
+    public static final int DEFAULT_MAX_TASK_NUM = 32;
+    public static final int MAX_PART_ATTEMPTS = 3;
+
+    static final long MIN_PART_SIZE = 1024 * 1024L;
+    static final long MAX_AUTO_PART_SIZE = 64 * 1024 * 1024L;
+    static final int MAX_PART_COUNT = 10000;
+    static final int INITIAL_TASK_NUM = 4;
+    // The throughput must grow by 10% for the next increase.
+    static final double INCREASE_RATIO = 1.1;
+    // Windows to wait at the saturated concurrency before probing one more part.
+    static final int PROBE_WINDOWS = 8;
+
+    private static final long PART_ALIGN_SIZE = 4 * 1024L;
+    private static final String SERVICE_UNAVAILABLE = "ServiceUnavailable";
+
+    private final TransferTaskExecutor executor;
+    private final TransferTuning tuning;
+    private final int maxTaskNum;
+    private final long startNanos;
+
+    private final Lock lock = new ReentrantLock();
+    private int taskNum;
+    private int completedParts;
+    private int windowParts;
+    private long windowBytes;
+    private long windowStartNanos;
+    private long lastDecreaseNanos;
+    private double lastThroughput;
+    private boolean saturated;
+    private int saturatedWindows;
+
+    public TransferAutoTuner(TransferTaskExecutor executor, TransferTuning tuning, int maxTaskNum, long partSize) {
+        this(executor, tuning, maxTaskNum, partSize, System.nanoTime());
+    }
+
+    TransferAutoTuner(TransferTaskExecutor executor, TransferTuning tuning, int maxTaskNum, long partSize,
+            long startNanos) {
+        int taskNum = executor.getTaskNum();
+        this.executor = executor;
+        this.taskNum = taskNum;
+        this.maxTaskNum = maxTaskNum;
+        this.startNanos = startNanos;
+        this.windowStartNanos = startNanos;
+        this.lastDecreaseNanos = startNanos;
+
+        this.tuning = tuning;
+        tuning.setPartSize(partSize);
+        tuning.setMaxTaskNum(maxTaskNum);
+        tuning.setTaskNum(taskNum);
+        tuning.getDecisions().add(new Decision(0, 0, taskNum, taskNum, 0, Reason.INITIAL));
+    }
+
+    /**
+     * Gets the upper bound of the concurrency, the taskNum of the request when
+     * it was set above the default 1, or {@link #DEFAULT_MAX_TASK_NUM}.
+     */
+    public static int getMaxTaskNum(int requestTaskNum) {
+        return requestTaskNum > 1 ? requestTaskNum : DEFAULT_MAX_TASK_NUM;
+    }
+
+    public static int getInitialTaskNum(int maxTaskNum) {
+        return Math.min(INITIAL_TASK_NUM, maxTaskNum);
+    }
+
+    /**
+     * Picks the part size of an object: about four parts per task at the max
+     * concurrency, between 1MB and 64MB, but large enough to stay below the
+     * 10,000 parts limit.
+     */
+    public static long choosePartSize(long objectSize, int maxTaskNum) {
+        long partSize = objectSize / (maxTaskNum * 4L);
+        partSize = Math.max(MIN_PART_SIZE, Math.min(MAX_AUTO_PART_SIZE, partSize));
+        partSize = Math.max(partSize, objectSize / (MAX_PART_COUNT - 1) + 1);
+        return (partSize + PART_ALIGN_SIZE - 1) / PART_ALIGN_SIZE * PART_ALIGN_SIZE;
+    }
+
+    /**
+     * Checks if a part failed because the link or the server is overloaded, in
+     * which case it's worth running the part again at a lower concurrency.
+     */
+    public static boolean isCongestion(Exception e) {
+        if (e instanceof ClientException) {
+            String errorCode = ((ClientException) e).getErrorCode();
+            return ClientErrorCode.CONNECTION_TIMEOUT.equals(errorCode)
+                    || ClientErrorCode.SOCKET_TIMEOUT.equals(errorCode)
+                    || ClientErrorCode.SOCKET_EXCEPTION.equals(errorCode)
+                    || OSSErrorCode.REQUEST_TIMEOUT.equals(errorCode);
+        }
+        if (e instanceof OSSException) {
+            String errorCode = ((OSSException) e).getErrorCode();
+            return OSSErrorCode.INTERNAL_ERROR.equals(errorCode) || SERVICE_UNAVAILABLE.equals(errorCode);
+        }
+        return false;
+    }
+
+    /**
+     * Waits before a congested part runs again.
+     */
+    public static void pauseBeforeRetry(int attempt) throws InterruptedException {
+        Thread.sleep(300L << attempt);
+    }
+
+    /**
+     * Reports a completed part attempt.
+     *
+     * @param bytes
+     *            The bytes transferred by the part, 0 when it failed.
+     * @param partStartNanos
+     *            The {@link System#nanoTime()} when the part started.
+     * @param congested
+     *            If the part failed because of congestion.
+     */
+    public void onPartCompleted(long bytes, long partStartNanos, boolean congested) {
+        onPartCompleted(bytes, partStartNanos, congested, System.nanoTime());
+    }
+
+    void onPartCompleted(long bytes, long partStartNanos, boolean congested, long now) {
+        lock.lock();
+        try {
+            if (congested) {
+                tuning.setCongestionRetries(tuning.getCongestionRetries() + 1);
+                // Parts started before the last decrease report the same congestion.
+                if (partStartNanos > lastDecreaseNanos) {
+                    lastDecreaseNanos = now;
+                    saturated = false;
+                    lastThroughput = 0;
+                    apply(Math.max(1, taskNum / 2), currentThroughput(now), Reason.CONGESTION, now);
+                    resetWindow(now);
+                }
+                return;
+            }
+
+            completedParts++;
+            windowParts++;
+            windowBytes += bytes;
+            if (windowParts < taskNum) {
+                return;
+            }
+
+            double throughput = currentThroughput(now);
+            if (!saturated && taskNum < maxTaskNum && throughput >= lastThroughput * INCREASE_RATIO) {
+                apply(taskNum + 1, throughput, Reason.INCREASE, now);
+            } else if (!saturated) {
+                saturated = true;
+                saturatedWindows = 0;
+                apply(taskNum, throughput, Reason.SATURATED, now);
+            } else if (++saturatedWindows >= PROBE_WINDOWS && taskNum < maxTaskNum) {
+                saturated = false;
+                apply(taskNum + 1, throughput, Reason.PROBE, now);
+            }
+            lastThroughput = Math.max(throughput, saturated ? lastThroughput : 0);
+            resetWindow(now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double currentThroughput(long now) {
+        long nanos = Math.max(now - windowStartNanos, 1);
+        return windowBytes * 1000000000.0 / nanos;
+    }
+
+    private void resetWindow(long now) {
+        windowParts = 0;
+        windowBytes = 0;
+        windowStartNanos = now;
+    }
+
+    private void apply(int newTaskNum, double throughput, Reason reason, long now) {
+        tuning.getDecisions().add(new Decision((now - startNanos) / 1000000, completedParts, taskNum, newTaskNum,
+                (long) throughput, reason));
+        if (newTaskNum != taskNum) {
+            taskNum = newTaskNum;
+            tuning.setTaskNum(taskNum);
+            executor.setTaskNum(taskNum);
+        }
+    }
+
+    public int getTaskNum() {
+        lock.lock();
+        try {
+            return taskNum;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
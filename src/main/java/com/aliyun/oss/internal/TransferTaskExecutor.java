@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.common.utils.VirtualThreads;
+
+/**
+ * Runs the part tasks of one uploadFile/downloadFile call.
+ * <p>
+ * When the client has a {@link SharedTransferExecutor}, the tasks are queued
+ * there and run by its workers, at most taskNum of them at a time. Otherwise
+ * the call gets executors of its own as follows.
+ * <p>
+ * By default the tasks run on a fixed pool of taskNum platform threads. When
+ * virtual threads are enabled in the {@link ClientConfiguration} and the JDK
+ * supports them, every task gets its own virtual thread and a semaphore keeps
+ * at most taskNum of them running the part transfer at a time.
+ */
+public class TransferTaskExecutor {
+
+    private final ExecutorService executor;
+    private final TaskPermits permits;
+    private final SharedTransferExecutor.Transfer transfer;
+    private final Lock lock = new ReentrantLock();
+    private int taskNum;
+
+    // A semaphore whose permits can be taken away while they are in use.
+    static class TaskPermits extends Semaphore {
+        private static final long serialVersionUID = 5637158420457361739L;
+
+        TaskPermits(int permits) {
+            super(permits);
+        }
+
+        @Override
+        public void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    public TransferTaskExecutor(SharedTransferExecutor sharedExecutor, int taskNum) {
+        this.executor = null;
+        this.permits = null;
+        this.transfer = sharedExecutor.newTransfer(taskNum);
+        this.taskNum = taskNum;
+    }
+
+    public TransferTaskExecutor(ClientConfiguration config, int taskNum) {
+        ExecutorService virtualExecutor = null;
+        if (config != null && config.isVirtualThreadsEnabled()) {
+            virtualExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        }
+
+        if (virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.permits = new TaskPermits(taskNum);
+        } else {
+            this.executor = new ThreadPoolExecutor(taskNum, taskNum, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>());
+            this.permits = null;
+        }
+        this.transfer = null;
+        this.taskNum = taskNum;
+    }
+
+    public boolean isVirtual() {
+        return permits != null;
+    }
+
+    public int getTaskNum() {
+        lock.lock();
+        try {
+            return taskNum;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Changes the number of tasks that run at a time. When it shrinks, the
+     * running tasks finish first.
+     */
+    public void setTaskNum(int taskNum) {
+        taskNum = Math.max(taskNum, 1);
+        lock.lock();
+        try {
+            setTaskNumLocked(taskNum);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void setTaskNumLocked(int taskNum) {
+        if (transfer != null) {
+            transfer.setTaskNum(taskNum);
+        } else if (permits != null) {
+            if (taskNum > this.taskNum) {
+                permits.release(taskNum - this.taskNum);
+            } else if (taskNum < this.taskNum) {
+                permits.reducePermits(this.taskNum - taskNum);
+            }
+        } else {
+            ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+            if (taskNum > this.taskNum) {
+                pool.setMaximumPoolSize(taskNum);
+                pool.setCorePoolSize(taskNum);
+            } else {
+                pool.setCorePoolSize(taskNum);
+                pool.setMaximumPoolSize(taskNum);
+            }
+        }
+        this.taskNum = taskNum;
+    }
+
+    public <T> Future<T> submit(final Callable<T> task) {
+        if (transfer != null) {
+            FutureTask<T> future = new FutureTask<T>(task);
+            transfer.execute(future);
+            return future;
+        }
+
+        if (permits == null) {
+            return executor.submit(task);
+        }
+
+        return executor.submit(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                permits.acquire();
+                try {
+                    return task.call();
+                } finally {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops accepting tasks without waiting for the submitted ones.
+     */
+    public void shutdown() {
+        if (transfer != null) {
+            transfer.close();
+        } else {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Stops accepting tasks and waits for the submitted ones to finish.
+     */
+    public void shutdownAndAwait() throws InterruptedException {
+        if (transfer != null) {
+            transfer.awaitAndClose();
+            return;
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+    }
+}
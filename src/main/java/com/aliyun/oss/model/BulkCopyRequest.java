@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.util.Iterator;
+
+/**
+ * The request class that is to copy, or move, many objects by server-side
+ * copies: either a stream of (source, destination) pairs, or every object
+ * under a source prefix to the same key under a destination prefix.
+ */
+public class BulkCopyRequest extends GenericRequest {
+
+    /** CopyObject copies objects up to 1GB. */
+    public static final long MAX_COPY_OBJECT_SIZE = 1024L * 1024 * 1024;
+
+    /** UploadPartCopy copies parts up to 5GB. */
+    public static final long MAX_PART_COPY_SIZE = 5L * 1024 * 1024 * 1024;
+
+    /**
+     * The source and the destination of one object.
+     */
+    public static class CopyEntry {
+        private final String sourceBucketName;
+        private final String sourceKey;
+        private final String destinationBucketName;
+        private final String destinationKey;
+
+        public CopyEntry(String sourceBucketName, String sourceKey, String destinationBucketName,
+                String destinationKey) {
+            this.sourceBucketName = sourceBucketName;
+            this.sourceKey = sourceKey;
+            this.destinationBucketName = destinationBucketName;
+            this.destinationKey = destinationKey;
+        }
+
+        public String getSourceBucketName() {
+            return sourceBucketName;
+        }
+
+        public String getSourceKey() {
+            return sourceKey;
+        }
+
+        public String getDestinationBucketName() {
+            return destinationBucketName;
+        }
+
+        public String getDestinationKey() {
+            return destinationKey;
+        }
+
+        @Override
+        public String toString() {
+            return sourceBucketName + "/" + sourceKey + " -> " + destinationBucketName + "/" + destinationKey;
+        }
+    }
+
+    /**
+     * Copies the pairs set by {@link #setEntries(Iterator)}.
+     */
+    public BulkCopyRequest() {
+    }
+
+    /**
+     * Copies every object under the source prefix to the same key, with the
+     * destination prefix in place of the source prefix.
+     */
+    public BulkCopyRequest(String sourceBucketName, String sourcePrefix, String destinationBucketName,
+            String destinationPrefix) {
+        super(sourceBucketName);
+        this.sourcePrefix = sourcePrefix;
+        this.destinationBucketName = destinationBucketName;
+        this.destinationPrefix = destinationPrefix;
+    }
+
+    /**
+     * Gets the pairs to copy. They are read as the copies are started, so they
+     * can be produced lazily. It's exclusive with the prefix mapping.
+     */
+    public Iterator<CopyEntry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(Iterator<CopyEntry> entries) {
+        this.entries = entries;
+    }
+
+    public BulkCopyRequest withEntries(Iterator<CopyEntry> entries) {
+        setEntries(entries);
+        return this;
+    }
+
+    public String getSourcePrefix() {
+        return sourcePrefix;
+    }
+
+    public String getDestinationBucketName() {
+        return destinationBucketName;
+    }
+
+    public String getDestinationPrefix() {
+        return destinationPrefix;
+    }
+
+    /**
+     * Gets the flag of moving the objects. A moved object is renamed when the
+     * source and the destination are in the same bucket with hierarchical
+     * namespace enabled; otherwise it is copied, the copy is checked against
+     * the source by size and CRC64, and only then the source is deleted. By
+     * default it's false.
+     */
+    public boolean isMove() {
+        return move;
+    }
+
+    public void setMove(boolean move) {
+        this.move = move;
+    }
+
+    public BulkCopyRequest withMove(boolean move) {
+        setMove(move);
+        return this;
+    }
+
+    /**
+     * Gets the number of objects that are copied at the same time. By default
+     * it's 8.
+     */
+    public int getTaskNum() {
+        return taskNum;
+    }
+
+    public void setTaskNum(int taskNum) {
+        if (taskNum < 1) {
+            this.taskNum = 1;
+        } else if (taskNum > 1000) {
+            this.taskNum = 1000;
+        } else {
+            this.taskNum = taskNum;
+        }
+    }
+
+    /**
+     * Gets the number of parts of one large object that are copied at the
+     * same time. By default it's 4.
+     */
+    public int getPartTaskNum() {
+        return partTaskNum;
+    }
+
+    public void setPartTaskNum(int partTaskNum) {
+        if (partTaskNum < 1) {
+            this.partTaskNum = 1;
+        } else if (partTaskNum > 1000) {
+            this.partTaskNum = 1000;
+        } else {
+            this.partTaskNum = partTaskNum;
+        }
+    }
+
+    /**
+     * Gets the size from which an object is copied by UploadPartCopy instead
+     * of a single CopyObject, which copies up to 1GB. By default it's 1GB.
+     */
+    public long getMultipartThreshold() {
+        return multipartThreshold;
+    }
+
+    public void setMultipartThreshold(long multipartThreshold) {
+        if (multipartThreshold < 1024 * 100) {
+            this.multipartThreshold = 1024 * 100;
+        } else if (multipartThreshold > MAX_COPY_OBJECT_SIZE) {
+            this.multipartThreshold = MAX_COPY_OBJECT_SIZE;
+        } else {
+            this.multipartThreshold = multipartThreshold;
+        }
+    }
+
+    /**
+     * Gets the size of each part of a multipart copy. It grows when the object
+     * would need more than 10,000 parts. By default it's 64MB.
+     */
+    public long getPartSize() {
+        return partSize;
+    }
+
+    public void setPartSize(long partSize) {
+        if (partSize < 1024 * 100) {
+            this.partSize = 1024 * 100;
+        } else if (partSize > MAX_PART_COPY_SIZE) {
+            this.partSize = MAX_PART_COPY_SIZE;
+        } else {
+            this.partSize = partSize;
+        }
+    }
+
+    /**
+     * Gets the max number of requests sent per second by all the copies,
+     * retries included. By default it's 0, which does not limit them.
+     */
+    public double getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    public void setMaxRequestsPerSecond(double maxRequestsPerSecond) {
+        this.maxRequestsPerSecond = Math.max(maxRequestsPerSecond, 0);
+    }
+
+    /**
+     * Gets the metadata of the copies. When it's set, it replaces the metadata
+     * of every source, for example to rewrite the storage class; otherwise the
+     * copies keep the metadata of their sources. With it, a copy that is not
+     * a move may use the source prefix, or key, as its destination to rewrite
+     * the objects in place.
+     */
+    public ObjectMetadata getNewObjectMetadata() {
+        return newObjectMetadata;
+    }
+
+    public void setNewObjectMetadata(ObjectMetadata newObjectMetadata) {
+        this.newObjectMetadata = newObjectMetadata;
+    }
+
+    /**
+     * Gets the file the completed copies are recorded in. When a bulk copy is
+     * run again with the same file, the recorded copies are skipped. By
+     * default there is none.
+     */
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public void setCheckpointFile(String checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    // The pairs to copy.
+    private Iterator<CopyEntry> entries;
+    // The prefix mapping, exclusive with the pairs.
+    private String sourcePrefix;
+    private String destinationBucketName;
+    private String destinationPrefix;
+    // Move instead of copy, by default it's false.
+    private boolean move;
+    // Concurrent objects, by default it's 8.
+    private int taskNum = 8;
+    // Concurrent parts of one large object, by default it's 4.
+    private int partTaskNum = 4;
+    // Multipart copy threshold, by default it's 1GB.
+    private long multipartThreshold = MAX_COPY_OBJECT_SIZE;
+    // Part size of multipart copies, by default it's 64MB.
+    private long partSize = 64L * 1024 * 1024;
+    // Requests per second, 0 for unlimited.
+    private double maxRequestsPerSecond;
+    // Metadata replacing the metadata of the sources.
+    private ObjectMetadata newObjectMetadata;
+    // The record of completed copies.
+    private String checkpointFile;
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.aliyun.oss.model.BulkCopyRequest.CopyEntry;
+
+/**
+ * The result of a bulk copy or move: how many objects and bytes were copied,
+ * how fast, and the objects that could not be copied.
+ */
+public class BulkCopyResult {
+
+    /**
+     * An object that could not be copied or moved.
+     */
+    public static class FailedEntry {
+        private final CopyEntry entry;
+        private final String errorCode;
+        private final String errorMessage;
+
+        public FailedEntry(CopyEntry entry, String errorCode, String errorMessage) {
+            this.entry = entry;
+            this.errorCode = errorCode;
+            this.errorMessage = errorMessage;
+        }
+
+        public CopyEntry getEntry() {
+            return entry;
+        }
+
+        public String getErrorCode() {
+            return errorCode;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        @Override
+        public String toString() {
+            return "FailedEntry [entry=" + entry + ", errorCode=" + errorCode + ", errorMessage=" + errorMessage
+                    + "]";
+        }
+    }
+
+    private long copiedCount;
+    private long multipartCount;
+    private long renamedCount;
+    private long skippedCount;
+    private long copiedBytes;
+    private long requestCount;
+    private long elapsedMillis;
+    private final List<FailedEntry> failedEntries = new ArrayList<FailedEntry>();
+
+    /**
+     * Gets the number of objects copied, or moved, by this run, the renamed
+     * ones included.
+     */
+    public long getCopiedCount() {
+        return copiedCount;
+    }
+
+    public void setCopiedCount(long copiedCount) {
+        this.copiedCount = copiedCount;
+    }
+
+    /**
+     * Gets the number of objects copied by UploadPartCopy.
+     */
+    public long getMultipartCount() {
+        return multipartCount;
+    }
+
+    public void setMultipartCount(long multipartCount) {
+        this.multipartCount = multipartCount;
+    }
+
+    /**
+     * Gets the number of objects moved by RenameObject.
+     */
+    public long getRenamedCount() {
+        return renamedCount;
+    }
+
+    public void setRenamedCount(long renamedCount) {
+        this.renamedCount = renamedCount;
+    }
+
+    /**
+     * Gets the number of objects skipped since the checkpoint file recorded
+     * them as copied.
+     */
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    public void setSkippedCount(long skippedCount) {
+        this.skippedCount = skippedCount;
+    }
+
+    /**
+     * Gets the bytes copied by this run. Renamed objects are not counted.
+     */
+    public long getCopiedBytes() {
+        return copiedBytes;
+    }
+
+    public void setCopiedBytes(long copiedBytes) {
+        this.copiedBytes = copiedBytes;
+    }
+
+    /**
+     * Gets the number of requests sent.
+     */
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    public void setRequestCount(long requestCount) {
+        this.requestCount = requestCount;
+    }
+
+    /**
+     * Gets the time the bulk copy took, in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Gets the throughput of the bulk copy, in objects per second.
+     */
+    public double getCopiedPerSecond() {
+        return elapsedMillis > 0 ? copiedCount * 1000.0 / elapsedMillis : 0;
+    }
+
+    /**
+     * Gets the objects that could not be copied. A failed move keeps its
+     * source.
+     */
+    public List<FailedEntry> getFailedEntries() {
+        return failedEntries;
+    }
+
+    public void setFailedEntries(List<FailedEntry> failedEntries) {
+        this.failedEntries.clear();
+        this.failedEntries.addAll(failedEntries);
+    }
+
+    @Override
+    public String toString() {
+        return "BulkCopyResult [copied=" + copiedCount + ", multipart=" + multipartCount + ", renamed="
+                + renamedCount + ", skipped=" + skippedCount + ", failed=" + failedEntries.size() + ", bytes="
+                + copiedBytes + ", requests=" + requestCount + ", elapsedMillis=" + elapsedMillis + "]";
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.util.Iterator;
+
+import com.aliyun.oss.model.DeleteVersionsRequest.KeyVersion;
+
+/**
+ * The request class that is to delete a stream of keys, or of versions, in
+ * batches of DeleteObjects or DeleteVersions requests.
+ */
+public class BulkDeleteRequest extends GenericRequest {
+
+    public BulkDeleteRequest(String bucketName) {
+        super(bucketName);
+    }
+
+    /**
+     * Gets the keys to delete. They are read as the batches are sent, so the
+     * iterator of a listing can be passed without collecting the keys first.
+     */
+    public Iterator<String> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(Iterator<String> keys) {
+        this.keys = keys;
+    }
+
+    public BulkDeleteRequest withKeys(Iterator<String> keys) {
+        setKeys(keys);
+        return this;
+    }
+
+    /**
+     * Gets the versions to delete from a versioned bucket. It's exclusive with
+     * the keys.
+     */
+    public Iterator<KeyVersion> getKeyVersions() {
+        return keyVersions;
+    }
+
+    public void setKeyVersions(Iterator<KeyVersion> keyVersions) {
+        this.keyVersions = keyVersions;
+    }
+
+    public BulkDeleteRequest withKeyVersions(Iterator<KeyVersion> keyVersions) {
+        setKeyVersions(keyVersions);
+        return this;
+    }
+
+    /**
+     * Gets the number of keys deleted by one request. By default it's 1000,
+     * the most a request accepts.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            this.batchSize = 1;
+        } else if (batchSize > DeleteObjectsRequest.DELETE_OBJECTS_ONETIME_LIMIT) {
+            this.batchSize = DeleteObjectsRequest.DELETE_OBJECTS_ONETIME_LIMIT;
+        } else {
+            this.batchSize = batchSize;
+        }
+    }
+
+    /**
+     * Gets the number of batches that are sent at the same time. By default
+     * it's 4.
+     */
+    public int getTaskNum() {
+        return taskNum;
+    }
+
+    public void setTaskNum(int taskNum) {
+        if (taskNum < 1) {
+            this.taskNum = 1;
+        } else if (taskNum > 1000) {
+            this.taskNum = 1000;
+        } else {
+            this.taskNum = taskNum;
+        }
+    }
+
+    /**
+     * Gets the max number of requests sent per second, retries included. By
+     * default it's 0, which does not limit them.
+     */
+    public double getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    public void setMaxRequestsPerSecond(double maxRequestsPerSecond) {
+        this.maxRequestsPerSecond = Math.max(maxRequestsPerSecond, 0);
+    }
+
+    /**
+     * Gets the number of times the keys of a failed request are sent again.
+     * Only timeouts and server busy errors are retried. By default it's 3.
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = Math.max(maxRetries, 0);
+    }
+
+    /**
+     * Gets the flag of quiet mode. In quiet mode the responses do not list the
+     * deleted keys, which saves bandwidth, but a key the server failed to
+     * delete goes unnoticed unless the whole request fails. With quiet mode
+     * off, every key missing from a response is sent again and reported as
+     * failed once the retries are exhausted. By default it's true.
+     */
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    public BulkDeleteRequest withQuiet(boolean quiet) {
+        setQuiet(quiet);
+        return this;
+    }
+
+    // The keys to delete.
+    private Iterator<String> keys;
+    // The versions to delete, exclusive with the keys.
+    private Iterator<KeyVersion> keyVersions;
+    // Keys per request, by default it's 1000.
+    private int batchSize = DeleteObjectsRequest.DELETE_OBJECTS_ONETIME_LIMIT;
+    // Concurrent requests, by default it's 4.
+    private int taskNum = 4;
+    // Requests per second, 0 for unlimited.
+    private double maxRequestsPerSecond;
+    // Retries of a failed request, by default it's 3.
+    private int maxRetries = 3;
+    // Quiet mode, by default it's true.
+    private boolean quiet = true;
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of a bulk delete: how many keys were deleted, how fast, and the
+ * keys that could not be deleted.
+ */
+public class BulkDeleteResult {
+
+    /**
+     * A key, or a version, that could not be deleted.
+     */
+    public static class FailedKey {
+        private final String key;
+        private final String versionId;
+        private final String errorCode;
+        private final String errorMessage;
+
+        public FailedKey(String key, String versionId, String errorCode, String errorMessage) {
+            this.key = key;
+            this.versionId = versionId;
+            this.errorCode = errorCode;
+            this.errorMessage = errorMessage;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Gets the version id, null when keys were deleted.
+         */
+        public String getVersionId() {
+            return versionId;
+        }
+
+        public String getErrorCode() {
+            return errorCode;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        @Override
+        public String toString() {
+            return "FailedKey [key=" + key + ", versionId=" + versionId + ", errorCode=" + errorCode
+                    + ", errorMessage=" + errorMessage + "]";
+        }
+    }
+
+    private long deletedCount;
+    private long requestCount;
+    private long retryCount;
+    private long elapsedMillis;
+    private final List<FailedKey> failedKeys = new ArrayList<FailedKey>();
+
+    /**
+     * Gets the number of keys, or versions, deleted. In quiet mode it's the
+     * number of keys sent by successful requests.
+     */
+    public long getDeletedCount() {
+        return deletedCount;
+    }
+
+    public void setDeletedCount(long deletedCount) {
+        this.deletedCount = deletedCount;
+    }
+
+    /**
+     * Gets the number of requests sent, retries included.
+     */
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    public void setRequestCount(long requestCount) {
+        this.requestCount = requestCount;
+    }
+
+    /**
+     * Gets the number of requests that sent failed keys again.
+     */
+    public long getRetryCount() {
+        return retryCount;
+    }
+
+    public void setRetryCount(long retryCount) {
+        this.retryCount = retryCount;
+    }
+
+    /**
+     * Gets the time the bulk delete took, in milliseconds.
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * Gets the throughput of the bulk delete, in keys per second.
+     */
+    public double getDeletedPerSecond() {
+        return elapsedMillis > 0 ? deletedCount * 1000.0 / elapsedMillis : 0;
+    }
+
+    /**
+     * Gets the keys that could not be deleted, after the retries.
+     */
+    public List<FailedKey> getFailedKeys() {
+        return failedKeys;
+    }
+
+    public void setFailedKeys(List<FailedKey> failedKeys) {
+        this.failedKeys.clear();
+        this.failedKeys.addAll(failedKeys);
+    }
+
+    @Override
+    public String toString() {
+        return "BulkDeleteResult [deleted=" + deletedCount + ", failed=" + failedKeys.size() + ", requests="
+                + requestCount + ", retries=" + retryCount + ", elapsedMillis=" + elapsedMillis + "]";
+    }
+}
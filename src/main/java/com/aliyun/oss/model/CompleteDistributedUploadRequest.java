@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+/**
+ * The request class that is to complete a {@link DistributedUpload} with the
+ * parts of the completed leases in the coordination store, listed from the
+ * server.
+ */
+public class CompleteDistributedUploadRequest extends GenericRequest {
+
+    /**
+     * Completes the upload with all its uploaded parts, e.g. the ones of a
+     * {@link PresignedMultipartUpload}.
+     */
+    public CompleteDistributedUploadRequest(DistributedUpload upload) {
+        this(upload, null);
+    }
+
+    public CompleteDistributedUploadRequest(DistributedUpload upload, UploadCoordinationStore store) {
+        super(upload.getBucketName(), upload.getKey());
+        this.upload = upload;
+        this.store = store;
+        if (upload.getRequestPayer() != null) {
+            setRequestPayer(upload.getRequestPayer());
+        }
+    }
+
+    public DistributedUpload getUpload() {
+        return upload;
+    }
+
+    /**
+     * Gets the store that keeps the leases of the upload. When there is no
+     * store, or it has no leases of the upload, all the uploaded parts are
+     * completed.
+     */
+    public UploadCoordinationStore getStore() {
+        return store;
+    }
+
+    public Callback getCallback() {
+        return callback;
+    }
+
+    public void setCallback(Callback callback) {
+        this.callback = callback;
+    }
+
+    public CompleteDistributedUploadRequest withCallback(Callback callback) {
+        setCallback(callback);
+        return this;
+    }
+
+    public CannedAccessControlList getObjectACL() {
+        return objectACL;
+    }
+
+    public void setObjectACL(CannedAccessControlList objectACL) {
+        this.objectACL = objectACL;
+    }
+
+    public CompleteDistributedUploadRequest withObjectACL(CannedAccessControlList objectACL) {
+        setObjectACL(objectACL);
+        return this;
+    }
+
+    // The upload to complete.
+    private final DistributedUpload upload;
+
+    // The store with the leases of the upload.
+    private final UploadCoordinationStore store;
+
+    // The callback of the completion.
+    private Callback callback;
+
+    // The ACL of the completed object.
+    private CannedAccessControlList objectACL;
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+/**
+ * The request class that is to copy an object of any size by concurrent
+ * UploadPartCopy requests. The bucket name and the key are the ones of the
+ * destination.
+ */
+public class CopyLargeObjectRequest extends GenericRequest {
+
+    public CopyLargeObjectRequest(String sourceBucketName, String sourceKey, String destinationBucketName,
+            String destinationKey) {
+        super(destinationBucketName, destinationKey);
+        this.sourceBucketName = sourceBucketName;
+        this.sourceKey = sourceKey;
+    }
+
+    public CopyLargeObjectRequest(String sourceBucketName, String sourceKey, String destinationBucketName,
+            String destinationKey, long partSize, int taskNum, boolean enableCheckpoint, String checkpointFile) {
+        this(sourceBucketName, sourceKey, destinationBucketName, destinationKey);
+        setPartSize(partSize);
+        setTaskNum(taskNum);
+        this.enableCheckpoint = enableCheckpoint;
+        this.checkpointFile = checkpointFile;
+    }
+
+    public String getSourceBucketName() {
+        return sourceBucketName;
+    }
+
+    public void setSourceBucketName(String sourceBucketName) {
+        this.sourceBucketName = sourceBucketName;
+    }
+
+    public String getSourceKey() {
+        return sourceKey;
+    }
+
+    public void setSourceKey(String sourceKey) {
+        this.sourceKey = sourceKey;
+    }
+
+    /**
+     * Gets the version of the source to copy. By default it's the current
+     * one.
+     */
+    public String getSourceVersionId() {
+        return sourceVersionId;
+    }
+
+    public void setSourceVersionId(String sourceVersionId) {
+        this.sourceVersionId = sourceVersionId;
+    }
+
+    /**
+     * Gets the size of each part. It grows when the object would need more
+     * than 10,000 parts. By default it's 64MB.
+     */
+    public long getPartSize() {
+        return partSize;
+    }
+
+    public void setPartSize(long partSize) {
+        if (partSize < 1024 * 100) {
+            this.partSize = 1024 * 100;
+        } else if (partSize > BulkCopyRequest.MAX_PART_COPY_SIZE) {
+            this.partSize = BulkCopyRequest.MAX_PART_COPY_SIZE;
+        } else {
+            this.partSize = partSize;
+        }
+    }
+
+    /**
+     * Gets the number of parts that are copied at the same time. By default
+     * it's 4.
+     */
+    public int getTaskNum() {
+        return taskNum;
+    }
+
+    public void setTaskNum(int taskNum) {
+        if (taskNum < 1) {
+            this.taskNum = 1;
+        } else if (taskNum > 1000) {
+            this.taskNum = 1000;
+        } else {
+            this.taskNum = taskNum;
+        }
+    }
+
+    public boolean isEnableCheckpoint() {
+        return enableCheckpoint;
+    }
+
+    public void setEnableCheckpoint(boolean enableCheckpoint) {
+        this.enableCheckpoint = enableCheckpoint;
+    }
+
+    /**
+     * Gets the local file the progress of the copy is recorded in. By default
+     * it's the hex MD5 of the source and the destination, with ".ccp"
+     * appended, in the working directory.
+     */
+    public String getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public void setCheckpointFile(String checkpointFile) {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Gets the metadata of the copy. When it's set, it replaces the metadata
+     * of the source; otherwise the copy keeps the metadata of the source.
+     */
+    public ObjectMetadata getNewObjectMetadata() {
+        return newObjectMetadata;
+    }
+
+    public void setNewObjectMetadata(ObjectMetadata newObjectMetadata) {
+        this.newObjectMetadata = newObjectMetadata;
+    }
+
+    /**
+     * Gets the flag of copying the tags of the source. By default it's true.
+     */
+    public boolean isCopyTags() {
+        return copyTags;
+    }
+
+    public void setCopyTags(boolean copyTags) {
+        this.copyTags = copyTags;
+    }
+
+    // The source object.
+    private String sourceBucketName;
+    private String sourceKey;
+    private String sourceVersionId;
+    // Part size in byte, by default it's 64MB.
+    private long partSize = 64L * 1024 * 1024;
+    // Concurrent part copies, by default it's 4.
+    private int taskNum = 4;
+    // Enable the checkpoint
+    private boolean enableCheckpoint = false;
+    // The checkpoint file's local path.
+    private String checkpointFile;
+    // Metadata replacing the metadata of the source.
+    private ObjectMetadata newObjectMetadata;
+    // Copy the tags of the source, by default it's true.
+    private boolean copyTags = true;
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+/**
+ * The result of a copy by {@link CopyLargeObjectRequest}.
+ */
+public class CopyLargeObjectResult {
+
+    public CompleteMultipartUploadResult getMultipartUploadResult() {
+        return multipartUploadResult;
+    }
+
+    public void setMultipartUploadResult(CompleteMultipartUploadResult multipartUploadResult) {
+        this.multipartUploadResult = multipartUploadResult;
+    }
+
+    /**
+     * Gets the number of parts of the copy.
+     */
+    public int getPartCount() {
+        return partCount;
+    }
+
+    public void setPartCount(int partCount) {
+        this.partCount = partCount;
+    }
+
+    /**
+     * Gets the number of parts copied by this call. It's less than the part
+     * count when the copy resumed from a checkpoint.
+     */
+    public int getCopiedPartCount() {
+        return copiedPartCount;
+    }
+
+    public void setCopiedPartCount(int copiedPartCount) {
+        this.copiedPartCount = copiedPartCount;
+    }
+
+    private CompleteMultipartUploadResult multipartUploadResult;
+    private int partCount;
+    private int copiedPartCount;
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+/**
+ * The request class that is to sync a local directory and the objects under
+ * a prefix, in either direction. The file with the relative path p is the
+ * object prefix + p, with '/' separators.
+ * <p>
+ * Files that are unchanged are skipped: the ones recorded in the manifest
+ * with the same size and modification time, and, with the checksum enabled,
+ * the ones of the same size whose CRC64, or MD5 when the object has no
+ * CRC64, matches the object.
+ */
+public class DirectoryTransferRequest extends GenericRequest {
+
+    public DirectoryTransferRequest(String bucketName, String prefix, String directory) {
+        super(bucketName);
+        this.prefix = prefix;
+        this.directory = directory;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the max number of requests that transfer data at the same time,
+     * the parts of the large files included. By default it's 16.
+     */
+    public int getTaskNum() {
+        return taskNum;
+    }
+
+    public void setTaskNum(int taskNum) {
+        if (taskNum < 1) {
+            this.taskNum = 1;
+        } else if (taskNum > 1000) {
+            this.taskNum = 1000;
+        } else {
+            this.taskNum = taskNum;
+        }
+    }
+
+    public DirectoryTransferRequest withTaskNum(int taskNum) {
+        setTaskNum(taskNum);
+        return this;
+    }
+
+    /**
+     * Gets the max number of concurrent parts of one large file. By default
+     * it's 4.
+     */
+    public int getPartTaskNum() {
+        return partTaskNum;
+    }
+
+    public void setPartTaskNum(int partTaskNum) {
+        if (partTaskNum < 1) {
+            this.partTaskNum = 1;
+        } else if (partTaskNum > 1000) {
+            this.partTaskNum = 1000;
+        } else {
+            this.partTaskNum = partTaskNum;
+        }
+    }
+
+    public DirectoryTransferRequest withPartTaskNum(int partTaskNum) {
+        setPartTaskNum(partTaskNum);
+        return this;
+    }
+
+    /**
+     * Gets the size from which files are transferred in parts. By default
+     * it's 16MB.
+     */
+    public long getMultipartThreshold() {
+        return multipartThreshold;
+    }
+
+    public void setMultipartThreshold(long multipartThreshold) {
+        this.multipartThreshold = multipartThreshold;
+    }
+
+    public DirectoryTransferRequest withMultipartThreshold(long multipartThreshold) {
+        setMultipartThreshold(multipartThreshold);
+        return this;
+    }
+
+    /**
+     * Gets the size of the parts of the large files. It grows when a file
+     * would need more than 10,000 parts. By default it's 8MB.
+     */
+    public long getPartSize() {
+        return partSize;
+    }
+
+    public void setPartSize(long partSize) {
+        if (partSize < 100 * 1024L) {
+            throw new IllegalArgumentException("The part size should be at least 100KB.");
+        }
+        this.partSize = partSize;
+    }
+
+    public DirectoryTransferRequest withPartSize(long partSize) {
+        setPartSize(partSize);
+        return this;
+    }
+
+    /**
+     * Gets the max number of bytes transferred per second by all the
+     * requests. By default it's 0, no limit.
+     */
+    public long getMaxBytesPerSecond() {
+        return maxBytesPerSecond;
+    }
+
+    public void setMaxBytesPerSecond(long maxBytesPerSecond) {
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    public DirectoryTransferRequest withMaxBytesPerSecond(long maxBytesPerSecond) {
+        setMaxBytesPerSecond(maxBytesPerSecond);
+        return this;
+    }
+
+    /**
+     * Gets the manifest file, where the transferred files are recorded with
+     * their size, modification time, CRC64 and ETag, so that they are skipped
+     * without being read when the request runs again.
+     */
+    public String getManifestFile() {
+        return manifestFile;
+    }
+
+    public void setManifestFile(String manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    public DirectoryTransferRequest withManifestFile(String manifestFile) {
+        setManifestFile(manifestFile);
+        return this;
+    }
+
+    public boolean isChecksumEnabled() {
+        return checksumEnabled;
+    }
+
+    /**
+     * Sets whether the files of the same size as their objects, and not in
+     * the manifest, are read to compare their checksum, rather than
+     * transferred again. By default it's true.
+     */
+    public void setChecksumEnabled(boolean checksumEnabled) {
+        this.checksumEnabled = checksumEnabled;
+    }
+
+    public DirectoryTransferRequest withChecksumEnabled(boolean checksumEnabled) {
+        setChecksumEnabled(checksumEnabled);
+        return this;
+    }
+
+    // The prefix of the objects.
+    private String prefix;
+
+    // The local directory.
+    private String directory;
+
+    // The max number of concurrent data requests.
+    private int taskNum = 16;
+
+    // The max number of concurrent parts of one file.
+    private int partTaskNum = 4;
+
+    // The size from which files are transferred in parts.
+    private long multipartThreshold = 16 * 1024 * 1024L;
+
+    // The part size.
+    private long partSize = 8 * 1024 * 1024L;
+
+    // The bandwidth budget, 0 for no limit.
+    private long maxBytesPerSecond;
+
+    // The manifest of the transferred files.
+    private String manifestFile;
+
+    // Whether files of the same size are compared by checksum.
+    private boolean checksumEnabled = true;
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of a directory upload or download: how many files and bytes were
+ * transferred, how many were skipped as unchanged, and the files that could
+ * not be transferred.
+ */
+public class DirectoryTransferResult {
+
+    /**
+     * A file that could not be transferred.
+     */
+    public static class FailedFile {
+        private final String path;
+        private final String key;
+        private final String errorCode;
+        private final String errorMessage;
+
+        public FailedFile(String path, String key, String errorCode, String errorMessage) {
+            this.path = path;
+            this.key = key;
+            this.errorCode = errorCode;
+            this.errorMessage = errorMessage;
+        }
+
+        /**
+         * Gets the path of the file, relative to the directory.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getErrorCode() {
+            return errorCode;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        @Override
+        public String toString() {
+            return "FailedFile [path=" + path + ", key=" + key + ", errorCode=" + errorCode + ", errorMessage="
+                    + errorMessage + "]";
+        }
+    }
+
+    private long transferredCount;
+    private long multipartCount;
+    private long skippedCount;
+    private long transferredBytes;
+    private long elapsedMillis;
+    private final List<FailedFile> failedFiles = new ArrayList<FailedFile>();
+
+    /**
+     * Gets the number of files transferred by this run.
+     */
+    public long getTransferredCount() {
+        return transferredCount;
+    }
+
+    public void setTransferredCount(long transferredCount) {
+        this.transferredCount = transferredCount;
+    }
+
+    /**
+     * Gets the number of the transferred files that were transferred in
+     * parts.
+     */
+    public long getMultipartCount() {
+        return multipartCount;
+    }
+
+    public void setMultipartCount(long multipartCount) {
+        this.multipartCount = multipartCount;
+    }
+
+    /**
+     * Gets the number of files skipped as unchanged.
+     */
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    public void setSkippedCount(long skippedCount) {
+        this.skippedCount = skippedCount;
+    }
+
+    public long getTransferredBytes() {
+        return transferredBytes;
+    }
+
+    public void setTransferredBytes(long transferredBytes) {
+        this.transferredBytes = transferredBytes;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<FailedFile> getFailedFiles() {
+        return failedFiles;
+    }
+
+    public void addFailedFile(FailedFile failedFile) {
+        failedFiles.add(failedFile);
+    }
+}
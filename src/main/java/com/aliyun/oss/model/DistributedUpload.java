@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.io.InputStream;
+import java.io.Serializable;
+
+import com.aliyun.oss.ClientException;
+
+/**
+ * The handle of a multipart upload that is shared by the workers of several
+ * processes or nodes. It is serializable, so that the node that initiates the
+ * upload can pass it to the workers, which lease ranges of part numbers from
+ * an {@link UploadCoordinationStore} and upload the parts in them.
+ */
+public class DistributedUpload implements Serializable {
+
+    private static final long serialVersionUID = -3906521734811617408L;
+
+    private final String bucketName;
+    private final String key;
+    private final String uploadId;
+    private final Payer requestPayer;
+
+    public DistributedUpload(String bucketName, String key, String uploadId) {
+        this(bucketName, key, uploadId, null);
+    }
+
+    public DistributedUpload(String bucketName, String key, String uploadId, Payer requestPayer) {
+        this.bucketName = bucketName;
+        this.key = key;
+        this.uploadId = uploadId;
+        this.requestPayer = requestPayer;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public Payer getRequestPayer() {
+        return requestPayer;
+    }
+
+    /**
+     * Creates the request that uploads a part of the given lease.
+     *
+     * @throws IllegalArgumentException
+     *             If the lease is not one of this upload, or the part number is
+     *             not in it.
+     * @throws ClientException
+     *             If the lease is completed, or expired by the clock of this
+     *             node, since its range may be leased to another worker.
+     */
+    public UploadPartRequest newUploadPartRequest(PartRangeLease lease, int partNumber, InputStream input,
+            long partSize) {
+        if (!uploadId.equals(lease.getUploadId())) {
+            throw new IllegalArgumentException("The lease is not one of the upload " + uploadId);
+        }
+        if (!lease.contains(partNumber)) {
+            throw new IllegalArgumentException("The part number " + partNumber + " is not in the leased range ["
+                    + lease.getFirstPartNumber() + ", " + lease.getLastPartNumber() + "]");
+        }
+        if (lease.isCompleted()) {
+            throw new ClientException("The lease " + lease + " is already completed.");
+        }
+        if (lease.isExpired(System.currentTimeMillis())) {
+            throw new ClientException("The lease " + lease + " has expired, it should be renewed in time.");
+        }
+        UploadPartRequest request = new UploadPartRequest(bucketName, key, uploadId, partNumber, input, partSize);
+        if (requestPayer != null) {
+            request.setRequestPayer(requestPayer);
+        }
+        return request;
+    }
+}
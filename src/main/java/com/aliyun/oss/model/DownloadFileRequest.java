@@ -281,10 +281,50 @@ public class DownloadFileRequest extends GenericRequest {
         range = new long[] { start, end };
     }
 
+    /**
+     * Gets the flag of auto tuning the part size and the concurrency.
+     */
+    public boolean isAutoTuneEnabled() {
+        return autoTuneEnabled;
+    }
+
+    /**
+     * Sets the flag of auto tuning the part size and the concurrency. When it's
+     * enabled, partSize is ignored: the part size is picked from the object size
+     * and the 10,000 parts limit. The concurrency starts at 4 parts and adapts
+     * to the measured throughput and to timeout or server busy errors, up to
+     * taskNum parts, or up to 32 parts when taskNum is not set. The decisions
+     * taken are returned in {@link DownloadFileResult#getTransferTuning()}.
+     */
+    public void setAutoTuneEnabled(boolean autoTuneEnabled) {
+        this.autoTuneEnabled = autoTuneEnabled;
+    }
+
+    /**
+     * Gets the flag of writing the parts through memory mapped regions of the
+     * file.
+     */
+    public boolean isMmapEnabled() {
+        return mmapEnabled;
+    }
+
+    /**
+     * Sets the flag of writing the parts through memory mapped regions of the
+     * file instead of positional writes. It saves the write calls, but the
+     * pages are only flushed to disk by the OS. By default it's false.
+     */
+    public void setMmapEnabled(boolean mmapEnabled) {
+        this.mmapEnabled = mmapEnabled;
+    }
+
     // Part size in byte, by default it's 100KB.
     private long partSize = 1024 * 100;
     // Thread count for downloading parts, by default it's 1.
     private int taskNum = 1;
+    // Auto tuning of the part size and the concurrency.
+    private boolean autoTuneEnabled;
+    // Write the parts through memory mapped regions.
+    private boolean mmapEnabled;
     // The local file path for the download.
     private String downloadFile;
     // Flag of enabling checkpoint.
@@ -33,6 +33,19 @@ public class DownloadFileResult {
         this.objectMetadata = objectMetadata;
     }
 
+    /**
+     * Gets the part size and concurrency decisions of the auto tuning, or null
+     * when the auto tuning is not enabled in the request.
+     */
+    public TransferTuning getTransferTuning() {
+        return transferTuning;
+    }
+
+    public void setTransferTuning(TransferTuning transferTuning) {
+        this.transferTuning = transferTuning;
+    }
+
     private ObjectMetadata objectMetadata;
+    private TransferTuning transferTuning;
 
 }
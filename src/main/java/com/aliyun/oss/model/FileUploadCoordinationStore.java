@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.ClientException;
+
+/**
+ * An {@link UploadCoordinationStore} in a directory, for the workers of the
+ * processes or nodes that share it, e.g. on a network file system. The leases
+ * of each upload are kept in a file of their own, which is updated under an
+ * exclusive lock on a lock file next to it. The empty lock file is left in the
+ * directory when the upload is removed.
+ * <p>
+ * The expiration of a lease is the wall-clock time of the node that leased or
+ * renewed it, and is compared with the wall-clock time of the node that asks
+ * for parts. The clocks of the nodes sharing the directory must be in sync, to
+ * well within the lease time, or a live lease may be taken over.
+ */
+public class FileUploadCoordinationStore implements UploadCoordinationStore {
+
+    /**
+     * File locks are held by the process, so the threads of this process
+     * serialize on this lock first.
+     */
+    private static final Lock processLock = new ReentrantLock();
+
+    private final File directory;
+
+    public FileUploadCoordinationStore(File directory) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Could not create the directory " + directory);
+        }
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public PartRangeLease leaseParts(final DistributedUpload upload, final String workerId, final int partCount,
+            final long leaseMillis) throws ClientException {
+        return update(upload.getUploadId(), true, new Update<PartRangeLease>() {
+            @Override
+            PartRangeLease apply(PartLeaseTable table) {
+                return table.lease(upload.getUploadId(), workerId, partCount, leaseMillis);
+            }
+        });
+    }
+
+    @Override
+    public PartRangeLease renewLease(final PartRangeLease lease, final long leaseMillis) throws ClientException {
+        return update(lease.getUploadId(), true, new Update<PartRangeLease>() {
+            @Override
+            PartRangeLease apply(PartLeaseTable table) {
+                return table.renew(lease, leaseMillis);
+            }
+        });
+    }
+
+    @Override
+    public PartRangeLease completeLease(PartRangeLease lease) throws ClientException {
+        return completeLease(lease, lease.getLastPartNumber());
+    }
+
+    @Override
+    public PartRangeLease completeLease(final PartRangeLease lease, final int lastUploadedPartNumber)
+            throws ClientException {
+        return update(lease.getUploadId(), true, new Update<PartRangeLease>() {
+            @Override
+            PartRangeLease apply(PartLeaseTable table) {
+                return table.complete(lease, lastUploadedPartNumber);
+            }
+        });
+    }
+
+    @Override
+    public List<PartRangeLease> getLeases(DistributedUpload upload) throws ClientException {
+        return update(upload.getUploadId(), false, new Update<List<PartRangeLease>>() {
+            @Override
+            List<PartRangeLease> apply(PartLeaseTable table) {
+                return table.getLeases();
+            }
+        });
+    }
+
+    @Override
+    public void removeUpload(DistributedUpload upload) throws ClientException {
+        final String name = fileName(upload.getUploadId());
+        update(upload.getUploadId(), false, new Update<Void>() {
+            @Override
+            Void apply(PartLeaseTable table) {
+                new File(directory, name + ".leases").delete();
+                return null;
+            }
+        });
+        // The lock file is kept: a worker waiting on it would lock the deleted
+        // file while another one locks a new file under the same name.
+    }
+
+    abstract static class Update<T> {
+        abstract T apply(PartLeaseTable table);
+    }
+
+    private <T> T update(String uploadId, boolean write, Update<T> update) {
+        String name = fileName(uploadId);
+        File dataFile = new File(directory, name + ".leases");
+        processLock.lock();
+        RandomAccessFile lockFile = null;
+        try {
+            lockFile = new RandomAccessFile(new File(directory, name + ".lock"), "rw");
+            FileChannel channel = lockFile.getChannel();
+            FileLock fileLock = channel.lock();
+            try {
+                PartLeaseTable table = read(dataFile);
+                if (table == null) {
+                    table = new PartLeaseTable();
+                }
+                T result = update.apply(table);
+                if (write) {
+                    write(table, dataFile);
+                }
+                return result;
+            } finally {
+                fileLock.release();
+            }
+        } catch (IOException e) {
+            throw new ClientException("Failed to update the leases of the upload " + uploadId + ": "
+                    + e.getMessage(), e);
+        } finally {
+            if (lockFile != null) {
+                try {
+                    lockFile.close();
+                } catch (IOException e) {
+                }
+            }
+            processLock.unlock();
+        }
+    }
+
+    private static PartLeaseTable read(File dataFile) throws IOException {
+        if (!dataFile.exists()) {
+            return null;
+        }
+        ObjectInputStream in = new ObjectInputStream(new FileInputStream(dataFile));
+        try {
+            return (PartLeaseTable) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unexpected content in " + dataFile + ": " + e.getMessage());
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void write(PartLeaseTable table, File dataFile) throws IOException {
+        File tmp = new File(dataFile.getPath() + ".tmp");
+        ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(tmp));
+        try {
+            out.writeObject(table);
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(dataFile)) {
+            // Windows does not rename over an existing file.
+            dataFile.delete();
+            if (!tmp.renameTo(dataFile)) {
+                throw new IOException("Could not rename " + tmp + " to " + dataFile);
+            }
+        }
+    }
+
+    private static String fileName(String uploadId) {
+        StringBuilder name = new StringBuilder(uploadId.length());
+        for (int i = 0; i < uploadId.length(); i++) {
+            char c = uploadId.charAt(i);
+            boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-'
+                    || c == '_';
+            name.append(safe ? c : '_');
+        }
+        return name.toString();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.aliyun.oss.ClientException;
+
+/**
+ * An {@link UploadCoordinationStore} in memory, for the workers of one
+ * process.
+ */
+public class MemoryUploadCoordinationStore implements UploadCoordinationStore {
+
+    private final Lock lock = new ReentrantLock();
+    private final Map<String, PartLeaseTable> tables = new HashMap<String, PartLeaseTable>();
+
+    @Override
+    public PartRangeLease leaseParts(DistributedUpload upload, String workerId, int partCount, long leaseMillis)
+            throws ClientException {
+        lock.lock();
+        try {
+            PartLeaseTable table = tables.get(upload.getUploadId());
+            if (table == null) {
+                table = new PartLeaseTable();
+                tables.put(upload.getUploadId(), table);
+            }
+            return table.lease(upload.getUploadId(), workerId, partCount, leaseMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PartRangeLease renewLease(PartRangeLease lease, long leaseMillis) throws ClientException {
+        lock.lock();
+        try {
+            return getTable(lease).renew(lease, leaseMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public PartRangeLease completeLease(PartRangeLease lease) throws ClientException {
+        return completeLease(lease, lease.getLastPartNumber());
+    }
+
+    @Override
+    public PartRangeLease completeLease(PartRangeLease lease, int lastUploadedPartNumber) throws ClientException {
+        lock.lock();
+        try {
+            return getTable(lease).complete(lease, lastUploadedPartNumber);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<PartRangeLease> getLeases(DistributedUpload upload) throws ClientException {
+        lock.lock();
+        try {
+            PartLeaseTable table = tables.get(upload.getUploadId());
+            return table == null ? new ArrayList<PartRangeLease>() : table.getLeases();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void removeUpload(DistributedUpload upload) throws ClientException {
+        lock.lock();
+        try {
+            tables.remove(upload.getUploadId());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PartLeaseTable getTable(PartRangeLease lease) {
+        PartLeaseTable table = tables.get(lease.getUploadId());
+        if (table == null) {
+            throw new ClientException("The upload " + lease.getUploadId() + " has no leases.");
+        }
+        return table;
+    }
+}
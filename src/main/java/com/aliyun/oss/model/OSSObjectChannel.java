@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A channel that reads an object at any position.
+ * <p>
+ * It has the methods of a SeekableByteChannel without the write ones, plus a
+ * positional read like the one of FileChannel. All the reads see the version
+ * of the object the channel was opened on.
+ */
+public abstract class OSSObjectChannel implements ReadableByteChannel {
+
+    /**
+     * Gets the position of the next {@link #read(ByteBuffer)}.
+     */
+    public abstract long position() throws IOException;
+
+    /**
+     * Sets the position of the next {@link #read(ByteBuffer)}. A position at
+     * or beyond the size makes the reads return -1.
+     */
+    public abstract OSSObjectChannel position(long newPosition) throws IOException;
+
+    /**
+     * Gets the size of the object.
+     */
+    public abstract long size() throws IOException;
+
+    /**
+     * Reads from the given position of the object, without changing the
+     * position of the channel.
+     *
+     * @return The number of bytes read, or -1 if the position is at or beyond
+     *         the size.
+     */
+    public abstract int read(ByteBuffer dst, long position) throws IOException;
+
+    /**
+     * Gets the metadata of the object the channel was opened on.
+     */
+    public abstract ObjectMetadata getObjectMetadata();
+
+    /**
+     * Gets the number of GetObject requests sent so far.
+     */
+    public abstract long getRequestCount();
+
+    /**
+     * Gets the number of blocks read from the cache.
+     */
+    public abstract long getCacheHitCount();
+
+    /**
+     * Gets the number of blocks that had to be fetched for a read.
+     */
+    public abstract long getCacheMissCount();
+}
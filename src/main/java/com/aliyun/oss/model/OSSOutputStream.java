@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An output stream that uploads what is written to an object.
+ * <p>
+ * The object is created when the stream is closed, and not before. Calling
+ * {@link #abort()} instead discards everything written. The stream may also be
+ * used as a {@link WritableByteChannel}.
+ */
+public abstract class OSSOutputStream extends OutputStream implements WritableByteChannel {
+
+    /**
+     * Gets the number of bytes written so far.
+     */
+    public abstract long getBytesWritten();
+
+    /**
+     * Discards the data written and the parts uploaded so far, and closes the
+     * stream without creating the object.
+     */
+    public abstract void abort();
+
+    /**
+     * Gets the result of the upload, or null if the stream is not closed yet.
+     * A stream smaller than one part is uploaded by PutObject, and its result
+     * is copied into a {@link CompleteMultipartUploadResult}.
+     */
+    public abstract CompleteMultipartUploadResult getResult();
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+/**
+ * The request class that is to open an {@link OSSObjectChannel} for random
+ * reads of an object.
+ */
+public class ObjectChannelRequest extends GenericRequest {
+
+    public ObjectChannelRequest(String bucketName, String key) {
+        super(bucketName, key);
+    }
+
+    public ObjectChannelRequest(String bucketName, String key, int blockSize, int maxCachedBlocks) {
+        super(bucketName, key);
+        setBlockSize(blockSize);
+        setMaxCachedBlocks(maxCachedBlocks);
+    }
+
+    /**
+     * Gets the size of the blocks that are fetched and cached. By default it's
+     * 1MB.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public void setBlockSize(int blockSize) {
+        this.blockSize = Math.max(blockSize, 4 * 1024);
+    }
+
+    /**
+     * Gets the max number of blocks kept in the LRU cache, which bounds the
+     * memory to maxCachedBlocks * blockSize. By default it's 32.
+     */
+    public int getMaxCachedBlocks() {
+        return maxCachedBlocks;
+    }
+
+    public void setMaxCachedBlocks(int maxCachedBlocks) {
+        this.maxCachedBlocks = Math.max(maxCachedBlocks, 2);
+    }
+
+    /**
+     * Gets the max number of blocks fetched ahead once the reads are
+     * sequential. The read-ahead starts at one block and doubles with every
+     * sequential fetch up to this number. 0 disables it. By default it's 8.
+     */
+    public int getMaxReadAheadBlocks() {
+        return maxReadAheadBlocks;
+    }
+
+    public void setMaxReadAheadBlocks(int maxReadAheadBlocks) {
+        this.maxReadAheadBlocks = Math.max(maxReadAheadBlocks, 0);
+    }
+
+    // Block size in byte, by default it's 1MB.
+    private int blockSize = 1024 * 1024;
+    // Blocks kept in the cache.
+    private int maxCachedBlocks = 32;
+    // Blocks fetched ahead of sequential reads.
+    private int maxReadAheadBlocks = 8;
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+/**
+ * The request class that is to select an object by concurrent select requests
+ * over ranges of its splits.
+ * <p>
+ * The expression, input and output serialization are the same as
+ * {@link SelectObjectRequest}. The select progress listener receives the
+ * scanned bytes summed over all the ranges.
+ */
+public class ParallelSelectObjectRequest extends SelectObjectRequest {
+
+    public ParallelSelectObjectRequest(String bucketName, String key) {
+        super(bucketName, key);
+    }
+
+    /**
+     * Gets the number of select requests that run at the same time. By
+     * default it's 4.
+     */
+    public int getTaskNum() {
+        return taskNum;
+    }
+
+    public void setTaskNum(int taskNum) {
+        if (taskNum < 1) {
+            this.taskNum = 1;
+        } else if (taskNum > 1000) {
+            this.taskNum = 1000;
+        } else {
+            this.taskNum = taskNum;
+        }
+    }
+
+    public ParallelSelectObjectRequest withTaskNum(int taskNum) {
+        setTaskNum(taskNum);
+        return this;
+    }
+
+    /**
+     * Gets the number of splits selected by each request. By default it's 0,
+     * which divides the splits into 4 ranges per task.
+     */
+    public int getSplitsPerRange() {
+        return splitsPerRange;
+    }
+
+    public void setSplitsPerRange(int splitsPerRange) {
+        this.splitsPerRange = Math.max(splitsPerRange, 0);
+    }
+
+    public ParallelSelectObjectRequest withSplitsPerRange(int splitsPerRange) {
+        setSplitsPerRange(splitsPerRange);
+        return this;
+    }
+
+    /**
+     * Gets whether the results are returned in the order of the splits. When
+     * it's false, the result of each range is returned as soon as it is
+     * selected, and the CSV header of the output can not be enabled. By
+     * default it's true.
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    public ParallelSelectObjectRequest withOrdered(boolean ordered) {
+        setOrdered(ordered);
+        return this;
+    }
+
+    /**
+     * Gets the max number of ranges that are selected ahead of the reader.
+     * Each range holds at most 1MB of its result until it is read, and its
+     * select waits while that is full, so this bounds the memory to about
+     * maxBufferedRanges MB. By default it's 8.
+     */
+    public int getMaxBufferedRanges() {
+        return maxBufferedRanges;
+    }
+
+    public void setMaxBufferedRanges(int maxBufferedRanges) {
+        this.maxBufferedRanges = Math.max(maxBufferedRanges, 1);
+    }
+
+    public ParallelSelectObjectRequest withMaxBufferedRanges(int maxBufferedRanges) {
+        setMaxBufferedRanges(maxBufferedRanges);
+        return this;
+    }
+
+    /**
+     * Gets the number of splits of the object, or 0 if it is not known. When
+     * it's 0, the select metadata of the object is created to get it.
+     */
+    public int getSplits() {
+        return splits;
+    }
+
+    /**
+     * Sets the number of splits of the object, as returned by
+     * {@link com.aliyun.oss.OSS#createSelectObjectMetadata}, which saves the
+     * request that creates the select metadata.
+     */
+    public void setSplits(int splits) {
+        this.splits = Math.max(splits, 0);
+    }
+
+    public ParallelSelectObjectRequest withSplits(int splits) {
+        setSplits(splits);
+        return this;
+    }
+
+    // Concurrent select requests, by default it's 4.
+    private int taskNum = 4;
+    // Splits per select request, 0 means 4 ranges per task.
+    private int splitsPerRange;
+    // Whether the results are merged in the order of the splits.
+    private boolean ordered = true;
+    // Ranges selected or buffered ahead of the reader.
+    private int maxBufferedRanges = 8;
+    // Number of splits of the object, 0 if unknown.
+    private int splits;
+}
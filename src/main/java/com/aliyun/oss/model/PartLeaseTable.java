@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import com.aliyun.oss.ClientException;
+
+/**
+ * The leases of one upload, shared by the coordination stores. Callers
+ * serialize the access to it.
+ */
+class PartLeaseTable implements Serializable {
+
+    private static final long serialVersionUID = 5153428690474183521L;
+
+    static final int MAX_PART_NUMBER = 10000;
+
+    private int nextPartNumber = 1;
+    private final List<PartRangeLease> leases = new ArrayList<PartRangeLease>();
+
+    PartRangeLease lease(String uploadId, String workerId, int partCount, long leaseMillis) {
+        if (partCount <= 0) {
+            throw new IllegalArgumentException("The part count should be positive.");
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < leases.size(); i++) {
+            PartRangeLease lease = leases.get(i);
+            if (lease.isExpired(now)) {
+                PartRangeLease reclaimed = new PartRangeLease(uploadId, newLeaseId(), workerId,
+                        lease.getFirstPartNumber(), lease.getLastPartNumber(), now + leaseMillis, false);
+                leases.set(i, reclaimed);
+                return reclaimed;
+            }
+        }
+        if (nextPartNumber > MAX_PART_NUMBER) {
+            throw new ClientException("All the part numbers of the upload " + uploadId + " are leased.");
+        }
+        int last = (int) Math.min((long) nextPartNumber + partCount - 1, MAX_PART_NUMBER);
+        PartRangeLease lease = new PartRangeLease(uploadId, newLeaseId(), workerId, nextPartNumber, last,
+                now + leaseMillis, false);
+        leases.add(lease);
+        nextPartNumber = last + 1;
+        return lease;
+    }
+
+    PartRangeLease renew(PartRangeLease lease, long leaseMillis) {
+        int i = indexOf(lease);
+        PartRangeLease current = leases.get(i);
+        if (current.isCompleted()) {
+            throw new ClientException("The lease " + current + " is already completed.");
+        }
+        PartRangeLease renewed = new PartRangeLease(current.getUploadId(), current.getLeaseId(),
+                current.getWorkerId(), current.getFirstPartNumber(), current.getLastPartNumber(),
+                System.currentTimeMillis() + leaseMillis, false);
+        leases.set(i, renewed);
+        return renewed;
+    }
+
+    PartRangeLease complete(PartRangeLease lease, int lastUploadedPartNumber) {
+        int i = indexOf(lease);
+        PartRangeLease current = leases.get(i);
+        if (lastUploadedPartNumber < current.getFirstPartNumber() - 1
+                || lastUploadedPartNumber > current.getLastPartNumber()) {
+            throw new IllegalArgumentException("The last uploaded part number " + lastUploadedPartNumber
+                    + " is not in the leased range " + current + ".");
+        }
+        PartRangeLease completed = new PartRangeLease(current.getUploadId(), current.getLeaseId(),
+                current.getWorkerId(), current.getFirstPartNumber(), current.getLastPartNumber(),
+                current.getExpiration(), true, lastUploadedPartNumber);
+        leases.set(i, completed);
+        return completed;
+    }
+
+    List<PartRangeLease> getLeases() {
+        return new ArrayList<PartRangeLease>(leases);
+    }
+
+    private int indexOf(PartRangeLease lease) {
+        for (int i = 0; i < leases.size(); i++) {
+            if (leases.get(i).getLeaseId().equals(lease.getLeaseId())) {
+                return i;
+            }
+        }
+        throw new ClientException("The lease " + lease + " is lost, its range has been leased to another worker.");
+    }
+
+    private static String newLeaseId() {
+        return UUID.randomUUID().toString();
+    }
+}
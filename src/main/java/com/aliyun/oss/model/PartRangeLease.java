@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.io.Serializable;
+
+/**
+ * A range of part numbers of a {@link DistributedUpload} leased to a worker
+ * until the expiration time. A lease that expires before it is completed is
+ * given to the next worker that asks for parts, so the range of a worker that
+ * died is uploaded by another one. Leases are immutable; renewing or
+ * completing one returns a new instance.
+ */
+public class PartRangeLease implements Serializable {
+
+    private static final long serialVersionUID = 2271453218876316452L;
+
+    private final String uploadId;
+    private final String leaseId;
+    private final String workerId;
+    private final int firstPartNumber;
+    private final int lastPartNumber;
+    private final long expiration;
+    private final boolean completed;
+    private final int lastUploadedPartNumber;
+
+    public PartRangeLease(String uploadId, String leaseId, String workerId, int firstPartNumber,
+            int lastPartNumber, long expiration, boolean completed) {
+        this(uploadId, leaseId, workerId, firstPartNumber, lastPartNumber, expiration, completed,
+                completed ? lastPartNumber : firstPartNumber - 1);
+    }
+
+    public PartRangeLease(String uploadId, String leaseId, String workerId, int firstPartNumber,
+            int lastPartNumber, long expiration, boolean completed, int lastUploadedPartNumber) {
+        this.uploadId = uploadId;
+        this.leaseId = leaseId;
+        this.workerId = workerId;
+        this.firstPartNumber = firstPartNumber;
+        this.lastPartNumber = lastPartNumber;
+        this.expiration = expiration;
+        this.completed = completed;
+        this.lastUploadedPartNumber = lastUploadedPartNumber;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    /**
+     * Gets the id of the lease, which changes when the range is leased again.
+     */
+    public String getLeaseId() {
+        return leaseId;
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public int getFirstPartNumber() {
+        return firstPartNumber;
+    }
+
+    public int getLastPartNumber() {
+        return lastPartNumber;
+    }
+
+    /**
+     * Gets the time the lease expires, in milliseconds since the epoch.
+     */
+    public long getExpiration() {
+        return expiration;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Gets the last part number the worker uploaded, as recorded when the
+     * lease was completed. Only the parts of the range up to it make the
+     * object; the parts after it may be left by an earlier holder of the range.
+     */
+    public int getLastUploadedPartNumber() {
+        return lastUploadedPartNumber;
+    }
+
+    public boolean contains(int partNumber) {
+        return partNumber >= firstPartNumber && partNumber <= lastPartNumber;
+    }
+
+    public boolean isExpired(long now) {
+        return !completed && now >= expiration;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + firstPartNumber + ", " + lastPartNumber + "] of " + uploadId + " leased to " + workerId;
+    }
+}
@@ -36,6 +36,8 @@ public class PartSummary {
 
     private long size;
 
+    private Long serverCRC;
+
     /**
      * Constructor
      */
@@ -118,4 +120,23 @@ public class PartSummary {
         this.size = size;
     }
 
+    /**
+     * Gets the CRC64 of the part, or null if it is not listed.
+     *
+     * @return The CRC64 of the part.
+     */
+    public Long getServerCRC() {
+        return serverCRC;
+    }
+
+    /**
+     * Sets the CRC64 of the part.
+     *
+     * @param serverCRC
+     *            The CRC64 of the part.
+     */
+    public void setServerCRC(Long serverCRC) {
+        this.serverCRC = serverCRC;
+    }
+
 }
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.util.Date;
+
+/**
+ * The request class that is to initiate a multipart upload of an object of
+ * the given size, and presign the URLs that upload its parts. Without an
+ * upload id a new upload is initiated; with one, the URLs of more parts of
+ * that upload are presigned, e.g. to replace expired ones.
+ */
+public class PresignMultipartUploadRequest extends GenericRequest {
+
+    public PresignMultipartUploadRequest(String bucketName, String key, long contentLength, Date expiration) {
+        super(bucketName, key);
+        setContentLength(contentLength);
+        this.expiration = expiration;
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public void setContentLength(long contentLength) {
+        if (contentLength < 0) {
+            throw new IllegalArgumentException("The content length should not be negative.");
+        }
+        this.contentLength = contentLength;
+    }
+
+    /**
+     * Gets the size of each part. It grows when the object would need more
+     * than 10,000 parts. By default it's 8MB.
+     */
+    public long getPartSize() {
+        return partSize;
+    }
+
+    public void setPartSize(long partSize) {
+        if (partSize < 100 * 1024L) {
+            throw new IllegalArgumentException("The part size should be at least 100KB.");
+        }
+        this.partSize = partSize;
+    }
+
+    public PresignMultipartUploadRequest withPartSize(long partSize) {
+        setPartSize(partSize);
+        return this;
+    }
+
+    /**
+     * Gets the time the URLs expire, the same for all of them.
+     */
+    public Date getExpiration() {
+        return expiration;
+    }
+
+    public void setExpiration(Date expiration) {
+        this.expiration = expiration;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public PresignMultipartUploadRequest withUploadId(String uploadId) {
+        setUploadId(uploadId);
+        return this;
+    }
+
+    public int getFirstPartNumber() {
+        return firstPartNumber;
+    }
+
+    /**
+     * Sets the number of the first part to presign, 1 by default.
+     */
+    public void setFirstPartNumber(int firstPartNumber) {
+        if (firstPartNumber < 1) {
+            throw new IllegalArgumentException("The first part number should be positive.");
+        }
+        this.firstPartNumber = firstPartNumber;
+    }
+
+    public PresignMultipartUploadRequest withFirstPartNumber(int firstPartNumber) {
+        setFirstPartNumber(firstPartNumber);
+        return this;
+    }
+
+    public int getPartCount() {
+        return partCount;
+    }
+
+    /**
+     * Sets the number of parts to presign. By default it's 0, all the parts
+     * from the first one.
+     */
+    public void setPartCount(int partCount) {
+        if (partCount < 0) {
+            throw new IllegalArgumentException("The part count should not be negative.");
+        }
+        this.partCount = partCount;
+    }
+
+    public PresignMultipartUploadRequest withPartCount(int partCount) {
+        setPartCount(partCount);
+        return this;
+    }
+
+    public ObjectMetadata getObjectMetadata() {
+        return objectMetadata;
+    }
+
+    /**
+     * Sets the metadata of the object, used when a new upload is initiated.
+     */
+    public void setObjectMetadata(ObjectMetadata objectMetadata) {
+        this.objectMetadata = objectMetadata;
+    }
+
+    public PresignMultipartUploadRequest withObjectMetadata(ObjectMetadata objectMetadata) {
+        setObjectMetadata(objectMetadata);
+        return this;
+    }
+
+    // The size of the whole object.
+    private long contentLength;
+
+    // The part size, 8MB by default.
+    private long partSize = 8 * 1024 * 1024L;
+
+    // The time the URLs expire.
+    private Date expiration;
+
+    // The upload to presign parts of, or null to initiate one.
+    private String uploadId;
+
+    // The range of parts to presign.
+    private int firstPartNumber = 1;
+    private int partCount;
+
+    // The metadata of the object.
+    private ObjectMetadata objectMetadata;
+}
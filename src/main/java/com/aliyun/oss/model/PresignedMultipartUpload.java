@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A multipart upload with presigned URLs for its parts, which is handed to a
+ * client that uploads the parts directly with
+ * {@link com.aliyun.oss.OSS#putObject(java.net.URL, java.io.InputStream, long, java.util.Map)}.
+ * The upload is then completed on the server side by
+ * {@link com.aliyun.oss.OSS#completeDistributedUpload(CompleteDistributedUploadRequest)},
+ * which checks that all the parts of the object are uploaded.
+ */
+public class PresignedMultipartUpload extends DistributedUpload {
+
+    private static final long serialVersionUID = 4386271183925410317L;
+
+    private final long contentLength;
+    private final long partSize;
+    private final Date expiration;
+    private final List<PresignedPart> parts = new ArrayList<PresignedPart>();
+
+    public PresignedMultipartUpload(String bucketName, String key, String uploadId, Payer requestPayer,
+            long contentLength, long partSize, Date expiration) {
+        super(bucketName, key, uploadId, requestPayer);
+        this.contentLength = contentLength;
+        this.partSize = partSize;
+        this.expiration = expiration;
+    }
+
+    /**
+     * Gets the size of the whole object.
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public long getPartSize() {
+        return partSize;
+    }
+
+    /**
+     * Gets the number of parts of the whole object, which may be more than
+     * the presigned ones.
+     */
+    public int getPartCount() {
+        return contentLength == 0 ? 1 : (int) ((contentLength + partSize - 1) / partSize);
+    }
+
+    /**
+     * Gets the time the URLs of the parts expire.
+     */
+    public Date getExpiration() {
+        return expiration;
+    }
+
+    /**
+     * Gets the presigned parts, in the order of the part numbers.
+     */
+    public List<PresignedPart> getParts() {
+        return parts;
+    }
+
+    public void addPart(PresignedPart part) {
+        parts.add(part);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.io.Serializable;
+import java.net.URL;
+
+/**
+ * A part of a {@link PresignedMultipartUpload}: its range of the object and
+ * the presigned URL that uploads it with a PUT.
+ */
+public class PresignedPart implements Serializable {
+
+    private static final long serialVersionUID = -6710244135913574420L;
+
+    private final int partNumber;
+    private final long offset;
+    private final long size;
+    private final URL url;
+
+    public PresignedPart(int partNumber, long offset, long size, URL url) {
+        this.partNumber = partNumber;
+        this.offset = offset;
+        this.size = size;
+        this.url = url;
+    }
+
+    public int getPartNumber() {
+        return partNumber;
+    }
+
+    /**
+     * Gets the position of the part in the object.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+}
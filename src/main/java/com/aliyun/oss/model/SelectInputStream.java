@@ -6,7 +6,6 @@ import com.aliyun.oss.event.ProgressListener;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
 import java.util.zip.CRC32;
 
 import static com.aliyun.oss.event.ProgressPublisher.publishSelectProgress;
@@ -36,13 +35,17 @@ public class SelectInputStream extends FilterInputStream {
     private static final int SELECT_VERSION = 1;
     private static final long DEFAULT_NOTIFICATION_THRESHOLD = 50 * 1024 * 1024;//notify every scanned 50MB
 
+    /**
+     * The payload checksum of the previous frame followed by the header and
+     * scanned data bytes of the next frame, which are read at once.
+     */
+    private static final int FRAME_HEADER_SIZE = 24;
+    private static final int FRAME_HEADER_OFFSET = 4;
+
     private long currentFrameOffset;
     private long currentFramePayloadLength;
-    private byte[] currentFrameTypeBytes;
-    private byte[] currentFramePayloadLengthBytes;
-    private byte[] currentFrameHeaderChecksumBytes;
-    private byte[] scannedDataBytes;
-    private byte[] currentFramePayloadChecksumBytes;
+    private byte[] frameHeader;
+    private byte[] endFrameFields;
     private boolean finished;
     private ProgressListener selectProgressListener;
     private long nextNotificationScannedSize;
@@ -59,11 +62,8 @@ public class SelectInputStream extends FilterInputStream {
         super(in);
         currentFrameOffset = 0;
         currentFramePayloadLength = 0;
-        currentFrameTypeBytes = new byte[4];
-        currentFramePayloadLengthBytes = new byte[4];
-        currentFrameHeaderChecksumBytes = new byte[4];
-        scannedDataBytes = new byte[8];
-        currentFramePayloadChecksumBytes = new byte[4];
+        frameHeader = new byte[FRAME_HEADER_SIZE];
+        endFrameFields = new byte[12];
         finished = false;
         firstReadFrame = true;
         this.selectProgressListener = selectProgressListener;
@@ -86,11 +86,19 @@ public class SelectInputStream extends FilterInputStream {
         }
     }
 
-    private void validateCheckSum(byte[] checksumBytes, CRC32 crc32) throws IOException {
+    private static int getInt(byte[] bytes, int off) {
+        return ((bytes[off] & 0xff) << 24) | ((bytes[off + 1] & 0xff) << 16)
+                | ((bytes[off + 2] & 0xff) << 8) | (bytes[off + 3] & 0xff);
+    }
+
+    private static long getLong(byte[] bytes, int off) {
+        return ((long) getInt(bytes, off) << 32) | (getInt(bytes, off + 4) & 0xffffffffL);
+    }
+
+    private void validateCheckSum(int checksum) throws IOException {
         if (payloadCrcEnabled) {
-            int currentChecksum = ByteBuffer.wrap(checksumBytes).getInt();
-            if (crc32.getValue() != ((long)currentChecksum & 0xffffffffL)) {
-                throw new SelectObjectException(SelectObjectException.INVALID_CRC, "Frame crc check failed, actual " + crc32.getValue() + ", expect: " + currentChecksum, requestId);
+            if (crc32.getValue() != ((long)checksum & 0xffffffffL)) {
+                throw new SelectObjectException(SelectObjectException.INVALID_CRC, "Frame crc check failed, actual " + crc32.getValue() + ", expect: " + checksum, requestId);
             }
             crc32.reset();
         }
@@ -98,45 +106,42 @@ public class SelectInputStream extends FilterInputStream {
 
     private void readFrame() throws IOException {
         while (currentFrameOffset >= currentFramePayloadLength && !finished) {
+            //the payload checksum of the previous frame is read along with the header of the next one
             if (!firstReadFrame) {
-                internalRead(currentFramePayloadChecksumBytes, 0, 4);
-                validateCheckSum(currentFramePayloadChecksumBytes, crc32);
+                internalRead(frameHeader, 0, FRAME_HEADER_SIZE);
+                validateCheckSum(getInt(frameHeader, 0));
+            } else {
+                internalRead(frameHeader, FRAME_HEADER_OFFSET, FRAME_HEADER_SIZE - FRAME_HEADER_OFFSET);
             }
             firstReadFrame = false;
-            //advance to next frame
-            internalRead(currentFrameTypeBytes, 0, 4);
             //first byte is version byte
-            if (currentFrameTypeBytes[0] != SELECT_VERSION) {
-                throw new SelectObjectException(SelectObjectException.INVALID_SELECT_VERSION, "Invalid select version found " + currentFrameTypeBytes[0] + ", expect: " + SELECT_VERSION, requestId);
+            if (frameHeader[FRAME_HEADER_OFFSET] != SELECT_VERSION) {
+                throw new SelectObjectException(SelectObjectException.INVALID_SELECT_VERSION, "Invalid select version found " + frameHeader[FRAME_HEADER_OFFSET] + ", expect: " + SELECT_VERSION, requestId);
             }
-            internalRead(currentFramePayloadLengthBytes, 0, 4);
-            internalRead(currentFrameHeaderChecksumBytes, 0, 4);
-            internalRead(scannedDataBytes, 0, 8);
+            //header: frame type(4 bytes), payload length(4 bytes), header checksum(4 bytes), scanned data bytes(8 bytes)
+            int type = getInt(frameHeader, FRAME_HEADER_OFFSET) & 0x00ffffff;
+            int payloadLength = getInt(frameHeader, FRAME_HEADER_OFFSET + 4);
+            long scannedDataSize = getLong(frameHeader, FRAME_HEADER_OFFSET + 12);
             if (payloadCrcEnabled) {
-                crc32.update(scannedDataBytes);
+                crc32.update(frameHeader, FRAME_HEADER_OFFSET + 12, 8);
             }
 
-            currentFrameTypeBytes[0] = 0;
-            int type = ByteBuffer.wrap(currentFrameTypeBytes).getInt();
             switch (type) {
                 case DATA_FRAME_MAGIC:
-                    currentFramePayloadLength = ByteBuffer.wrap(currentFramePayloadLengthBytes).getInt() - 8;
+                    currentFramePayloadLength = payloadLength - 8;
                     currentFrameOffset = 0;
                     break;
                 case CONTINUOUS_FRAME_MAGIC:
                     //just break, continue
                     break;
                 case END_FRAME_MAGIC:
-                    currentFramePayloadLength = ByteBuffer.wrap(currentFramePayloadLengthBytes).getInt() - 8;
-                    byte[] totalScannedDataSizeBytes = new byte[8];
-                    internalRead(totalScannedDataSizeBytes, 0, 8);
-                    byte[] statusBytes = new byte[4];
-                    internalRead(statusBytes, 0, 4);
+                    currentFramePayloadLength = payloadLength - 8;
+                    //total scan size(8 bytes), status code(4 bytes)
+                    internalRead(endFrameFields, 0, 12);
                     if (payloadCrcEnabled) {
-                        crc32.update(totalScannedDataSizeBytes);
-                        crc32.update(statusBytes);
+                        crc32.update(endFrameFields);
                     }
-                    int status = ByteBuffer.wrap(statusBytes).getInt();
+                    int status = getInt(endFrameFields, 8);
                     int errorMessageSize = (int)(currentFramePayloadLength - 12);
                     String error = "";
                     if (errorMessageSize > 0) {
@@ -149,9 +154,9 @@ public class SelectInputStream extends FilterInputStream {
                     }
                     finished = true;
                     currentFramePayloadLength = currentFrameOffset;
-                    internalRead(currentFramePayloadChecksumBytes, 0, 4);
+                    internalRead(frameHeader, 0, 4);
 
-                    validateCheckSum(currentFramePayloadChecksumBytes, crc32);
+                    validateCheckSum(getInt(frameHeader, 0));
                     if (status / 100 != 2) {
                         if (error.contains(".")) {
                             throw new SelectObjectException(error.split("\\.")[0], error.substring(error.indexOf(".") + 1), requestId);
@@ -169,7 +174,6 @@ public class SelectInputStream extends FilterInputStream {
             if (finished) {
                 eventType = ProgressEventType.SELECT_COMPLETED_EVENT;
             }
-            long scannedDataSize = ByteBuffer.wrap(scannedDataBytes).getLong();
             if (scannedDataSize >= nextNotificationScannedSize || finished) {
                 publishSelectProgress(selectProgressListener, eventType, scannedDataSize);
                 nextNotificationScannedSize += DEFAULT_NOTIFICATION_THRESHOLD;
@@ -0,0 +1,416 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.util.Arrays;
+
+import com.aliyun.oss.common.utils.StringUtils;
+
+/**
+ * A record of a select result, which is a view into the buffer of the
+ * {@link SelectRecordReader} that read it. It is valid until the next record is
+ * read, and no string is created unless one is asked for.
+ * <p>
+ * The fields of a CSV row are split by the field delimiter, and the view of a
+ * quoted field excludes the quotes. The fields of a JSON line are the members
+ * of its top level object, and the view of a string value excludes the quotes.
+ * Escaped characters are kept in the views and decoded by
+ * {@link #getField(int)}.
+ */
+public class SelectRecord {
+
+    private final boolean csv;
+    private final int fieldDelimiter;
+    private final int quoteChar;
+
+    private byte[] buffer;
+    private int offset;
+    private int length;
+
+    private boolean parsed;
+    private int fieldCount;
+    private int[] fields = new int[16];
+    private boolean[] escaped = new boolean[8];
+    private int[] names;
+
+    SelectRecord(boolean csv, int fieldDelimiter, int quoteChar) {
+        this.csv = csv;
+        this.fieldDelimiter = fieldDelimiter;
+        this.quoteChar = quoteChar;
+        if (!csv) {
+            names = new int[16];
+        }
+    }
+
+    void reset(byte[] buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        this.parsed = false;
+        this.fieldCount = 0;
+    }
+
+    /**
+     * Gets the buffer that holds the record.
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Gets the offset of the record in the buffer.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the length of the record in bytes, without the record delimiter.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Gets the number of fields. A JSON line which is not an object has no
+     * fields.
+     */
+    public int getFieldCount() {
+        parse();
+        return fieldCount;
+    }
+
+    /**
+     * Gets the offset of the field in the buffer.
+     */
+    public int getFieldOffset(int index) {
+        checkIndex(index);
+        return fields[index * 2];
+    }
+
+    /**
+     * Gets the length of the field in bytes.
+     */
+    public int getFieldLength(int index) {
+        checkIndex(index);
+        return fields[index * 2 + 1];
+    }
+
+    /**
+     * Gets the field as a string, with the escaped characters decoded.
+     */
+    public String getField(int index) {
+        checkIndex(index);
+        String value = new String(buffer, fields[index * 2], fields[index * 2 + 1], StringUtils.UTF8);
+        if (!escaped[index]) {
+            return value;
+        }
+        return csv ? unescapeCsv(value) : unescapeJson(value);
+    }
+
+    /**
+     * Gets the name of the field of a JSON line, or null for a CSV row.
+     */
+    public String getFieldName(int index) {
+        checkIndex(index);
+        if (csv) {
+            return null;
+        }
+        return unescapeJson(new String(buffer, names[index * 2], names[index * 2 + 1], StringUtils.UTF8));
+    }
+
+    /**
+     * Gets whether the field has exactly the given bytes, as they are in the
+     * buffer.
+     */
+    public boolean fieldEquals(int index, byte[] value) {
+        checkIndex(index);
+        int fieldOffset = fields[index * 2];
+        int fieldLength = fields[index * 2 + 1];
+        if (fieldLength != value.length) {
+            return false;
+        }
+        for (int i = 0; i < fieldLength; i++) {
+            if (buffer[fieldOffset + i] != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the field as a decimal long, without creating a string.
+     *
+     * @throws NumberFormatException
+     *             If the field is not a decimal long.
+     */
+    public long getFieldAsLong(int index) {
+        checkIndex(index);
+        int pos = fields[index * 2];
+        int end = pos + fields[index * 2 + 1];
+        boolean negative = pos < end && buffer[pos] == '-';
+        if (negative || (pos < end && buffer[pos] == '+')) {
+            pos++;
+        }
+        if (pos == end) {
+            throw new NumberFormatException("Field " + index + " is not a number: " + getField(index));
+        }
+        long value = 0;
+        for (; pos < end; pos++) {
+            int digit = buffer[pos] - '0';
+            if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("Field " + index + " is not a long: " + getField(index));
+            }
+            value = value * 10 - digit;
+        }
+        if (negative) {
+            return value;
+        }
+        if (value == Long.MIN_VALUE) {
+            throw new NumberFormatException("Field " + index + " is not a long: " + getField(index));
+        }
+        return -value;
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, offset, length, StringUtils.UTF8);
+    }
+
+    private void checkIndex(int index) {
+        parse();
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount + " fields.");
+        }
+    }
+
+    private void parse() {
+        if (parsed) {
+            return;
+        }
+        parsed = true;
+        if (csv) {
+            parseCsv();
+        } else {
+            parseJson();
+        }
+    }
+
+    private int addField(int start, int len, boolean hasEscapes) {
+        if (fields.length < (fieldCount + 1) * 2) {
+            fields = Arrays.copyOf(fields, fields.length * 2);
+            escaped = Arrays.copyOf(escaped, escaped.length * 2);
+            if (names != null) {
+                names = Arrays.copyOf(names, names.length * 2);
+            }
+        }
+        fields[fieldCount * 2] = start;
+        fields[fieldCount * 2 + 1] = len;
+        escaped[fieldCount] = hasEscapes;
+        return fieldCount++;
+    }
+
+    private void parseCsv() {
+        int pos = offset;
+        int end = offset + length;
+        while (true) {
+            if (pos < end && (buffer[pos] & 0xff) == quoteChar) {
+                int start = ++pos;
+                boolean hasEscapes = false;
+                while (pos < end) {
+                    if ((buffer[pos] & 0xff) == quoteChar) {
+                        if (pos + 1 < end && (buffer[pos + 1] & 0xff) == quoteChar) {
+                            hasEscapes = true;
+                            pos += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    pos++;
+                }
+                addField(start, pos - start, hasEscapes);
+                while (pos < end && (buffer[pos] & 0xff) != fieldDelimiter) {
+                    pos++;
+                }
+            } else {
+                int start = pos;
+                while (pos < end && (buffer[pos] & 0xff) != fieldDelimiter) {
+                    pos++;
+                }
+                addField(start, pos - start, false);
+            }
+            if (pos >= end) {
+                return;
+            }
+            // Skips the field delimiter.
+            pos++;
+        }
+    }
+
+    private void parseJson() {
+        int end = offset + length;
+        int pos = skipWhitespace(offset, end);
+        if (pos >= end || buffer[pos] != '{') {
+            return;
+        }
+        pos = skipWhitespace(pos + 1, end);
+        while (pos < end && buffer[pos] == '"') {
+            int nameStart = pos + 1;
+            pos = skipString(nameStart, end);
+            int nameLength = pos - nameStart;
+            pos = skipWhitespace(pos + 1, end);
+            if (pos >= end || buffer[pos] != ':') {
+                return;
+            }
+            pos = skipWhitespace(pos + 1, end);
+            if (pos >= end) {
+                return;
+            }
+
+            int field;
+            if (buffer[pos] == '"') {
+                int start = pos + 1;
+                pos = skipString(start, end);
+                field = addField(start, pos - start, hasBackslash(start, pos));
+                pos++;
+            } else {
+                int start = pos;
+                pos = skipValue(pos, end);
+                int valueEnd = pos;
+                while (valueEnd > start && isWhitespace(buffer[valueEnd - 1])) {
+                    valueEnd--;
+                }
+                field = addField(start, valueEnd - start, false);
+            }
+            names[field * 2] = nameStart;
+            names[field * 2 + 1] = nameLength;
+
+            pos = skipWhitespace(pos, end);
+            if (pos >= end || buffer[pos] != ',') {
+                return;
+            }
+            pos = skipWhitespace(pos + 1, end);
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private int skipWhitespace(int pos, int end) {
+        while (pos < end && isWhitespace(buffer[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the position of the quote that closes the string starting at
+     * the given position.
+     */
+    private int skipString(int pos, int end) {
+        while (pos < end && buffer[pos] != '"') {
+            pos += buffer[pos] == '\\' ? 2 : 1;
+        }
+        return Math.min(pos, end);
+    }
+
+    /**
+     * Returns the position of the comma or brace that ends the number,
+     * literal, object or array starting at the given position.
+     */
+    private int skipValue(int pos, int end) {
+        int depth = 0;
+        while (pos < end) {
+            byte b = buffer[pos];
+            if (b == '"') {
+                pos = skipString(pos + 1, end);
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (depth == 0) {
+                    return pos;
+                }
+                depth--;
+            } else if (b == ',' && depth == 0) {
+                return pos;
+            }
+            pos++;
+        }
+        return end;
+    }
+
+    private boolean hasBackslash(int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer[i] == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String unescapeCsv(String value) {
+        String quote = String.valueOf((char) quoteChar);
+        return value.replace(quote + quote, quote);
+    }
+
+    private static String unescapeJson(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                builder.append(c);
+                continue;
+            }
+            c = value.charAt(++i);
+            switch (c) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    if (i + 4 < value.length()) {
+                        builder.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                        i += 4;
+                        break;
+                    }
+                    builder.append(c);
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+}
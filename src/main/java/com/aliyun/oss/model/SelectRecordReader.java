@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.common.utils.BufferPool;
+import com.aliyun.oss.common.utils.StringUtils;
+
+/**
+ * Reads the CSV rows or JSON lines of a select result.
+ * <p>
+ * The payload of the select frames is read straight into a pooled buffer, in
+ * which the records are found by their delimiter, and each record is returned
+ * as a {@link SelectRecord} view into the buffer. The same view is reused for
+ * every record, so a record must be used or copied before the next one is
+ * read. The buffer grows to hold the longest record, and is returned to the
+ * pool when the reader is closed. A record delimiter inside a quoted CSV field
+ * does not end the row.
+ *
+ * <pre>
+ * SelectRecordReader reader = new SelectRecordReader(ossObject.getObjectContent(), selectObjectRequest);
+ * try {
+ *     SelectRecord record;
+ *     while ((record = reader.next()) != null) {
+ *         long id = record.getFieldAsLong(0);
+ *     }
+ * } finally {
+ *     reader.close();
+ * }
+ * </pre>
+ */
+public class SelectRecordReader implements Iterable<SelectRecord>, Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final byte[] recordDelimiter;
+    private final int quoteChar;
+    private final SelectRecord record;
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    // Where the search of the record delimiter goes on after a fill.
+    private int scanned;
+    private boolean inQuotes;
+    private boolean eof;
+    private boolean closed;
+
+    /**
+     * Reads the result of the given select request, with the record format
+     * of its output serialization.
+     */
+    public SelectRecordReader(InputStream in, SelectObjectRequest selectObjectRequest) {
+        this(in, selectObjectRequest.getInputSerialization().getSelectContentFormat() == SelectContentFormat.CSV,
+                selectObjectRequest.getOutputSerialization());
+    }
+
+    public SelectRecordReader(InputStream in, CSVFormat csvFormat) {
+        this(in, true, csvFormat.getRecordDelimiter(), csvFormat.getFieldDelimiter(), csvFormat.getQuoteChar());
+    }
+
+    public SelectRecordReader(InputStream in, JsonFormat jsonFormat) {
+        this(in, false, jsonFormat.getRecordDelimiter(), null, null);
+    }
+
+    private SelectRecordReader(InputStream in, boolean csv, OutputSerialization outputSerialization) {
+        this(in, csv,
+                csv ? outputSerialization.getCsvOutputFormat().getRecordDelimiter()
+                        : outputSerialization.getJsonOutputFormat().getRecordDelimiter(),
+                csv ? outputSerialization.getCsvOutputFormat().getFieldDelimiter() : null,
+                csv ? outputSerialization.getCsvOutputFormat().getQuoteChar() : null);
+    }
+
+    private SelectRecordReader(InputStream in, boolean csv, String recordDelimiter, Character fieldDelimiter,
+            Character quoteChar) {
+        if (recordDelimiter == null || recordDelimiter.isEmpty()) {
+            recordDelimiter = "\n";
+        }
+        this.in = in;
+        this.recordDelimiter = recordDelimiter.getBytes(StringUtils.UTF8);
+        this.quoteChar = toByte(quoteChar);
+        this.record = new SelectRecord(csv, fieldDelimiter == null ? ',' : toByte(fieldDelimiter), this.quoteChar);
+        this.buffer = BufferPool.getDefault().acquire(DEFAULT_BUFFER_SIZE);
+    }
+
+    private static int toByte(Character c) {
+        if (c == null) {
+            return -1;
+        }
+        if (c.charValue() > 0x7f) {
+            throw new IllegalArgumentException("The delimiter or quote char " + c + " is not an ASCII char.");
+        }
+        return c.charValue();
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return The next record, which is valid until the next call, or null at
+     *         the end of the result.
+     */
+    public SelectRecord next() throws IOException {
+        if (closed) {
+            throw new IOException("The reader has been closed.");
+        }
+        while (true) {
+            int end = findRecordEnd();
+            if (end >= 0) {
+                record.reset(buffer, position, end - position);
+                position = end + recordDelimiter.length;
+                scanned = position;
+                inQuotes = false;
+                return record;
+            }
+            if (eof) {
+                if (position == limit) {
+                    return null;
+                }
+                record.reset(buffer, position, limit - position);
+                position = limit;
+                scanned = limit;
+                return record;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Returns the position of the record delimiter that ends the record at the
+     * current position, or -1 if more bytes are needed.
+     */
+    private int findRecordEnd() {
+        byte first = recordDelimiter[0];
+        int pos = scanned;
+        for (; pos < limit; pos++) {
+            byte b = buffer[pos];
+            if ((b & 0xff) == quoteChar) {
+                inQuotes = !inQuotes;
+            } else if (b == first && !inQuotes) {
+                if (pos + recordDelimiter.length > limit) {
+                    break;
+                }
+                if (isDelimiterAt(pos)) {
+                    scanned = pos;
+                    return pos;
+                }
+            }
+        }
+        scanned = pos;
+        return -1;
+    }
+
+    private boolean isDelimiterAt(int pos) {
+        for (int i = 1; i < recordDelimiter.length; i++) {
+            if (buffer[pos + i] != recordDelimiter[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void fill() throws IOException {
+        if (limit == buffer.length) {
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                scanned -= position;
+                position = 0;
+            } else {
+                byte[] larger = BufferPool.getDefault().acquire(buffer.length * 2);
+                System.arraycopy(buffer, 0, larger, 0, limit);
+                BufferPool.getDefault().release(buffer);
+                buffer = larger;
+            }
+        }
+        int n = in.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+
+    /**
+     * Returns an iterator over the rest of the records, which throws a
+     * {@link ClientException} if the result can not be read. Every record is a
+     * view that is valid until the next one is read.
+     */
+    @Override
+    public Iterator<SelectRecord> iterator() {
+        return new Iterator<SelectRecord>() {
+            private SelectRecord next;
+            private boolean fetched;
+
+            @Override
+            public boolean hasNext() {
+                if (!fetched) {
+                    try {
+                        next = SelectRecordReader.this.next();
+                    } catch (IOException e) {
+                        throw new ClientException(e);
+                    }
+                    fetched = true;
+                }
+                return next != null;
+            }
+
+            @Override
+            public SelectRecord next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                fetched = false;
+                return next;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Closes the select result and returns the buffer to the pool.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        BufferPool.getDefault().release(buffer);
+        buffer = null;
+        in.close();
+    }
+}
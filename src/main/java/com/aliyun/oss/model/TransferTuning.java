@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The part size and concurrency that the auto tuning of uploadFile or
+ * downloadFile picked, and the concurrency decisions it took on the way.
+ */
+public class TransferTuning {
+
+    /**
+     * The reason of a concurrency decision.
+     */
+    public static enum Reason {
+        /** The concurrency the transfer started with. */
+        INITIAL,
+        /** The throughput grew with the last step, one more part is added. */
+        INCREASE,
+        /** The throughput did not grow with the last step, the concurrency is kept. */
+        SATURATED,
+        /** Probes one more part after some windows at the saturated concurrency. */
+        PROBE,
+        /** A part failed with a timeout or server busy error, the concurrency is halved. */
+        CONGESTION
+    }
+
+    /**
+     * A change of the concurrency during the transfer.
+     */
+    public static class Decision {
+        private final long elapsedMillis;
+        private final int completedParts;
+        private final int fromTaskNum;
+        private final int toTaskNum;
+        private final long throughput;
+        private final Reason reason;
+
+        public Decision(long elapsedMillis, int completedParts, int fromTaskNum, int toTaskNum, long throughput,
+                Reason reason) {
+            this.elapsedMillis = elapsedMillis;
+            this.completedParts = completedParts;
+            this.fromTaskNum = fromTaskNum;
+            this.toTaskNum = toTaskNum;
+            this.throughput = throughput;
+            this.reason = reason;
+        }
+
+        /**
+         * Gets the time since the transfer started, in milliseconds.
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Gets the number of parts completed when the decision was taken.
+         */
+        public int getCompletedParts() {
+            return completedParts;
+        }
+
+        public int getFromTaskNum() {
+            return fromTaskNum;
+        }
+
+        public int getToTaskNum() {
+            return toTaskNum;
+        }
+
+        /**
+         * Gets the throughput of the parts completed since the last decision,
+         * in bytes per second.
+         */
+        public long getThroughput() {
+            return throughput;
+        }
+
+        public Reason getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + elapsedMillis + "ms, parts:" + completedParts + ", " + reason + " " + fromTaskNum + "->"
+                    + toTaskNum + ", " + throughput + "B/s]";
+        }
+    }
+
+    public long getPartSize() {
+        return partSize;
+    }
+
+    public void setPartSize(long partSize) {
+        this.partSize = partSize;
+    }
+
+    /**
+     * Gets the upper bound of the concurrency.
+     */
+    public int getMaxTaskNum() {
+        return maxTaskNum;
+    }
+
+    public void setMaxTaskNum(int maxTaskNum) {
+        this.maxTaskNum = maxTaskNum;
+    }
+
+    /**
+     * Gets the concurrency at the end of the transfer.
+     */
+    public int getTaskNum() {
+        return taskNum;
+    }
+
+    public void setTaskNum(int taskNum) {
+        this.taskNum = taskNum;
+    }
+
+    /**
+     * Gets the number of part attempts that failed with a timeout or server
+     * busy error and were run again.
+     */
+    public int getCongestionRetries() {
+        return congestionRetries;
+    }
+
+    public void setCongestionRetries(int congestionRetries) {
+        this.congestionRetries = congestionRetries;
+    }
+
+    public List<Decision> getDecisions() {
+        return decisions;
+    }
+
+    public void setDecisions(List<Decision> decisions) {
+        this.decisions = decisions;
+    }
+
+    @Override
+    public String toString() {
+        return "TransferTuning [partSize=" + partSize + ", maxTaskNum=" + maxTaskNum + ", taskNum=" + taskNum
+                + ", congestionRetries=" + congestionRetries + ", decisions=" + decisions + "]";
+    }
+
+    private long partSize;
+    private int maxTaskNum;
+    private int taskNum;
+    private int congestionRetries;
+    private List<Decision> decisions = new ArrayList<Decision>();
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.util.List;
+
+import com.aliyun.oss.ClientException;
+
+/**
+ * Coordinates the workers of a {@link DistributedUpload}: it hands out
+ * disjoint ranges of part numbers, and keeps which of them are completed so
+ * that the upload is only completed once all of them are.
+ *
+ * @see MemoryUploadCoordinationStore
+ * @see FileUploadCoordinationStore
+ */
+public interface UploadCoordinationStore {
+
+    /**
+     * Leases a range of part numbers to the worker. The range of an expired
+     * lease is leased again first, otherwise the next partCount part numbers,
+     * or the ones left below the 10000 parts limit.
+     *
+     * @throws ClientException
+     *             If all the part numbers are leased.
+     */
+    PartRangeLease leaseParts(DistributedUpload upload, String workerId, int partCount, long leaseMillis)
+            throws ClientException;
+
+    /**
+     * Extends the lease by leaseMillis from now.
+     *
+     * @throws ClientException
+     *             If the range has been leased to another worker or completed.
+     */
+    PartRangeLease renewLease(PartRangeLease lease, long leaseMillis) throws ClientException;
+
+    /**
+     * Marks the range of the lease as completed, once all its parts are
+     * uploaded.
+     *
+     * @throws ClientException
+     *             If the range has been leased to another worker.
+     */
+    PartRangeLease completeLease(PartRangeLease lease) throws ClientException;
+
+    /**
+     * Marks the range of the lease as completed, once its parts up to
+     * lastUploadedPartNumber are uploaded, e.g. when the object ends before
+     * the end of the range. Only those parts of the range are completed.
+     *
+     * @throws ClientException
+     *             If the range has been leased to another worker.
+     */
+    PartRangeLease completeLease(PartRangeLease lease, int lastUploadedPartNumber) throws ClientException;
+
+    /**
+     * Gets all the leases of the upload, in the order of the part numbers.
+     */
+    List<PartRangeLease> getLeases(DistributedUpload upload) throws ClientException;
+
+    /**
+     * Removes the leases of the upload, once it is completed or aborted.
+     */
+    void removeUpload(DistributedUpload upload) throws ClientException;
+}
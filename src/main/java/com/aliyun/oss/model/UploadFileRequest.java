@@ -150,6 +150,49 @@ public class UploadFileRequest extends GenericRequest {
         this.sequentialMode = sequentialMode;
     }
 
+    /**
+     * Gets the flag of auto tuning the part size and the concurrency.
+     */
+    public boolean isAutoTuneEnabled() {
+        return autoTuneEnabled;
+    }
+
+    /**
+     * Sets the flag of auto tuning the part size and the concurrency. When it's
+     * enabled, partSize is ignored: the part size is picked from the file size
+     * and the 10,000 parts limit. The concurrency starts at 4 parts and adapts
+     * to the measured throughput and to timeout or server busy errors, up to
+     * taskNum parts, or up to 32 parts when taskNum is not set. The decisions
+     * taken are returned in {@link UploadFileResult#getTransferTuning()}.
+     */
+    public void setAutoTuneEnabled(boolean autoTuneEnabled) {
+        this.autoTuneEnabled = autoTuneEnabled;
+    }
+
+    /**
+     * Gets the flag of resuming from the upload in progress on the server.
+     */
+    public boolean isResumeFromServer() {
+        return resumeFromServer;
+    }
+
+    /**
+     * Sets the flag of resuming from the upload in progress on the server.
+     * When it's enabled and there is no valid checkpoint file, the latest
+     * multipart upload of the key is found by listMultipartUploads and its
+     * parts by listParts, so that a restart on another disk does not upload
+     * again the parts that are already there. The part size is taken from the
+     * uploaded parts, and a part is skipped only if its size and its CRC64 (or
+     * its ETag when the CRC64 is not listed) match the local file.
+     * <p>
+     * The object metadata of the request is not used when an upload is
+     * resumed: the object gets the metadata the upload was initiated with.
+     * The encryption client does not support it.
+     */
+    public void setResumeFromServer(boolean resumeFromServer) {
+        this.resumeFromServer = resumeFromServer;
+    }
+
     // Part size, by default it's 100KB.
     private long partSize = 1024 * 100;
     // Concurrent parts upload thread count. By default it's 1.
@@ -168,4 +211,9 @@ public class UploadFileRequest extends GenericRequest {
     private int trafficLimit;
     // Is Sequential mode or not.
     private Boolean sequentialMode;
+    // Auto tuning of the part size and the concurrency.
+    private boolean autoTuneEnabled;
+
+    // Resume from the upload in progress on the server.
+    private boolean resumeFromServer;
 }
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+/**
+ * The request class that is to upload the parts of a
+ * {@link PresignedMultipartUpload} from a local file through their presigned
+ * URLs, by concurrent requests. No credentials are needed.
+ */
+public class UploadPresignedPartsRequest {
+
+    public UploadPresignedPartsRequest(PresignedMultipartUpload upload, String uploadFile) {
+        this.upload = upload;
+        this.uploadFile = uploadFile;
+    }
+
+    public PresignedMultipartUpload getUpload() {
+        return upload;
+    }
+
+    public String getUploadFile() {
+        return uploadFile;
+    }
+
+    public int getTaskNum() {
+        return taskNum;
+    }
+
+    public void setTaskNum(int taskNum) {
+        if (taskNum < 1) {
+            this.taskNum = 1;
+        } else if (taskNum > 1000) {
+            this.taskNum = 1000;
+        } else {
+            this.taskNum = taskNum;
+        }
+    }
+
+    public UploadPresignedPartsRequest withTaskNum(int taskNum) {
+        setTaskNum(taskNum);
+        return this;
+    }
+
+    // The upload with the presigned parts.
+    private final PresignedMultipartUpload upload;
+
+    // The local file with the content of the whole object.
+    private final String uploadFile;
+
+    // The number of concurrent part uploads.
+    private int taskNum = 4;
+}
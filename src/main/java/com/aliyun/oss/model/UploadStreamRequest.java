@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+/**
+ * The request class that is to open an {@link OSSOutputStream} to upload an
+ * object of unknown length.
+ */
+public class UploadStreamRequest extends GenericRequest {
+
+    public UploadStreamRequest(String bucketName, String key) {
+        super(bucketName, key);
+    }
+
+    public UploadStreamRequest(String bucketName, String key, long partSize, int taskNum) {
+        super(bucketName, key);
+        setPartSize(partSize);
+        setTaskNum(taskNum);
+    }
+
+    /**
+     * Gets the size of each part. A stream closed before one part is filled is
+     * uploaded by a single PutObject. By default it's 4MB.
+     */
+    public long getPartSize() {
+        return partSize;
+    }
+
+    public void setPartSize(long partSize) {
+        if (partSize < 1024 * 100) {
+            this.partSize = 1024 * 100;
+        } else if (partSize > Integer.MAX_VALUE) {
+            this.partSize = Integer.MAX_VALUE;
+        } else {
+            this.partSize = partSize;
+        }
+    }
+
+    /**
+     * Gets the number of parts that are uploaded at the same time. By default
+     * it's 4.
+     */
+    public int getTaskNum() {
+        return taskNum;
+    }
+
+    public void setTaskNum(int taskNum) {
+        if (taskNum < 1) {
+            this.taskNum = 1;
+        } else if (taskNum > 1000) {
+            this.taskNum = 1000;
+        } else {
+            this.taskNum = taskNum;
+        }
+    }
+
+    /**
+     * Gets the max number of part buffers, the one being filled included. The
+     * writer blocks when all of them are full and still uploading, which
+     * bounds the memory to maxBufferedParts * partSize. By default it's 8.
+     */
+    public int getMaxBufferedParts() {
+        return maxBufferedParts;
+    }
+
+    public void setMaxBufferedParts(int maxBufferedParts) {
+        this.maxBufferedParts = Math.max(maxBufferedParts, 2);
+    }
+
+    public ObjectMetadata getObjectMetadata() {
+        return objectMetadata;
+    }
+
+    public void setObjectMetadata(ObjectMetadata objectMetadata) {
+        this.objectMetadata = objectMetadata;
+    }
+
+    /**
+     * Gets traffic limit speed, its unit is bit/s
+     */
+    public int getTrafficLimit() {
+        return trafficLimit;
+    }
+
+    /**
+     * Sets traffic limit speed of each part upload, its unit is bit/s
+     */
+    public void setTrafficLimit(int trafficLimit) {
+        this.trafficLimit = trafficLimit;
+    }
+
+    // Part size in byte, by default it's 4MB.
+    private long partSize = 4 * 1024 * 1024;
+    // Concurrent part uploads, by default it's 4.
+    private int taskNum = 4;
+    // Part buffers, the one being filled included.
+    private int maxBufferedParts = 8;
+    // Object metadata, sent by InitiateMultipartUpload or PutObject.
+    private ObjectMetadata objectMetadata;
+    // Traffic limit speed, its uint is bit/s
+    private int trafficLimit;
+}
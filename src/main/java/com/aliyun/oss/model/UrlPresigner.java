@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import java.net.URL;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Presigns the URLs of many objects of a bucket with the same method,
+ * headers, parameters and expiration, at a much higher rate than
+ * {@link com.aliyun.oss.OSS#generatePresignedUrl(GeneratePresignedUrlRequest)}.
+ * The parts of the signature that do not depend on the key are computed once.
+ * Presigners are thread-safe.
+ *
+ * @see UrlPresignerRequest
+ */
+public abstract class UrlPresigner {
+
+    /**
+     * Presigns the URL of the object.
+     */
+    public abstract URL presign(String key);
+
+    /**
+     * Presigns the URLs of the objects, in the order of the keys, with
+     * concurrent tasks for large batches.
+     */
+    public abstract List<URL> presign(List<String> keys);
+
+    /**
+     * Gets the time the URLs presigned now expire.
+     */
+    public abstract Date getExpiration();
+
+    /**
+     * Gets the number of URLs served from the cache of still valid URLs.
+     */
+    public abstract long getCacheHits();
+}
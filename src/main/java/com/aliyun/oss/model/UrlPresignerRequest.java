@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+/**
+ * The request class that is to create a {@link UrlPresigner}. The template
+ * gives the bucket, the method, the headers and the parameters of all the
+ * URLs; its key is ignored.
+ * <p>
+ * The URLs expire at the expiration of the template, or, with a validity,
+ * at least that long after they are presigned. The expiration is then
+ * rounded up to the expiration window, so that the URLs of a key presigned in
+ * the same window are the same; they are cached when the cache size is not
+ * 0.
+ */
+public class UrlPresignerRequest {
+
+    public UrlPresignerRequest(GeneratePresignedUrlRequest template) {
+        this.template = template;
+    }
+
+    public GeneratePresignedUrlRequest getTemplate() {
+        return template;
+    }
+
+    public long getValidityMillis() {
+        return validityMillis;
+    }
+
+    /**
+     * Sets how long the URLs are valid at least, instead of the fixed
+     * expiration of the template. By default it's 0, the fixed expiration.
+     */
+    public void setValidityMillis(long validityMillis) {
+        if (validityMillis < 0) {
+            throw new IllegalArgumentException("The validity should not be negative.");
+        }
+        this.validityMillis = validityMillis;
+    }
+
+    public UrlPresignerRequest withValidityMillis(long validityMillis) {
+        setValidityMillis(validityMillis);
+        return this;
+    }
+
+    public long getExpirationWindowMillis() {
+        return expirationWindowMillis;
+    }
+
+    /**
+     * Sets the window the expirations are rounded up to, when the URLs have a
+     * validity. By default it's 1 minute.
+     */
+    public void setExpirationWindowMillis(long expirationWindowMillis) {
+        if (expirationWindowMillis < 1000) {
+            throw new IllegalArgumentException("The expiration window should be at least 1 second.");
+        }
+        this.expirationWindowMillis = expirationWindowMillis;
+    }
+
+    public UrlPresignerRequest withExpirationWindowMillis(long expirationWindowMillis) {
+        setExpirationWindowMillis(expirationWindowMillis);
+        return this;
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /**
+     * Sets the number of keys whose still valid URLs are cached. By default
+     * it's 0, no cache.
+     */
+    public void setCacheSize(int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("The cache size should not be negative.");
+        }
+        this.cacheSize = cacheSize;
+    }
+
+    public UrlPresignerRequest withCacheSize(int cacheSize) {
+        setCacheSize(cacheSize);
+        return this;
+    }
+
+    public int getTaskNum() {
+        return taskNum;
+    }
+
+    /**
+     * Sets the number of concurrent tasks that presign a batch. By default
+     * it's 1, the calling thread.
+     */
+    public void setTaskNum(int taskNum) {
+        if (taskNum < 1) {
+            this.taskNum = 1;
+        } else if (taskNum > 1000) {
+            this.taskNum = 1000;
+        } else {
+            this.taskNum = taskNum;
+        }
+    }
+
+    public UrlPresignerRequest withTaskNum(int taskNum) {
+        setTaskNum(taskNum);
+        return this;
+    }
+
+    // The bucket, method, headers and parameters of the URLs.
+    private final GeneratePresignedUrlRequest template;
+
+    // How long the URLs are valid, or 0 for the expiration of the template.
+    private long validityMillis;
+
+    // The window the expirations are rounded up to.
+    private long expirationWindowMillis = 60 * 1000L;
+
+    // The number of keys with cached URLs.
+    private int cacheSize;
+
+    // The number of concurrent tasks of a batch.
+    private int taskNum = 1;
+}
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import com.aliyun.oss.common.comm.io.BoundedInputStream;
+import com.aliyun.oss.common.comm.io.FileRegionEntity;
+import com.aliyun.oss.common.comm.io.RepeatableBoundedFileInputStream;
+import com.aliyun.oss.common.comm.io.RepeatableFileInputStream;
+
+public class FileRegionEntityTest {
+
+    private static File createTempFile(byte[] data) throws IOException {
+        File file = File.createTempFile("file-region-entity", ".dat");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(data);
+        out.close();
+        return file;
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void testWholeFileIsRepeatable() throws IOException {
+        byte[] data = randomBytes(200 * 1024 + 17);
+        File file = createTempFile(data);
+
+        for (boolean transferTo : new boolean[] { true, false }) {
+            RepeatableFileInputStream content = new RepeatableFileInputStream(file);
+            FileRegionEntity entity = new FileRegionEntity(content, content, data.length, transferTo);
+            Assertions.assertTrue(entity.isRepeatable());
+            Assertions.assertFalse(entity.isChunked());
+            Assertions.assertEquals(data.length, entity.getContentLength());
+            Assertions.assertEquals(transferTo, entity.isTransferToEnabled());
+
+            for (int i = 0; i < 2; i++) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                entity.writeTo(output);
+                Assertions.assertArrayEquals(data, output.toByteArray());
+            }
+            content.close();
+        }
+    }
+
+    @Test
+    public void testBoundedRegion() throws IOException {
+        byte[] data = randomBytes(300 * 1024);
+        File file = createTempFile(data);
+        int offset = 100 * 1024 + 3;
+        int length = 150 * 1024 + 5;
+        byte[] expected = Arrays.copyOfRange(data, offset, offset + length);
+
+        for (boolean transferTo : new boolean[] { true, false }) {
+            FileInputStream fis = new FileInputStream(file);
+            fis.skip(offset);
+            RepeatableBoundedFileInputStream content = new RepeatableBoundedFileInputStream(
+                    new BoundedInputStream(fis, length));
+            Assertions.assertEquals(offset, content.getRegionPosition());
+
+            FileRegionEntity entity = new FileRegionEntity(content, content, length, transferTo);
+            for (int i = 0; i < 2; i++) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                entity.writeTo(output);
+                Assertions.assertArrayEquals(expected, output.toByteArray());
+            }
+            content.close();
+        }
+    }
+
+    @Test
+    public void testTruncatedFileIsNotSentShort() throws IOException {
+        byte[] data = randomBytes(100 * 1024);
+        File file = createTempFile(data);
+
+        for (boolean transferTo : new boolean[] { true, false }) {
+            RepeatableFileInputStream content = new RepeatableFileInputStream(file);
+            FileRegionEntity entity = new FileRegionEntity(content, content, data.length + 10, transferTo);
+            try {
+                entity.writeTo(new ByteArrayOutputStream());
+                Assertions.fail("File region entity should not send a body shorter than its length.");
+            } catch (IOException e) {
+                // expected exception.
+            }
+            content.close();
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() throws IOException {
+        try {
+            new FileRegionEntity(null, null, 0, true);
+            Assertions.fail("File region entity should not be created with null source.");
+        } catch (IllegalArgumentException e) {
+            // expected exception.
+        }
+
+        File file = createTempFile(randomBytes(16));
+        RepeatableFileInputStream content = new RepeatableFileInputStream(file);
+        FileRegionEntity entity = new FileRegionEntity(content, content, 16, true);
+        try {
+            entity.writeTo(null);
+            Assertions.fail("File region entity should not write to null stream.");
+        } catch (IllegalArgumentException e) {
+            // expected exception.
+        }
+        content.close();
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import com.aliyun.oss.common.comm.RepeatableInputStreamEntity.NoAutoClosedInputStreamEntity;
+import com.aliyun.oss.common.comm.io.PooledBufferedInputStream;
+
+public class BufferPoolTest {
+
+    @Test
+    public void testSizeClasses() {
+        BufferPool pool = new BufferPool(256 * 1024, 1024 * 1024);
+
+        Assertions.assertEquals(BufferPool.MIN_BUFFER_SIZE, pool.acquire(1).length);
+        Assertions.assertEquals(BufferPool.MIN_BUFFER_SIZE, pool.acquire(BufferPool.MIN_BUFFER_SIZE).length);
+        Assertions.assertEquals(8 * 1024, pool.acquire(BufferPool.MIN_BUFFER_SIZE + 1).length);
+        Assertions.assertEquals(512 * 1024, pool.acquire(512 * 1024).length);
+        Assertions.assertEquals(BufferPool.MAX_BUFFER_SIZE, pool.acquire(BufferPool.MAX_BUFFER_SIZE).length);
+        Assertions.assertEquals(5, pool.getOutstandingHeapBuffers());
+
+        // Too large to be pooled.
+        byte[] large = pool.acquire(BufferPool.MAX_BUFFER_SIZE + 1);
+        Assertions.assertEquals(BufferPool.MAX_BUFFER_SIZE + 1, large.length);
+        Assertions.assertEquals(5, pool.getOutstandingHeapBuffers());
+        pool.release(large);
+        Assertions.assertEquals(5, pool.getOutstandingHeapBuffers());
+
+        ByteBuffer direct = pool.acquireDirect(10 * 1024);
+        Assertions.assertTrue(direct.isDirect());
+        Assertions.assertEquals(16 * 1024, direct.capacity());
+        Assertions.assertEquals(direct.capacity(), direct.limit());
+        Assertions.assertEquals(1, pool.getOutstandingDirectBuffers());
+        pool.releaseDirect(direct);
+        Assertions.assertEquals(0, pool.getOutstandingDirectBuffers());
+    }
+
+    @Test
+    public void testReuse() {
+        BufferPool pool = new BufferPool(256 * 1024, 1024 * 1024);
+
+        byte[] first = pool.acquire(8 * 1024);
+        pool.release(first);
+        Assertions.assertSame(first, pool.acquire(8 * 1024));
+        pool.release(first);
+        Assertions.assertEquals(0, pool.getOutstandingHeapBuffers());
+
+        long allocated = pool.getAllocatedBytes();
+        for (int i = 0; i < 1000; i++) {
+            byte[] buffer = pool.acquire(64 * 1024);
+            pool.release(buffer);
+        }
+        Assertions.assertEquals(allocated + 64 * 1024, pool.getAllocatedBytes());
+
+        ByteBuffer direct = pool.acquireDirect(64 * 1024);
+        direct.put((byte) 1);
+        pool.releaseDirect(direct);
+        ByteBuffer again = pool.acquireDirect(64 * 1024);
+        Assertions.assertSame(direct, again);
+        Assertions.assertEquals(0, again.position());
+        pool.releaseDirect(again);
+    }
+
+    @Test
+    public void testForeignBuffersAreDropped() {
+        BufferPool pool = new BufferPool(256 * 1024, 1024 * 1024);
+        byte[] foreign = new byte[8 * 1024];
+        pool.release(foreign);
+        pool.releaseDirect(ByteBuffer.allocateDirect(8 * 1024));
+        Assertions.assertEquals(0, pool.getOutstandingHeapBuffers());
+        Assertions.assertEquals(0, pool.getOutstandingDirectBuffers());
+        Assertions.assertNotSame(foreign, pool.acquire(8 * 1024));
+    }
+
+    @Test
+    public void testOverflowToSharedCache() throws InterruptedException {
+        final BufferPool pool = new BufferPool(16 * 1024, 1024 * 1024);
+        final List<byte[]> buffers = new ArrayList<byte[]>();
+        for (int i = 0; i < 8; i++) {
+            buffers.add(pool.acquire(8 * 1024));
+        }
+        for (byte[] buffer : buffers) {
+            pool.release(buffer);
+        }
+
+        // Buffers beyond the thread cache are visible to other threads.
+        final AtomicInteger reused = new AtomicInteger();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 8; i++) {
+                    byte[] buffer = pool.acquire(8 * 1024);
+                    for (byte[] b : buffers) {
+                        if (b == buffer) {
+                            reused.incrementAndGet();
+                        }
+                    }
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        Assertions.assertEquals(6, reused.get());
+    }
+
+    @Test
+    public void testBufferLargerThanThreadCacheIsShared() throws InterruptedException {
+        final BufferPool pool = new BufferPool(16 * 1024, 1024 * 1024);
+        final byte[] buffer = pool.acquire(64 * 1024);
+        pool.release(buffer);
+
+        final AtomicInteger reused = new AtomicInteger();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                if (pool.acquire(64 * 1024) == buffer) {
+                    reused.incrementAndGet();
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        Assertions.assertEquals(1, reused.get());
+    }
+
+    @Test
+    public void testConcurrentAcquireRelease() throws InterruptedException {
+        final BufferPool pool = new BufferPool(256 * 1024, 1024 * 1024);
+        int threads = 8;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        byte[] buffer = pool.acquire(4 * 1024 << (i % 4));
+                        buffer[0] = 1;
+                        pool.release(buffer);
+                        ByteBuffer direct = pool.acquireDirect(4 * 1024);
+                        pool.releaseDirect(direct);
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        Assertions.assertEquals(0, pool.getOutstandingHeapBuffers());
+        Assertions.assertEquals(0, pool.getOutstandingDirectBuffers());
+    }
+
+    @Test
+    public void testTransferPathsDoNotLeak() throws IOException {
+        BufferPool pool = BufferPool.getDefault();
+        long outstanding = pool.getOutstandingHeapBuffers();
+
+        byte[] data = new byte[100 * 1024 + 3];
+        byte[] read = IOUtils.readStreamAsByteArray(new ByteArrayInputStream(data));
+        Assertions.assertArrayEquals(data, read);
+        Assertions.assertEquals(outstanding, pool.getOutstandingHeapBuffers());
+
+        InputStream repeatable = IOUtils.newRepeatableInputStream(new NonMarkableInputStream(data));
+        Assertions.assertTrue(repeatable instanceof PooledBufferedInputStream);
+        Assertions.assertEquals(outstanding + 1, pool.getOutstandingHeapBuffers());
+        repeatable.mark(data.length);
+        Assertions.assertEquals(data.length, IOUtils.readNBytes(repeatable, new byte[data.length], 0, data.length));
+        repeatable.reset();
+        Assertions.assertEquals(data.length, IOUtils.readNBytes(repeatable, new byte[data.length], 0, data.length));
+        repeatable.close();
+        repeatable.close();
+        Assertions.assertEquals(outstanding, pool.getOutstandingHeapBuffers());
+
+        NoAutoClosedInputStreamEntity entity = new NoAutoClosedInputStreamEntity(new ByteArrayInputStream(data),
+                data.length);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        entity.writeTo(output);
+        Assertions.assertArrayEquals(data, output.toByteArray());
+        Assertions.assertEquals(outstanding, pool.getOutstandingHeapBuffers());
+    }
+
+    private static class NonMarkableInputStream extends ByteArrayInputStream {
+        NonMarkableInputStream(byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.common.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.internal.TransferTaskExecutor;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void testNewVirtualThreadPerTaskExecutor() {
+        if (VirtualThreads.isSupported()) {
+            assertTrue(VirtualThreads.newVirtualThreadPerTaskExecutor() != null);
+        } else {
+            assertNull(VirtualThreads.newVirtualThreadPerTaskExecutor());
+        }
+    }
+
+    @Test
+    public void testTransferTaskExecutorDefaultsToPlatformThreads() throws Exception {
+        ClientConfiguration config = new ClientConfiguration();
+        assertFalse(config.isVirtualThreadsEnabled());
+
+        TransferTaskExecutor executor = new TransferTaskExecutor(config, 3);
+        assertFalse(executor.isVirtual());
+        assertEquals(3, runAndGetPeakConcurrency(executor, 3));
+    }
+
+    @Test
+    public void testTransferTaskExecutorLimitsVirtualThreads() throws Exception {
+        ClientConfiguration config = new ClientConfiguration();
+        config.setVirtualThreadsEnabled(true);
+
+        TransferTaskExecutor executor = new TransferTaskExecutor(config, 3);
+        assertEquals(VirtualThreads.isSupported(), executor.isVirtual());
+        assertEquals(3, runAndGetPeakConcurrency(executor, 3));
+    }
+
+    private static int runAndGetPeakConcurrency(TransferTaskExecutor executor, int taskNum) throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for (int i = 0; i < taskNum * 10; i++) {
+            final int part = i;
+            futures.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int now = running.incrementAndGet();
+                    synchronized (peak) {
+                        peak.set(Math.max(peak.get(), now));
+                    }
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                    return part;
+                }
+            }));
+        }
+        executor.shutdownAndAwait();
+
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i, futures.get(i).get().intValue());
+        }
+        return peak.get();
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+
+public class CipherInputStreamTest {
+    private static final SecretKey CEK = new SecretKeySpec(new byte[32], "AES");
+    private static final byte[] IV = new byte[16];
+
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] expected(byte[] data, int mode) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
+        cipher.init(mode, CEK, new IvParameterSpec(IV));
+        return cipher.doFinal(data);
+    }
+
+    private static byte[] readAll(InputStream in, int readSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[readSize + 3];
+        int len;
+        while ((len = in.read(buffer, 3, readSize)) != -1) {
+            out.write(buffer, 3, len);
+        }
+        return out.toByteArray();
+    }
+
+    private static CipherInputStream newStream(byte[] data, int mode, int bufferSize) {
+        CryptoCipher cryptoCipher = CryptoScheme.AES_CTR.createCryptoCipher(CEK, IV, mode, null);
+        return new CipherInputStream(new ByteArrayInputStream(data), cryptoCipher, bufferSize);
+    }
+
+    @Test
+    public void testReadSizes() throws Exception {
+        byte[] data = data(100 * 1024 + 7);
+        byte[] encrypted = expected(data, Cipher.ENCRYPT_MODE);
+        // Reads smaller than a chunk go through the internal buffer, larger
+        // ones are processed straight into the buffer of the caller.
+        for (int readSize : new int[] { 1, 100, 4096, 8192, 65536 }) {
+            assertArrayEquals(encrypted, readAll(newStream(data, Cipher.ENCRYPT_MODE, 8192), readSize));
+            assertArrayEquals(data, readAll(newStream(encrypted, Cipher.DECRYPT_MODE, 8192), readSize));
+        }
+    }
+
+    @Test
+    public void testMixedReads() throws Exception {
+        byte[] data = data(20000);
+        byte[] encrypted = expected(data, Cipher.ENCRYPT_MODE);
+        CipherInputStream in = newStream(data, Cipher.ENCRYPT_MODE, 1024);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int len = 0;
+        for (int i = 0; len != -1; i++) {
+            if (i % 3 == 0) {
+                int b = in.read();
+                if (b != -1) {
+                    out.write(b);
+                }
+                len = b;
+            } else {
+                len = in.read(buffer, 0, i % 2 == 0 ? 100 : buffer.length);
+                if (len > 0) {
+                    out.write(buffer, 0, len);
+                }
+            }
+        }
+        in.close();
+        assertArrayEquals(encrypted, out.toByteArray());
+    }
+
+    @Test
+    public void testEmptyStream() throws Exception {
+        CipherInputStream in = newStream(new byte[0], Cipher.DECRYPT_MODE, 512);
+        assertEquals(-1, in.read(new byte[1024], 0, 1024));
+        assertEquals(-1, in.read());
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.KeyPairGenerator;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadResult;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.UploadPartRequest;
+import com.aliyun.oss.model.UploadPartResult;
+
+public class CryptoModuleRangeTest {
+
+    /**
+     * Keeps the objects in memory, and serves ranged GETs.
+     */
+    static class MemoryOSSDirect implements OSSDirect {
+        final ClientConfiguration config = new ClientConfiguration();
+        final Map<String, byte[]> objects = new ConcurrentHashMap<String, byte[]>();
+        final Map<String, ObjectMetadata> metadata = new ConcurrentHashMap<String, ObjectMetadata>();
+
+        @Override
+        public ClientConfiguration getInnerClientConfiguration() {
+            return config;
+        }
+
+        @Override
+        public PutObjectResult putObject(PutObjectRequest request) {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int len;
+                while ((len = request.getInputStream().read(buffer)) != -1) {
+                    out.write(buffer, 0, len);
+                }
+                objects.put(request.getKey(), out.toByteArray());
+                metadata.put(request.getKey(), request.getMetadata());
+                return new PutObjectResult();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public OSSObject getObject(GetObjectRequest request) {
+            byte[] data = objects.get(request.getKey());
+            long[] range = request.getRange();
+            ObjectMetadata result = new ObjectMetadata();
+            result.setUserMetadata(metadata.get(request.getKey()).getUserMetadata());
+            if (range != null) {
+                long end = Math.min(range[1], data.length - 1);
+                result.setHeader("Content-Range", "bytes " + range[0] + "-" + end + "/" + data.length);
+                data = Arrays.copyOfRange(data, (int) range[0], (int) end + 1);
+            }
+            result.setContentLength(data.length);
+            OSSObject object = new OSSObject();
+            object.setKey(request.getKey());
+            object.setObjectMetadata(result);
+            object.setObjectContent(new ByteArrayInputStream(data));
+            return object;
+        }
+
+        @Override
+        public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        }
+
+        @Override
+        public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            return null;
+        }
+
+        @Override
+        public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+            return null;
+        }
+
+        @Override
+        public UploadPartResult uploadPart(UploadPartRequest request) {
+            return null;
+        }
+    }
+
+    static class CountingMaterials extends SimpleRSAEncryptionMaterials {
+        final AtomicInteger decrypts = new AtomicInteger();
+
+        CountingMaterials() throws Exception {
+            super(KeyPairGenerator.getInstance("RSA").generateKeyPair());
+        }
+
+        @Override
+        public void decryptCEK(ContentCryptoMaterialRW contentMaterialRW) {
+            decrypts.incrementAndGet();
+            super.decryptCEK(contentMaterialRW);
+        }
+    }
+
+    private static byte[] read(CryptoModule module, long start, long end) throws IOException {
+        GetObjectRequest request = new GetObjectRequest("bucket", "key");
+        request.setRange(start, end);
+        InputStream content = module.getObjectSecurely(request).getObjectContent();
+        try {
+            byte[] data = new byte[(int) (end - start + 1)];
+            assertEquals(data.length, IOUtils.readNBytes(content, data, 0, data.length));
+            assertEquals(-1, content.read());
+            return data;
+        } finally {
+            content.close();
+        }
+    }
+
+    @Test
+    public void testPartsShareResolvedKey() throws Exception {
+        MemoryOSSDirect ossDirect = new MemoryOSSDirect();
+        CountingMaterials materials = new CountingMaterials();
+        CryptoModule module = new CryptoModuleDispatcher(ossDirect, materials, new CryptoConfiguration());
+        byte[] data = new byte[100 * 1024 + 5];
+        new Random(1).nextBytes(data);
+        module.putObjectSecurely(new PutObjectRequest("bucket", "key", new ByteArrayInputStream(data)));
+
+        int partSize = 32 * 1024;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (long start = 0; start < data.length; start += partSize) {
+            long end = Math.min(start + partSize, data.length) - 1;
+            out.write(read(module, start, end));
+        }
+        assertArrayEquals(data, out.toByteArray());
+        assertEquals(1, materials.decrypts.get());
+    }
+
+    @Test
+    public void testUnalignedRange() throws Exception {
+        MemoryOSSDirect ossDirect = new MemoryOSSDirect();
+        CryptoModule module = new CryptoModuleDispatcher(ossDirect, new CountingMaterials(),
+                new CryptoConfiguration());
+        byte[] data = new byte[10000];
+        new Random(2).nextBytes(data);
+        module.putObjectSecurely(new PutObjectRequest("bucket", "key", new ByteArrayInputStream(data)));
+
+        assertArrayEquals(Arrays.copyOfRange(data, 1001, 5003), read(module, 1001, 5002));
+        assertArrayEquals(Arrays.copyOfRange(data, 9999, 10000), read(module, 9999, 9999));
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.crypto;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.Test;
+
+import com.aliyun.oss.common.auth.DefaultCredentialProvider;
+
+public class KmsEncryptionMaterialsTest {
+
+    /**
+     * Wraps the keys by xor, counting the kms calls.
+     */
+    static class CountingKmsEncryptionMaterials extends KmsEncryptionMaterials {
+        final AtomicInteger encrypts = new AtomicInteger();
+        final AtomicInteger decrypts = new AtomicInteger();
+
+        CountingKmsEncryptionMaterials() {
+            super("cn-hangzhou", "cmk");
+            setKmsCredentialsProvider(new DefaultCredentialProvider("ak", "sk"));
+        }
+
+        @Override
+        byte[] encryptKey(byte[] key) {
+            encrypts.incrementAndGet();
+            return wrap(key, encrypts.get());
+        }
+
+        @Override
+        byte[] decryptKey(KmsClientSuite kmsClientSuite, byte[] encryptedKey) {
+            decrypts.incrementAndGet();
+            byte[] key = new byte[encryptedKey.length - 1];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = (byte) (encryptedKey[i + 1] ^ encryptedKey[0]);
+            }
+            return key;
+        }
+
+        private static byte[] wrap(byte[] key, int salt) {
+            byte[] blob = new byte[key.length + 1];
+            blob[0] = (byte) salt;
+            for (int i = 0; i < key.length; i++) {
+                blob[i + 1] = (byte) (key[i] ^ salt);
+            }
+            return blob;
+        }
+    }
+
+    private static ContentCryptoMaterialRW encrypt(KmsEncryptionMaterials materials, int seed) {
+        byte[] cek = new byte[32];
+        byte[] iv = new byte[16];
+        Arrays.fill(cek, (byte) seed);
+        Arrays.fill(iv, (byte) (seed + 100));
+        ContentCryptoMaterialRW material = new ContentCryptoMaterialRW();
+        material.setCEK(new SecretKeySpec(cek, "AES"));
+        material.setIV(iv);
+        materials.encryptCEK(material);
+        return material;
+    }
+
+    private static ContentCryptoMaterialRW decrypt(KmsEncryptionMaterials materials,
+            ContentCryptoMaterial encrypted) {
+        ContentCryptoMaterialRW material = new ContentCryptoMaterialRW();
+        material.setEncryptedCEK(encrypted.getEncryptedCEK());
+        material.setEncryptedIV(encrypted.getEncryptedIV());
+        material.setKeyWrapAlgorithm(encrypted.getKeyWrapAlgorithm());
+        material.setMaterialsDescription(encrypted.getMaterialsDescription());
+        materials.decryptCEK(material);
+        return material;
+    }
+
+    @Test
+    public void testDecryptedKeysAreCached() {
+        CountingKmsEncryptionMaterials materials = new CountingKmsEncryptionMaterials();
+        ContentCryptoMaterialRW encrypted = encrypt(materials, 1);
+        assertEquals(2, materials.encrypts.get());
+
+        ContentCryptoMaterialRW first = decrypt(materials, encrypted);
+        ContentCryptoMaterialRW second = decrypt(materials, encrypted);
+        assertEquals(2, materials.decrypts.get());
+        assertArrayEquals(encrypted.getCEK().getEncoded(), first.getCEK().getEncoded());
+        assertArrayEquals(encrypted.getIV(), first.getIV());
+        assertArrayEquals(first.getCEK().getEncoded(), second.getCEK().getEncoded());
+        assertArrayEquals(first.getIV(), second.getIV());
+    }
+
+    @Test
+    public void testDecryptedKeyCacheIsBounded() {
+        CountingKmsEncryptionMaterials materials = new CountingKmsEncryptionMaterials();
+        materials.setDecryptedKeyCache(2, 60 * 1000L);
+        ContentCryptoMaterialRW a = encrypt(materials, 1);
+        ContentCryptoMaterialRW b = encrypt(materials, 2);
+
+        decrypt(materials, a);
+        decrypt(materials, b);
+        assertEquals(4, materials.decrypts.get());
+        // The keys of a were dropped to make room for the ones of b.
+        decrypt(materials, a);
+        assertEquals(6, materials.decrypts.get());
+
+        materials.setDecryptedKeyCache(0, 0);
+        decrypt(materials, a);
+        decrypt(materials, a);
+        assertEquals(10, materials.decrypts.get());
+    }
+
+    @Test
+    public void testDataKeysAreNotReusedByDefault() {
+        CountingKmsEncryptionMaterials materials = new CountingKmsEncryptionMaterials();
+        ContentCryptoMaterialRW a = encrypt(materials, 1);
+        ContentCryptoMaterialRW b = encrypt(materials, 2);
+
+        assertEquals(4, materials.encrypts.get());
+        assertFalse(Arrays.equals(a.getCEK().getEncoded(), b.getCEK().getEncoded()));
+    }
+
+    @Test
+    public void testDataKeyReuse() {
+        CountingKmsEncryptionMaterials materials = new CountingKmsEncryptionMaterials();
+        materials.setDataKeyReuse(3, 60 * 1000L);
+        ContentCryptoMaterialRW[] encrypted = new ContentCryptoMaterialRW[4];
+        for (int i = 0; i < encrypted.length; i++) {
+            encrypted[i] = encrypt(materials, i + 1);
+        }
+
+        // One iv each, one data key for the first three objects.
+        assertEquals(6, materials.encrypts.get());
+        SecretKey reused = encrypted[0].getCEK();
+        for (int i = 1; i < 3; i++) {
+            assertArrayEquals(reused.getEncoded(), encrypted[i].getCEK().getEncoded());
+            assertArrayEquals(encrypted[0].getEncryptedCEK(), encrypted[i].getEncryptedCEK());
+            assertFalse(Arrays.equals(encrypted[0].getIV(), encrypted[i].getIV()));
+        }
+        assertFalse(Arrays.equals(reused.getEncoded(), encrypted[3].getCEK().getEncoded()));
+
+        // The shared data key is decrypted once.
+        for (int i = 0; i < 3; i++) {
+            ContentCryptoMaterialRW decrypted = decrypt(materials, encrypted[i]);
+            assertArrayEquals(reused.getEncoded(), decrypted.getCEK().getEncoded());
+            assertArrayEquals(encrypted[i].getIV(), decrypted.getIV());
+        }
+        assertEquals(4, materials.decrypts.get());
+    }
+}
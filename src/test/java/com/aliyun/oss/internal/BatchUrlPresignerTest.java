@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.HttpMethod;
+import com.aliyun.oss.common.auth.DefaultCredentialProvider;
+import com.aliyun.oss.common.auth.DefaultCredentials;
+import com.aliyun.oss.common.comm.SignVersion;
+import com.aliyun.oss.model.GeneratePresignedUrlRequest;
+import com.aliyun.oss.model.ResponseHeaderOverrides;
+import com.aliyun.oss.model.UrlPresigner;
+import com.aliyun.oss.model.UrlPresignerRequest;
+
+public class BatchUrlPresignerTest {
+
+    private static final URI ENDPOINT = URI.create("https://oss-cn-hangzhou.aliyuncs.com");
+    private static final String[] KEYS = { "a.txt", "dir/sub dir/b+c.jpg", "/leading", "unicode-文件",
+            "q?x=1&y=%2" };
+
+    private static GeneratePresignedUrlRequest template(Date expiration) {
+        GeneratePresignedUrlRequest template = new GeneratePresignedUrlRequest("bucket", null, HttpMethod.GET);
+        template.setExpiration(expiration);
+        ResponseHeaderOverrides overrides = new ResponseHeaderOverrides();
+        overrides.setContentDisposition("attachment; filename=\"x.bin\"");
+        overrides.setCacheControl("no-cache");
+        template.setResponseHeaders(overrides);
+        template.setProcess("image/resize,w_100");
+        template.addQueryParameter("versionId", "v1");
+        template.addUserMetadata("owner", "edge");
+        template.setContentType("image/jpeg");
+        template.setTrafficLimit(819200);
+        return template;
+    }
+
+    private static String expected(GeneratePresignedUrlRequest template, String key, DefaultCredentials creds,
+            ClientConfiguration config) {
+        GeneratePresignedUrlRequest request = template(template.getExpiration());
+        request.setKey(key);
+        if (config.getSignatureVersion() == SignVersion.V2) {
+            return SignV2Utils.buildSignedURL(request, creds, config, ENDPOINT);
+        }
+        return SignUtils.buildSignedURL(request, creds, config, ENDPOINT);
+    }
+
+    @Test
+    public void testUrlsMatchGeneratePresignedUrl() {
+        Date expiration = new Date(1900000000000L);
+        ClientConfiguration config = new ClientConfiguration();
+        for (DefaultCredentials creds : new DefaultCredentials[] { new DefaultCredentials("ak", "sk"),
+                new DefaultCredentials("ak", "sk", "sts-token/+=") }) {
+            BatchUrlPresigner presigner = new BatchUrlPresigner(new UrlPresignerRequest(template(expiration)),
+                    new DefaultCredentialProvider(creds), config, ENDPOINT);
+            for (String key : KEYS) {
+                assertEquals(expected(template(expiration), key, creds, config), presigner.presign(key).toString());
+            }
+            assertEquals(expiration, presigner.getExpiration());
+        }
+
+        config.setSLDEnabled(true);
+        DefaultCredentials creds = new DefaultCredentials("ak", "sk");
+        BatchUrlPresigner presigner = new BatchUrlPresigner(new UrlPresignerRequest(template(expiration)),
+                new DefaultCredentialProvider(creds), config, ENDPOINT);
+        assertEquals(expected(template(expiration), KEYS[1], creds, config), presigner.presign(KEYS[1]).toString());
+    }
+
+    @Test
+    public void testV2SignatureFallsBackToSingleUrls() {
+        Date expiration = new Date(1900000000000L);
+        ClientConfiguration config = new ClientConfiguration();
+        config.setSignatureVersion(SignVersion.V2);
+        DefaultCredentials creds = new DefaultCredentials("ak", "sk");
+        BatchUrlPresigner presigner = new BatchUrlPresigner(new UrlPresignerRequest(template(expiration)),
+                new DefaultCredentialProvider(creds), config, ENDPOINT);
+        for (String key : KEYS) {
+            assertEquals(expected(template(expiration), key, creds, config), presigner.presign(key).toString());
+        }
+    }
+
+    @Test
+    public void testParallelBatchKeepsOrder() {
+        Date expiration = new Date(1900000000000L);
+        ClientConfiguration config = new ClientConfiguration();
+        DefaultCredentials creds = new DefaultCredentials("ak", "sk");
+        BatchUrlPresigner presigner = new BatchUrlPresigner(new UrlPresignerRequest(template(expiration))
+                .withTaskNum(4), new DefaultCredentialProvider(creds), config, ENDPOINT);
+        presigner.setTransferExecutor(new SharedTransferExecutor(4));
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < 5000; i++) {
+            keys.add("objects/" + i + ".bin");
+        }
+        List<URL> urls = presigner.presign(keys);
+        assertEquals(keys.size(), urls.size());
+        for (int i = 0; i < keys.size(); i += 499) {
+            assertEquals(expected(template(expiration), keys.get(i), creds, config), urls.get(i).toString());
+        }
+    }
+
+    @Test
+    public void testCacheOfValidUrls() {
+        ClientConfiguration config = new ClientConfiguration();
+        DefaultCredentialProvider provider = new DefaultCredentialProvider("ak", "sk");
+        UrlPresignerRequest request = new UrlPresignerRequest(template(null)).withValidityMillis(3600 * 1000L)
+                .withExpirationWindowMillis(600 * 1000L).withCacheSize(2);
+        final long[] now = { 1799999401000L };
+        BatchUrlPresigner presigner = new BatchUrlPresigner(request, provider, config, ENDPOINT) {
+            @Override
+            long expirationMillis(long ignored) {
+                return super.expirationMillis(now[0]);
+            }
+        };
+        UrlPresigner urlPresigner = presigner;
+
+        // The expiration is rounded up to the window.
+        assertEquals(1800003600000L, presigner.expirationMillis(0));
+        URL first = urlPresigner.presign("a");
+        assertSame(first, urlPresigner.presign("a"));
+        now[0] += 598 * 1000L;
+        assertSame(first, urlPresigner.presign("a"));
+        assertEquals(2, urlPresigner.getCacheHits());
+
+        // The next window has new URLs.
+        now[0] += 2000L;
+        URL next = urlPresigner.presign("a");
+        assertNotEquals(first.toString(), next.toString());
+        assertEquals(1800004200000L, presigner.expirationMillis(0));
+
+        // The least recently used keys are evicted.
+        urlPresigner.presign("b");
+        urlPresigner.presign("c");
+        assertNotSame(next, urlPresigner.presign("a"));
+
+        // Other credentials sign again.
+        URL c = urlPresigner.presign("c");
+        assertSame(c, urlPresigner.presign("c"));
+        provider.setCredentials(new DefaultCredentials("ak2", "sk2"));
+        URL rotated = urlPresigner.presign("c");
+        assertNotEquals(c.toString(), rotated.toString());
+        assertTrue(rotated.getQuery().contains("OSSAccessKeyId=ak2"));
+    }
+
+    @Test
+    public void testUrlOfOldCredentialsIsNotServed() {
+        ClientConfiguration config = new ClientConfiguration();
+        DefaultCredentialProvider provider = new DefaultCredentialProvider("ak", "sk");
+        UrlPresignerRequest request = new UrlPresignerRequest(template(null)).withValidityMillis(3600 * 1000L)
+                .withCacheSize(16);
+        final BatchUrlPresigner.SigningContext[] stale = new BatchUrlPresigner.SigningContext[1];
+        BatchUrlPresigner presigner = new BatchUrlPresigner(request, provider, config, ENDPOINT) {
+            @Override
+            SigningContext currentContext() {
+                SigningContext current = super.currentContext();
+                if (stale[0] != null) {
+                    current = stale[0];
+                    stale[0] = null;
+                }
+                return current;
+            }
+        };
+        BatchUrlPresigner.SigningContext old = presigner.currentContext();
+        presigner.presign("a");
+
+        // A caller that got the context before the credentials changed puts
+        // its URL after the cache was cleared for the new ones.
+        provider.setCredentials(new DefaultCredentials("ak2", "sk2"));
+        presigner.presign("a");
+        stale[0] = old;
+        assertTrue(presigner.presign("b").getQuery().contains("OSSAccessKeyId=ak&"));
+
+        assertTrue(presigner.presign("b").getQuery().contains("OSSAccessKeyId=ak2"));
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectChannelRequest;
+import com.aliyun.oss.model.ObjectMetadata;
+
+public class CachingObjectChannelTest {
+
+    private static final int BLOCK_SIZE = 4 * 1024;
+    private static final String ETAG = "\"etag-1\"";
+
+    static class RangeDownloadOperation extends OSSDownloadOperation {
+        private final byte[] data;
+        final List<long[]> ranges = new ArrayList<long[]>();
+
+        RangeDownloadOperation(byte[] data) {
+            super(null);
+            this.data = data;
+        }
+
+        @Override
+        protected OSSObject getObjectWrap(GetObjectRequest getObjectRequest) {
+            assertEquals(ETAG, getObjectRequest.getMatchingETagConstraints().get(0));
+            long[] range = getObjectRequest.getRange();
+            ranges.add(range);
+            OSSObject ossObject = new OSSObject();
+            ossObject.setObjectContent(
+                    new ByteArrayInputStream(data, (int) range[0], (int) (range[1] - range[0] + 1)));
+            return ossObject;
+        }
+    }
+
+    private static byte[] newData(int size) {
+        byte[] data = new byte[size];
+        new Random(31).nextBytes(data);
+        return data;
+    }
+
+    private static CachingObjectChannel open(RangeDownloadOperation operation, int size, int maxCachedBlocks,
+            int maxReadAheadBlocks) {
+        ObjectChannelRequest request = new ObjectChannelRequest("bucket", "key", BLOCK_SIZE, maxCachedBlocks);
+        request.setMaxReadAheadBlocks(maxReadAheadBlocks);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(size);
+        metadata.setHeader(OSSHeaders.ETAG, ETAG);
+        return new CachingObjectChannel(operation, request, metadata);
+    }
+
+    private static byte[] read(CachingObjectChannel channel, long position, int length) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    @Test
+    public void testRandomReads() throws Exception {
+        byte[] data = newData(50 * BLOCK_SIZE + 123);
+        CachingObjectChannel channel = open(new RangeDownloadOperation(data), data.length, 8, 4);
+        Random random = new Random(5);
+        for (int i = 0; i < 500; i++) {
+            int position = random.nextInt(data.length);
+            int length = Math.min(random.nextInt(3 * BLOCK_SIZE) + 1, data.length - position);
+            assertArrayEquals(Arrays.copyOfRange(data, position, position + length),
+                    read(channel, position, length));
+        }
+        channel.close();
+    }
+
+    @Test
+    public void testCachedBlocksSendNoRequest() throws Exception {
+        byte[] data = newData(10 * BLOCK_SIZE);
+        RangeDownloadOperation operation = new RangeDownloadOperation(data);
+        CachingObjectChannel channel = open(operation, data.length, 8, 0);
+
+        // A footer read, then the reads nearby.
+        read(channel, data.length - 100, 100);
+        read(channel, data.length - 1000, 50);
+        read(channel, data.length - 100, 100);
+        assertEquals(1, channel.getRequestCount());
+        assertEquals(1, channel.getCacheMissCount());
+        assertEquals(2, channel.getCacheHitCount());
+        channel.close();
+    }
+
+    @Test
+    public void testCoalescedFetch() throws Exception {
+        byte[] data = newData(10 * BLOCK_SIZE);
+        RangeDownloadOperation operation = new RangeDownloadOperation(data);
+        CachingObjectChannel channel = open(operation, data.length, 8, 0);
+
+        read(channel, 3 * BLOCK_SIZE, 10);
+        // Blocks 2 to 4 are read, block 3 is cached, still one GET for all.
+        assertArrayEquals(Arrays.copyOfRange(data, 2 * BLOCK_SIZE, 5 * BLOCK_SIZE),
+                read(channel, 2 * BLOCK_SIZE, 3 * BLOCK_SIZE));
+        assertEquals(2, operation.ranges.size());
+        assertArrayEquals(new long[] { 2 * BLOCK_SIZE, 5 * BLOCK_SIZE - 1 }, operation.ranges.get(1));
+        channel.close();
+    }
+
+    @Test
+    public void testSequentialReadAhead() throws Exception {
+        byte[] data = newData(40 * BLOCK_SIZE);
+        RangeDownloadOperation operation = new RangeDownloadOperation(data);
+        CachingObjectChannel channel = open(operation, data.length, 32, 8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(1000);
+        byte[] result = new byte[data.length];
+        int n;
+        int pos = 0;
+        while ((n = channel.read(buffer)) != -1) {
+            buffer.flip();
+            buffer.get(result, pos, n);
+            pos += n;
+            buffer.clear();
+        }
+        assertArrayEquals(data, result);
+        assertEquals(data.length, channel.position());
+
+        // One block first, then 1 + 1, 1 + 2, 1 + 4 and 1 + 8 blocks per GET.
+        long[] first = operation.ranges.get(0);
+        assertEquals(BLOCK_SIZE - 1, first[1] - first[0]);
+        long[] second = operation.ranges.get(1);
+        assertEquals(2 * BLOCK_SIZE - 1, second[1] - second[0]);
+        long[] fifth = operation.ranges.get(4);
+        assertEquals(9 * BLOCK_SIZE - 1, fifth[1] - fifth[0]);
+        assertEquals(8, operation.ranges.size());
+        channel.close();
+    }
+
+    @Test
+    public void testEvictedBlockIsFetchedAgain() throws Exception {
+        byte[] data = newData(10 * BLOCK_SIZE);
+        RangeDownloadOperation operation = new RangeDownloadOperation(data);
+        CachingObjectChannel channel = open(operation, data.length, 2, 0);
+
+        read(channel, 0, 10);
+        read(channel, 5 * BLOCK_SIZE, 10);
+        read(channel, 9 * BLOCK_SIZE, 10);
+        read(channel, 0, 10);
+        assertEquals(4, operation.ranges.size());
+        channel.close();
+    }
+
+    @Test
+    public void testPositionAndEnd() throws Exception {
+        byte[] data = newData(BLOCK_SIZE + 7);
+        CachingObjectChannel channel = open(new RangeDownloadOperation(data), data.length, 4, 4);
+        assertEquals(data.length, channel.size());
+        channel.position(BLOCK_SIZE);
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        assertEquals(7, channel.read(buffer));
+        assertEquals(-1, channel.read(buffer));
+        assertEquals(-1, channel.read(ByteBuffer.allocate(1), data.length + 10));
+
+        channel.close();
+        assertFalse(channel.isOpen());
+        try {
+            channel.read(buffer, 0);
+            fail("The channel is closed.");
+        } catch (ClosedChannelException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.aliyun.oss.common.utils.BufferPool;
+
+public class FileChannelSinkTest {
+
+    @Test
+    public void testPositionalWrites() throws Exception {
+        testConcurrentParts(false);
+    }
+
+    @Test
+    public void testMappedWrites() throws Exception {
+        testConcurrentParts(true);
+    }
+
+    private void testConcurrentParts(boolean mmapEnabled) throws Exception {
+        final byte[] data = new byte[3 * FileChannelSink.WRITE_CHUNK_SIZE + 12345];
+        new Random(7).nextBytes(data);
+        final int partSize = 100 * 1024;
+        File file = File.createTempFile("sink-test", ".tmp");
+        long outstanding = BufferPool.getDefault().getOutstandingDirectBuffers();
+
+        final FileChannelSink sink = new FileChannelSink(file.getPath(), data.length, mmapEnabled);
+        assertEquals(data.length, file.length());
+        List<Thread> threads = new ArrayList<Thread>();
+        final List<Exception> errors = new ArrayList<Exception>();
+        // Writes the parts in reverse order from several threads.
+        for (int t = 0; t < 4; t++) {
+            final int first = t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int offset = (data.length / partSize - first) * partSize; offset >= 0; offset -= 4 * partSize) {
+                            int length = Math.min(partSize, data.length - offset);
+                            long written = sink.write(new ByteArrayInputStream(data, offset, length), offset, length);
+                            assertEquals(length, written);
+                        }
+                    } catch (Exception e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sink.close();
+        assertTrue(errors.isEmpty(), errors.toString());
+        assertEquals(outstanding, BufferPool.getDefault().getOutstandingDirectBuffers());
+
+        assertArrayEquals(data, readFile(file));
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testUnknownSize() throws Exception {
+        byte[] data = new byte[FileChannelSink.WRITE_CHUNK_SIZE + 1];
+        new Random(8).nextBytes(data);
+        File file = File.createTempFile("sink-test", ".tmp");
+
+        FileChannelSink sink = new FileChannelSink(file.getPath(), -1, true);
+        assertEquals(data.length, sink.write(new ByteArrayInputStream(data), 0, 0));
+        sink.close();
+
+        assertArrayEquals(data, readFile(file));
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testShortPartReportsBytesWritten() throws Exception {
+        File file = File.createTempFile("sink-test", ".tmp");
+        for (boolean mmapEnabled : new boolean[] { false, true }) {
+            FileChannelSink sink = new FileChannelSink(file.getPath(), 200, mmapEnabled);
+            try {
+                assertEquals(100, sink.write(new ByteArrayInputStream(new byte[100]), 50, 150));
+            } finally {
+                sink.close();
+            }
+        }
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testMappedPartTooLong() throws Exception {
+        File file = File.createTempFile("sink-test", ".tmp");
+        FileChannelSink sink = new FileChannelSink(file.getPath(), 10, true);
+        try {
+            sink.write(new ByteArrayInputStream(new byte[20]), 0, 10);
+            throw new AssertionError("The extra bytes should be rejected.");
+        } catch (IOException e) {
+            // Expected exception.
+        } finally {
+            sink.close();
+        }
+        assertTrue(file.delete());
+    }
+
+    @Test
+    public void testMoveTo() throws Exception {
+        File src = File.createTempFile("sink-test", ".tmp");
+        File dest = new File(src.getPath() + ".dest");
+        writeFile(dest, new byte[] { 1 });
+        writeFile(src, new byte[] { 2, 3 });
+
+        FileChannelSink.moveTo(src, dest);
+        assertFalse(src.exists());
+        assertArrayEquals(new byte[] { 2, 3 }, readFile(dest));
+
+        try {
+            FileChannelSink.moveTo(src, dest);
+            throw new AssertionError("A missing source should be rejected.");
+        } catch (FileNotFoundException e) {
+            // Expected exception.
+        }
+        assertTrue(dest.delete());
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] content = new byte[(int) raf.length()];
+            raf.readFully(content);
+            return content;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void writeFile(File file, byte[] content) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0);
+            raf.write(content);
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.common.utils.CRC64;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadResult;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.UploadPartRequest;
+import com.aliyun.oss.model.UploadPartResult;
+import com.aliyun.oss.model.UploadStreamRequest;
+
+public class MultipartOutputStreamTest {
+
+    private static final int PART_SIZE = 100 * 1024;
+
+    /**
+     * Keeps the uploaded parts in memory, and assembles them on complete.
+     */
+    static class MemoryUploadOperation extends OSSUploadOperation {
+        final Map<Integer, byte[]> parts = new TreeMap<Integer, byte[]>();
+        final AtomicInteger activeParts = new AtomicInteger();
+        final AtomicInteger maxActiveParts = new AtomicInteger();
+        volatile CountDownLatch partGate;
+        volatile int failingPart;
+        byte[] object;
+        int initiated;
+        int completed;
+        int aborted;
+        int puts;
+
+        MemoryUploadOperation() {
+            super(null);
+            setTransferExecutor(new SharedTransferExecutor(16));
+        }
+
+        @Override
+        protected InitiateMultipartUploadResult initiateMultipartUploadWrap(UploadCheckPoint uploadCheckPoint,
+                InitiateMultipartUploadRequest request) {
+            initiated++;
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId("upload-1");
+            return result;
+        }
+
+        @Override
+        protected UploadPartResult uploadPartWrap(UploadCheckPoint uploadCheckPoint, UploadPartRequest request) {
+            int active = activeParts.incrementAndGet();
+            try {
+                maxActiveParts.set(Math.max(maxActiveParts.get(), active));
+                if (partGate != null) {
+                    partGate.await(10, TimeUnit.SECONDS);
+                }
+                if (request.getPartNumber() == failingPart) {
+                    throw new OSSException("part failed");
+                }
+                byte[] data = readAll(request.getInputStream());
+                assertEquals(request.getPartSize(), data.length);
+                synchronized (parts) {
+                    parts.put(request.getPartNumber(), data);
+                }
+                UploadPartResult result = new UploadPartResult();
+                result.setPartNumber(request.getPartNumber());
+                result.setETag("etag-" + request.getPartNumber());
+                result.setPartSize(data.length);
+                result.setClientCRC(crcOf(data));
+                result.setServerCRC(crcOf(data));
+                return result;
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                activeParts.decrementAndGet();
+            }
+        }
+
+        @Override
+        protected CompleteMultipartUploadResult completeMultipartUploadWrap(UploadCheckPoint uploadCheckPoint,
+                CompleteMultipartUploadRequest request) {
+            completed++;
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            int number = 1;
+            for (PartETag partETag : request.getPartETags()) {
+                assertEquals(number, partETag.getPartNumber());
+                assertEquals("etag-" + number, partETag.getETag());
+                byte[] data = parts.get(number++);
+                output.write(data, 0, data.length);
+            }
+            object = output.toByteArray();
+            CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+            result.setETag("etag-complete");
+            result.setServerCRC(crcOf(object));
+            return result;
+        }
+
+        @Override
+        protected void abortMultipartUploadWrap(AbortMultipartUploadRequest request) {
+            aborted++;
+        }
+
+        @Override
+        protected PutObjectResult putObjectWrap(PutObjectRequest request) {
+            puts++;
+            object = readAll(request.getInputStream());
+            assertEquals(request.getMetadata().getContentLength(), object.length);
+            PutObjectResult result = new PutObjectResult();
+            result.setETag("etag-put");
+            return result;
+        }
+    }
+
+    private static byte[] readAll(InputStream input) {
+        try {
+            return IOUtils.readStreamAsByteArray(input);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long crcOf(byte[] data) {
+        CRC64 crc = new CRC64();
+        crc.update(data, data.length);
+        return crc.getValue();
+    }
+
+    private static byte[] newData(int size) {
+        byte[] data = new byte[size];
+        new Random(23).nextBytes(data);
+        return data;
+    }
+
+    private static MultipartOutputStream open(MemoryUploadOperation operation, int maxBufferedParts) {
+        UploadStreamRequest request = new UploadStreamRequest("bucket", "key", PART_SIZE, 4);
+        request.setMaxBufferedParts(maxBufferedParts);
+        return new MultipartOutputStream(operation, request, true);
+    }
+
+    @Test
+    public void testSmallPayloadUsesPutObject() throws Exception {
+        byte[] data = newData(PART_SIZE - 1);
+        MemoryUploadOperation operation = new MemoryUploadOperation();
+        MultipartOutputStream output = open(operation, 4);
+        output.write(data);
+        output.close();
+
+        assertEquals(1, operation.puts);
+        assertEquals(0, operation.initiated);
+        assertArrayEquals(data, operation.object);
+        assertEquals("etag-put", output.getResult().getETag());
+        assertFalse(output.isOpen());
+    }
+
+    @Test
+    public void testEmptyStream() throws Exception {
+        MemoryUploadOperation operation = new MemoryUploadOperation();
+        MultipartOutputStream output = open(operation, 4);
+        output.close();
+        assertEquals(1, operation.puts);
+        assertEquals(0, operation.object.length);
+    }
+
+    @Test
+    public void testMultipartUpload() throws Exception {
+        byte[] data = newData(7 * PART_SIZE + 4321);
+        MemoryUploadOperation operation = new MemoryUploadOperation();
+        MultipartOutputStream output = open(operation, 3);
+
+        // Mixes single bytes, arrays and buffers across part boundaries.
+        output.write(data[0]);
+        output.write(data, 1, 3 * PART_SIZE);
+        int pos = 1 + 3 * PART_SIZE;
+        assertEquals(2 * PART_SIZE + 17, output.write(ByteBuffer.wrap(data, pos, 2 * PART_SIZE + 17).slice()));
+        pos += 2 * PART_SIZE + 17;
+        output.write(data, pos, data.length - pos);
+        assertEquals(data.length, output.getBytesWritten());
+        output.close();
+
+        assertEquals(1, operation.initiated);
+        assertEquals(1, operation.completed);
+        assertEquals(0, operation.puts);
+        assertEquals(8, operation.parts.size());
+        assertArrayEquals(data, operation.object);
+        assertEquals("etag-complete", output.getResult().getETag());
+        assertEquals(crcOf(data), output.getResult().getClientCRC().longValue());
+    }
+
+    @Test
+    public void testBackpressure() throws Exception {
+        final byte[] data = newData(6 * PART_SIZE);
+        final MemoryUploadOperation operation = new MemoryUploadOperation();
+        operation.partGate = new CountDownLatch(1);
+        final MultipartOutputStream output = open(operation, 2);
+
+        final CountDownLatch written = new CountDownLatch(1);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    output.write(data);
+                    written.countDown();
+                } catch (IOException e) {
+                    fail(e.getMessage());
+                }
+            }
+        });
+        writer.start();
+
+        // Two buffers are uploading and the writer waits for a third one.
+        assertFalse(written.await(300, TimeUnit.MILLISECONDS));
+        assertEquals(2 * PART_SIZE, output.getBytesWritten());
+        assertEquals(2, operation.activeParts.get());
+
+        operation.partGate.countDown();
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+        writer.join();
+        output.close();
+
+        assertTrue(operation.maxActiveParts.get() <= 2);
+        assertArrayEquals(data, operation.object);
+    }
+
+    @Test
+    public void testFailedPartAborts() throws Exception {
+        byte[] data = newData(4 * PART_SIZE);
+        MemoryUploadOperation operation = new MemoryUploadOperation();
+        operation.failingPart = 2;
+        MultipartOutputStream output = open(operation, 8);
+        try {
+            // The failure is thrown by the next write or by the close.
+            output.write(data);
+            output.close();
+            fail("The failed part should fail the stream.");
+        } catch (OSSException e) {
+            assertEquals("part failed", e.getErrorMessage());
+        }
+
+        assertEquals(0, operation.completed);
+        assertEquals(1, operation.aborted);
+        assertNull(output.getResult());
+        assertFalse(output.isOpen());
+    }
+
+    @Test
+    public void testFailedInitiateFailsClose() throws Exception {
+        MemoryUploadOperation operation = new MemoryUploadOperation() {
+            @Override
+            protected InitiateMultipartUploadResult initiateMultipartUploadWrap(UploadCheckPoint uploadCheckPoint,
+                    InitiateMultipartUploadRequest request) {
+                throw new OSSException("initiate failed");
+            }
+        };
+        MultipartOutputStream output = open(operation, 8);
+        try {
+            output.write(newData(PART_SIZE + 1));
+            fail("The failed initiate should fail the write.");
+        } catch (OSSException e) {
+            assertEquals("initiate failed", e.getErrorMessage());
+        }
+        // The close does not create a truncated object.
+        try {
+            output.close();
+            fail("The failed initiate should fail the close.");
+        } catch (OSSException e) {
+            assertEquals("initiate failed", e.getErrorMessage());
+        }
+
+        assertEquals(0, operation.puts);
+        assertNull(output.getResult());
+        assertFalse(output.isOpen());
+    }
+
+    @Test
+    public void testAbort() throws Exception {
+        MemoryUploadOperation operation = new MemoryUploadOperation();
+        MultipartOutputStream output = open(operation, 8);
+        output.write(newData(2 * PART_SIZE + 1));
+        output.abort();
+        output.close();
+
+        assertEquals(1, operation.aborted);
+        assertEquals(0, operation.completed);
+        assertEquals(0, operation.puts);
+        try {
+            output.write(1);
+            fail("The stream is closed.");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,813 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientErrorCode;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.common.utils.CRC64;
+import com.aliyun.oss.common.utils.ExceptionFactory;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.Bucket;
+import com.aliyun.oss.model.BucketInfo;
+import com.aliyun.oss.model.BulkCopyRequest;
+import com.aliyun.oss.model.BulkCopyRequest.CopyEntry;
+import com.aliyun.oss.model.BulkCopyResult;
+import com.aliyun.oss.model.BulkDeleteRequest;
+import com.aliyun.oss.model.BulkDeleteResult;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadResult;
+import com.aliyun.oss.model.CopyLargeObjectRequest;
+import com.aliyun.oss.model.CopyLargeObjectResult;
+import com.aliyun.oss.model.CopyObjectRequest;
+import com.aliyun.oss.model.CopyObjectResult;
+import com.aliyun.oss.model.DeleteObjectsRequest;
+import com.aliyun.oss.model.DeleteObjectsResult;
+import com.aliyun.oss.model.DeleteVersionsRequest;
+import com.aliyun.oss.model.DeleteVersionsRequest.KeyVersion;
+import com.aliyun.oss.model.DeleteVersionsResult;
+import com.aliyun.oss.model.DeleteVersionsResult.DeletedVersion;
+import com.aliyun.oss.model.GenericRequest;
+import com.aliyun.oss.model.HnsStatus;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.ListObjectsV2Request;
+import com.aliyun.oss.model.ListObjectsV2Result;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.RenameObjectRequest;
+import com.aliyun.oss.model.TagSet;
+import com.aliyun.oss.model.UploadPartCopyRequest;
+import com.aliyun.oss.model.UploadPartCopyResult;
+
+public class OSSBulkOperationTest {
+
+    /**
+     * Records the deleted keys instead of sending requests.
+     */
+    static class MemoryBulkOperation extends OSSBulkOperation {
+        final Set<String> deleted = Collections.synchronizedSet(new HashSet<String>());
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger calls = new AtomicInteger();
+
+        MemoryBulkOperation() {
+            super(null, new ClientConfiguration());
+        }
+
+        /**
+         * Decides what the nth request does: null to delete all the keys.
+         */
+        RuntimeException failure(int call) {
+            return null;
+        }
+
+        /**
+         * Decides if the nth request leaves a key out of the response.
+         */
+        boolean skip(int call, String key) {
+            return false;
+        }
+
+        @Override
+        protected DeleteObjectsResult deleteObjectsWrap(DeleteObjectsRequest request) {
+            int call = calls.incrementAndGet();
+            RuntimeException e = failure(call);
+            if (e != null) {
+                throw e;
+            }
+            batchSizes.add(request.getKeys().size());
+            List<String> keys = new ArrayList<String>();
+            for (String key : request.getKeys()) {
+                if (!skip(call, key)) {
+                    deleted.add(key);
+                    keys.add(key);
+                }
+            }
+            return new DeleteObjectsResult(request.isQuiet() ? null : keys);
+        }
+
+        @Override
+        protected DeleteVersionsResult deleteVersionsWrap(DeleteVersionsRequest request) {
+            calls.incrementAndGet();
+            batchSizes.add(request.getKeys().size());
+            List<DeletedVersion> versions = new ArrayList<DeletedVersion>();
+            for (KeyVersion key : request.getKeys()) {
+                deleted.add(key.getKey() + "@" + key.getVersion());
+                DeletedVersion version = new DeletedVersion();
+                version.setKey(key.getKey());
+                version.setVersionId(key.getVersion());
+                versions.add(version);
+            }
+            return new DeleteVersionsResult(versions);
+        }
+    }
+
+    private static List<String> keys(int count) {
+        List<String> keys = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            keys.add("dir/key-" + i);
+        }
+        return keys;
+    }
+
+    @Test
+    public void testBatches() {
+        MemoryBulkOperation operation = new MemoryBulkOperation();
+        BulkDeleteRequest request = new BulkDeleteRequest("bucket").withKeys(keys(2500).iterator());
+        BulkDeleteResult result = operation.bulkDelete(request);
+
+        assertEquals(2500, result.getDeletedCount());
+        assertEquals(3, result.getRequestCount());
+        assertEquals(0, result.getRetryCount());
+        assertTrue(result.getFailedKeys().isEmpty());
+        assertEquals(2500, operation.deleted.size());
+        List<Integer> sizes = new ArrayList<Integer>(operation.batchSizes);
+        Collections.sort(sizes);
+        assertEquals("[500, 1000, 1000]", sizes.toString());
+    }
+
+    @Test
+    public void testRetryOfCongestedBatch() {
+        MemoryBulkOperation operation = new MemoryBulkOperation() {
+            @Override
+            RuntimeException failure(int call) {
+                return call == 1
+                        ? new ClientException("Read timed out", ClientErrorCode.SOCKET_TIMEOUT, "request-id")
+                        : null;
+            }
+        };
+        BulkDeleteRequest request = new BulkDeleteRequest("bucket").withKeys(keys(10).iterator());
+        BulkDeleteResult result = operation.bulkDelete(request);
+
+        assertEquals(10, result.getDeletedCount());
+        assertEquals(2, result.getRequestCount());
+        assertEquals(1, result.getRetryCount());
+        assertTrue(result.getFailedKeys().isEmpty());
+    }
+
+    @Test
+    public void testFailedKeysAreReported() {
+        MemoryBulkOperation operation = new MemoryBulkOperation() {
+            @Override
+            RuntimeException failure(int call) {
+                return ExceptionFactory.createOSSException("request-id", OSSErrorCode.ACCESS_DENIED, "Denied");
+            }
+        };
+        BulkDeleteRequest request = new BulkDeleteRequest("bucket").withKeys(keys(5).iterator());
+        request.setBatchSize(2);
+        BulkDeleteResult result = operation.bulkDelete(request);
+
+        assertEquals(0, result.getDeletedCount());
+        assertEquals(3, result.getRequestCount());
+        assertEquals(5, result.getFailedKeys().size());
+        assertEquals(OSSErrorCode.ACCESS_DENIED, result.getFailedKeys().get(0).getErrorCode());
+    }
+
+    @Test
+    public void testVerboseModeRetriesMissingKeys() {
+        MemoryBulkOperation operation = new MemoryBulkOperation() {
+            @Override
+            boolean skip(int call, String key) {
+                return call == 1 && key.endsWith("-3") || key.equals("dir/key-7");
+            }
+        };
+        BulkDeleteRequest request = new BulkDeleteRequest("bucket").withKeys(keys(10).iterator()).withQuiet(false);
+        request.setMaxRetries(2);
+        BulkDeleteResult result = operation.bulkDelete(request);
+
+        assertEquals(9, result.getDeletedCount());
+        assertEquals(3, result.getRequestCount());
+        assertEquals(2, result.getRetryCount());
+        assertEquals(1, result.getFailedKeys().size());
+        assertEquals("dir/key-7", result.getFailedKeys().get(0).getKey());
+        assertTrue(operation.deleted.contains("dir/key-3"));
+    }
+
+    @Test
+    public void testVersions() {
+        MemoryBulkOperation operation = new MemoryBulkOperation();
+        List<KeyVersion> versions = new ArrayList<KeyVersion>();
+        for (int i = 0; i < 5; i++) {
+            versions.add(new KeyVersion("key", "v" + i));
+        }
+        BulkDeleteRequest request = new BulkDeleteRequest("bucket").withKeyVersions(versions.iterator())
+                .withQuiet(false);
+        BulkDeleteResult result = operation.bulkDelete(request);
+
+        assertEquals(5, result.getDeletedCount());
+        assertTrue(operation.deleted.contains("key@v4"));
+        assertTrue(result.getFailedKeys().isEmpty());
+    }
+
+    @Test
+    public void testRateLimit() {
+        MemoryBulkOperation operation = new MemoryBulkOperation();
+        BulkDeleteRequest request = new BulkDeleteRequest("bucket").withKeys(keys(6).iterator());
+        request.setBatchSize(1);
+        request.setMaxRequestsPerSecond(20);
+        BulkDeleteResult result = operation.bulkDelete(request);
+
+        assertEquals(6, result.getRequestCount());
+        // Six requests 50ms apart take at least 250ms.
+        assertTrue(result.getElapsedMillis() >= 240, "Elapsed " + result.getElapsedMillis());
+    }
+
+    @Test
+    public void testKeysOrVersionsRequired() {
+        try {
+            new MemoryBulkOperation().bulkDelete(new BulkDeleteRequest("bucket"));
+            fail("Either keys or versions are required.");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * Keeps objects in memory, and copies them like OSS does.
+     */
+    static class MemoryCopyOperation extends OSSBulkOperation {
+        final Map<String, byte[]> objects = new ConcurrentHashMap<String, byte[]>();
+        final Map<String, String> eTags = new ConcurrentHashMap<String, String>();
+        final Map<String, ObjectMetadata> metadata = new ConcurrentHashMap<String, ObjectMetadata>();
+        final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<String, Map<Integer, byte[]>>();
+        final Map<String, Map<String, String>> tags = new ConcurrentHashMap<String, Map<String, String>>();
+        final AtomicInteger partCopies = new AtomicInteger();
+        final AtomicInteger renames = new AtomicInteger();
+        final AtomicInteger uploadIds = new AtomicInteger();
+        volatile boolean hns;
+
+        MemoryCopyOperation() {
+            super(null, new ClientConfiguration());
+        }
+
+        void put(String bucketName, String key, byte[] data) {
+            objects.put(bucketName + "/" + key, data);
+            eTags.put(bucketName + "/" + key, "etag-" + Arrays.hashCode(data));
+        }
+
+        byte[] get(String bucketName, String key) {
+            return objects.get(bucketName + "/" + key);
+        }
+
+        private byte[] source(String bucketName, String key, List<String> matchingETags) {
+            byte[] data = objects.get(bucketName + "/" + key);
+            if (data == null) {
+                throw ExceptionFactory.createOSSException("request-id", OSSErrorCode.NO_SUCH_KEY, "Not Found");
+            }
+            if (matchingETags != null && !matchingETags.isEmpty()
+                    && !matchingETags.contains(eTags.get(bucketName + "/" + key))) {
+                throw ExceptionFactory.createOSSException("request-id", "PreconditionFailed", "ETag changed");
+            }
+            return data;
+        }
+
+        @Override
+        protected ObjectMetadata getObjectMetadataWrap(GenericRequest request) {
+            String objectKey = request.getBucketName() + "/" + request.getKey();
+            byte[] data = source(request.getBucketName(), request.getKey(), null);
+            ObjectMetadata result = new ObjectMetadata();
+            ObjectMetadata stored = metadata.get(objectKey);
+            if (stored != null) {
+                result.setUserMetadata(stored.getUserMetadata());
+                result.setContentType(stored.getContentType());
+            }
+            result.setContentLength(data.length);
+            result.setHeader(OSSHeaders.ETAG, eTags.get(objectKey));
+            result.setHeader(OSSHeaders.OSS_HASH_CRC64_ECMA,
+                    new BigInteger(1, ByteBuffer.allocate(8).putLong(new CRC64(data, data.length).getValue())
+                            .array()).toString());
+            return result;
+        }
+
+        @Override
+        protected CopyObjectResult copyObjectWrap(CopyObjectRequest request) {
+            byte[] data = source(request.getSourceBucketName(), request.getSourceKey(),
+                    request.getMatchingETagConstraints());
+            put(request.getDestinationBucketName(), request.getDestinationKey(), data);
+            if (request.getNewObjectMetadata() != null) {
+                metadata.put(request.getDestinationBucketName() + "/" + request.getDestinationKey(),
+                        request.getNewObjectMetadata());
+            }
+            return new CopyObjectResult();
+        }
+
+        @Override
+        protected InitiateMultipartUploadResult initiateMultipartUploadWrap(InitiateMultipartUploadRequest request) {
+            String uploadId = "upload-" + uploadIds.incrementAndGet();
+            uploads.put(uploadId, new ConcurrentHashMap<Integer, byte[]>());
+            if (request.getObjectMetadata() != null) {
+                metadata.put(request.getBucketName() + "/" + request.getKey(), request.getObjectMetadata());
+            }
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId(uploadId);
+            return result;
+        }
+
+        @Override
+        protected UploadPartCopyResult uploadPartCopyWrap(UploadPartCopyRequest request) {
+            partCopies.incrementAndGet();
+            byte[] data = source(request.getSourceBucketName(), request.getSourceKey(),
+                    request.getMatchingETagConstraints());
+            int begin = request.getBeginIndex().intValue();
+            byte[] part = Arrays.copyOfRange(data, begin, begin + request.getPartSize().intValue());
+            uploads.get(request.getUploadId()).put(request.getPartNumber(), part);
+            UploadPartCopyResult result = new UploadPartCopyResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("part-" + Arrays.hashCode(part));
+            return result;
+        }
+
+        @Override
+        protected CompleteMultipartUploadResult completeMultipartUploadWrap(CompleteMultipartUploadRequest request) {
+            Map<Integer, byte[]> parts = uploads.remove(request.getUploadId());
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            for (PartETag partETag : request.getPartETags()) {
+                byte[] part = parts.get(partETag.getPartNumber());
+                data.write(part, 0, part.length);
+            }
+            put(request.getBucketName(), request.getKey(), data.toByteArray());
+            eTags.put(request.getBucketName() + "/" + request.getKey(), "multipart-" + request.getUploadId());
+            return new CompleteMultipartUploadResult();
+        }
+
+        @Override
+        protected void abortMultipartUploadWrap(AbortMultipartUploadRequest request) {
+            uploads.remove(request.getUploadId());
+        }
+
+        @Override
+        protected void deleteObjectWrap(GenericRequest request) {
+            objects.remove(request.getBucketName() + "/" + request.getKey());
+        }
+
+        @Override
+        protected void renameObjectWrap(RenameObjectRequest request) {
+            renames.incrementAndGet();
+            byte[] data = source(request.getBucketName(), request.getSourceObjectName(), null);
+            objects.remove(request.getBucketName() + "/" + request.getSourceObjectName());
+            put(request.getBucketName(), request.getDestinationObjectName(), data);
+        }
+
+        @Override
+        protected TagSet getObjectTaggingWrap(GenericRequest request) {
+            Map<String, String> objectTags = tags.get(request.getBucketName() + "/" + request.getKey());
+            return objectTags != null ? new TagSet(objectTags) : new TagSet();
+        }
+
+        @Override
+        protected BucketInfo getBucketInfoWrap(String bucketName) {
+            Bucket bucket = new Bucket(bucketName);
+            if (hns) {
+                bucket.setHnsStatus(HnsStatus.Enabled.toString());
+            }
+            BucketInfo info = new BucketInfo();
+            info.setBucket(bucket);
+            return info;
+        }
+
+        @Override
+        protected ListObjectsV2Result listObjectsV2Wrap(ListObjectsV2Request request) {
+            String from = request.getBucketName() + "/" + request.getPrefix();
+            String after = request.getContinuationToken();
+            List<String> keys = new ArrayList<String>();
+            for (String objectKey : new TreeSet<String>(objects.keySet())) {
+                String key = objectKey.substring(request.getBucketName().length() + 1);
+                if (objectKey.startsWith(from) && (after == null || key.compareTo(after) > 0)) {
+                    keys.add(key);
+                }
+            }
+            ListObjectsV2Result result = new ListObjectsV2Result();
+            // Two keys a page, to list several pages.
+            for (String key : keys.subList(0, Math.min(2, keys.size()))) {
+                OSSObjectSummary summary = new OSSObjectSummary();
+                summary.setKey(key);
+                result.addObjectSummary(summary);
+                result.setNextContinuationToken(key);
+            }
+            result.setTruncated(keys.size() > 2);
+            return result;
+        }
+    }
+
+    private static byte[] data(int size, int seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void testCopyPrefix() {
+        MemoryCopyOperation operation = new MemoryCopyOperation();
+        for (int i = 0; i < 5; i++) {
+            operation.put("bucket", "src/key-" + i, data(100, i));
+        }
+        operation.put("bucket", "other/key", data(100, 9));
+        BulkCopyRequest request = new BulkCopyRequest("bucket", "src/", "archive", "dst/");
+        BulkCopyResult result = operation.bulkCopy(request);
+
+        assertEquals(5, result.getCopiedCount());
+        assertEquals(500, result.getCopiedBytes());
+        assertTrue(result.getFailedEntries().isEmpty());
+        for (int i = 0; i < 5; i++) {
+            assertArrayEquals(data(100, i), operation.get("archive", "dst/key-" + i));
+            assertArrayEquals(data(100, i), operation.get("bucket", "src/key-" + i));
+        }
+        assertEquals(null, operation.get("archive", "dst/other/key"));
+    }
+
+    @Test
+    public void testMultipartCopyKeepsMetadata() {
+        MemoryCopyOperation operation = new MemoryCopyOperation();
+        byte[] data = data(350 * 1024, 1);
+        operation.put("bucket", "large", data);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("text/csv");
+        metadata.addUserMetadata("owner", "test");
+        operation.metadata.put("bucket/large", metadata);
+        List<CopyEntry> entries = Arrays.asList(new CopyEntry("bucket", "large", "bucket", "copy"));
+        BulkCopyRequest request = new BulkCopyRequest().withEntries(entries.iterator());
+        request.setMultipartThreshold(200 * 1024);
+        request.setPartSize(100 * 1024);
+        BulkCopyResult result = operation.bulkCopy(request);
+
+        assertEquals(1, result.getMultipartCount());
+        assertEquals(4, operation.partCopies.get());
+        assertArrayEquals(data, operation.get("bucket", "copy"));
+        assertEquals("text/csv", operation.metadata.get("bucket/copy").getContentType());
+        assertEquals("test", operation.metadata.get("bucket/copy").getUserMetadata().get("owner"));
+        assertTrue(operation.uploads.isEmpty());
+    }
+
+    @Test
+    public void testMoveDeletesVerifiedSources() {
+        MemoryCopyOperation operation = new MemoryCopyOperation();
+        operation.put("bucket", "small", data(100, 1));
+        operation.put("bucket", "large", data(300 * 1024, 2));
+        List<CopyEntry> entries = Arrays.asList(new CopyEntry("bucket", "small", "other", "small"),
+                new CopyEntry("bucket", "large", "other", "large"));
+        BulkCopyRequest request = new BulkCopyRequest().withEntries(entries.iterator()).withMove(true);
+        request.setMultipartThreshold(200 * 1024);
+        BulkCopyResult result = operation.bulkCopy(request);
+
+        assertEquals(2, result.getCopiedCount());
+        assertEquals(null, operation.get("bucket", "small"));
+        assertEquals(null, operation.get("bucket", "large"));
+        assertArrayEquals(data(300 * 1024, 2), operation.get("other", "large"));
+    }
+
+    @Test
+    public void testMoveKeepsMismatchedSource() {
+        MemoryCopyOperation operation = new MemoryCopyOperation() {
+            @Override
+            protected CopyObjectResult copyObjectWrap(CopyObjectRequest request) {
+                put(request.getDestinationBucketName(), request.getDestinationKey(), data(10, 7));
+                return new CopyObjectResult();
+            }
+        };
+        operation.put("bucket", "key", data(100, 1));
+        List<CopyEntry> entries = Arrays.asList(new CopyEntry("bucket", "key", "other", "key"));
+        BulkCopyResult result = operation
+                .bulkCopy(new BulkCopyRequest().withEntries(entries.iterator()).withMove(true));
+
+        assertEquals(0, result.getCopiedCount());
+        assertEquals(1, result.getFailedEntries().size());
+        assertArrayEquals(data(100, 1), operation.get("bucket", "key"));
+    }
+
+    @Test
+    public void testMoveRenamesInHnsBucket() {
+        MemoryCopyOperation operation = new MemoryCopyOperation();
+        operation.hns = true;
+        operation.put("bucket", "a/1", data(100, 1));
+        operation.put("bucket", "a/2", data(100, 2));
+        BulkCopyRequest request = new BulkCopyRequest("bucket", "a/", "bucket", "b/").withMove(true);
+        BulkCopyResult result = operation.bulkCopy(request);
+
+        assertEquals(2, result.getRenamedCount());
+        assertEquals(2, operation.renames.get());
+        assertArrayEquals(data(100, 2), operation.get("bucket", "b/2"));
+        assertEquals(null, operation.get("bucket", "a/2"));
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() throws Exception {
+        File checkpoint = File.createTempFile("bulk-copy", ".checkpoint");
+        checkpoint.delete();
+        try {
+            MemoryCopyOperation operation = new MemoryCopyOperation();
+            // The last source is missing on the first run.
+            for (int i = 0; i < 3; i++) {
+                operation.put("bucket", "src/" + i, data(100, i));
+            }
+            List<CopyEntry> entries = new ArrayList<CopyEntry>();
+            for (int i = 0; i < 4; i++) {
+                entries.add(new CopyEntry("bucket", "src/" + i, "bucket", "dst/" + i));
+            }
+            BulkCopyRequest request = new BulkCopyRequest().withEntries(entries.iterator());
+            request.setCheckpointFile(checkpoint.getPath());
+            BulkCopyResult first = operation.bulkCopy(request);
+            assertEquals(3, first.getCopiedCount());
+            assertEquals(1, first.getFailedEntries().size());
+            assertEquals(OSSErrorCode.NO_SUCH_KEY, first.getFailedEntries().get(0).getErrorCode());
+
+            operation.put("bucket", "src/3", data(100, 3));
+            request.setEntries(entries.iterator());
+            BulkCopyResult second = operation.bulkCopy(request);
+            assertEquals(1, second.getCopiedCount());
+            assertEquals(3, second.getSkippedCount());
+            assertArrayEquals(data(100, 3), operation.get("bucket", "dst/3"));
+        } finally {
+            checkpoint.delete();
+        }
+    }
+
+    @Test
+    public void testDestinationUnderSourcePrefix() {
+        try {
+            new MemoryCopyOperation().bulkCopy(new BulkCopyRequest("bucket", "a/", "bucket", "a/b/"));
+            fail("The copies would be listed again.");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testMoveOntoItselfKeepsSource() {
+        try {
+            new MemoryCopyOperation().bulkCopy(new BulkCopyRequest("bucket", "a/", "bucket", "a/").withMove(true));
+            fail("The sources would be deleted.");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+
+        MemoryCopyOperation operation = new MemoryCopyOperation();
+        operation.put("bucket", "key", data(100, 1));
+        List<CopyEntry> entries = Arrays.asList(new CopyEntry("bucket", "key", "bucket", "key"));
+        BulkCopyResult result = operation
+                .bulkCopy(new BulkCopyRequest().withEntries(entries.iterator()).withMove(true));
+
+        assertEquals(0, result.getCopiedCount());
+        assertEquals(1, result.getFailedEntries().size());
+        assertArrayEquals(data(100, 1), operation.get("bucket", "key"));
+    }
+
+    @Test
+    public void testRewriteMetadataInPlace() {
+        MemoryCopyOperation operation = new MemoryCopyOperation();
+        operation.put("bucket", "a/small", data(100, 1));
+        operation.put("bucket", "a/large", data(300 * 1024, 2));
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("text/plain");
+        BulkCopyRequest request = new BulkCopyRequest("bucket", "a/", "bucket", "a/");
+        request.setNewObjectMetadata(metadata);
+        request.setMultipartThreshold(200 * 1024);
+        BulkCopyResult result = operation.bulkCopy(request);
+
+        assertEquals(2, result.getCopiedCount());
+        assertTrue(result.getFailedEntries().isEmpty());
+        assertArrayEquals(data(100, 1), operation.get("bucket", "a/small"));
+        assertArrayEquals(data(300 * 1024, 2), operation.get("bucket", "a/large"));
+        assertEquals("text/plain", operation.metadata.get("bucket/a/small").getContentType());
+        assertEquals("text/plain", operation.metadata.get("bucket/a/large").getContentType());
+
+        try {
+            request = new BulkCopyRequest("bucket", "a/", "bucket", "a/b/");
+            request.setNewObjectMetadata(metadata);
+            operation.bulkCopy(request);
+            fail("The copies would be listed again.");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testCopyLargeObject() {
+        MemoryCopyOperation operation = new MemoryCopyOperation();
+        byte[] data = data(450 * 1024, 1);
+        operation.put("bucket", "large", data);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType("video/mp4");
+        operation.metadata.put("bucket/large", metadata);
+        operation.tags.put("bucket/large", Collections.singletonMap("stage", "raw"));
+        CopyLargeObjectRequest request = new CopyLargeObjectRequest("bucket", "large", "other", "copy");
+        request.setPartSize(100 * 1024);
+        CopyLargeObjectResult result = operation.copyLargeObject(request);
+
+        assertEquals(5, result.getPartCount());
+        assertEquals(5, result.getCopiedPartCount());
+        assertArrayEquals(data, operation.get("other", "copy"));
+        ObjectMetadata copied = operation.metadata.get("other/copy");
+        assertEquals("video/mp4", copied.getContentType());
+        assertEquals("stage=raw", copied.getRawMetadata().get(OSSHeaders.OSS_TAGGING));
+        assertTrue(operation.uploads.isEmpty());
+    }
+
+    @Test
+    public void testCopyLargeObjectOfEmptySource() {
+        MemoryCopyOperation operation = new MemoryCopyOperation();
+        operation.put("bucket", "src/empty", new byte[0]);
+        CopyLargeObjectRequest request = new CopyLargeObjectRequest("bucket", "src/empty", "other", "copy");
+        CopyLargeObjectResult result = operation.copyLargeObject(request);
+        assertEquals(0, result.getPartCount());
+        assertArrayEquals(new byte[0], operation.get("other", "copy"));
+        assertEquals(0, operation.uploadIds.get());
+    }
+
+    @Test
+    public void testCopyLargeObjectResumes() throws Exception {
+        File checkpoint = File.createTempFile("copy-large", ".ccp");
+        checkpoint.delete();
+        try {
+            final AtomicInteger failures = new AtomicInteger(1);
+            MemoryCopyOperation operation = new MemoryCopyOperation() {
+                @Override
+                protected UploadPartCopyResult uploadPartCopyWrap(UploadPartCopyRequest request) {
+                    if (request.getPartNumber() == 3 && failures.getAndDecrement() > 0) {
+                        throw new ClientException("Connection reset", ClientErrorCode.CONNECTION_TIMEOUT, null);
+                    }
+                    return super.uploadPartCopyWrap(request);
+                }
+            };
+            byte[] data = data(450 * 1024, 2);
+            operation.put("bucket", "large", data);
+            CopyLargeObjectRequest request = new CopyLargeObjectRequest("bucket", "large", "bucket", "copy",
+                    100 * 1024, 1, true, checkpoint.getPath());
+            try {
+                operation.copyLargeObject(request);
+                fail("The third part fails.");
+            } catch (ClientException e) {
+                // Expected
+            }
+            assertTrue(checkpoint.exists());
+            assertEquals(1, operation.uploads.size());
+            // The parts queued after the failed one may or may not have run.
+            int copiedBefore = operation.partCopies.get();
+
+            CopyLargeObjectResult result = operation.copyLargeObject(request);
+            assertEquals(5, result.getPartCount());
+            assertEquals(5 - copiedBefore, result.getCopiedPartCount());
+            assertEquals(5, operation.partCopies.get());
+            assertEquals(1, operation.uploadIds.get());
+            assertArrayEquals(data, operation.get("bucket", "copy"));
+            assertTrue(!checkpoint.exists());
+        } finally {
+            checkpoint.delete();
+        }
+    }
+
+    @Test
+    public void testCopyLargeObjectRestartsWhenSourceChanged() throws Exception {
+        File checkpoint = File.createTempFile("copy-large", ".ccp");
+        checkpoint.delete();
+        try {
+            final AtomicInteger failures = new AtomicInteger(1);
+            MemoryCopyOperation operation = new MemoryCopyOperation() {
+                @Override
+                protected UploadPartCopyResult uploadPartCopyWrap(UploadPartCopyRequest request) {
+                    if (request.getPartNumber() == 2 && failures.getAndDecrement() > 0) {
+                        throw new ClientException("Connection reset", ClientErrorCode.CONNECTION_TIMEOUT, null);
+                    }
+                    return super.uploadPartCopyWrap(request);
+                }
+            };
+            operation.put("bucket", "large", data(300 * 1024, 3));
+            CopyLargeObjectRequest request = new CopyLargeObjectRequest("bucket", "large", "bucket", "copy",
+                    100 * 1024, 1, true, checkpoint.getPath());
+            try {
+                operation.copyLargeObject(request);
+                fail("The second part fails.");
+            } catch (ClientException e) {
+                // Expected
+            }
+
+            byte[] data = data(300 * 1024, 4);
+            operation.put("bucket", "large", data);
+            CopyLargeObjectResult result = operation.copyLargeObject(request);
+            assertEquals(3, result.getCopiedPartCount());
+            assertEquals(2, operation.uploadIds.get());
+            assertTrue(operation.uploads.isEmpty());
+            assertArrayEquals(data, operation.get("bucket", "copy"));
+        } finally {
+            checkpoint.delete();
+        }
+    }
+
+    @Test
+    public void testCopyLargeObjectKeepsUploadOfAnotherCopy() throws Exception {
+        File checkpoint = File.createTempFile("copy-large", ".ccp");
+        checkpoint.delete();
+        try {
+            final AtomicInteger failures = new AtomicInteger(1);
+            MemoryCopyOperation operation = new MemoryCopyOperation() {
+                @Override
+                protected UploadPartCopyResult uploadPartCopyWrap(UploadPartCopyRequest request) {
+                    if (request.getPartNumber() == 2 && failures.getAndDecrement() > 0) {
+                        throw new ClientException("Connection reset", ClientErrorCode.CONNECTION_TIMEOUT, null);
+                    }
+                    return super.uploadPartCopyWrap(request);
+                }
+            };
+            byte[] data = data(300 * 1024, 3);
+            operation.put("bucket", "large", data);
+            CopyLargeObjectRequest request = new CopyLargeObjectRequest("bucket", "large", "bucket", "copy",
+                    100 * 1024, 1, true, checkpoint.getPath());
+            try {
+                operation.copyLargeObject(request);
+                fail("The second part fails.");
+            } catch (ClientException e) {
+                // Expected
+            }
+
+            // Another destination with the same checkpoint file leaves the
+            // saved upload alone.
+            request = new CopyLargeObjectRequest("bucket", "large", "bucket", "other", 100 * 1024, 1, true,
+                    checkpoint.getPath());
+            operation.copyLargeObject(request);
+            assertEquals(2, operation.uploadIds.get());
+            assertEquals(1, operation.uploads.size());
+            assertArrayEquals(data, operation.get("bucket", "other"));
+        } finally {
+            checkpoint.delete();
+        }
+    }
+
+    @Test
+    public void testDefaultCopyCheckpointFile() {
+        String slash = OSSBulkOperation.defaultCheckpointFile(new CopyLargeObjectRequest("bucket", "src", "bucket",
+                "a/b"));
+        String underscore = OSSBulkOperation.defaultCheckpointFile(new CopyLargeObjectRequest("bucket", "src",
+                "bucket", "a_b"));
+        assertTrue(slash.endsWith(".ccp"));
+        assertFalse(slash.equals(underscore));
+        assertFalse(slash.equals(OSSBulkOperation.defaultCheckpointFile(new CopyLargeObjectRequest("bucket",
+                "other", "bucket", "a/b"))));
+    }
+
+    @Test
+    public void testCopyLargeObjectAbortsWithoutCheckpoint() {
+        MemoryCopyOperation operation = new MemoryCopyOperation() {
+            @Override
+            protected UploadPartCopyResult uploadPartCopyWrap(UploadPartCopyRequest request) {
+                if (request.getPartNumber() == 2) {
+                    throw ExceptionFactory.createOSSException("request-id", "InternalError", "Error");
+                }
+                return super.uploadPartCopyWrap(request);
+            }
+        };
+        operation.put("bucket", "large", data(300 * 1024, 5));
+        CopyLargeObjectRequest request = new CopyLargeObjectRequest("bucket", "large", "bucket", "copy");
+        request.setPartSize(100 * 1024);
+        try {
+            operation.copyLargeObject(request);
+            fail("The second part fails.");
+        } catch (OSSException e) {
+            assertEquals("InternalError", e.getErrorCode());
+        }
+        assertTrue(operation.uploads.isEmpty());
+        assertEquals(null, operation.get("bucket", "copy"));
+    }
+}
@@ -0,0 +1,600 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.common.utils.BinaryUtil;
+import com.aliyun.oss.common.utils.CRC64;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadResult;
+import com.aliyun.oss.model.DirectoryTransferRequest;
+import com.aliyun.oss.model.DirectoryTransferResult;
+import com.aliyun.oss.model.GenericRequest;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.ListObjectsV2Request;
+import com.aliyun.oss.model.ListObjectsV2Result;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.UploadPartRequest;
+import com.aliyun.oss.model.UploadPartResult;
+
+public class OSSDirectoryTransferOperationTest {
+
+    private static final String BUCKET = "bucket";
+
+    /**
+     * Keeps the objects of one bucket in memory, with their CRC64 and an
+     * MD5 ETag, and counts the requests that transfer data.
+     */
+    static class MemoryDirectoryTransferOperation extends OSSDirectoryTransferOperation {
+        final Map<String, byte[]> objects = new ConcurrentHashMap<String, byte[]>();
+        final Map<String, Date> lastModified = new ConcurrentHashMap<String, Date>();
+        final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<String, Map<Integer, byte[]>>();
+        final AtomicInteger puts = new AtomicInteger();
+        final AtomicInteger parts = new AtomicInteger();
+        final AtomicInteger gets = new AtomicInteger();
+        final AtomicInteger heads = new AtomicInteger();
+        final AtomicInteger aborts = new AtomicInteger();
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        volatile boolean crcEnabled = true;
+        volatile String failingKey;
+
+        MemoryDirectoryTransferOperation() {
+            super(null, new ClientConfiguration());
+        }
+
+        void put(String key, byte[] data) {
+            objects.put(key, data);
+            lastModified.put(key, new Date());
+        }
+
+        private void enter(String key) {
+            int n = inFlight.incrementAndGet();
+            while (true) {
+                int max = maxInFlight.get();
+                if (n <= max || maxInFlight.compareAndSet(max, n)) {
+                    break;
+                }
+            }
+            if (key.equals(failingKey)) {
+                inFlight.decrementAndGet();
+                throw new ClientException("Injected failure", "InjectedError", null);
+            }
+        }
+
+        private ObjectMetadata metadata(String key) {
+            byte[] data = objects.get(key);
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(data.length);
+            metadata.setHeader(OSSHeaders.ETAG, eTag(data));
+            metadata.setLastModified(lastModified.get(key));
+            if (crcEnabled) {
+                metadata.setHeader(OSSHeaders.OSS_HASH_CRC64_ECMA, unsigned(crc(data, 0, data.length)));
+            }
+            return metadata;
+        }
+
+        @Override
+        protected ListObjectsV2Result listObjectsV2Wrap(ListObjectsV2Request request) {
+            String after = request.getContinuationToken();
+            List<String> keys = new ArrayList<String>();
+            // Listed in the order of the UTF-8 bytes of the keys, as OSS does.
+            TreeMap<String, byte[]> sorted = new TreeMap<String, byte[]>(UTF8_ORDER);
+            sorted.putAll(objects);
+            for (String key : sorted.keySet()) {
+                if (key.startsWith(request.getPrefix()) && (after == null || UTF8_ORDER.compare(key, after) > 0)) {
+                    keys.add(key);
+                }
+            }
+            ListObjectsV2Result result = new ListObjectsV2Result();
+            // Two keys a page, to list several pages.
+            for (String key : keys.subList(0, Math.min(2, keys.size()))) {
+                OSSObjectSummary summary = new OSSObjectSummary();
+                summary.setKey(key);
+                summary.setSize(objects.get(key).length);
+                summary.setETag(eTag(objects.get(key)));
+                summary.setLastModified(lastModified.get(key));
+                result.addObjectSummary(summary);
+                result.setNextContinuationToken(key);
+            }
+            result.setTruncated(keys.size() > 2);
+            return result;
+        }
+
+        @Override
+        protected ObjectMetadata getObjectMetadataWrap(GenericRequest request) {
+            heads.incrementAndGet();
+            return metadata(request.getKey());
+        }
+
+        @Override
+        protected PutObjectResult putObjectWrap(PutObjectRequest request) {
+            enter(request.getKey());
+            try {
+                puts.incrementAndGet();
+                byte[] data = request.getFile() != null ? read(request.getFile()) : read(request.getInputStream());
+                put(request.getKey(), data);
+                PutObjectResult result = new PutObjectResult();
+                result.setETag(eTag(data));
+                result.setServerCRC(crc(data, 0, data.length));
+                return result;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        protected OSSObject getObjectWrap(GetObjectRequest request) {
+            enter(request.getKey());
+            try {
+                gets.incrementAndGet();
+                byte[] data = objects.get(request.getKey());
+                int start = 0;
+                int end = data.length - 1;
+                if (request.getRange() != null) {
+                    start = (int) request.getRange()[0];
+                    end = (int) request.getRange()[1];
+                }
+                OSSObject object = new OSSObject();
+                object.setKey(request.getKey());
+                object.setObjectMetadata(metadata(request.getKey()));
+                object.setObjectContent(new ByteArrayInputStream(data, start, end - start + 1));
+                return object;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        protected InitiateMultipartUploadResult initiateMultipartUploadWrap(InitiateMultipartUploadRequest request) {
+            String uploadId = "upload-" + uploads.size();
+            uploads.put(uploadId, new ConcurrentHashMap<Integer, byte[]>());
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId(uploadId);
+            return result;
+        }
+
+        @Override
+        protected UploadPartResult uploadPartWrap(UploadPartRequest request) {
+            enter(request.getKey());
+            try {
+                parts.incrementAndGet();
+                byte[] data = new byte[(int) request.getPartSize()];
+                InputStream in = request.getInputStream();
+                int read = 0;
+                while (read < data.length) {
+                    int n = in.read(data, read, data.length - read);
+                    assertTrue(n > 0);
+                    read += n;
+                }
+                uploads.get(request.getUploadId()).put(request.getPartNumber(), data);
+                UploadPartResult result = new UploadPartResult();
+                result.setPartNumber(request.getPartNumber());
+                result.setETag(eTag(data));
+                result.setPartSize(data.length);
+                result.setClientCRC(crc(data, 0, data.length));
+                return result;
+            } catch (IOException e) {
+                throw new ClientException(e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @Override
+        protected CompleteMultipartUploadResult completeMultipartUploadWrap(CompleteMultipartUploadRequest request) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Map<Integer, byte[]> uploaded = uploads.remove(request.getUploadId());
+            int partNumber = 0;
+            for (PartETag partETag : request.getPartETags()) {
+                assertEquals(++partNumber, partETag.getPartNumber());
+                byte[] data = uploaded.get(partETag.getPartNumber());
+                out.write(data, 0, data.length);
+            }
+            byte[] data = out.toByteArray();
+            put(request.getKey(), data);
+            CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+            result.setETag(eTag(data).toUpperCase() + "-" + partNumber);
+            result.setServerCRC(crc(data, 0, data.length));
+            return result;
+        }
+
+        @Override
+        protected void abortMultipartUploadWrap(AbortMultipartUploadRequest request) {
+            aborts.incrementAndGet();
+            uploads.remove(request.getUploadId());
+        }
+    }
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final Comparator<String> UTF8_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            byte[] x = a.getBytes(UTF8);
+            byte[] y = b.getBytes(UTF8);
+            for (int i = 0; i < Math.min(x.length, y.length); i++) {
+                if (x[i] != y[i]) {
+                    return (x[i] & 0xff) - (y[i] & 0xff);
+                }
+            }
+            return x.length - y.length;
+        }
+    };
+
+    private static long crc(byte[] data, int offset, int length) {
+        CRC64 crc = new CRC64();
+        crc.update(data, offset, length);
+        return crc.getValue();
+    }
+
+    private static String unsigned(long crc) {
+        return new BigInteger(1, ByteBuffer.allocate(8).putLong(crc).array()).toString();
+    }
+
+    private static String eTag(byte[] data) {
+        return BinaryUtil.encodeMD5(data);
+    }
+
+    private static byte[] read(File file) {
+        try {
+            return read(new FileInputStream(file));
+        } catch (IOException e) {
+            throw new ClientException(e);
+        }
+    }
+
+    private static byte[] read(InputStream in) {
+        try {
+            return IOUtils.readStreamAsByteArray(in);
+        } catch (IOException e) {
+            throw new ClientException(e);
+        } finally {
+            IOUtils.safeClose(in);
+        }
+    }
+
+    private static byte[] data(int size, int seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static void write(File file, byte[] data) throws IOException {
+        file.getParentFile().mkdirs();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static File newDirectory(String name) throws IOException {
+        File directory = File.createTempFile(name, "");
+        directory.delete();
+        directory.mkdirs();
+        return directory;
+    }
+
+    private static File newSourceTree() throws IOException {
+        File directory = newDirectory("upload-directory");
+        write(new File(directory, "a.txt"), data(1000, 1));
+        write(new File(directory, "b/c.txt"), data(2000, 2));
+        write(new File(directory, "b/d/e.txt"), data(3000, 3));
+        // Sorts between "b/" and "b/c.txt" by name, but not by key.
+        write(new File(directory, "b-c.txt"), data(4000, 4));
+        write(new File(directory, "z.txt"), data(0, 5));
+        return directory;
+    }
+
+    @Test
+    public void testUploadDirectoryAndSkipWithManifest() throws Exception {
+        MemoryDirectoryTransferOperation operation = new MemoryDirectoryTransferOperation();
+        File directory = newSourceTree();
+        File manifest = File.createTempFile("upload-directory", ".manifest");
+        DirectoryTransferRequest request = new DirectoryTransferRequest(BUCKET, "backup/", directory.getPath())
+                .withTaskNum(3).withManifestFile(manifest.getPath());
+
+        DirectoryTransferResult result = operation.uploadDirectory(request);
+        assertEquals(5, result.getTransferredCount());
+        assertEquals(0, result.getSkippedCount());
+        assertEquals(10000, result.getTransferredBytes());
+        assertTrue(result.getFailedFiles().isEmpty());
+        assertArrayEquals(data(3000, 3), operation.objects.get("backup/b/d/e.txt"));
+        assertArrayEquals(data(4000, 4), operation.objects.get("backup/b-c.txt"));
+        assertTrue(operation.maxInFlight.get() <= 3);
+
+        // A rerun skips the unchanged files by the manifest, without a
+        // request, and compares the changed one of the same size.
+        File changed = new File(directory, "b/c.txt");
+        long lastModified = changed.lastModified();
+        write(changed, data(2000, 6));
+        changed.setLastModified(lastModified + 10000);
+        result = operation.uploadDirectory(request);
+        assertEquals(1, result.getTransferredCount());
+        assertEquals(4, result.getSkippedCount());
+        assertEquals(1, operation.heads.get());
+        assertEquals(6, operation.puts.get());
+        assertArrayEquals(data(2000, 6), operation.objects.get("backup/b/c.txt"));
+    }
+
+    @Test
+    public void testKeysCompareInListingOrder() {
+        // A full-width '!' sorts before an emoji in UTF-8, but after it in UTF-16.
+        String[] keys = { "\uFF01", "\uD83D\uDE00", "a", "\uFF01/b", "\uD83D\uDE00/", "" };
+        for (String a : keys) {
+            for (String b : keys) {
+                assertEquals(Integer.signum(UTF8_ORDER.compare(a, b)),
+                        Integer.signum(OSSDirectoryTransferOperation.compareKeys(a, b)), a + " " + b);
+            }
+        }
+    }
+
+    @Test
+    public void testLocalFilesFollowListingOrder() throws Exception {
+        // Non-ASCII file names only survive the file system with a UTF-8 locale.
+        Assume.assumeTrue(UTF8.name().equalsIgnoreCase(System.getProperty("sun.jnu.encoding")));
+        MemoryDirectoryTransferOperation operation = new MemoryDirectoryTransferOperation();
+        File directory = newDirectory("upload-directory");
+        String[] names = { "\uFF01.txt", "\uD83D\uDE00.txt", "a.txt", "\uFF01/b.txt" };
+        for (int i = 0; i < names.length; i++) {
+            write(new File(directory, names[i]), data(100, i));
+        }
+        File manifest = File.createTempFile("upload-directory", ".manifest");
+        DirectoryTransferRequest request = new DirectoryTransferRequest(BUCKET, "", directory.getPath())
+                .withManifestFile(manifest.getPath()).withChecksumEnabled(false);
+        assertEquals(4, operation.uploadDirectory(request).getTransferredCount());
+
+        DirectoryTransferResult result = operation.uploadDirectory(request);
+        assertEquals(0, result.getTransferredCount());
+        assertEquals(4, result.getSkippedCount());
+    }
+
+    @Test
+    public void testSkipUnchangedFilesByChecksum() throws Exception {
+        MemoryDirectoryTransferOperation operation = new MemoryDirectoryTransferOperation();
+        File directory = newSourceTree();
+        operation.put("backup/a.txt", data(1000, 1));
+        // The same size but not the same content.
+        operation.put("backup/b/c.txt", data(2000, 7));
+        DirectoryTransferRequest request = new DirectoryTransferRequest(BUCKET, "backup/", directory.getPath());
+
+        DirectoryTransferResult result = operation.uploadDirectory(request);
+        assertEquals(4, result.getTransferredCount());
+        assertEquals(1, result.getSkippedCount());
+        assertEquals(2, operation.heads.get());
+        assertArrayEquals(data(2000, 2), operation.objects.get("backup/b/c.txt"));
+
+        // Without a CRC64, a plain ETag is compared with the MD5.
+        operation.crcEnabled = false;
+        result = operation.uploadDirectory(request);
+        assertEquals(0, result.getTransferredCount());
+        assertEquals(5, result.getSkippedCount());
+
+        // With checksums disabled, only the manifest skips files.
+        result = operation.uploadDirectory(request.withChecksumEnabled(false));
+        assertEquals(5, result.getTransferredCount());
+    }
+
+    @Test
+    public void testUploadAndDownloadLargeFilesInParts() throws Exception {
+        MemoryDirectoryTransferOperation operation = new MemoryDirectoryTransferOperation();
+        File directory = newDirectory("upload-directory");
+        byte[] large = data(1024 * 1024 + 10, 8);
+        write(new File(directory, "large.bin"), large);
+        write(new File(directory, "small.bin"), data(100, 9));
+        DirectoryTransferRequest request = new DirectoryTransferRequest(BUCKET, "", directory.getPath())
+                .withMultipartThreshold(512 * 1024).withPartSize(100 * 1024).withTaskNum(2).withPartTaskNum(4);
+
+        DirectoryTransferResult result = operation.uploadDirectory(request);
+        assertEquals(2, result.getTransferredCount());
+        assertEquals(1, result.getMultipartCount());
+        assertEquals(11, operation.parts.get());
+        assertArrayEquals(large, operation.objects.get("large.bin"));
+        assertTrue(operation.maxInFlight.get() <= 2);
+
+        File target = newDirectory("download-directory");
+        request.setDirectory(target.getPath());
+        result = operation.downloadDirectory(request);
+        assertEquals(2, result.getTransferredCount());
+        assertEquals(1, result.getMultipartCount());
+        assertEquals(12, operation.gets.get());
+        assertArrayEquals(large, read(new File(target, "large.bin")));
+        assertFalse(new File(target, "large.bin.tmp").exists());
+    }
+
+    @Test
+    public void testShortBodiesFailTheDownload() throws Exception {
+        MemoryDirectoryTransferOperation operation = new MemoryDirectoryTransferOperation() {
+            @Override
+            protected OSSObject getObjectWrap(GetObjectRequest request) {
+                OSSObject object = super.getObjectWrap(request);
+                byte[] data = objects.get(request.getKey());
+                int start = request.getRange() != null ? (int) request.getRange()[0] : 0;
+                object.setObjectContent(new ByteArrayInputStream(data, start, 10));
+                return object;
+            }
+        };
+        operation.crcEnabled = false;
+        operation.put("small.bin", data(100, 1));
+        operation.put("large.bin", data(1024 * 1024, 2));
+        File directory = newDirectory("download-directory");
+        DirectoryTransferRequest request = new DirectoryTransferRequest(BUCKET, "", directory.getPath())
+                .withMultipartThreshold(512 * 1024).withPartSize(100 * 1024).withChecksumEnabled(false);
+
+        DirectoryTransferResult result = operation.downloadDirectory(request);
+        assertEquals(0, result.getTransferredCount());
+        assertEquals(2, result.getFailedFiles().size());
+        assertFalse(new File(directory, "small.bin").exists());
+        assertFalse(new File(directory, "large.bin").exists());
+    }
+
+    @Test
+    public void testDownloadDirectoryAndSkipByModificationTime() throws Exception {
+        MemoryDirectoryTransferOperation operation = new MemoryDirectoryTransferOperation();
+        operation.put("photos/2024/a.jpg", data(1000, 1));
+        operation.put("photos/2024/b.jpg", data(2000, 2));
+        operation.put("photos/2024/", new byte[0]);
+        operation.put("photos/c.jpg", data(3000, 3));
+        File directory = newDirectory("download-directory");
+        DirectoryTransferRequest request = new DirectoryTransferRequest(BUCKET, "photos/", directory.getPath())
+                .withChecksumEnabled(false);
+
+        DirectoryTransferResult result = operation.downloadDirectory(request);
+        assertEquals(3, result.getTransferredCount());
+        assertArrayEquals(data(2000, 2), read(new File(directory, "2024/b.jpg")));
+        assertEquals(operation.lastModified.get("photos/c.jpg").getTime() / 1000,
+                new File(directory, "c.jpg").lastModified() / 1000);
+
+        operation.put("photos/c.jpg", data(3000, 4));
+        new File(directory, "c.jpg").setLastModified(0);
+        result = operation.downloadDirectory(request);
+        assertEquals(1, result.getTransferredCount());
+        assertEquals(2, result.getSkippedCount());
+        assertArrayEquals(data(3000, 4), read(new File(directory, "c.jpg")));
+    }
+
+    @Test
+    public void testBandwidthBudgetIsShared() throws Exception {
+        MemoryDirectoryTransferOperation operation = new MemoryDirectoryTransferOperation();
+        File directory = newDirectory("upload-directory");
+        for (int i = 0; i < 4; i++) {
+            write(new File(directory, i + ".bin"), data(64 * 1024, i));
+        }
+        DirectoryTransferRequest request = new DirectoryTransferRequest(BUCKET, "", directory.getPath())
+                .withTaskNum(4).withMaxBytesPerSecond(128 * 1024);
+
+        long start = System.currentTimeMillis();
+        DirectoryTransferResult result = operation.uploadDirectory(request);
+        assertEquals(4, result.getTransferredCount());
+        // The first 64KB go at once, the other 192KB wait for the budget.
+        assertTrue(System.currentTimeMillis() - start >= 1400);
+        assertArrayEquals(data(64 * 1024, 3), operation.objects.get("3.bin"));
+    }
+
+    @Test
+    public void testKeysOutsideDirectoryAreRejected() throws Exception {
+        MemoryDirectoryTransferOperation operation = new MemoryDirectoryTransferOperation();
+        operation.put("p", data(10, 1));
+        operation.put("p/a\\..\\..\\evil.txt", data(10, 2));
+        operation.put("p/a/.", data(10, 3));
+        operation.put("p/a//b.txt", data(10, 4));
+        operation.put("p/ok.txt", data(10, 5));
+        File parent = newDirectory("download-parent");
+        File directory = new File(parent, "target");
+        DirectoryTransferRequest request = new DirectoryTransferRequest(BUCKET, "p", directory.getPath());
+
+        DirectoryTransferResult result = operation.downloadDirectory(request);
+        assertEquals(0, result.getTransferredCount());
+        assertEquals(5, result.getFailedFiles().size());
+
+        // Only a key under the prefix that names a file is downloaded.
+        request.setPrefix("p/");
+        result = operation.downloadDirectory(request);
+        assertEquals(1, result.getTransferredCount());
+        assertEquals(3, result.getFailedFiles().size());
+        assertArrayEquals(data(10, 5), read(new File(directory, "ok.txt")));
+        assertEquals(1, parent.list().length);
+        assertEquals(1, directory.list().length);
+    }
+
+    @Test
+    public void testTempFileDoesNotCollideWithKeys() throws Exception {
+        MemoryDirectoryTransferOperation operation = new MemoryDirectoryTransferOperation();
+        File directory = newDirectory("download-directory");
+        operation.put("x", data(100, 1));
+        operation.put("x.tmp", data(100, 2));
+        DirectoryTransferRequest request = new DirectoryTransferRequest(BUCKET, "", directory.getPath())
+                .withChecksumEnabled(false);
+        operation.downloadDirectory(request);
+
+        // Only x changes, and its download leaves x.tmp alone.
+        operation.put("x", data(100, 3));
+        new File(directory, "x").setLastModified(0);
+        DirectoryTransferResult result = operation.downloadDirectory(request);
+        assertEquals(1, result.getTransferredCount());
+        assertEquals(1, result.getSkippedCount());
+        assertArrayEquals(data(100, 3), read(new File(directory, "x")));
+        assertArrayEquals(data(100, 2), read(new File(directory, "x.tmp")));
+        assertEquals(2, directory.list().length);
+    }
+
+    @Test
+    public void testFailedFilesAreReported() throws Exception {
+        MemoryDirectoryTransferOperation operation = new MemoryDirectoryTransferOperation();
+        File directory = newSourceTree();
+        operation.failingKey = "b/d/e.txt";
+        DirectoryTransferResult result = operation.uploadDirectory(
+                new DirectoryTransferRequest(BUCKET, "", directory.getPath()));
+        assertEquals(4, result.getTransferredCount());
+        assertEquals(1, result.getFailedFiles().size());
+        assertEquals("b/d/e.txt", result.getFailedFiles().get(0).getPath());
+        assertEquals("InjectedError", result.getFailedFiles().get(0).getErrorCode());
+
+        // A key that leaves the directory is not downloaded.
+        operation.failingKey = null;
+        operation.put("../escape.txt", data(10, 1));
+        File target = newDirectory("download-directory");
+        result = operation.downloadDirectory(new DirectoryTransferRequest(BUCKET, "", target.getPath()));
+        assertEquals(4, result.getTransferredCount());
+        assertEquals(1, result.getFailedFiles().size());
+        assertEquals("../escape.txt", result.getFailedFiles().get(0).getKey());
+        assertFalse(new File(target.getParentFile(), "escape.txt").exists());
+    }
+}
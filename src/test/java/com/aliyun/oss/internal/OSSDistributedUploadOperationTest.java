@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.InconsistentException;
+import com.aliyun.oss.OSSClient;
+import com.aliyun.oss.common.utils.CRC64;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.CompleteDistributedUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadResult;
+import com.aliyun.oss.model.DistributedUpload;
+import com.aliyun.oss.model.GeneratePresignedUrlRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.ListPartsRequest;
+import com.aliyun.oss.model.MemoryUploadCoordinationStore;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.PartListing;
+import com.aliyun.oss.model.PartRangeLease;
+import com.aliyun.oss.model.PartSummary;
+import com.aliyun.oss.model.Payer;
+import com.aliyun.oss.model.PresignMultipartUploadRequest;
+import com.aliyun.oss.model.PresignedMultipartUpload;
+import com.aliyun.oss.model.PresignedPart;
+import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.UploadPresignedPartsRequest;
+
+public class OSSDistributedUploadOperationTest {
+
+    /**
+     * Keeps the uploaded parts in memory, and lists them three at a time.
+     */
+    static class ServerOperation extends OSSDistributedUploadOperation {
+        final Map<Integer, byte[]> parts = new TreeMap<Integer, byte[]>();
+        List<PartETag> completedParts;
+        Long serverCRC;
+
+        ServerOperation() {
+            super(null, new ClientConfiguration());
+            setTransferExecutor(new SharedTransferExecutor(4));
+        }
+
+        @Override
+        protected URL generatePresignedUrlWrap(GeneratePresignedUrlRequest request) {
+            try {
+                return new URL("http://" + request.getBucketName() + ".oss/" + request.getKey() + "?partNumber="
+                        + request.getQueryParameter().get("partNumber") + "&uploadId="
+                        + request.getQueryParameter().get("uploadId") + "&Expires="
+                        + request.getExpiration().getTime() / 1000);
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        protected PutObjectResult putObjectWrap(URL signedUrl, InputStream requestContent, long contentLength,
+                Map<String, String> requestHeaders) {
+            String query = signedUrl.getQuery();
+            int partNumber = Integer.parseInt(query.substring("partNumber=".length(), query.indexOf('&')));
+            byte[] content = new byte[(int) contentLength];
+            try {
+                IOUtils.readNBytes(requestContent, content, 0, content.length);
+            } catch (IOException e) {
+                throw new ClientException(e);
+            }
+            synchronized (parts) {
+                parts.put(partNumber, content);
+            }
+            PutObjectResult result = new PutObjectResult();
+            result.setETag("etag-" + partNumber);
+            return result;
+        }
+
+        void uploadPart(int partNumber, String content) {
+            parts.put(partNumber, content.getBytes());
+        }
+
+        @Override
+        protected InitiateMultipartUploadResult initiateMultipartUploadWrap(InitiateMultipartUploadRequest request) {
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId("upload-1");
+            return result;
+        }
+
+        @Override
+        protected PartListing listPartsWrap(ListPartsRequest request) {
+            PartListing listing = new PartListing();
+            int marker = request.getPartNumberMarker() == null ? 0 : request.getPartNumberMarker();
+            int count = 0;
+            for (Map.Entry<Integer, byte[]> entry : parts.entrySet()) {
+                if (entry.getKey() > marker && count < 3) {
+                    PartSummary part = new PartSummary();
+                    part.setPartNumber(entry.getKey());
+                    part.setSize(entry.getValue().length);
+                    part.setETag("etag-" + entry.getKey());
+                    CRC64 crc = new CRC64();
+                    crc.update(entry.getValue(), entry.getValue().length);
+                    part.setServerCRC(crc.getValue());
+                    listing.addPart(part);
+                    marker = entry.getKey();
+                    count++;
+                }
+            }
+            listing.setTruncated(marker < ((TreeMap<Integer, byte[]>) parts).lastKey());
+            listing.setNextPartNumberMarker(marker);
+            return listing;
+        }
+
+        @Override
+        protected CompleteMultipartUploadResult completeMultipartUploadWrap(CompleteMultipartUploadRequest request) {
+            completedParts = request.getPartETags();
+            ByteArrayOutputStream object = new ByteArrayOutputStream();
+            for (PartETag part : completedParts) {
+                byte[] content = parts.get(part.getPartNumber());
+                object.write(content, 0, content.length);
+            }
+            CRC64 crc = new CRC64();
+            byte[] bytes = object.toByteArray();
+            crc.update(bytes, bytes.length);
+            CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+            result.setServerCRC(serverCRC != null ? serverCRC : crc.getValue());
+            return result;
+        }
+    }
+
+    private static List<Integer> partNumbers(List<PartETag> parts) {
+        List<Integer> numbers = new ArrayList<Integer>();
+        for (PartETag part : parts) {
+            numbers.add(part.getPartNumber());
+        }
+        return numbers;
+    }
+
+    @Test
+    public void testCompletionMergesPartsOfWorkers() {
+        ServerOperation operation = new ServerOperation();
+        MemoryUploadCoordinationStore store = new MemoryUploadCoordinationStore();
+        DistributedUpload upload = operation.initiateDistributedUpload(new InitiateMultipartUploadRequest("bucket",
+                "key"));
+        assertEquals("upload-1", upload.getUploadId());
+
+        PartRangeLease first = store.leaseParts(upload, "a", 4, 60000);
+        PartRangeLease second = store.leaseParts(upload, "b", 4, 60000);
+        // The second worker uploads its parts first, and the last range is
+        // smaller than the lease.
+        for (int i = second.getFirstPartNumber(); i <= 6; i++) {
+            operation.uploadPart(i, "part" + i);
+        }
+        for (int i = first.getFirstPartNumber(); i <= first.getLastPartNumber(); i++) {
+            operation.uploadPart(i, "part" + i);
+        }
+        store.completeLease(first);
+        store.completeLease(second);
+        // A part of a range that was never leased is not completed.
+        operation.uploadPart(20, "stray");
+
+        CompleteMultipartUploadResult result = operation.completeDistributedUpload(
+                new CompleteDistributedUploadRequest(upload, store));
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 1; i <= 6; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, partNumbers(operation.completedParts));
+        assertEquals("etag-3", operation.completedParts.get(2).getETag());
+        assertEquals(result.getServerCRC(), result.getClientCRC());
+        assertTrue(store.getLeases(upload).isEmpty());
+    }
+
+    @Test
+    public void testPartsOfEarlierHolderAreLeftOut() {
+        ServerOperation operation = new ServerOperation();
+        MemoryUploadCoordinationStore store = new MemoryUploadCoordinationStore();
+        DistributedUpload upload = new DistributedUpload("bucket", "key", "upload-1");
+        // The lease expires at once, and its holder goes on uploading.
+        PartRangeLease lost = store.leaseParts(upload, "slow", 4, 0);
+        PartRangeLease reclaimed = store.leaseParts(upload, "b", 4, 60000);
+        assertEquals(lost.getFirstPartNumber(), reclaimed.getFirstPartNumber());
+        for (int i = 1; i <= 4; i++) {
+            operation.uploadPart(i, "stale" + i);
+        }
+        operation.uploadPart(1, "part1");
+        operation.uploadPart(2, "part2");
+        store.completeLease(reclaimed, 2);
+
+        operation.completeDistributedUpload(new CompleteDistributedUploadRequest(upload, store));
+        assertEquals(Arrays.asList(1, 2), partNumbers(operation.completedParts));
+    }
+
+    @Test
+    public void testIncompleteLeaseFailsCompletion() {
+        ServerOperation operation = new ServerOperation();
+        MemoryUploadCoordinationStore store = new MemoryUploadCoordinationStore();
+        DistributedUpload upload = new DistributedUpload("bucket", "key", "upload-1");
+        store.completeLease(store.leaseParts(upload, "a", 2, 60000));
+        store.leaseParts(upload, "b", 2, 60000);
+        operation.uploadPart(1, "part1");
+        try {
+            operation.completeDistributedUpload(new CompleteDistributedUploadRequest(upload, store));
+            fail("The upload has a lease that is not completed.");
+        } catch (ClientException e) {
+            assertTrue(e.getMessage().contains("not completed"));
+        }
+        assertEquals(null, operation.completedParts);
+        assertEquals(2, store.getLeases(upload).size());
+    }
+
+    @Test
+    public void testInconsistentObjectCRC() {
+        ServerOperation operation = new ServerOperation();
+        MemoryUploadCoordinationStore store = new MemoryUploadCoordinationStore();
+        DistributedUpload upload = new DistributedUpload("bucket", "key", "upload-1");
+        operation.uploadPart(1, "part1");
+        operation.uploadPart(2, "part2");
+        operation.serverCRC = 1L;
+        try {
+            operation.completeDistributedUpload(new CompleteDistributedUploadRequest(upload, store));
+            fail("The CRC64 of the object does not match the parts.");
+        } catch (InconsistentException e) {
+        }
+        assertEquals(2, operation.completedParts.size());
+    }
+
+    private static File newFile(byte[] content) throws IOException {
+        File file = File.createTempFile("presigned", ".dat");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(content);
+        out.close();
+        return file;
+    }
+
+    @Test
+    public void testPresignedUploadFromClient() throws IOException {
+        byte[] content = new byte[1024 * 1024 + 1000];
+        new Random(7).nextBytes(content);
+        File file = newFile(content);
+        Date expiration = new Date(System.currentTimeMillis() + 3600 * 1000);
+
+        ServerOperation server = new ServerOperation();
+        PresignedMultipartUpload upload = server.presignMultipartUpload(new PresignMultipartUploadRequest(
+                "bucket", "key", content.length, expiration).withPartSize(256 * 1024));
+        assertEquals("upload-1", upload.getUploadId());
+        assertEquals(5, upload.getPartCount());
+        assertEquals(5, upload.getParts().size());
+        PresignedPart last = upload.getParts().get(4);
+        assertEquals(4 * 256 * 1024L, last.getOffset());
+        assertEquals(content.length - 4 * 256 * 1024L, last.getSize());
+        for (PresignedPart part : upload.getParts()) {
+            assertTrue(part.getUrl().getQuery().endsWith("&Expires=" + expiration.getTime() / 1000));
+        }
+
+        // The client only has the presigned upload.
+        ServerOperation client = new ServerOperation();
+        List<PartETag> partETags = client.uploadPresignedParts(new UploadPresignedPartsRequest(upload,
+                file.getPath()).withTaskNum(3));
+        assertEquals(5, partETags.size());
+        assertEquals("etag-5", partETags.get(4).getETag());
+
+        server.parts.putAll(client.parts);
+        CompleteMultipartUploadResult result = server.completeDistributedUpload(
+                new CompleteDistributedUploadRequest(upload));
+        ByteArrayOutputStream object = new ByteArrayOutputStream();
+        for (PartETag part : server.completedParts) {
+            object.write(server.parts.get(part.getPartNumber()));
+        }
+        assertArrayEquals(content, object.toByteArray());
+        assertEquals(result.getServerCRC(), result.getClientCRC());
+    }
+
+    @Test
+    public void testPresignedUploadWithMissingPartIsNotCompleted() throws IOException {
+        byte[] content = new byte[300 * 1024];
+        File file = newFile(content);
+        ServerOperation server = new ServerOperation();
+        PresignedMultipartUpload upload = server.presignMultipartUpload(new PresignMultipartUploadRequest(
+                "bucket", "key", content.length, new Date(System.currentTimeMillis() + 60000))
+                .withPartSize(100 * 1024).withUploadId("upload-2").withFirstPartNumber(2).withPartCount(5));
+        assertEquals("upload-2", upload.getUploadId());
+        assertEquals(3, upload.getPartCount());
+        assertEquals(2, upload.getParts().size());
+        assertEquals(2, upload.getParts().get(0).getPartNumber());
+
+        server.uploadPresignedParts(new UploadPresignedPartsRequest(upload, file.getPath()));
+        try {
+            server.completeDistributedUpload(new CompleteDistributedUploadRequest(upload));
+            fail("The part 1 is not uploaded.");
+        } catch (ClientException e) {
+            assertTrue(e.getMessage().contains("2 parts"));
+        }
+        assertEquals(null, server.completedParts);
+    }
+
+    @Test
+    public void testPresignedPartUrlsAreSigned() {
+        OSSClient client = new OSSClient("http://oss-cn-hangzhou.aliyuncs.com", "ak", "sk");
+        try {
+            PresignMultipartUploadRequest request = new PresignMultipartUploadRequest("bucket", "dir/key",
+                    20 * 1024 * 1024L, new Date(1700000000000L)).withUploadId("0004B9894A22E5B1888A1E29F823");
+            request.setRequestPayer(Payer.Requester);
+            PresignedMultipartUpload upload = client.presignMultipartUpload(request);
+            assertEquals(3, upload.getParts().size());
+            String url = upload.getParts().get(2).getUrl().toString();
+            assertTrue(url.startsWith("http://bucket.oss-cn-hangzhou.aliyuncs.com/dir/key?"), url);
+            assertTrue(url.contains("partNumber=3"), url);
+            assertTrue(url.contains("uploadId=0004B9894A22E5B1888A1E29F823"), url);
+            assertTrue(url.contains("x-oss-request-payer=requester"), url);
+            assertTrue(url.contains("Expires=1700000000"), url);
+            assertTrue(url.contains("Signature="), url);
+        } finally {
+            client.shutdown();
+        }
+    }
+}
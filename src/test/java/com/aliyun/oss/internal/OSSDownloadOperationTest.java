@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.common.auth.DefaultCredentialProvider;
+import com.aliyun.oss.common.auth.DefaultCredentials;
+import com.aliyun.oss.common.comm.DefaultServiceClient;
+import com.aliyun.oss.model.DownloadFileRequest;
+import com.aliyun.oss.model.GenericRequest;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.SimplifiedObjectMeta;
+
+public class OSSDownloadOperationTest {
+
+    /**
+     * Serves one empty object.
+     */
+    static class EmptyObjectOperation extends OSSObjectOperation {
+        private final Date lastModified = new Date();
+
+        EmptyObjectOperation() {
+            super(new DefaultServiceClient(newConfiguration()),
+                    new DefaultCredentialProvider(new DefaultCredentials("id", "key")));
+        }
+
+        private static ClientConfiguration newConfiguration() {
+            ClientConfiguration config = new ClientConfiguration();
+            config.setCrcCheckEnabled(false);
+            return config;
+        }
+
+        @Override
+        public SimplifiedObjectMeta getSimplifiedObjectMeta(GenericRequest genericRequest) {
+            SimplifiedObjectMeta meta = new SimplifiedObjectMeta();
+            meta.setSize(0);
+            meta.setETag("empty");
+            meta.setLastModified(lastModified);
+            return meta;
+        }
+
+        @Override
+        public OSSObject getObject(GetObjectRequest getObjectRequest) {
+            OSSObject object = new OSSObject();
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(0);
+            object.setObjectMetadata(metadata);
+            object.setObjectContent(new ByteArrayInputStream(new byte[0]));
+            return object;
+        }
+    }
+
+    @Test
+    public void testEmptyObjectTruncatesStaleTempFile() throws Throwable {
+        File file = File.createTempFile("download", ".dat");
+        File temp = new File(file.getPath() + ".tmp");
+        // Left by an earlier download of a larger object.
+        FileOutputStream out = new FileOutputStream(temp);
+        out.write(new byte[1000]);
+        out.close();
+
+        DownloadFileRequest request = new DownloadFileRequest("bucket", "empty", file.getPath(), 100 * 1024);
+        new OSSDownloadOperation(new EmptyObjectOperation()).downloadFile(request);
+
+        assertEquals(0, file.length());
+        assertFalse(temp.exists());
+        file.delete();
+    }
+}
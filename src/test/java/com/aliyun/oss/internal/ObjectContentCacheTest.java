@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.common.utils.ExceptionFactory;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+
+public class ObjectContentCacheTest {
+
+    /**
+     * Serves objects from memory, and answers If-None-Match like OSS does.
+     */
+    static class MemoryObjectCache extends ObjectContentCache {
+        final Map<String, byte[]> objects = new HashMap<String, byte[]>();
+        final Map<String, String> eTags = new HashMap<String, String>();
+        final List<GetObjectRequest> requests = new ArrayList<GetObjectRequest>();
+
+        MemoryObjectCache(ClientConfiguration config) {
+            super(null, config);
+        }
+
+        void put(String key, byte[] data, String eTag) {
+            objects.put(key, data);
+            eTags.put(key, eTag);
+        }
+
+        @Override
+        protected OSSObject getObjectWrap(GetObjectRequest request) {
+            requests.add(request);
+            String objectKey = request.getVersionId() != null ? request.getKey() + "@" + request.getVersionId()
+                    : request.getKey();
+            byte[] data = objects.get(objectKey);
+            String eTag = eTags.get(objectKey);
+            List<String> nonmatching = request.getNonmatchingETagConstraints();
+            if (nonmatching != null && nonmatching.contains(eTag)) {
+                throw ExceptionFactory.createOSSException("request-id", OSSErrorCode.NOT_MODIFIED, "Not Modified");
+            }
+            long[] range = request.getRange();
+            if (range != null) {
+                data = Arrays.copyOfRange(data, (int) range[0], (int) range[1] + 1);
+            }
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(data.length);
+            metadata.setHeader(OSSHeaders.ETAG, eTag);
+            metadata.addUserMetadata("owner", "test");
+            OSSObject ossObject = new OSSObject();
+            ossObject.setObjectMetadata(metadata);
+            ossObject.setObjectContent(new ByteArrayInputStream(data));
+            return ossObject;
+        }
+    }
+
+    private static ClientConfiguration newConfig(long memoryBytes, long ttl) {
+        ClientConfiguration config = new ClientConfiguration();
+        config.setObjectCacheMemoryBytes(memoryBytes);
+        config.setObjectCacheTtl(ttl);
+        config.setObjectCacheMaxObjectSize(1024);
+        return config;
+    }
+
+    private static byte[] read(OSSObject ossObject) throws Exception {
+        return IOUtils.readStreamAsByteArray(ossObject.getObjectContent());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes();
+    }
+
+    @Test
+    public void testHitWithinTtl() throws Exception {
+        MemoryObjectCache cache = new MemoryObjectCache(newConfig(4096, 60000));
+        cache.put("a", bytes("hello"), "e1");
+
+        assertArrayEquals(bytes("hello"), read(cache.getObject(new GetObjectRequest("bucket", "a"))));
+        OSSObject second = cache.getObject(new GetObjectRequest("bucket", "a"));
+        assertArrayEquals(bytes("hello"), read(second));
+        assertEquals("e1", second.getObjectMetadata().getETag());
+        assertEquals("test", second.getObjectMetadata().getUserMetadata().get("owner"));
+
+        assertEquals(1, cache.requests.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testRevalidation() throws Exception {
+        MemoryObjectCache cache = new MemoryObjectCache(newConfig(4096, 0));
+        cache.put("a", bytes("hello"), "e1");
+
+        read(cache.getObject(new GetObjectRequest("bucket", "a")));
+        assertArrayEquals(bytes("hello"), read(cache.getObject(new GetObjectRequest("bucket", "a"))));
+        assertEquals(Arrays.asList("e1"), cache.requests.get(1).getNonmatchingETagConstraints());
+        assertEquals(1, cache.getNotModifiedCount());
+        assertEquals(1, cache.getHitCount());
+
+        // A changed object is transferred again and replaces the entry.
+        cache.put("a", bytes("world"), "e2");
+        assertArrayEquals(bytes("world"), read(cache.getObject(new GetObjectRequest("bucket", "a"))));
+        assertArrayEquals(bytes("world"), read(cache.getObject(new GetObjectRequest("bucket", "a"))));
+        assertEquals(2, cache.getMissCount());
+        assertEquals(3, cache.getRevalidationCount());
+        assertEquals(2, cache.getNotModifiedCount());
+    }
+
+    @Test
+    public void testVersionsAndRanges() throws Exception {
+        MemoryObjectCache cache = new MemoryObjectCache(newConfig(4096, 60000));
+        cache.put("a", bytes("0123456789"), "e1");
+        cache.put("a@v1", bytes("old"), "e0");
+
+        GetObjectRequest range = new GetObjectRequest("bucket", "a");
+        range.setRange(2, 4);
+        assertArrayEquals(bytes("234"), read(cache.getObject(range)));
+        assertArrayEquals(bytes("0123456789"), read(cache.getObject(new GetObjectRequest("bucket", "a"))));
+        assertArrayEquals(bytes("old"), read(cache.getObject(new GetObjectRequest("bucket", "a", "v1"))));
+        assertEquals(3, cache.getMissCount());
+
+        GetObjectRequest sameRange = new GetObjectRequest("bucket", "a");
+        sameRange.setRange(2, 4);
+        assertArrayEquals(bytes("234"), read(cache.getObject(sameRange)));
+        assertArrayEquals(bytes("old"), read(cache.getObject(new GetObjectRequest("bucket", "a", "v1"))));
+        assertEquals(2, cache.getHitCount());
+
+        cache.invalidate("bucket", "a");
+        read(cache.getObject(sameRange));
+        assertEquals(4, cache.getMissCount());
+        assertEquals(3, cache.getMemoryBytes());
+    }
+
+    @Test
+    public void testSegmentedLruKeepsHotEntries() throws Exception {
+        MemoryObjectCache cache = new MemoryObjectCache(newConfig(1000, 60000));
+        cache.put("hot", new byte[300], "h");
+        read(cache.getObject(new GetObjectRequest("bucket", "hot")));
+        read(cache.getObject(new GetObjectRequest("bucket", "hot")));
+
+        // A scan of cold objects only churns the probation segment.
+        for (int i = 0; i < 10; i++) {
+            cache.put("cold" + i, new byte[300], "c" + i);
+            read(cache.getObject(new GetObjectRequest("bucket", "cold" + i)));
+        }
+        assertTrue(cache.getMemoryBytes() <= 1000);
+        assertTrue(cache.getEvictionCount() >= 8);
+
+        int requests = cache.requests.size();
+        read(cache.getObject(new GetObjectRequest("bucket", "hot")));
+        assertEquals(requests, cache.requests.size());
+    }
+
+    @Test
+    public void testLargeObjectsAreNotCached() throws Exception {
+        MemoryObjectCache cache = new MemoryObjectCache(newConfig(4096, 60000));
+        cache.put("big", new byte[2000], "b");
+        OSSObject first = cache.getObject(new GetObjectRequest("bucket", "big"));
+        assertEquals(2000, read(first).length);
+        cache.getObject(new GetObjectRequest("bucket", "big"));
+        assertEquals(2, cache.requests.size());
+        assertEquals(2, cache.getUncachedCount());
+        assertEquals(0, cache.getMemoryBytes());
+    }
+
+    @Test
+    public void testDiskTier() throws Exception {
+        File dir = File.createTempFile("object-cache", "");
+        dir.delete();
+        ClientConfiguration config = newConfig(4096, 60000);
+        config.setObjectCacheDirectory(dir.getPath());
+
+        MemoryObjectCache cache = new MemoryObjectCache(config);
+        cache.put("a", bytes("hello"), "e1");
+        read(cache.getObject(new GetObjectRequest("bucket", "a")));
+        assertEquals(1, dir.listFiles().length);
+
+        // Another client sharing the directory reads it without a request.
+        MemoryObjectCache other = new MemoryObjectCache(config);
+        OSSObject ossObject = other.getObject(new GetObjectRequest("bucket", "a"));
+        assertArrayEquals(bytes("hello"), read(ossObject));
+        assertEquals("e1", ossObject.getObjectMetadata().getETag());
+        assertEquals(5L, ossObject.getObjectMetadata().getContentLength());
+        assertEquals(0, other.requests.size());
+        assertEquals(1, other.getDiskHitCount());
+
+        other.invalidate("bucket", "a");
+        assertEquals(0, dir.listFiles().length);
+        dir.delete();
+    }
+
+    @Test
+    public void testDamagedDiskEntryIsAMiss() throws Exception {
+        File dir = File.createTempFile("object-cache", "");
+        dir.delete();
+        ClientConfiguration config = newConfig(4096, 60000);
+        config.setObjectCacheDirectory(dir.getPath());
+
+        MemoryObjectCache cache = new MemoryObjectCache(config);
+        cache.put("a", bytes("hello"), "e1");
+        read(cache.getObject(new GetObjectRequest("bucket", "a")));
+        File file = dir.listFiles()[0];
+
+        for (int length : new int[] { -1, 4, Integer.MAX_VALUE }) {
+            // The content length is written right before the content.
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            raf.seek(raf.length() - 5 - 4);
+            raf.writeInt(length);
+            raf.close();
+
+            MemoryObjectCache other = new MemoryObjectCache(config);
+            other.put("a", bytes("hello"), "e1");
+            assertArrayEquals(bytes("hello"), read(other.getObject(new GetObjectRequest("bucket", "a"))));
+            assertEquals(0, other.getDiskHitCount());
+            assertEquals(1, other.requests.size());
+            // The damaged file was replaced by the fetched content.
+            assertEquals(1, dir.listFiles().length);
+            file = dir.listFiles()[0];
+        }
+
+        cache.invalidate("bucket", "a");
+        dir.delete();
+    }
+
+    @Test
+    public void testDiskTierEviction() throws Exception {
+        File dir = File.createTempFile("object-cache", "");
+        dir.delete();
+        ClientConfiguration config = newConfig(4096, 60000);
+        config.setObjectCacheDirectory(dir.getPath());
+        config.setObjectCacheDiskBytes(2000);
+
+        MemoryObjectCache cache = new MemoryObjectCache(config);
+        for (int i = 0; i < 5; i++) {
+            cache.put("k" + i, new byte[600], "e" + i);
+            read(cache.getObject(new GetObjectRequest("bucket", "k" + i)));
+        }
+        long total = 0;
+        for (File file : dir.listFiles()) {
+            total += file.length();
+        }
+        assertTrue(total <= 2000);
+        assertTrue(dir.listFiles().length < 5);
+        for (File file : dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testContentFetchedAcrossInvalidationIsNotCached() throws Exception {
+        MemoryObjectCache cache = new MemoryObjectCache(newConfig(4096, 60000)) {
+            @Override
+            protected OSSObject getObjectWrap(GetObjectRequest request) {
+                OSSObject ossObject = super.getObjectWrap(request);
+                if (requests.size() == 1) {
+                    // The client writes the object while the GET is in flight.
+                    put("a", bytes("world"), "e2");
+                    invalidate("bucket", "a");
+                }
+                return ossObject;
+            }
+        };
+        cache.put("a", bytes("hello"), "e1");
+
+        assertArrayEquals(bytes("hello"), read(cache.getObject(new GetObjectRequest("bucket", "a"))));
+        assertArrayEquals(bytes("world"), read(cache.getObject(new GetObjectRequest("bucket", "a"))));
+        assertEquals(2, cache.requests.size());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testIsCacheable() {
+        GetObjectRequest request = new GetObjectRequest("bucket", "key");
+        assertTrue(ObjectContentCache.isCacheable(request));
+
+        request.setProcess("image/resize,w_100");
+        assertFalse(ObjectContentCache.isCacheable(request));
+
+        request = new GetObjectRequest("bucket", "key");
+        request.setNonmatchingETagConstraints(Arrays.asList("e1"));
+        assertFalse(ObjectContentCache.isCacheable(request));
+
+        request = new GetObjectRequest("bucket", "key");
+        request.addHeader("x-oss-range-behavior", "standard");
+        assertFalse(ObjectContentCache.isCacheable(request));
+    }
+
+    @Test
+    public void testEntryIsNotShared() throws Exception {
+        MemoryObjectCache cache = new MemoryObjectCache(newConfig(4096, 60000));
+        cache.put("a", bytes("hello"), "e1");
+        OSSObject first = cache.getObject(new GetObjectRequest("bucket", "a"));
+        first.getObjectMetadata().setHeader(OSSHeaders.ETAG, "changed");
+        OSSObject second = cache.getObject(new GetObjectRequest("bucket", "a"));
+        assertEquals("e1", second.getObjectMetadata().getETag());
+    }
+}
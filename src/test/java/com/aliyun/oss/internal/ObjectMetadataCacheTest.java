@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.common.utils.ExceptionFactory;
+import com.aliyun.oss.model.GenericRequest;
+import com.aliyun.oss.model.HeadObjectRequest;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.SimplifiedObjectMeta;
+
+public class ObjectMetadataCacheTest {
+
+    static class MemoryMetadataCache extends ObjectMetadataCache {
+        final Map<String, String> eTags = new HashMap<String, String>();
+        int requests;
+
+        MemoryMetadataCache(ClientConfiguration config) {
+            super(null, config);
+        }
+
+        private String eTagOf(String key) {
+            requests++;
+            String eTag = eTags.get(key);
+            if (eTag == null) {
+                throw ExceptionFactory.createOSSException("request-id", OSSErrorCode.NO_SUCH_KEY, "Not Found");
+            }
+            return eTag;
+        }
+
+        @Override
+        protected ObjectMetadata headObjectWrap(HeadObjectRequest request) {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setHeader(OSSHeaders.ETAG, eTagOf(request.getKey()));
+            return metadata;
+        }
+
+        @Override
+        protected ObjectMetadata getObjectMetadataWrap(GenericRequest request) {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setHeader(OSSHeaders.ETAG, eTagOf(request.getKey()));
+            return metadata;
+        }
+
+        @Override
+        protected SimplifiedObjectMeta getSimplifiedObjectMetaWrap(GenericRequest request) {
+            SimplifiedObjectMeta meta = new SimplifiedObjectMeta();
+            meta.setETag(eTagOf(request.getKey()));
+            return meta;
+        }
+    }
+
+    private static ClientConfiguration newConfig(int maxEntries, long ttl, long negativeTtl) {
+        ClientConfiguration config = new ClientConfiguration();
+        config.setObjectMetadataCacheMaxEntries(maxEntries);
+        config.setObjectMetadataCacheTtl(ttl);
+        config.setObjectMetadataCacheNegativeTtl(negativeTtl);
+        return config;
+    }
+
+    @Test
+    public void testCachedResults() {
+        MemoryMetadataCache cache = new MemoryMetadataCache(newConfig(10, 60000, 60000));
+        cache.eTags.put("a", "e1");
+
+        assertEquals("e1", cache.headObject(new HeadObjectRequest("bucket", "a")).getETag());
+        assertEquals("e1", cache.headObject(new HeadObjectRequest("bucket", "a")).getETag());
+        assertEquals("e1", cache.getObjectMetadata(new GenericRequest("bucket", "a")).getETag());
+        assertEquals("e1", cache.getObjectMetadata(new GenericRequest("bucket", "a")).getETag());
+        assertEquals("e1", cache.getSimplifiedObjectMeta(new GenericRequest("bucket", "a")).getETag());
+        assertEquals("e1", cache.getSimplifiedObjectMeta(new GenericRequest("bucket", "a")).getETag());
+        assertTrue(cache.doesObjectExist(new GenericRequest("bucket", "a")));
+
+        assertEquals(3, cache.requests);
+        assertEquals(4, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void testResultsAreCopies() {
+        MemoryMetadataCache cache = new MemoryMetadataCache(newConfig(10, 60000, 60000));
+        cache.eTags.put("a", "e1");
+        ObjectMetadata first = cache.headObject(new HeadObjectRequest("bucket", "a"));
+        first.setHeader(OSSHeaders.ETAG, "changed");
+        ObjectMetadata second = cache.headObject(new HeadObjectRequest("bucket", "a"));
+        assertNotSame(first, second);
+        assertEquals("e1", second.getETag());
+    }
+
+    @Test
+    public void testNegativeCaching() throws Exception {
+        MemoryMetadataCache cache = new MemoryMetadataCache(newConfig(10, 60000, 100));
+
+        assertFalse(cache.doesObjectExist(new GenericRequest("bucket", "missing")));
+        assertFalse(cache.doesObjectExist(new GenericRequest("bucket", "missing")));
+        try {
+            cache.headObject(new HeadObjectRequest("bucket", "missing"));
+            fail("The cached 404 should be thrown.");
+        } catch (OSSException e) {
+            assertEquals(OSSErrorCode.NO_SUCH_KEY, e.getErrorCode());
+        }
+        assertEquals(1, cache.requests);
+        assertEquals(2, cache.getNegativeHitCount());
+
+        // The 404 is cached briefly only.
+        cache.eTags.put("missing", "e1");
+        Thread.sleep(150);
+        assertTrue(cache.doesObjectExist(new GenericRequest("bucket", "missing")));
+        assertEquals(2, cache.requests);
+    }
+
+    @Test
+    public void testInvalidate() {
+        MemoryMetadataCache cache = new MemoryMetadataCache(newConfig(10, 60000, 60000));
+        cache.eTags.put("a", "e1");
+        cache.getObjectMetadata(new GenericRequest("bucket", "a"));
+        assertFalse(cache.doesObjectExist(new GenericRequest("bucket", "b")));
+
+        cache.eTags.put("a", "e2");
+        cache.eTags.put("b", "e3");
+        cache.invalidate("bucket", "a");
+        cache.invalidate("bucket", "b");
+        assertEquals("e2", cache.getObjectMetadata(new GenericRequest("bucket", "a")).getETag());
+        assertTrue(cache.doesObjectExist(new GenericRequest("bucket", "b")));
+        assertEquals(2, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void testResultFetchedAcrossInvalidationIsNotCached() {
+        MemoryMetadataCache cache = new MemoryMetadataCache(newConfig(10, 60000, 60000)) {
+            @Override
+            protected ObjectMetadata headObjectWrap(HeadObjectRequest request) {
+                ObjectMetadata metadata = super.headObjectWrap(request);
+                // The client writes the object while the HEAD is in flight.
+                eTags.put("a", "e2");
+                invalidate("bucket", "a");
+                return metadata;
+            }
+        };
+        cache.eTags.put("a", "e1");
+        assertEquals("e1", cache.headObject(new HeadObjectRequest("bucket", "a")).getETag());
+        assertEquals("e2", cache.getObjectMetadata(new GenericRequest("bucket", "a")).getETag());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.requests);
+    }
+
+    @Test
+    public void testVersionsAndConditions() {
+        MemoryMetadataCache cache = new MemoryMetadataCache(newConfig(10, 60000, 60000));
+        cache.eTags.put("a", "e1");
+        cache.getObjectMetadata(new GenericRequest("bucket", "a"));
+        cache.getObjectMetadata(new GenericRequest("bucket", "a", "v1"));
+        assertEquals(2, cache.requests);
+
+        HeadObjectRequest conditional = new HeadObjectRequest("bucket", "a");
+        conditional.setMatchingETagConstraints(Arrays.asList("e1"));
+        cache.headObject(conditional);
+        cache.headObject(conditional);
+        assertEquals(4, cache.requests);
+    }
+
+    @Test
+    public void testSizeBound() {
+        MemoryMetadataCache cache = new MemoryMetadataCache(newConfig(3, 60000, 60000));
+        for (int i = 0; i < 5; i++) {
+            cache.eTags.put("k" + i, "e" + i);
+            cache.getObjectMetadata(new GenericRequest("bucket", "k" + i));
+        }
+        assertEquals(3, cache.size());
+        assertEquals(2, cache.getEvictionCount());
+        cache.getObjectMetadata(new GenericRequest("bucket", "k4"));
+        assertEquals(5, cache.requests);
+        cache.getObjectMetadata(new GenericRequest("bucket", "k0"));
+        assertEquals(6, cache.requests);
+    }
+}
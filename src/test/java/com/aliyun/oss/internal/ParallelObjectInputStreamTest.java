@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CheckedInputStream;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.InconsistentException;
+import com.aliyun.oss.common.utils.CRC64;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.ParallelGetObjectRequest;
+
+public class ParallelObjectInputStreamTest {
+
+    private static final int PART_SIZE = 100 * 1024;
+    private static final String ETAG = "\"etag-1\"";
+
+    /**
+     * Serves the ranges of an in-memory object, checking the ETag constraint.
+     */
+    static class RangeDownloadOperation extends OSSDownloadOperation {
+        private final byte[] data;
+        private final AtomicInteger requests = new AtomicInteger();
+
+        RangeDownloadOperation(byte[] data) {
+            super(null);
+            this.data = data;
+        }
+
+        @Override
+        protected OSSObject getObjectWrap(GetObjectRequest getObjectRequest) {
+            requests.incrementAndGet();
+            assertEquals(ETAG, getObjectRequest.getMatchingETagConstraints().get(0));
+            long[] range = getObjectRequest.getRange();
+            OSSObject ossObject = new OSSObject();
+            ossObject.setObjectContent(new CheckedInputStream(
+                    new ByteArrayInputStream(data, (int) range[0], (int) (range[1] - range[0] + 1)), new CRC64()));
+            return ossObject;
+        }
+    }
+
+    private static byte[] newData(int size) {
+        byte[] data = new byte[size];
+        new Random(17).nextBytes(data);
+        return data;
+    }
+
+    private static ObjectMetadata newMetadata(byte[] data, long crc) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(data.length);
+        metadata.setHeader(OSSHeaders.ETAG, ETAG);
+        metadata.setHeader(OSSHeaders.OSS_HASH_CRC64_ECMA, new BigInteger(1, ByteBuffer.allocate(8).putLong(crc).array()).toString());
+        return metadata;
+    }
+
+    private static long crcOf(byte[] data) {
+        CRC64 crc = new CRC64();
+        crc.update(data, data.length);
+        return crc.getValue();
+    }
+
+    private static ParallelObjectInputStream open(RangeDownloadOperation operation, ObjectMetadata metadata,
+            int maxBufferedParts) {
+        ParallelGetObjectRequest request = new ParallelGetObjectRequest("bucket", "key", PART_SIZE, 4);
+        request.setMaxBufferedParts(maxBufferedParts);
+        TransferTaskExecutor executor = new TransferTaskExecutor(new ClientConfiguration(), request.getTaskNum());
+        return new ParallelObjectInputStream(operation, request, metadata, executor, true);
+    }
+
+    @Test
+    public void testReadInOrder() throws Exception {
+        byte[] data = newData(5 * PART_SIZE + 333);
+        RangeDownloadOperation operation = new RangeDownloadOperation(data);
+        ParallelObjectInputStream input = open(operation, newMetadata(data, crcOf(data)), 3);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[7777];
+        int n;
+        while ((n = input.read(buffer)) != -1) {
+            output.write(buffer, 0, n);
+        }
+        input.close();
+
+        assertArrayEquals(data, output.toByteArray());
+        assertEquals(6, operation.requests.get());
+        assertEquals(crcOf(data), input.getClientCRC().longValue());
+    }
+
+    @Test
+    public void testBoundedReadAhead() throws Exception {
+        byte[] data = newData(6 * PART_SIZE);
+        RangeDownloadOperation operation = new RangeDownloadOperation(data);
+        ParallelObjectInputStream input = open(operation, newMetadata(data, crcOf(data)), 2);
+
+        Thread.sleep(200);
+        assertEquals(2, operation.requests.get());
+
+        assertEquals(data[0] & 0xff, input.read());
+        Thread.sleep(200);
+        assertEquals(2, operation.requests.get());
+
+        byte[] rest = new byte[PART_SIZE];
+        assertEquals(PART_SIZE - 1, input.read(rest, 1, PART_SIZE - 1));
+        assertEquals(data[PART_SIZE] & 0xff, input.read());
+        Thread.sleep(200);
+        assertEquals(3, operation.requests.get());
+        input.close();
+    }
+
+    @Test
+    public void testWriteTo() throws Exception {
+        byte[] data = newData(3 * PART_SIZE + 1);
+        ParallelObjectInputStream input = open(new RangeDownloadOperation(data), newMetadata(data, crcOf(data)), 8);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertEquals(data.length, input.writeTo(output));
+        input.close();
+        assertArrayEquals(data, output.toByteArray());
+    }
+
+    @Test
+    public void testCRCMismatch() throws Exception {
+        byte[] data = newData(2 * PART_SIZE + 10);
+        ParallelObjectInputStream input = open(new RangeDownloadOperation(data),
+                newMetadata(data, crcOf(data) + 1), 4);
+        try {
+            input.writeTo(new ByteArrayOutputStream());
+            fail("The CRC mismatch should be detected.");
+        } catch (InconsistentException e) {
+            // expected
+        } finally {
+            input.close();
+        }
+    }
+
+    @Test
+    public void testEmptyObject() throws Exception {
+        byte[] data = new byte[0];
+        RangeDownloadOperation operation = new RangeDownloadOperation(data);
+        ParallelObjectInputStream input = open(operation, newMetadata(data, 0), 4);
+        assertEquals(-1, input.read());
+        input.close();
+        assertEquals(0, operation.requests.get());
+    }
+}
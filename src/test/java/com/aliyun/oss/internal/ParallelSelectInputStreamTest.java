@@ -0,0 +1,308 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.event.ProgressEvent;
+import com.aliyun.oss.event.ProgressEventType;
+import com.aliyun.oss.event.ProgressListener;
+import com.aliyun.oss.model.CreateSelectObjectMetadataRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ParallelSelectObjectRequest;
+import com.aliyun.oss.model.SelectInputStream;
+import com.aliyun.oss.model.SelectObjectException;
+import com.aliyun.oss.model.SelectObjectMetadata;
+import com.aliyun.oss.model.SelectObjectRequest;
+
+public class ParallelSelectInputStreamTest {
+
+    private static final int SPLITS = 10;
+    private static final long SPLIT_SIZE = 1000;
+    private static final String ETAG = "\"etag-1\"";
+
+    /**
+     * Selects the rows of an in-memory object with one row per split, and
+     * returns them in select frames. The later ranges are answered first.
+     */
+    static class SplitSelectOperation extends OSSDownloadOperation {
+        private final AtomicInteger requests = new AtomicInteger();
+        private final List<SelectObjectRequest> selectRequests =
+                Collections.synchronizedList(new ArrayList<SelectObjectRequest>());
+        private long failedSplit = -1;
+
+        SplitSelectOperation() {
+            super(null);
+            setTransferExecutor(new SharedTransferExecutor(8));
+        }
+
+        @Override
+        protected OSSObject selectObjectWrap(SelectObjectRequest selectObjectRequest) {
+            requests.incrementAndGet();
+            selectRequests.add(selectObjectRequest);
+            long[] range = selectObjectRequest.getSplitRange();
+            try {
+                Thread.sleep((SPLITS - range[0]) * 20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            ByteArrayOutputStream frames = new ByteArrayOutputStream();
+            if (selectObjectRequest.getOutputSerialization().isOutputHeader()) {
+                writeDataFrame(frames, "header\n".getBytes(), 0);
+            }
+            int status = 200;
+            String error = "";
+            for (long split = range[0]; split <= range[1]; split++) {
+                if (split == failedSplit) {
+                    status = 400;
+                    error = "InvalidSqlParameter.bad expression";
+                    break;
+                }
+                writeDataFrame(frames, ("row-" + split + "\n").getBytes(), (split - range[0] + 1) * SPLIT_SIZE);
+            }
+            writeEndFrame(frames, (range[1] - range[0] + 1) * SPLIT_SIZE, status, error);
+
+            OSSObject ossObject = new OSSObject();
+            ossObject.setObjectContent(new SelectInputStream(new ByteArrayInputStream(frames.toByteArray()),
+                    selectObjectRequest.getSelectProgressListener(), false));
+            return ossObject;
+        }
+
+        @Override
+        protected SelectObjectMetadata createSelectObjectMetadataWrap(CreateSelectObjectMetadataRequest request) {
+            SelectObjectMetadata metadata = new SelectObjectMetadata();
+            metadata.setHeader(OSSHeaders.ETAG, ETAG);
+            metadata.setCsvObjectMetadata(new SelectObjectMetadata.CSVObjectMetadata());
+            metadata.getCsvObjectMetadata().setSplits(SPLITS);
+            return metadata;
+        }
+    }
+
+    private static void writeDataFrame(ByteArrayOutputStream frames, byte[] payload, long scanned) {
+        ByteBuffer frame = ByteBuffer.allocate(24 + payload.length);
+        frame.putInt(0x01800001).putInt(8 + payload.length).putInt(0).putLong(scanned).put(payload).putInt(0);
+        frames.write(frame.array(), 0, frame.capacity());
+    }
+
+    private static void writeEndFrame(ByteArrayOutputStream frames, long scanned, int status, String error) {
+        byte[] message = error.getBytes();
+        ByteBuffer frame = ByteBuffer.allocate(36 + message.length);
+        frame.putInt(0x01800005).putInt(20 + message.length).putInt(0).putLong(scanned).putLong(scanned)
+                .putInt(status).put(message).putInt(0);
+        frames.write(frame.array(), 0, frame.capacity());
+    }
+
+    static class RecordingListener implements ProgressListener {
+        private final List<ProgressEvent> events = Collections.synchronizedList(new ArrayList<ProgressEvent>());
+
+        @Override
+        public void progressChanged(ProgressEvent progressEvent) {
+            events.add(progressEvent);
+        }
+
+        int count(ProgressEventType eventType) {
+            int count = 0;
+            for (ProgressEvent event : new ArrayList<ProgressEvent>(events)) {
+                if (event.getEventType() == eventType) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        ProgressEvent last() {
+            return events.get(events.size() - 1);
+        }
+    }
+
+    private static ParallelSelectObjectRequest newRequest(RecordingListener listener) {
+        ParallelSelectObjectRequest request = new ParallelSelectObjectRequest("bucket", "key");
+        request.setExpression("select * from ossobject");
+        request.setTaskNum(4);
+        request.setSplitsPerRange(3);
+        request.setMaxBufferedRanges(2);
+        request.setSelectProgressListener(listener);
+        return request;
+    }
+
+    private static String readAll(OSSObject ossObject) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((ParallelSelectInputStream) ossObject.getObjectContent()).writeTo(output);
+        ossObject.getObjectContent().close();
+        return new String(output.toByteArray());
+    }
+
+    private static String rows(int from, int to) {
+        StringBuilder rows = new StringBuilder();
+        for (int i = from; i <= to; i++) {
+            rows.append("row-").append(i).append('\n');
+        }
+        return rows.toString();
+    }
+
+    @Test
+    public void testOrderedMerge() throws Exception {
+        SplitSelectOperation operation = new SplitSelectOperation();
+        RecordingListener listener = new RecordingListener();
+        ParallelSelectObjectRequest request = newRequest(listener);
+        request.getOutputSerialization().setOutputHeader(true);
+
+        String result = readAll(operation.selectObjectParallel(request));
+
+        assertEquals("header\n" + rows(0, SPLITS - 1), result);
+        assertEquals(4, operation.requests.get());
+        for (SelectObjectRequest selectRequest : operation.selectRequests) {
+            assertEquals(ETAG, selectRequest.getMatchingETagConstraints().get(0));
+            assertEquals(selectRequest.getSplitRange()[0] == 0,
+                    selectRequest.getOutputSerialization().isOutputHeader());
+        }
+        assertEquals(1, listener.count(ProgressEventType.SELECT_STARTED_EVENT));
+        assertEquals(1, listener.count(ProgressEventType.SELECT_COMPLETED_EVENT));
+        assertEquals(0, listener.count(ProgressEventType.SELECT_FAILED_EVENT));
+        assertEquals(ProgressEventType.SELECT_COMPLETED_EVENT, listener.last().getEventType());
+        assertEquals(SPLITS * SPLIT_SIZE, listener.last().getBytes());
+    }
+
+    @Test
+    public void testUnorderedMerge() throws Exception {
+        SplitSelectOperation operation = new SplitSelectOperation();
+        RecordingListener listener = new RecordingListener();
+        ParallelSelectObjectRequest request = newRequest(listener);
+        request.setOrdered(false);
+        request.setMaxBufferedRanges(4);
+        request.setSplits(SPLITS);
+        request.setSplitRange(2, 100);
+
+        String result = readAll(operation.selectObjectParallel(request));
+
+        String[] lines = result.split("\n");
+        Arrays.sort(lines);
+        String[] expected = rows(2, SPLITS - 1).split("\n");
+        Arrays.sort(expected);
+        assertEquals(Arrays.asList(expected), Arrays.asList(lines));
+        assertFalse(result.startsWith("row-2\n"));
+        assertEquals(3, operation.requests.get());
+        assertEquals((SPLITS - 2) * SPLIT_SIZE, listener.last().getBytes());
+        assertEquals(1, listener.count(ProgressEventType.SELECT_COMPLETED_EVENT));
+    }
+
+    @Test
+    public void testErrorFrameFailsStream() throws Exception {
+        SplitSelectOperation operation = new SplitSelectOperation();
+        operation.failedSplit = 7;
+        RecordingListener listener = new RecordingListener();
+        ParallelSelectObjectRequest request = newRequest(listener);
+        request.setSplits(SPLITS);
+
+        OSSObject ossObject = operation.selectObjectParallel(request);
+        try {
+            readAll(ossObject);
+            fail("The error frame of split 7 should fail the stream.");
+        } catch (SelectObjectException e) {
+            assertEquals("InvalidSqlParameter", e.getErrorCode());
+            assertTrue(e.getMessage().contains("[6, 8]"));
+            assertTrue(e.getMessage().contains("bad expression"));
+        }
+        assertEquals(1, listener.count(ProgressEventType.SELECT_FAILED_EVENT));
+        assertEquals(0, listener.count(ProgressEventType.SELECT_COMPLETED_EVENT));
+    }
+
+    @Test
+    public void testLargeRangeIsStreamed() throws Exception {
+        final int frameSize = 32 * 1024;
+        final int frameCount = 128;
+        final AtomicLong consumed = new AtomicLong();
+        SplitSelectOperation operation = new SplitSelectOperation() {
+            @Override
+            protected OSSObject selectObjectWrap(SelectObjectRequest selectObjectRequest) {
+                ByteArrayOutputStream frames = new ByteArrayOutputStream();
+                byte[] payload = new byte[frameSize];
+                for (int i = 0; i < frameCount; i++) {
+                    Arrays.fill(payload, (byte) i);
+                    writeDataFrame(frames, payload, i);
+                }
+                writeEndFrame(frames, frameCount, 200, "");
+                InputStream counting = new FilterInputStream(new ByteArrayInputStream(frames.toByteArray())) {
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int n = super.read(b, off, len);
+                        if (n > 0) {
+                            consumed.addAndGet(n);
+                        }
+                        return n;
+                    }
+                };
+                OSSObject ossObject = new OSSObject();
+                ossObject.setObjectContent(new SelectInputStream(counting, null, false));
+                return ossObject;
+            }
+        };
+        ParallelSelectObjectRequest request = newRequest(new RecordingListener());
+        TransferTaskExecutor executor = new TransferTaskExecutor(new ClientConfiguration(), 1);
+        ParallelSelectInputStream input = new ParallelSelectInputStream(operation, request, null, 0, 0, 1, executor);
+
+        // The select waits once the chunks of the range are full.
+        assertEquals(0, input.read());
+        Thread.sleep(300);
+        long limit = (long) (ParallelSelectInputStream.MAX_CHUNKS_PER_RANGE + 3) * ParallelSelectInputStream.CHUNK_SIZE;
+        assertTrue(consumed.get() < limit);
+        assertTrue(consumed.get() < (long) frameSize * frameCount);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        input.writeTo(output);
+        input.close();
+        byte[] result = output.toByteArray();
+        assertEquals(frameSize * frameCount - 1, result.length);
+        assertEquals(frameCount - 1, result[result.length - 1]);
+    }
+
+    @Test
+    public void testEmptySplitRange() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        ParallelSelectObjectRequest request = newRequest(listener);
+        TransferTaskExecutor executor = new TransferTaskExecutor(new ClientConfiguration(), 1);
+        ParallelSelectInputStream input = new ParallelSelectInputStream(new SplitSelectOperation(), request,
+                null, 0, -1, 1, executor);
+
+        assertEquals(-1, input.read());
+        input.close();
+        assertEquals(ProgressEventType.SELECT_COMPLETED_EVENT, listener.last().getEventType());
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.OSSErrorCode;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.common.utils.ExceptionFactory;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.HeadObjectRequest;
+import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+
+public class RequestCoalescerTest {
+
+    /**
+     * Serves one object, holding every request until it is released.
+     */
+    static class BlockingCoalescer extends RequestCoalescer {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger requests = new AtomicInteger();
+        final byte[] data;
+
+        BlockingCoalescer(ClientConfiguration config, byte[] data) {
+            super(null, config);
+            this.data = data;
+        }
+
+        private void block(String key) throws InterruptedException {
+            requests.incrementAndGet();
+            release.await();
+            if (data == null || !"object".equals(key)) {
+                throw ExceptionFactory.createOSSException("request-id", OSSErrorCode.NO_SUCH_KEY, "Not Found");
+            }
+        }
+
+        @Override
+        protected OSSObject getObjectWrap(GetObjectRequest request) {
+            try {
+                block(request.getKey());
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            byte[] content = data;
+            long[] range = request.getRange();
+            if (range != null) {
+                content = new byte[(int) (range[1] - range[0] + 1)];
+                System.arraycopy(data, (int) range[0], content, 0, content.length);
+            }
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(content.length);
+            metadata.setHeader(OSSHeaders.ETAG, "e1");
+            OSSObject ossObject = new OSSObject();
+            ossObject.setObjectMetadata(metadata);
+            ossObject.setObjectContent(new ByteArrayInputStream(content));
+            return ossObject;
+        }
+
+        @Override
+        protected ObjectMetadata headObjectWrap(HeadObjectRequest request) {
+            try {
+                block(request.getKey());
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(data.length);
+            metadata.setHeader(OSSHeaders.ETAG, "e1");
+            return metadata;
+        }
+    }
+
+    private static ClientConfiguration newConfig(int maxReplayBytes) {
+        ClientConfiguration config = new ClientConfiguration();
+        config.setRequestCoalescingEnabled(true);
+        config.setCoalescingMaxReplayBytes(maxReplayBytes);
+        return config;
+    }
+
+    /**
+     * Runs the calls at once, and releases the requests once all of them are
+     * waiting.
+     */
+    private static <T> List<Future<T>> runConcurrently(BlockingCoalescer coalescer, List<Callable<T>> calls)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(calls.size());
+        List<Future<T>> futures = new ArrayList<Future<T>>();
+        for (Callable<T> call : calls) {
+            futures.add(executor.submit(call));
+        }
+        Thread.sleep(200);
+        coalescer.release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return futures;
+    }
+
+    private static Callable<byte[]> get(final RequestCoalescer coalescer, final GetObjectRequest request) {
+        return new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return IOUtils.readStreamAsByteArray(coalescer.getObject(request).getObjectContent());
+            }
+        };
+    }
+
+    @Test
+    public void testSharedBody() throws Exception {
+        byte[] data = "hello coalescing".getBytes();
+        BlockingCoalescer coalescer = new BlockingCoalescer(newConfig(1024), data);
+        List<Callable<byte[]>> calls = new ArrayList<Callable<byte[]>>();
+        for (int i = 0; i < 8; i++) {
+            calls.add(get(coalescer, new GetObjectRequest("bucket", "object")));
+        }
+        for (Future<byte[]> future : runConcurrently(coalescer, calls)) {
+            assertArrayEquals(data, future.get());
+        }
+        assertEquals(1, coalescer.requests.get());
+        assertEquals(1, coalescer.getRequestCount());
+        assertEquals(7, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void testBodyTooBigToShare() throws Exception {
+        byte[] data = "hello coalescing".getBytes();
+        BlockingCoalescer coalescer = new BlockingCoalescer(newConfig(4), data);
+        List<Callable<byte[]>> calls = new ArrayList<Callable<byte[]>>();
+        for (int i = 0; i < 4; i++) {
+            calls.add(get(coalescer, new GetObjectRequest("bucket", "object")));
+        }
+        for (Future<byte[]> future : runConcurrently(coalescer, calls)) {
+            assertArrayEquals(data, future.get());
+        }
+        assertEquals(4, coalescer.requests.get());
+        assertEquals(3, coalescer.getUnsharedCount());
+        assertEquals(0, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void testDifferentRangesAreNotCoalesced() throws Exception {
+        byte[] data = "hello coalescing".getBytes();
+        BlockingCoalescer coalescer = new BlockingCoalescer(newConfig(1024), data);
+        GetObjectRequest first = new GetObjectRequest("bucket", "object");
+        first.setRange(0, 4);
+        GetObjectRequest second = new GetObjectRequest("bucket", "object");
+        second.setRange(6, 15);
+        List<Callable<byte[]>> calls = new ArrayList<Callable<byte[]>>();
+        calls.add(get(coalescer, first));
+        calls.add(get(coalescer, first));
+        calls.add(get(coalescer, second));
+        List<Future<byte[]>> futures = runConcurrently(coalescer, calls);
+        assertArrayEquals("hello".getBytes(), futures.get(0).get());
+        assertArrayEquals("hello".getBytes(), futures.get(1).get());
+        assertArrayEquals("coalescing".getBytes(), futures.get(2).get());
+        assertEquals(2, coalescer.requests.get());
+        assertEquals(1, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void testSharedError() throws Exception {
+        BlockingCoalescer coalescer = new BlockingCoalescer(newConfig(1024), "data".getBytes());
+        List<Callable<byte[]>> calls = new ArrayList<Callable<byte[]>>();
+        for (int i = 0; i < 4; i++) {
+            calls.add(get(coalescer, new GetObjectRequest("bucket", "missing")));
+        }
+        for (Future<byte[]> future : runConcurrently(coalescer, calls)) {
+            try {
+                future.get();
+                fail("The shared error should be thrown.");
+            } catch (java.util.concurrent.ExecutionException e) {
+                assertTrue(e.getCause() instanceof OSSException);
+                assertEquals(OSSErrorCode.NO_SUCH_KEY, ((OSSException) e.getCause()).getErrorCode());
+            }
+        }
+        assertEquals(1, coalescer.requests.get());
+        assertEquals(3, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void testHeadObject() throws Exception {
+        final BlockingCoalescer coalescer = new BlockingCoalescer(newConfig(1024), "data".getBytes());
+        List<Callable<ObjectMetadata>> calls = new ArrayList<Callable<ObjectMetadata>>();
+        for (int i = 0; i < 4; i++) {
+            calls.add(new Callable<ObjectMetadata>() {
+                @Override
+                public ObjectMetadata call() throws Exception {
+                    return coalescer.headObject(new HeadObjectRequest("bucket", "object"));
+                }
+            });
+        }
+        List<Future<ObjectMetadata>> futures = runConcurrently(coalescer, calls);
+        for (Future<ObjectMetadata> future : futures) {
+            assertEquals("e1", future.get().getETag());
+        }
+        assertNotSame(futures.get(0).get(), futures.get(1).get());
+        assertEquals(1, coalescer.requests.get());
+        assertEquals(3, coalescer.getCoalescedCount());
+
+        // Once done, the next call sends a request of its own.
+        coalescer.headObject(new HeadObjectRequest("bucket", "object"));
+        assertEquals(2, coalescer.requests.get());
+    }
+
+    @Test
+    public void testCustomHeadersAreNotCoalescable() {
+        HeadObjectRequest request = new HeadObjectRequest("bucket", "object");
+        assertTrue(RequestCoalescer.isCoalescable(request));
+        request.addHeader("x-oss-custom", "value");
+        assertFalse(RequestCoalescer.isCoalescable(request));
+        request = new HeadObjectRequest("bucket", "object");
+        request.addParameter("custom", "value");
+        assertFalse(RequestCoalescer.isCoalescable(request));
+    }
+
+    @Test
+    public void testInvalidateFencesCallsInFlight() throws Exception {
+        final BlockingCoalescer coalescer = new BlockingCoalescer(newConfig(1024), "data".getBytes());
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<byte[]> before = executor.submit(get(coalescer, new GetObjectRequest("bucket", "object")));
+        while (coalescer.requests.get() < 1) {
+            Thread.sleep(10);
+        }
+
+        // A read after the write does not join the read started before it.
+        coalescer.invalidate("bucket", "object");
+        Future<byte[]> after = executor.submit(get(coalescer, new GetObjectRequest("bucket", "object")));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (coalescer.requests.get() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, coalescer.requests.get());
+
+        coalescer.release.countDown();
+        assertArrayEquals("data".getBytes(), before.get());
+        assertArrayEquals("data".getBytes(), after.get());
+        assertEquals(0, coalescer.getCoalescedCount());
+        executor.shutdown();
+    }
+}
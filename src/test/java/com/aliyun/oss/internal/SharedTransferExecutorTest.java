@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.OSSClient;
+
+public class SharedTransferExecutorTest {
+
+    @Test
+    public void testGlobalAndPerTransferLimits() throws Exception {
+        SharedTransferExecutor shared = new SharedTransferExecutor(4);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+        final int[] transferPeaks = new int[3];
+        final AtomicInteger[] transferRunning = new AtomicInteger[3];
+
+        List<TransferTaskExecutor> transfers = new ArrayList<TransferTaskExecutor>();
+        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+        for (int t = 0; t < 3; t++) {
+            final int transfer = t;
+            transferRunning[t] = new AtomicInteger();
+            TransferTaskExecutor executor = new TransferTaskExecutor(shared, 2);
+            transfers.add(executor);
+            for (int i = 0; i < 10; i++) {
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        int now = running.incrementAndGet();
+                        int transferNow = transferRunning[transfer].incrementAndGet();
+                        synchronized (peak) {
+                            peak.set(Math.max(peak.get(), now));
+                            transferPeaks[transfer] = Math.max(transferPeaks[transfer], transferNow);
+                        }
+                        Thread.sleep(10);
+                        transferRunning[transfer].decrementAndGet();
+                        running.decrementAndGet();
+                        return transfer;
+                    }
+                }));
+            }
+        }
+        assertEquals(3, shared.getActiveTransfers());
+
+        for (TransferTaskExecutor executor : transfers) {
+            executor.shutdownAndAwait();
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals(i / 10, futures.get(i).get().intValue());
+        }
+
+        assertEquals(4, peak.get());
+        for (int t = 0; t < 3; t++) {
+            assertTrue(transferPeaks[t] <= 2);
+        }
+        assertEquals(0, shared.getActiveTransfers());
+        assertEquals(0, shared.getActiveParts());
+        assertEquals(0, shared.getQueuedParts());
+        assertEquals(30, shared.getCompletedParts());
+        shared.shutdown();
+    }
+
+    @Test
+    public void testTransfersAreServedFairly() throws Exception {
+        SharedTransferExecutor shared = new SharedTransferExecutor(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+        TransferTaskExecutor big = new TransferTaskExecutor(shared, 1);
+        big.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                started.countDown();
+                blocker.await();
+                return 0;
+            }
+        });
+        for (int i = 0; i < 5; i++) {
+            big.submit(newRecordingTask(order, "big"));
+        }
+        TransferTaskExecutor small = new TransferTaskExecutor(shared, 1);
+        for (int i = 0; i < 2; i++) {
+            small.submit(newRecordingTask(order, "small"));
+        }
+
+        started.await();
+        assertEquals(1, shared.getActiveParts());
+        assertEquals(7, shared.getQueuedParts());
+        blocker.countDown();
+        big.shutdownAndAwait();
+        small.shutdownAndAwait();
+
+        // The parts of the two transfers take turns although the big one queued first.
+        assertEquals("[small, big, small, big, big, big, big]", order.toString());
+        shared.shutdown();
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        SharedTransferExecutor shared = new SharedTransferExecutor(2);
+        TransferTaskExecutor executor = new TransferTaskExecutor(shared, 2);
+        Future<Integer> future = executor.submit(newRecordingTask(new ArrayList<String>(), "part"));
+        shared.shutdown();
+
+        try {
+            executor.submit(newRecordingTask(new ArrayList<String>(), "part"));
+            fail("Parts should be rejected after shutdown.");
+        } catch (RejectedExecutionException e) {
+            // Expected exception.
+        }
+        executor.shutdownAndAwait();
+        assertEquals(1, future.get().intValue());
+        assertTrue(shared.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testThrowingTaskGivesItsPartBack() throws Exception {
+        SharedTransferExecutor shared = new SharedTransferExecutor(1);
+        SharedTransferExecutor.Transfer transfer = shared.newTransfer(1);
+        final CountDownLatch ran = new CountDownLatch(1);
+        transfer.execute(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("Injected failure");
+            }
+        });
+        transfer.execute(new Runnable() {
+            @Override
+            public void run() {
+                ran.countDown();
+            }
+        });
+
+        assertTrue(ran.await(10, TimeUnit.SECONDS));
+        transfer.awaitAndClose();
+        assertEquals(0, shared.getActiveParts());
+        assertEquals(0, shared.getQueuedParts());
+        assertEquals(2, shared.getCompletedParts());
+        shared.shutdown();
+    }
+
+    @Test
+    public void testClientTransferExecutor() {
+        ClientConfiguration config = new ClientConfiguration();
+        OSSClient client = new OSSClient("oss-cn-hangzhou.aliyuncs.com", "ak", "sk", config);
+        assertEquals(ClientConfiguration.DEFAULT_MAX_CONCURRENT_TRANSFER_PARTS,
+                client.getTransferExecutor().getMaxConcurrentParts());
+        client.shutdown();
+
+        config = new ClientConfiguration();
+        config.setMaxConcurrentTransferParts(0);
+        client = new OSSClient("oss-cn-hangzhou.aliyuncs.com", "ak", "sk", config);
+        assertNull(client.getTransferExecutor());
+        client.shutdown();
+    }
+
+    private static Callable<Integer> newRecordingTask(final List<String> order, final String name) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                order.add(name);
+                return 1;
+            }
+        };
+    }
+}
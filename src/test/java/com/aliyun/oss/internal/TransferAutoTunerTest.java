@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.ClientErrorCode;
+import com.aliyun.oss.ClientException;
+import com.aliyun.oss.OSSException;
+import com.aliyun.oss.model.TransferTuning;
+import com.aliyun.oss.model.TransferTuning.Decision;
+import com.aliyun.oss.model.TransferTuning.Reason;
+
+public class TransferAutoTunerTest {
+
+    private static final long MB = 1024 * 1024L;
+
+    @Test
+    public void testChoosePartSize() {
+        assertEquals(MB, TransferAutoTuner.choosePartSize(10 * MB, 32));
+        assertEquals(2 * MB, TransferAutoTuner.choosePartSize(256 * MB, 32));
+        assertEquals(64 * MB, TransferAutoTuner.choosePartSize(100 * 1024 * MB, 32));
+
+        long size = 5L * 1024 * 1024 * MB;
+        long partSize = TransferAutoTuner.choosePartSize(size, 32);
+        assertTrue((size + partSize - 1) / partSize < 10000);
+        assertEquals(0, partSize % 4096);
+    }
+
+    @Test
+    public void testMaxAndInitialTaskNum() {
+        assertEquals(TransferAutoTuner.DEFAULT_MAX_TASK_NUM, TransferAutoTuner.getMaxTaskNum(1));
+        assertEquals(8, TransferAutoTuner.getMaxTaskNum(8));
+        assertEquals(4, TransferAutoTuner.getInitialTaskNum(32));
+        assertEquals(2, TransferAutoTuner.getInitialTaskNum(2));
+    }
+
+    @Test
+    public void testIsCongestion() {
+        assertTrue(TransferAutoTuner.isCongestion(new ClientException("", ClientErrorCode.SOCKET_TIMEOUT, "")));
+        assertTrue(TransferAutoTuner.isCongestion(new OSSException("", "InternalError", "", "", "", "", "")));
+        assertTrue(!TransferAutoTuner.isCongestion(new OSSException("", "AccessDenied", "", "", "", "", "")));
+        assertTrue(!TransferAutoTuner.isCongestion(new ClientException("", ClientErrorCode.UNKNOWN_HOST, "")));
+        assertTrue(!TransferAutoTuner.isCongestion(new IllegalStateException()));
+    }
+
+    @Test
+    public void testConvergesOnSaturationAndHalvesOnCongestion() throws Exception {
+        // 10MB parts on a link that is saturated at 10 parts.
+        final long partBytes = 10 * MB;
+        TransferTaskExecutor executor = new TransferTaskExecutor(new ClientConfiguration(), 4);
+        TransferTuning tuning = new TransferTuning();
+        long now = 0;
+        TransferAutoTuner tuner = new TransferAutoTuner(executor, tuning, 32, partBytes, now);
+
+        now = runWindows(tuner, 12, partBytes, now);
+        assertEquals(11, tuner.getTaskNum());
+        assertEquals(11, executor.getTaskNum());
+        assertEquals(11, tuning.getTaskNum());
+
+        List<Decision> decisions = tuning.getDecisions();
+        assertEquals(Reason.INITIAL, decisions.get(0).getReason());
+        assertEquals(Reason.INCREASE, decisions.get(1).getReason());
+        assertEquals(Reason.SATURATED, decisions.get(decisions.size() - 1).getReason());
+
+        // Probes one more part after a while, which does not help either.
+        now = runWindows(tuner, 10, partBytes, now);
+        assertEquals(12, tuner.getTaskNum());
+        assertEquals(Reason.PROBE, decisions.get(decisions.size() - 2).getReason());
+        assertEquals(Reason.SATURATED, decisions.get(decisions.size() - 1).getReason());
+
+        // Parts started before the decrease report the same congestion once.
+        tuner.onPartCompleted(0, now - 1, true, now);
+        assertEquals(6, tuner.getTaskNum());
+        tuner.onPartCompleted(0, now - 1, true, now + 1);
+        assertEquals(6, tuner.getTaskNum());
+        tuner.onPartCompleted(0, now + 2, true, now + 3);
+        assertEquals(3, tuner.getTaskNum());
+        assertEquals(3, tuning.getCongestionRetries());
+        assertEquals(Reason.CONGESTION, decisions.get(decisions.size() - 1).getReason());
+
+        executor.shutdownAndAwait();
+    }
+
+    // Completes the parts of some windows on a link of 10MB/s per connection and 100MB/s in total.
+    private static long runWindows(TransferAutoTuner tuner, int windows, long partBytes, long now) {
+        for (int window = 0; window < windows; window++) {
+            int taskNum = tuner.getTaskNum();
+            double throughput = Math.min(taskNum * 10.0 * MB, 100.0 * MB);
+            long windowNanos = (long) (taskNum * partBytes / throughput * 1000000000L);
+            for (int i = 0; i < taskNum; i++) {
+                now += windowNanos / taskNum;
+                tuner.onPartCompleted(partBytes, now - windowNanos, false, now);
+            }
+        }
+        return now;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.internal;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.common.comm.DefaultServiceClient;
+import com.aliyun.oss.common.utils.BinaryUtil;
+import com.aliyun.oss.common.utils.CRC64;
+import com.aliyun.oss.common.utils.IOUtils;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadResult;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
+import com.aliyun.oss.model.ListMultipartUploadsRequest;
+import com.aliyun.oss.model.ListPartsRequest;
+import com.aliyun.oss.model.MultipartUpload;
+import com.aliyun.oss.model.MultipartUploadListing;
+import com.aliyun.oss.model.PartETag;
+import com.aliyun.oss.model.PartListing;
+import com.aliyun.oss.model.PartSummary;
+import com.aliyun.oss.model.UploadFileRequest;
+import com.aliyun.oss.model.UploadPartRequest;
+import com.aliyun.oss.model.UploadPartResult;
+
+public class UploadResumeFromServerTest {
+
+    private static final int PART_SIZE = 100 * 1024;
+
+    /**
+     * Serves the uploads and parts in memory, a page of two at a time.
+     */
+    static class ServerUploadOperation extends OSSUploadOperation {
+        final List<MultipartUpload> uploads = new ArrayList<MultipartUpload>();
+        final Map<Integer, byte[]> parts = new TreeMap<Integer, byte[]>();
+        final Map<Integer, Long> listedCRCs = new TreeMap<Integer, Long>();
+        final List<Integer> uploadedParts = new ArrayList<Integer>();
+        String completedUploadId;
+        byte[] object;
+        int initiated;
+        int partPages;
+
+        ServerUploadOperation() {
+            super(new OSSMultipartOperation(new DefaultServiceClient(new ClientConfiguration()), null));
+            setTransferExecutor(new SharedTransferExecutor(4));
+        }
+
+        void addUpload(String key, String uploadId, long initiated) {
+            MultipartUpload upload = new MultipartUpload();
+            upload.setKey(key);
+            upload.setUploadId(uploadId);
+            upload.setInitiated(new Date(initiated));
+            uploads.add(upload);
+        }
+
+        @Override
+        protected MultipartUploadListing listMultipartUploadsWrap(ListMultipartUploadsRequest request) {
+            MultipartUploadListing listing = new MultipartUploadListing("bucket");
+            int start = request.getUploadIdMarker() == null ? 0 : Integer.parseInt(request.getUploadIdMarker());
+            for (int i = start; i < Math.min(start + 2, uploads.size()); i++) {
+                listing.addMultipartUpload(uploads.get(i));
+            }
+            listing.setTruncated(start + 2 < uploads.size());
+            listing.setNextKeyMarker(request.getPrefix());
+            listing.setNextUploadIdMarker(String.valueOf(start + 2));
+            return listing;
+        }
+
+        @Override
+        protected PartListing listPartsWrap(ListPartsRequest request) {
+            assertEquals("upload-latest", request.getUploadId());
+            partPages++;
+            PartListing listing = new PartListing();
+            int marker = request.getPartNumberMarker() == null ? 0 : request.getPartNumberMarker();
+            List<Integer> numbers = new ArrayList<Integer>(parts.keySet());
+            int count = 0;
+            for (int number : numbers) {
+                if (number > marker && count < 2) {
+                    PartSummary part = new PartSummary();
+                    part.setPartNumber(number);
+                    part.setSize(parts.get(number).length);
+                    part.setETag(BinaryUtil.encodeMD5(parts.get(number)));
+                    part.setServerCRC(listedCRCs.get(number));
+                    listing.addPart(part);
+                    marker = number;
+                    count++;
+                }
+            }
+            listing.setTruncated(marker < numbers.get(numbers.size() - 1));
+            listing.setNextPartNumberMarker(marker);
+            return listing;
+        }
+
+        @Override
+        protected InitiateMultipartUploadResult initiateMultipartUploadWrap(UploadCheckPoint uploadCheckPoint,
+                InitiateMultipartUploadRequest request) {
+            initiated++;
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId("upload-new");
+            return result;
+        }
+
+        @Override
+        protected UploadPartResult uploadPartWrap(UploadCheckPoint uploadCheckPoint, UploadPartRequest request) {
+            byte[] data = new byte[(int) request.getPartSize()];
+            try {
+                IOUtils.readNBytes(request.getInputStream(), data, 0, data.length);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            synchronized (parts) {
+                parts.put(request.getPartNumber(), data);
+                uploadedParts.add(request.getPartNumber());
+            }
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag(BinaryUtil.encodeMD5(data));
+            result.setPartSize(data.length);
+            result.setClientCRC(crcOf(data));
+            result.setServerCRC(crcOf(data));
+            return result;
+        }
+
+        @Override
+        protected CompleteMultipartUploadResult completeMultipartUploadWrap(UploadCheckPoint uploadCheckPoint,
+                CompleteMultipartUploadRequest request) {
+            completedUploadId = request.getUploadId();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            for (PartETag partETag : request.getPartETags()) {
+                byte[] data = parts.get(partETag.getPartNumber());
+                assertEquals(BinaryUtil.encodeMD5(data), partETag.getETag());
+                output.write(data, 0, data.length);
+            }
+            object = output.toByteArray();
+            CompleteMultipartUploadResult result = new CompleteMultipartUploadResult();
+            result.setServerCRC(crcOf(object));
+            return result;
+        }
+    }
+
+    private static long crcOf(byte[] data) {
+        CRC64 crc = new CRC64();
+        crc.update(data, data.length);
+        return crc.getValue();
+    }
+
+    private static File newFile(byte[] data) throws IOException {
+        File file = File.createTempFile("resume-from-server", ".dat");
+        file.deleteOnExit();
+        FileOutputStream output = new FileOutputStream(file);
+        output.write(data);
+        output.close();
+        return file;
+    }
+
+    private static UploadFileRequest newRequest(File file) {
+        UploadFileRequest request = new UploadFileRequest("bucket", "key", file.getPath(), 3 * PART_SIZE, 3);
+        request.setResumeFromServer(true);
+        return request;
+    }
+
+    @Test
+    public void testResumeSkipsMatchingParts() throws Throwable {
+        byte[] data = new byte[10 * PART_SIZE + 777];
+        new Random(31).nextBytes(data);
+        ServerUploadOperation operation = new ServerUploadOperation();
+        operation.addUpload("key", "upload-old", 1000);
+        operation.addUpload("key", "upload-latest", 2000);
+        operation.addUpload("key", "upload-older", 500);
+        operation.addUpload("key.bak", "upload-other", 3000);
+
+        // Parts 1-4 match by CRC64, part 5 has another CRC64, part 6 matches
+        // by ETag, and part 7 has another ETag.
+        for (int number = 1; number <= 7; number++) {
+            byte[] part = Arrays.copyOfRange(data, (number - 1) * PART_SIZE, number * PART_SIZE);
+            if (number == 7) {
+                part[0]++;
+            }
+            operation.parts.put(number, part);
+            if (number <= 4) {
+                operation.listedCRCs.put(number, crcOf(part));
+            } else if (number == 5) {
+                operation.listedCRCs.put(number, crcOf(part) + 1);
+            }
+        }
+
+        operation.uploadFile(newRequest(newFile(data)));
+
+        assertEquals(0, operation.initiated);
+        assertEquals(4, operation.partPages);
+        assertEquals("upload-latest", operation.completedUploadId);
+        List<Integer> uploaded = new ArrayList<Integer>(operation.uploadedParts);
+        Collections.sort(uploaded);
+        assertEquals(Arrays.asList(5, 7, 8, 9, 10, 11), uploaded);
+        assertArrayEquals(data, operation.object);
+    }
+
+    @Test
+    public void testInitiateWithoutUploadOnServer() throws Throwable {
+        byte[] data = new byte[4 * PART_SIZE];
+        new Random(37).nextBytes(data);
+        ServerUploadOperation operation = new ServerUploadOperation();
+        operation.addUpload("key.bak", "upload-other", 3000);
+
+        operation.uploadFile(newRequest(newFile(data)));
+
+        assertEquals(1, operation.initiated);
+        assertEquals(0, operation.partPages);
+        assertEquals("upload-new", operation.completedUploadId);
+        assertEquals(2, operation.uploadedParts.size());
+        assertArrayEquals(data, operation.object);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+
+public class SelectRecordReaderTest {
+
+    /**
+     * Encodes the payload in data frames of at most frameSize bytes, with
+     * their checksums, and an end frame with the given status.
+     */
+    private static byte[] frames(byte[] payload, int frameSize, int status, String error) {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        long scanned = 0;
+        for (int off = 0; off < payload.length; off += frameSize) {
+            int len = Math.min(frameSize, payload.length - off);
+            scanned += len;
+            ByteBuffer frame = ByteBuffer.allocate(24 + len);
+            frame.putInt(0x01800001).putInt(8 + len).putInt(0).putLong(scanned).put(payload, off, len);
+            frame.putInt(checksum(frame.array(), 12, 8 + len));
+            frames.write(frame.array(), 0, frame.capacity());
+        }
+        byte[] message = error.getBytes();
+        ByteBuffer frame = ByteBuffer.allocate(36 + message.length);
+        frame.putInt(0x01800005).putInt(20 + message.length).putInt(0).putLong(scanned).putLong(scanned)
+                .putInt(status).put(message);
+        frame.putInt(checksum(frame.array(), 12, 20 + message.length));
+        frames.write(frame.array(), 0, frame.capacity());
+        return frames.toByteArray();
+    }
+
+    private static int checksum(byte[] bytes, int off, int len) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes, off, len);
+        return (int) crc32.getValue();
+    }
+
+    /**
+     * Returns at most a few bytes per read, so that records and delimiters
+     * span the reads.
+     */
+    static class TrickleInputStream extends FilterInputStream {
+        private int next;
+
+        TrickleInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            next = next % 7 + 1;
+            return super.read(b, off, Math.min(len, next));
+        }
+    }
+
+    private static SelectInputStream selectStream(String result, int frameSize) {
+        return new SelectInputStream(new TrickleInputStream(
+                new ByteArrayInputStream(frames(result.getBytes(), frameSize, 200, ""))), null, true);
+    }
+
+    @Test
+    public void testCsvRows() throws Exception {
+        String result = "1,alice,\"x, \"\"y\"\"\"\n"
+                + "-42,,\"multi\nline\"\n"
+                + "9223372036854775807,bob,z";
+        SelectRecordReader reader = new SelectRecordReader(selectStream(result, 5), new CSVFormat());
+
+        SelectRecord record = reader.next();
+        assertEquals(3, record.getFieldCount());
+        assertEquals(1, record.getFieldAsLong(0));
+        assertTrue(record.fieldEquals(1, "alice".getBytes()));
+        assertEquals("x, \"y\"", record.getField(2));
+        assertEquals("1,alice,\"x, \"\"y\"\"\"", record.toString());
+
+        record = reader.next();
+        assertEquals(-42, record.getFieldAsLong(0));
+        assertEquals(0, record.getFieldLength(1));
+        assertEquals("multi\nline", record.getField(2));
+        assertNull(record.getFieldName(2));
+
+        record = reader.next();
+        assertEquals(Long.MAX_VALUE, record.getFieldAsLong(0));
+        assertEquals("z", record.getField(2));
+        try {
+            record.getFieldAsLong(1);
+            fail("bob is not a number.");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+
+        assertNull(reader.next());
+        reader.close();
+    }
+
+    @Test
+    public void testJsonLines() throws Exception {
+        String result = "{\"id\":7,\"name\":\"a\\\"b\\u0041\",\"tags\":[1,{\"k\":\"}\"}],\"ok\" : true }\n"
+                + "{}\n"
+                + "[1,2]\n";
+        SelectObjectRequest request = new SelectObjectRequest("bucket", "key")
+                .withInputSerialization(new InputSerialization().withJsonInputFormat(new JsonFormat().withJsonType(JsonType.LINES)));
+        List<String> lines = new ArrayList<String>();
+        SelectRecordReader reader = new SelectRecordReader(selectStream(result, 11), request);
+
+        SelectRecord record = reader.next();
+        assertEquals(4, record.getFieldCount());
+        assertEquals("id", record.getFieldName(0));
+        assertEquals(7, record.getFieldAsLong(0));
+        assertEquals("a\"bA", record.getField(1));
+        assertEquals("[1,{\"k\":\"}\"}]", record.getField(2));
+        assertEquals("ok", record.getFieldName(3));
+        assertTrue(record.fieldEquals(3, "true".getBytes()));
+
+        for (SelectRecord next : reader) {
+            lines.add(next.toString() + ":" + next.getFieldCount());
+        }
+        assertEquals(Arrays.asList("{}:0", "[1,2]:0"), lines);
+        reader.close();
+    }
+
+    @Test
+    public void testLongRecordsAndMultiByteDelimiter() throws Exception {
+        StringBuilder result = new StringBuilder();
+        char[] longField = new char[200 * 1024];
+        Arrays.fill(longField, 'v');
+        for (int i = 0; i < 5; i++) {
+            result.append(i).append(',').append(longField, 0, i * 50 * 1024).append("\r\n");
+        }
+        SelectRecordReader reader = new SelectRecordReader(
+                new SelectInputStream(new ByteArrayInputStream(frames(result.toString().getBytes(), 7000, 200, "")),
+                        null, true), new CSVFormat().withRecordDelimiter("\r\n"));
+
+        for (int i = 0; i < 5; i++) {
+            SelectRecord record = reader.next();
+            assertEquals(i, record.getFieldAsLong(0));
+            assertEquals(i * 50 * 1024, record.getFieldLength(1));
+        }
+        assertNull(reader.next());
+        reader.close();
+    }
+
+    @Test
+    public void testFrameErrors() throws Exception {
+        byte[] frames = frames("1,a\n2,b\n".getBytes(), 4, 200, "");
+        frames[21] ^= 1;
+        SelectRecordReader reader = new SelectRecordReader(
+                new SelectInputStream(new ByteArrayInputStream(frames), null, true), new CSVFormat());
+        try {
+            while (reader.next() != null) {
+            }
+            fail("The corrupted frame should fail the crc check.");
+        } catch (SelectObjectException e) {
+            assertEquals(SelectObjectException.INVALID_CRC, e.getErrorCode());
+        }
+        reader.close();
+
+        frames = frames("1,a\n".getBytes(), 4, 400, "InvalidSqlParameter.bad expression");
+        reader = new SelectRecordReader(new SelectInputStream(new ByteArrayInputStream(frames), null, true),
+                new CSVFormat());
+        assertFalse(reader.next() == null);
+        try {
+            reader.next();
+            fail("The end frame should report the error.");
+        } catch (SelectObjectException e) {
+            assertEquals("InvalidSqlParameter", e.getErrorCode());
+            assertEquals("bad expression", e.getMessage());
+        }
+        reader.close();
+    }
+}
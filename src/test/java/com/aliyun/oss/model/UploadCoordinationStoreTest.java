@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.aliyun.oss.ClientException;
+
+public class UploadCoordinationStoreTest {
+
+    private final DistributedUpload upload = new DistributedUpload("bucket", "key", "upload+1");
+
+    private static File newDirectory() throws IOException {
+        File directory = File.createTempFile("leases", "");
+        directory.delete();
+        directory.deleteOnExit();
+        return directory;
+    }
+
+    private void assertDisjointLeases(final UploadCoordinationStore first, final UploadCoordinationStore second)
+            throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<PartRangeLease>> futures = new ArrayList<Future<PartRangeLease>>();
+            for (int i = 0; i < 40; i++) {
+                final UploadCoordinationStore store = i % 2 == 0 ? first : second;
+                final String worker = "worker-" + i;
+                futures.add(executor.submit(new Callable<PartRangeLease>() {
+                    @Override
+                    public PartRangeLease call() {
+                        return store.leaseParts(upload, worker, 5, 60000);
+                    }
+                }));
+            }
+            List<Integer> firsts = new ArrayList<Integer>();
+            for (Future<PartRangeLease> future : futures) {
+                PartRangeLease lease = future.get();
+                assertEquals(4, lease.getLastPartNumber() - lease.getFirstPartNumber());
+                firsts.add(lease.getFirstPartNumber());
+            }
+            Collections.sort(firsts);
+            for (int i = 0; i < firsts.size(); i++) {
+                assertEquals(1 + i * 5, firsts.get(i).intValue());
+            }
+            assertEquals(40, first.getLeases(upload).size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void assertReclaimsExpiredLease(UploadCoordinationStore store) throws Exception {
+        PartRangeLease dead = store.leaseParts(upload, "dead", 10, 1000);
+        PartRangeLease alive = store.leaseParts(upload, "alive", 10, 60000);
+        assertEquals(11, alive.getFirstPartNumber());
+        Thread.sleep(1200);
+
+        PartRangeLease reclaimed = store.leaseParts(upload, "next", 10, 60000);
+        assertEquals(1, reclaimed.getFirstPartNumber());
+        assertEquals(10, reclaimed.getLastPartNumber());
+        assertEquals("next", reclaimed.getWorkerId());
+        assertNotEquals(dead.getLeaseId(), reclaimed.getLeaseId());
+
+        try {
+            store.completeLease(dead);
+            fail("The lost lease should not be completed.");
+        } catch (ClientException e) {
+            assertTrue(e.getMessage().contains("lost"));
+        }
+        try {
+            store.renewLease(dead, 60000);
+            fail("The lost lease should not be renewed.");
+        } catch (ClientException e) {
+            assertTrue(e.getMessage().contains("lost"));
+        }
+
+        PartRangeLease completed = store.completeLease(reclaimed);
+        assertTrue(completed.isCompleted());
+        assertFalse(completed.isExpired(Long.MAX_VALUE));
+        assertEquals(21, store.leaseParts(upload, "last", 10, 60000).getFirstPartNumber());
+        assertTrue(store.getLeases(upload).get(0).isCompleted());
+
+        store.removeUpload(upload);
+        assertTrue(store.getLeases(upload).isEmpty());
+    }
+
+    @Test
+    public void testMemoryStoreLeasesDisjointRanges() throws Exception {
+        MemoryUploadCoordinationStore store = new MemoryUploadCoordinationStore();
+        assertDisjointLeases(store, store);
+    }
+
+    @Test
+    public void testFileStoresShareLeasesInDirectory() throws Exception {
+        File directory = newDirectory();
+        assertDisjointLeases(new FileUploadCoordinationStore(directory), new FileUploadCoordinationStore(directory));
+        new FileUploadCoordinationStore(directory).removeUpload(upload);
+        String[] names = directory.list();
+        assertEquals(1, names.length);
+        assertTrue(names[0].endsWith(".lock"));
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testExpiredLeaseIsReclaimed() throws Exception {
+        assertReclaimsExpiredLease(new MemoryUploadCoordinationStore());
+        File directory = newDirectory();
+        assertReclaimsExpiredLease(new FileUploadCoordinationStore(directory));
+        directory.delete();
+    }
+
+    @Test
+    public void testPartNumberLimit() {
+        MemoryUploadCoordinationStore store = new MemoryUploadCoordinationStore();
+        assertEquals(9999, store.leaseParts(upload, "w", 9999, 60000).getLastPartNumber());
+        PartRangeLease last = store.leaseParts(upload, "w", 100, 60000);
+        assertEquals(10000, last.getFirstPartNumber());
+        assertEquals(10000, last.getLastPartNumber());
+        try {
+            store.leaseParts(upload, "w", 1, 60000);
+            fail("All the part numbers are leased.");
+        } catch (ClientException e) {
+        }
+    }
+
+    @Test
+    public void testUploadHandleIsSerializable() throws Exception {
+        DistributedUpload payerUpload = new DistributedUpload("bucket", "key", "id", Payer.Requester);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(payerUpload);
+        out.close();
+        DistributedUpload copy = (DistributedUpload) new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())).readObject();
+        assertEquals("id", copy.getUploadId());
+
+        PartRangeLease lease = new MemoryUploadCoordinationStore().leaseParts(copy, "w", 3, 60000);
+        UploadPartRequest request = copy.newUploadPartRequest(lease, 3, new ByteArrayInputStream(new byte[1]), 1);
+        assertEquals("key", request.getKey());
+        assertEquals(3, request.getPartNumber());
+        assertEquals(Payer.Requester, request.getRequestPayer());
+        try {
+            copy.newUploadPartRequest(lease, 4, new ByteArrayInputStream(new byte[1]), 1);
+            fail("The part 4 is not leased.");
+        } catch (IllegalArgumentException e) {
+        }
+
+        PartRangeLease expired = new MemoryUploadCoordinationStore().leaseParts(copy, "w", 3, 0);
+        try {
+            copy.newUploadPartRequest(expired, 1, new ByteArrayInputStream(new byte[1]), 1);
+            fail("The lease has expired.");
+        } catch (ClientException e) {
+            assertTrue(e.getMessage().contains("expired"));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.perftests;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.aliyun.oss.common.utils.BufferPool;
+
+/**
+ * Compares the allocation rate of transfer threads that allocate a fresh I/O
+ * buffer per part against threads that borrow it from the {@link BufferPool}.
+ *
+ * Usage: BufferPoolBenchmark [threads] [partsPerThread] [bufferSize]
+ */
+public class BufferPoolBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int parts = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int bufferSize = args.length > 2 ? Integer.parseInt(args[2]) : 8 * 1024;
+
+        for (boolean pooled : new boolean[] { false, true, false, true }) {
+            long[] result = run(threads, parts, bufferSize, pooled);
+            System.out.println(String.format("%-8s allocated %.1f MB, %.1f MB/s, elapsed %d ms",
+                    pooled ? "pooled" : "new", result[0] / 1048576.0,
+                    result[0] / 1048576.0 / (result[1] / 1000.0), result[1]));
+        }
+    }
+
+    private static long[] run(final int threads, final int parts, final int bufferSize, final boolean pooled)
+            throws InterruptedException {
+        final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        final AtomicLong allocated = new AtomicLong();
+        final AtomicLong checksum = new AtomicLong();
+        final CountDownLatch latch = new CountDownLatch(threads);
+
+        long start = System.currentTimeMillis();
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long before = bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                    long sum = 0;
+                    for (int i = 0; i < parts; i++) {
+                        byte[] buffer = pooled ? BufferPool.getDefault().acquire(bufferSize) : new byte[bufferSize];
+                        buffer[i % bufferSize] = (byte) i;
+                        sum += buffer[0];
+                        if (pooled) {
+                            BufferPool.getDefault().release(buffer);
+                        }
+                    }
+                    allocated.addAndGet(bean.getThreadAllocatedBytes(Thread.currentThread().getId()) - before);
+                    checksum.addAndGet(sum);
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        return new long[] { allocated.get(), System.currentTimeMillis() - start };
+    }
+}
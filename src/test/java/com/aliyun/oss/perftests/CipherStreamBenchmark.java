@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.perftests;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.aliyun.oss.crypto.CipherInputStream;
+import com.aliyun.oss.crypto.CryptoScheme;
+
+/**
+ * Measures AES-CTR encrypt and decrypt throughput and allocation per GB of
+ * the {@link CipherInputStream}, against a loop that lets the cipher allocate
+ * the output of every chunk, as the stream used to.
+ *
+ * Usage: CipherStreamBenchmark [megabytes] [chunkSize] [readSize]
+ */
+public class CipherStreamBenchmark {
+
+    private static final SecretKey CEK = new SecretKeySpec(new byte[32], "AES");
+    private static final byte[] IV = new byte[16];
+
+    /**
+     * Endless zeros, without a copy per read.
+     */
+    private static class ZeroInputStream extends InputStream {
+        private long remaining;
+
+        ZeroInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            return remaining-- > 0 ? 0 : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int n = (int) Math.min(len, remaining);
+            remaining -= n;
+            return n;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        long size = (args.length > 0 ? Long.parseLong(args[0]) : 1024) * 1024 * 1024;
+        int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : 32 * 1024;
+        int readSize = args.length > 2 ? Integer.parseInt(args[2]) : 64 * 1024;
+
+        for (int round = 0; round < 3; round++) {
+            for (int mode : new int[] { Cipher.ENCRYPT_MODE, Cipher.DECRYPT_MODE }) {
+                report("update", mode, size, runUpdate(mode, size, 2048, readSize));
+                report("stream", mode, size, runStream(mode, size, chunkSize, readSize));
+            }
+        }
+    }
+
+    private static void report(String name, int mode, long size, long[] result) {
+        double gb = size / (1024.0 * 1024 * 1024);
+        System.out.println(String.format("%-6s %-7s %.2f s/GB, %.1f MB/s, allocated %.1f MB/GB", name,
+                mode == Cipher.ENCRYPT_MODE ? "encrypt" : "decrypt", result[1] / 1000.0 / gb,
+                size / 1048576.0 / (result[1] / 1000.0), result[0] / 1048576.0 / gb));
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long[] runUpdate(int mode, long size, int chunkSize, int readSize) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
+        cipher.init(mode, CEK, new IvParameterSpec(IV));
+        InputStream in = new ZeroInputStream(size);
+        byte[] chunk = new byte[chunkSize];
+        long before = allocatedBytes();
+        long start = System.currentTimeMillis();
+        long sum = 0;
+        int len;
+        while ((len = in.read(chunk, 0, chunk.length)) != -1) {
+            byte[] out = cipher.update(chunk, 0, len);
+            sum += out[0];
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        long allocated = allocatedBytes() - before;
+        return new long[] { allocated, Math.max(elapsed, 1), sum };
+    }
+
+    private static long[] runStream(int mode, long size, int chunkSize, int readSize) throws IOException {
+        InputStream in = new CipherInputStream(new ZeroInputStream(size),
+                CryptoScheme.AES_CTR.createCryptoCipher(CEK, IV, mode, null), chunkSize);
+        byte[] buffer = new byte[readSize];
+        long before = allocatedBytes();
+        long start = System.currentTimeMillis();
+        long sum = 0;
+        int len;
+        while ((len = in.read(buffer, 0, buffer.length)) != -1) {
+            sum += buffer[len - 1];
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        long allocated = allocatedBytes() - before;
+        in.close();
+        return new long[] { allocated, Math.max(elapsed, 1), sum };
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.perftests;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.aliyun.oss.internal.FileChannelSink;
+
+/**
+ * Writes the parts of a download to a temp file the way the download tasks
+ * used to (a RandomAccessFile per part, 8KB writes) and through the
+ * {@link FileChannelSink} with positional and with memory mapped writes.
+ *
+ * Usage: DownloadSinkBenchmark [fileSizeMB] [partSizeMB] [threads] [dir]
+ */
+public class DownloadSinkBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        long fileSize = (args.length > 0 ? Long.parseLong(args[0]) : 1024) * 1024 * 1024;
+        final int partSize = (args.length > 1 ? Integer.parseInt(args[1]) : 8) * 1024 * 1024;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        File dir = new File(args.length > 3 ? args[3] : System.getProperty("java.io.tmpdir"));
+        final byte[] part = new byte[partSize];
+        new Random(1).nextBytes(part);
+
+        for (int round = 0; round < 2; round++) {
+            for (final String mode : new String[] { "per-part", "channel", "mmap" }) {
+                final File file = File.createTempFile("sink-bench", ".tmp", dir);
+                long start = System.nanoTime();
+                final FileChannelSink sink = mode.equals("per-part") ? null
+                        : new FileChannelSink(file.getPath(), fileSize, mode.equals("mmap"));
+                if (sink == null) {
+                    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                    raf.setLength(fileSize);
+                    raf.close();
+                }
+
+                ExecutorService service = Executors.newFixedThreadPool(threads);
+                for (long offset = 0; offset < fileSize; offset += partSize) {
+                    final long position = offset;
+                    final int length = (int) Math.min(partSize, fileSize - offset);
+                    service.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            InputStream content = new ByteArrayInputStream(part, 0, length);
+                            if (sink != null) {
+                                sink.write(content, position, length);
+                            } else {
+                                writePerPart(file, content, position);
+                            }
+                            return null;
+                        }
+                    });
+                }
+                service.shutdown();
+                service.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+                if (sink != null) {
+                    sink.close();
+                }
+                long elapsed = (System.nanoTime() - start) / 1000000;
+
+                System.out.println(String.format("%-9s %d MB in %d ms, %.0f MB/s", mode, fileSize >> 20, elapsed,
+                        (fileSize >> 20) * 1000.0 / elapsed));
+                file.delete();
+            }
+        }
+    }
+
+    private static void writePerPart(File file, InputStream content, long position) throws Exception {
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+        try {
+            output.seek(position);
+            byte[] buffer = new byte[8 * 1024];
+            int bytesRead;
+            while ((bytesRead = content.read(buffer)) > 0) {
+                output.write(buffer, 0, bytesRead);
+            }
+        } finally {
+            output.close();
+        }
+    }
+}
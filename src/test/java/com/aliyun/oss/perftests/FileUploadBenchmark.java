@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.perftests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.apache.http.HttpEntity;
+
+import com.aliyun.oss.common.comm.RepeatableInputStreamEntity;
+import com.aliyun.oss.common.comm.ServiceClient;
+import com.aliyun.oss.common.comm.io.FileRegionEntity;
+import com.aliyun.oss.common.comm.io.RepeatableFileInputStream;
+
+/**
+ * Measures the CPU time spent per GB when a local file is written to a socket
+ * through the stream entity and through the file region entity.
+ *
+ * Usage: FileUploadBenchmark [fileSizeInMB] [rounds]
+ */
+public class FileUploadBenchmark {
+
+    private static final long MB = 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        long fileSize = (args.length > 0 ? Long.parseLong(args[0]) : 512) * MB;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File file = File.createTempFile("upload-benchmark", ".dat");
+        file.deleteOnExit();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(fileSize);
+        raf.close();
+
+        final ServerSocket server = new ServerSocket(0);
+        Thread drain = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                byte[] buffer = new byte[256 * 1024];
+                while (!server.isClosed()) {
+                    try {
+                        Socket socket = server.accept();
+                        InputStream in = socket.getInputStream();
+                        while (in.read(buffer) != -1) {
+                        }
+                        socket.close();
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }
+        });
+        drain.setDaemon(true);
+        drain.start();
+
+        for (String mode : new String[] { "stream", "direct-buffer", "transferTo" }) {
+            long cpu = 0;
+            long wall = 0;
+            for (int i = 0; i < rounds; i++) {
+                long[] cost = run(mode, file, fileSize, server.getLocalPort());
+                cpu += cost[0];
+                wall += cost[1];
+            }
+            double gb = (double) fileSize * rounds / (1024 * MB);
+            System.out.println(String.format("%-14s cpu %.1f ms/GB, throughput %.1f MB/s", mode,
+                    cpu / 1000000.0 / gb, (double) fileSize * rounds / MB / (wall / 1000000000.0)));
+        }
+        server.close();
+    }
+
+    private static long[] run(String mode, File file, long fileSize, int port) throws IOException {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        RepeatableFileInputStream content = new RepeatableFileInputStream(file);
+        HttpEntity entity;
+        if (mode.equals("stream")) {
+            ServiceClient.Request request = new ServiceClient.Request();
+            request.setContent(content);
+            request.setContentLength(fileSize);
+            entity = new RepeatableInputStreamEntity(request);
+        } else {
+            entity = new FileRegionEntity(content, content, fileSize, mode.equals("transferTo"));
+        }
+
+        Socket socket = new Socket("127.0.0.1", port);
+        OutputStream output = socket.getOutputStream();
+        long cpuStart = bean.getCurrentThreadCpuTime();
+        long wallStart = System.nanoTime();
+        entity.writeTo(output);
+        long[] cost = new long[] { bean.getCurrentThreadCpuTime() - cpuStart, System.nanoTime() - wallStart };
+        socket.close();
+        content.close();
+        return cost;
+    }
+}
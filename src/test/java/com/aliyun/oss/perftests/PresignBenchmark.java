@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.perftests;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.aliyun.oss.OSS;
+import com.aliyun.oss.OSSClientBuilder;
+import com.aliyun.oss.model.GeneratePresignedUrlRequest;
+import com.aliyun.oss.model.UrlPresigner;
+import com.aliyun.oss.model.UrlPresignerRequest;
+
+/**
+ * Measures the URLs presigned per second, and per core, by
+ * {@link OSS#generatePresignedUrl(GeneratePresignedUrlRequest)} against a
+ * {@link UrlPresigner} on one thread and on all the cores. No request is
+ * sent.
+ *
+ * Usage: PresignBenchmark [keys]
+ */
+public class PresignBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<String> keys = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            keys.add("videos/2024/" + (i % 1000) + "/segment-" + i + ".ts");
+        }
+        Date expiration = new Date(System.currentTimeMillis() + 3600 * 1000L);
+        OSS client = new OSSClientBuilder().build("https://oss-cn-hangzhou.aliyuncs.com", "ak", "sk");
+        try {
+            GeneratePresignedUrlRequest template = new GeneratePresignedUrlRequest("bucket", null);
+            template.setExpiration(expiration);
+            UrlPresigner single = client.createUrlPresigner(new UrlPresignerRequest(template));
+            UrlPresigner parallel = client.createUrlPresigner(new UrlPresignerRequest(template).withTaskNum(cores));
+
+            System.out.println(cores + " cores, " + count + " keys");
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                for (String key : keys) {
+                    GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest("bucket", key);
+                    request.setExpiration(expiration);
+                    client.generatePresignedUrl(request);
+                }
+                report("generatePresignedUrl", count, System.nanoTime() - start, 1);
+
+                start = System.nanoTime();
+                for (String key : keys) {
+                    single.presign(key);
+                }
+                report("presigner", count, System.nanoTime() - start, 1);
+
+                start = System.nanoTime();
+                parallel.presign(keys);
+                report("presigner batch", count, System.nanoTime() - start, cores);
+            }
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static void report(String name, int count, long nanos, int cores) {
+        double perSecond = count / (nanos / 1e9);
+        System.out.println(String.format("%-21s %,10.0f URLs/s, %,10.0f URLs/s per core", name, perSecond,
+                perSecond / cores));
+    }
+}
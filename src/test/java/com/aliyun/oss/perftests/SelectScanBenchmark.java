@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.perftests;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import com.aliyun.oss.model.CSVFormat;
+import com.aliyun.oss.model.SelectInputStream;
+import com.aliyun.oss.model.SelectRecord;
+import com.aliyun.oss.model.SelectRecordReader;
+
+/**
+ * Measures the scan throughput and allocation per GB of a CSV select result
+ * in CRC checked frames, read by {@link SelectRecordReader} field views,
+ * against lines read by a {@link BufferedReader} and split into strings.
+ *
+ * Usage: SelectScanBenchmark [megabytes] [frameSize]
+ */
+public class SelectScanBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int size = (args.length > 0 ? Integer.parseInt(args[0]) : 256) * 1024 * 1024;
+        int frameSize = args.length > 1 ? Integer.parseInt(args[1]) : 256 * 1024;
+        byte[] frames = frames(rows(size), frameSize);
+
+        for (int round = 0; round < 3; round++) {
+            report("lines", size, runLines(frames));
+            report("records", size, runRecords(frames));
+        }
+    }
+
+    private static byte[] rows(int size) {
+        ByteArrayOutputStream rows = new ByteArrayOutputStream(size + 64);
+        for (long id = 0; rows.size() < size; id++) {
+            byte[] row = (id + ",name-" + (id % 1000) + "," + (id * 7 % 100000) + ",\"a, quoted field\"\n").getBytes();
+            rows.write(row, 0, row.length);
+        }
+        return rows.toByteArray();
+    }
+
+    private static byte[] frames(byte[] payload, int frameSize) {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream(payload.length + payload.length / frameSize * 24 + 64);
+        CRC32 crc32 = new CRC32();
+        for (int off = 0; off < payload.length; off += frameSize) {
+            int len = Math.min(frameSize, payload.length - off);
+            ByteBuffer frame = ByteBuffer.allocate(24 + len);
+            frame.putInt(0x01800001).putInt(8 + len).putInt(0).putLong(off + len).put(payload, off, len);
+            crc32.reset();
+            crc32.update(frame.array(), 12, 8 + len);
+            frame.putInt((int) crc32.getValue());
+            frames.write(frame.array(), 0, frame.capacity());
+        }
+        ByteBuffer frame = ByteBuffer.allocate(36);
+        frame.putInt(0x01800005).putInt(20).putInt(0).putLong(payload.length).putLong(payload.length).putInt(200);
+        crc32.reset();
+        crc32.update(frame.array(), 12, 20);
+        frame.putInt((int) crc32.getValue());
+        frames.write(frame.array(), 0, frame.capacity());
+        return frames.toByteArray();
+    }
+
+    private static void report(String name, long size, long[] result) {
+        double gb = size / (1024.0 * 1024 * 1024);
+        System.out.println(String.format("%-7s %.1f MB/s, %.1f Mrows/s, allocated %.1f MB/GB", name,
+                size / 1048576.0 / (result[1] / 1000.0), result[2] / 1000.0 / result[1],
+                result[0] / 1048576.0 / gb));
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long[] runLines(byte[] frames) throws Exception {
+        long before = allocatedBytes();
+        long start = System.currentTimeMillis();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new SelectInputStream(new ByteArrayInputStream(frames), null, true), "UTF-8"), 64 * 1024);
+        long rows = 0;
+        long sum = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] fields = line.split(",");
+            sum += Long.parseLong(fields[2]);
+            rows++;
+        }
+        reader.close();
+        long elapsed = System.currentTimeMillis() - start;
+        return new long[] { allocatedBytes() - before, Math.max(elapsed, 1), rows, sum };
+    }
+
+    private static long[] runRecords(byte[] frames) throws Exception {
+        long before = allocatedBytes();
+        long start = System.currentTimeMillis();
+        SelectRecordReader reader = new SelectRecordReader(
+                new SelectInputStream(new ByteArrayInputStream(frames), null, true), new CSVFormat());
+        long rows = 0;
+        long sum = 0;
+        SelectRecord record;
+        while ((record = reader.next()) != null) {
+            sum += record.getFieldAsLong(2);
+            rows++;
+        }
+        reader.close();
+        long elapsed = System.currentTimeMillis() - start;
+        return new long[] { allocatedBytes() - before, Math.max(elapsed, 1), rows, sum };
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.perftests;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.internal.SharedTransferExecutor;
+import com.aliyun.oss.internal.TransferTaskExecutor;
+
+/**
+ * Runs many concurrent transfers with a thread pool per transfer and with the
+ * client-wide {@link SharedTransferExecutor}, and prints the elapsed time, the
+ * peak thread count and the peak queue depth of the shared executor.
+ *
+ * Usage: SharedTransferExecutorBenchmark [transfers] [partsPerTransfer] [taskNum] [maxConcurrentParts] [partLatencyMs]
+ */
+public class SharedTransferExecutorBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int transfers = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int parts = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int taskNum = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int maxParts = args.length > 3 ? Integer.parseInt(args[3])
+                : ClientConfiguration.DEFAULT_MAX_CONCURRENT_TRANSFER_PARTS;
+        int latency = args.length > 4 ? Integer.parseInt(args[4]) : 20;
+
+        for (boolean shared : new boolean[] { false, true, false, true }) {
+            SharedTransferExecutor executor = shared ? new SharedTransferExecutor(maxParts) : null;
+            long[] result = run(transfers, parts, taskNum, latency, executor);
+            System.out.println(String.format("%-8s %d transfers x %d parts, elapsed %d ms, peak threads %d%s",
+                    shared ? "shared" : "per-call", transfers, parts, result[0], result[1],
+                    shared ? ", peak queued parts " + result[2] : ""));
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private static long[] run(int transfers, final int parts, final int taskNum, final int latency,
+            final SharedTransferExecutor shared) throws InterruptedException {
+        final ClientConfiguration config = new ClientConfiguration();
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        bean.resetPeakThreadCount();
+
+        final CountDownLatch done = new CountDownLatch(transfers);
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        long start = System.currentTimeMillis();
+        for (int t = 0; t < transfers; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        TransferTaskExecutor executor = shared != null ? new TransferTaskExecutor(shared, taskNum)
+                                : new TransferTaskExecutor(config, taskNum);
+                        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+                        for (int p = 0; p < parts; p++) {
+                            final int part = p;
+                            futures.add(executor.submit(new Callable<Integer>() {
+                                @Override
+                                public Integer call() throws Exception {
+                                    Thread.sleep(latency);
+                                    return part;
+                                }
+                            }));
+                        }
+                        executor.shutdownAndAwait();
+                        for (Future<Integer> future : futures) {
+                            future.get();
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        int peakQueued = 0;
+        while (done.getCount() > 0) {
+            if (shared != null) {
+                peakQueued = Math.max(peakQueued, shared.getQueuedParts());
+            }
+            Thread.sleep(1);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException(errors.size() + " transfers failed", errors.get(0));
+        }
+        return new long[] { elapsed, bean.getPeakThreadCount(), peakQueued };
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.oss.perftests;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.aliyun.oss.ClientConfiguration;
+import com.aliyun.oss.common.utils.VirtualThreads;
+import com.aliyun.oss.internal.TransferTaskExecutor;
+
+/**
+ * Starts thousands of concurrent transfers whose parts block like a network
+ * round trip, and compares the platform thread pools against the virtual
+ * thread mode of {@link TransferTaskExecutor}. Virtual mode needs JDK 21.
+ *
+ * Usage: VirtualThreadTransferBenchmark [transfers] [partsPerTransfer] [taskNum] [partLatencyMs]
+ */
+public class VirtualThreadTransferBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int transfers = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int parts = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int taskNum = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int latency = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+
+        for (boolean virtual : new boolean[] { false, true }) {
+            if (virtual && !VirtualThreads.isSupported()) {
+                System.out.println("virtual  unsupported on java " + System.getProperty("java.version"));
+                continue;
+            }
+            long[] result = run(transfers, parts, taskNum, latency, virtual);
+            System.out.println(String.format("%-8s %d transfers x %d parts, elapsed %d ms, peak threads %d",
+                    virtual ? "virtual" : "platform", transfers, parts, result[0], result[1]));
+        }
+    }
+
+    private static long[] run(int transfers, final int parts, final int taskNum, final int latency,
+            boolean virtual) throws InterruptedException {
+        final ClientConfiguration config = new ClientConfiguration();
+        config.setVirtualThreadsEnabled(virtual);
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        bean.resetPeakThreadCount();
+
+        final CountDownLatch done = new CountDownLatch(transfers);
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        ExecutorService launcher = virtual ? VirtualThreads.newVirtualThreadPerTaskExecutor() : null;
+        long start = System.currentTimeMillis();
+        for (int t = 0; t < transfers; t++) {
+            // Each transfer is driven by its own caller thread, as with uploadFile.
+            Runnable transfer = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        TransferTaskExecutor executor = new TransferTaskExecutor(config, taskNum);
+                        List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+                        for (int p = 0; p < parts; p++) {
+                            final int part = p;
+                            futures.add(executor.submit(new Callable<Integer>() {
+                                @Override
+                                public Integer call() throws Exception {
+                                    Thread.sleep(latency);
+                                    return part;
+                                }
+                            }));
+                        }
+                        executor.shutdownAndAwait();
+                        for (Future<Integer> future : futures) {
+                            future.get();
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            };
+            if (virtual) {
+                launcher.execute(transfer);
+            } else {
+                new Thread(transfer).start();
+            }
+        }
+        done.await();
+        long elapsed = System.currentTimeMillis() - start;
+        if (launcher != null) {
+            launcher.shutdown();
+        }
+
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException(errors.size() + " transfers failed", errors.get(0));
+        }
+        return new long[] { elapsed, bean.getPeakThreadCount() };
+    }
+}